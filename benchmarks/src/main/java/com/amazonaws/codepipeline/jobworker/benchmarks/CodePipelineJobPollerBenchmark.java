@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.benchmarks;
+
+import java.util.Collections;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.codepipeline.jobworker.CodePipelineJobPoller;
+import com.amazonaws.codepipeline.jobworker.lifecycle.JobLifecycleDispatcher;
+import com.amazonaws.codepipeline.jobworker.lifecycle.JobLifecycleListener;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics;
+
+/**
+ * Measures one CodePipelineJobPoller.execute call against an in-memory job service: poll, convert,
+ * acknowledge, process and report every job of the batch. Jobs run on the calling thread, so the
+ * score is the cost of the poller itself without thread hand-off. Run with the GC profiler to see
+ * the allocation per poll:
+ * <pre>
+ * java -jar target/benchmarks.jar CodePipelineJobPollerBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-DLOG_DIR=target/logs")
+public class CodePipelineJobPollerBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int batchSize;
+
+    @Param({"false", "true"})
+    private boolean lifecycleListener;
+
+    private CodePipelineJobPoller jobPoller;
+    private JobLifecycleDispatcher dispatcher;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dispatcher = lifecycleListener
+                ? new JobLifecycleDispatcher(Collections.singletonList(new JobLifecycleListener() { }))
+                : JobLifecycleDispatcher.noop();
+        jobPoller = CodePipelineJobPoller.builder(new InMemoryJobService(batchSize, 1),
+                new SucceedingJobProcessor(0),
+                new CallerRunsExecutor(),
+                batchSize)
+                .metrics(new JobWorkerMetrics("Benchmark/Custom/Poller/1"))
+                .lifecycle(dispatcher)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dispatcher.close();
+    }
+
+    /**
+     * Polls one batch and handles every job of it.
+     */
+    @Benchmark
+    public void execute() {
+        jobPoller.execute();
+    }
+
+    /**
+     * Executor which runs the submitted jobs on the calling thread and never has active workers.
+     */
+    private static final class CallerRunsExecutor extends ThreadPoolExecutor {
+        private CallerRunsExecutor() {
+            super(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    }
+}
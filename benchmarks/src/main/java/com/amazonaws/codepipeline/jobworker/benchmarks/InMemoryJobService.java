@@ -0,0 +1,97 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.amazonaws.codepipeline.jobworker.JobService;
+import com.amazonaws.codepipeline.jobworker.model.CurrentRevision;
+import com.amazonaws.codepipeline.jobworker.model.ExecutionDetails;
+import com.amazonaws.codepipeline.jobworker.model.FailureDetails;
+import com.amazonaws.codepipeline.jobworker.model.JobStatus;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import com.amazonaws.codepipeline.jobworker.plugin.JobConverter;
+import com.amazonaws.services.codepipeline.model.Job;
+
+/**
+ * Job service which returns pre-generated jobs without any network round trip, so that benchmarks
+ * measure the job worker and not the CodePipeline API.
+ * Every poll converts the jobs like the real job services do.
+ */
+final class InMemoryJobService implements JobService {
+
+    private final List<Job> jobs;
+    private long reportedJobs;
+
+    /**
+     * Initializes the job service.
+     * @param maxBatchSize maximum number of jobs returned by a poll
+     * @param artifactsPerJob number of input and output artifacts of every job
+     */
+    InMemoryJobService(final int maxBatchSize, final int artifactsPerJob) {
+        this.jobs = JobGenerator.generateJobs(maxBatchSize, artifactsPerJob);
+    }
+
+    @Override
+    public List<WorkItem> pollForJobs(final int maxBatchSize) {
+        final int batchSize = Math.min(maxBatchSize, jobs.size());
+        final List<WorkItem> workItems = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            workItems.add(JobConverter.convert(jobs.get(i)));
+        }
+        return workItems;
+    }
+
+    @Override
+    public JobStatus acknowledgeJob(final String jobId, final String clientId, final String nonce) {
+        return JobStatus.InProgress;
+    }
+
+    @Override
+    public void putJobSuccess(final String jobId,
+                              final String clientId,
+                              final ExecutionDetails executionDetails,
+                              final CurrentRevision currentRevision,
+                              final String continuationToken) {
+        reported();
+    }
+
+    @Override
+    public void putJobFailure(final String jobId, final String clientId, final FailureDetails failureDetails) {
+        reported();
+    }
+
+    /**
+     * @return number of jobs reported so far
+     */
+    synchronized long getReportedJobs() {
+        return reportedJobs;
+    }
+
+    /**
+     * Waits until the given number of jobs has been reported in total.
+     * @param count total number of reported jobs
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized void awaitReportedJobs(final long count) throws InterruptedException {
+        while (reportedJobs < count) {
+            wait();
+        }
+    }
+
+    private synchronized void reported() {
+        reportedJobs++;
+        notifyAll();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.benchmarks;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.amazonaws.codepipeline.jobworker.model.AWSSessionCredentials;
+import com.amazonaws.codepipeline.jobworker.model.Artifact;
+import com.amazonaws.codepipeline.jobworker.model.EncryptionKey;
+import com.amazonaws.codepipeline.jobworker.model.EncryptionKeyType;
+import com.amazonaws.codepipeline.jobworker.model.JobData;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import com.amazonaws.codepipeline.jobworker.plugin.JobConverter;
+import com.amazonaws.services.codepipeline.model.Job;
+
+/**
+ * Compares the lazy job data view returned by the JobConverter with an eager copy of all fields,
+ * which is what the JobConverter did before. Run with the GC profiler to see the allocation per batch:
+ * <pre>
+ * java -jar target/benchmarks.jar JobConverterBenchmark -prof gc
+ * </pre>
+ * The gc.alloc.rate.norm metric is the number of bytes allocated per converted poll batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JobConverterBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int batchSize;
+
+    @Param({"1", "20"})
+    private int artifactsPerJob;
+
+    private List<Job> jobs;
+
+    @Setup
+    public void setUp() {
+        jobs = JobGenerator.generateJobs(batchSize, artifactsPerJob);
+    }
+
+    /**
+     * Converts a poll batch and only reads what the poller needs to acknowledge the jobs.
+     * @param blackhole consumes the converted work items
+     */
+    @Benchmark
+    public void lazyConvertBatch(final Blackhole blackhole) {
+        for (final Job job : jobs) {
+            final WorkItem workItem = JobConverter.convert(job);
+            blackhole.consume(workItem.getJobId());
+            blackhole.consume(workItem.getJobData());
+        }
+    }
+
+    /**
+     * Converts a poll batch and reads the fields a typical job processor needs:
+     * the action configuration, the first input artifact and the artifact credentials.
+     * @param blackhole consumes the converted fields
+     */
+    @Benchmark
+    public void lazyConvertBatchAndReadTypicalFields(final Blackhole blackhole) {
+        for (final Job job : jobs) {
+            final JobData jobData = JobConverter.convert(job).getJobData();
+            blackhole.consume(jobData.getActionConfiguration());
+            blackhole.consume(jobData.getInputArtifacts().get(0));
+            blackhole.consume(jobData.getArtifactCredentials());
+        }
+    }
+
+    /**
+     * Converts a poll batch and reads every field, the worst case for the lazy view.
+     * @param blackhole consumes the converted fields
+     */
+    @Benchmark
+    public void lazyConvertBatchAndReadAllFields(final Blackhole blackhole) {
+        for (final Job job : jobs) {
+            final JobData jobData = JobConverter.convert(job).getJobData();
+            blackhole.consume(jobData.getActionConfiguration());
+            jobData.getInputArtifacts().forEach(blackhole::consume);
+            jobData.getOutputArtifacts().forEach(blackhole::consume);
+            blackhole.consume(jobData.getArtifactCredentials());
+            blackhole.consume(jobData.getEncryptionKey());
+            blackhole.consume(jobData.getContinuationToken());
+        }
+    }
+
+    /**
+     * Baseline: copies every field of a poll batch up front, like the eager conversion did.
+     * @param blackhole consumes the converted work items
+     */
+    @Benchmark
+    public void eagerConvertBatch(final Blackhole blackhole) {
+        for (final Job job : jobs) {
+            blackhole.consume(new WorkItem(job.getId(), job.getNonce(), eagerConvert(job.getData()), job.getAccountId()));
+        }
+    }
+
+    private static JobData eagerConvert(final com.amazonaws.services.codepipeline.model.JobData jobData) {
+        final com.amazonaws.services.codepipeline.model.AWSSessionCredentials credentials = jobData.getArtifactCredentials();
+        final com.amazonaws.services.codepipeline.model.EncryptionKey encryptionKey = jobData.getEncryptionKey();
+        return new JobData(
+                jobData.getActionConfiguration() == null ? null : jobData.getActionConfiguration().getConfiguration(),
+                eagerConvert(jobData.getInputArtifacts()),
+                eagerConvert(jobData.getOutputArtifacts()),
+                credentials == null ? null : new AWSSessionCredentials(credentials.getAccessKeyId(),
+                        credentials.getSecretAccessKey(),
+                        credentials.getSessionToken()),
+                jobData.getContinuationToken(),
+                encryptionKey == null ? null : new EncryptionKey(EncryptionKeyType.valueOf(encryptionKey.getType()),
+                        encryptionKey.getId()));
+    }
+
+    private static List<Artifact> eagerConvert(final List<com.amazonaws.services.codepipeline.model.Artifact> artifacts) {
+        if (artifacts == null) {
+            return Collections.emptyList();
+        }
+        return artifacts.stream()
+                .map(a -> new Artifact(a.getName(),
+                        a.getRevision(),
+                        a.getLocation().getS3Location().getBucketName(),
+                        a.getLocation().getS3Location().getObjectKey()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import com.amazonaws.services.codepipeline.model.AWSSessionCredentials;
+import com.amazonaws.services.codepipeline.model.ActionConfiguration;
+import com.amazonaws.services.codepipeline.model.Artifact;
+import com.amazonaws.services.codepipeline.model.ArtifactLocation;
+import com.amazonaws.services.codepipeline.model.EncryptionKey;
+import com.amazonaws.services.codepipeline.model.Job;
+import com.amazonaws.services.codepipeline.model.JobData;
+import com.amazonaws.services.codepipeline.model.S3ArtifactLocation;
+
+/**
+ * Generates CodePipeline job structures as they are returned by PollForJobs.
+ */
+final class JobGenerator {
+
+    private JobGenerator() {
+        // Utility class
+    }
+
+    /**
+     * Generates a poll batch.
+     * @param batchSize number of jobs
+     * @param artifactsPerJob number of input and output artifacts of every job
+     * @return jobs
+     */
+    static List<Job> generateJobs(final int batchSize, final int artifactsPerJob) {
+        final List<Job> jobs = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            jobs.add(generateJob(artifactsPerJob));
+        }
+        return jobs;
+    }
+
+    /**
+     * Generates a single job.
+     * @param artifactsPerJob number of input and output artifacts
+     * @return job
+     */
+    static Job generateJob(final int artifactsPerJob) {
+        final Map<String, String> configuration = new HashMap<>();
+        configuration.put("ProjectName", "my-project");
+        configuration.put("Environment", "prod");
+        final ActionConfiguration actionConfiguration = new ActionConfiguration();
+        actionConfiguration.setConfiguration(configuration);
+
+        final AWSSessionCredentials credentials = new AWSSessionCredentials();
+        credentials.setAccessKeyId(UUID.randomUUID().toString());
+        credentials.setSecretAccessKey(UUID.randomUUID().toString());
+        credentials.setSessionToken(UUID.randomUUID().toString());
+
+        final EncryptionKey encryptionKey = new EncryptionKey();
+        encryptionKey.setType("KMS");
+        encryptionKey.setId("arn:aws:kms:us-east-1:123456789012:key/my-key");
+
+        final JobData jobData = new JobData();
+        jobData.setActionConfiguration(actionConfiguration);
+        jobData.setInputArtifacts(generateArtifacts(artifactsPerJob));
+        jobData.setOutputArtifacts(generateArtifacts(artifactsPerJob));
+        jobData.setArtifactCredentials(credentials);
+        jobData.setEncryptionKey(encryptionKey);
+
+        final Job job = new Job();
+        job.setId(UUID.randomUUID().toString());
+        job.setNonce("1");
+        job.setAccountId("123456789012");
+        job.setData(jobData);
+        return job;
+    }
+
+    private static List<Artifact> generateArtifacts(final int count) {
+        final List<Artifact> artifacts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final S3ArtifactLocation s3Location = new S3ArtifactLocation();
+            s3Location.setBucketName("my-bucket");
+            s3Location.setObjectKey("my-pipeline/Artifact" + i + "/" + UUID.randomUUID());
+
+            final ArtifactLocation location = new ArtifactLocation();
+            location.setType("S3");
+            location.setS3Location(s3Location);
+
+            final Artifact artifact = new Artifact();
+            artifact.setName("Artifact" + i);
+            artifact.setRevision(UUID.randomUUID().toString());
+            artifact.setLocation(location);
+            artifacts.add(artifact);
+        }
+        return artifacts;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.benchmarks;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.codepipeline.jobworker.CodePipelineJobPoller;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics;
+
+/**
+ * End-to-end jobs per second of the job worker: every invocation polls one batch, hands the jobs to
+ * a worker thread pool sized like the batch and waits until all of them are reported.
+ * The jobs counter is the job throughput, the primary score the number of poll batches per second.
+ * <pre>
+ * java -jar target/benchmarks.jar JobThroughputBenchmark -prof gc
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-DLOG_DIR=target/logs")
+public class JobThroughputBenchmark {
+
+    @Param({"1", "10", "50", "100"})
+    private int batchSize;
+
+    /**
+     * CPU work of the job processor per job, 0 measures the pure job worker overhead.
+     */
+    @Param({"0", "10000"})
+    private long workTokens;
+
+    private InMemoryJobService jobService;
+    private ThreadPoolExecutor executorService;
+    private CodePipelineJobPoller jobPoller;
+
+    /**
+     * Processed jobs, reported by JMH as jobs per second next to the poll batches per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Jobs {
+        public long jobs;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            jobs = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jobService = new InMemoryJobService(batchSize, 1);
+        executorService = (ThreadPoolExecutor) Executors.newFixedThreadPool(batchSize);
+        jobPoller = CodePipelineJobPoller.builder(jobService,
+                new SucceedingJobProcessor(workTokens),
+                executorService,
+                batchSize)
+                .metrics(new JobWorkerMetrics("Benchmark/Custom/Throughput/1"))
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Polls one batch and waits until every job of it is reported.
+     * @param jobs processed jobs counter
+     * @throws InterruptedException if interrupted while waiting for the jobs
+     */
+    @Benchmark
+    public void pollAndProcessBatch(final Jobs jobs) throws InterruptedException {
+        final long reported = jobService.getReportedJobs();
+        jobPoller.execute();
+        jobService.awaitReportedJobs(reported + batchSize);
+        // Worker threads are only counted as idle once their task returned, wait for them for the next poll.
+        while (executorService.getActiveCount() > 0) {
+            Thread.yield();
+        }
+        jobs.jobs += batchSize;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Time from the launch of a job worker JVM to its first PollForJobs request, with and without class data sharing.
+ * Every run starts a new JVM which polls a local endpoint once and stops, the variants run interleaved.
+ * <pre>
+ * mvn package -Pappcds
+ * cd benchmarks
+ * java -cp target/benchmarks.jar com.amazonaws.codepipeline.jobworker.benchmarks.StartupBenchmark \
+ *     ../target/jobworker-1.0.jar:$(cat ../target/classpath.txt) ../target/jobworker.jsa 20
+ * </pre>
+ * Arguments: class path of the job worker, optional class data sharing archive created for this class path
+ * and the number of runs per variant (default 10).
+ */
+public final class StartupBenchmark {
+
+    private static final String POLL_FOR_JOBS = "CodePipeline_20150709.PollForJobs";
+    private static final byte[] NO_JOBS = "{\"jobs\":[]}".getBytes(StandardCharsets.UTF_8);
+    private static final long TIMEOUT_SECONDS = 60;
+
+    private final SynchronousQueue<Long> polls = new SynchronousQueue<>();
+    private final HttpServer server;
+
+    private StartupBenchmark() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: StartupBenchmark <job worker class path> [<archive>] [<runs>]");
+            System.exit(1);
+        }
+        final String classPath = args[0];
+        final String archive = args.length > 1 ? args[1] : null;
+        final int runs = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        final Map<String, List<String>> variants = new LinkedHashMap<>();
+        variants.put("no class data sharing", Collections.singletonList("-Xshare:off"));
+        variants.put("JDK class data sharing", Collections.emptyList());
+        if (archive != null) {
+            if (!new File(archive).isFile()) {
+                System.err.println("Archive " + archive + " does not exist, build it with mvn package -Pappcds");
+                System.exit(1);
+            }
+            variants.put("AppCDS archive", Collections.singletonList("-XX:SharedArchiveFile=" + archive));
+        }
+
+        final StartupBenchmark benchmark = new StartupBenchmark();
+        final Map<String, List<Long>> results = new LinkedHashMap<>();
+        try {
+            // one JVM per variant first, warms up the file system cache
+            for (final List<String> options : variants.values()) {
+                benchmark.run(classPath, options);
+            }
+            for (int i = 0; i < runs; i++) {
+                for (final Map.Entry<String, List<String>> variant : variants.entrySet()) {
+                    results.computeIfAbsent(variant.getKey(), k -> new ArrayList<>())
+                            .add(benchmark.run(classPath, variant.getValue()));
+                }
+            }
+        } finally {
+            benchmark.server.stop(0);
+        }
+
+        System.out.println(String.format("%-24s %10s %10s %10s", "Time to first poll (ms)", "min", "median", "max"));
+        for (final Map.Entry<String, List<Long>> result : results.entrySet()) {
+            final List<Long> millis = result.getValue();
+            Collections.sort(millis);
+            System.out.println(String.format("%-24s %10d %10d %10d",
+                    result.getKey(), millis.get(0), millis.get(millis.size() / 2), millis.get(millis.size() - 1)));
+        }
+    }
+
+    /**
+     * Launches a job worker and waits for its first poll.
+     * @return milliseconds from the launch to the first PollForJobs request
+     */
+    private long run(final String classPath, final List<String> jvmOptions) throws IOException, InterruptedException {
+        final List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(jvmOptions);
+        command.addAll(Arrays.asList(
+                "-DSTOP_AFTER_FIRST_POLL=true",
+                "-DAWS_REGION=us-east-1",
+                "-DCODEPIPELINE_ENDPOINT=http://127.0.0.1:" + server.getAddress().getPort(),
+                "-Daws.accessKeyId=benchmark",
+                "-Daws.secretKey=benchmark",
+                "-DLOG_DIR=target/logs",
+                "-cp", classPath,
+                "com.amazonaws.codepipeline.jobworker.JobWorkerDaemon"));
+        final File log = new File("target/startup-benchmark.log");
+        final long launched = System.nanoTime();
+        final Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.appendTo(log))
+                .start();
+        try {
+            final Long polled = polls.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (polled == null) {
+                throw new IllegalStateException("Job worker did not poll within " + TIMEOUT_SECONDS + " seconds, see " + log);
+            }
+            if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("Job worker did not stop after the first poll, see " + log);
+            }
+            return TimeUnit.NANOSECONDS.toMillis(polled - launched);
+        } finally {
+            process.destroyForcibly();
+        }
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        final long received = System.nanoTime();
+        try (InputStream body = exchange.getRequestBody()) {
+            final byte[] buffer = new byte[4096];
+            while (body.read(buffer) >= 0) {
+                // drains the request
+            }
+        }
+        if (!POLL_FOR_JOBS.equals(exchange.getRequestHeaders().getFirst("X-Amz-Target"))) {
+            exchange.sendResponseHeaders(400, -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/x-amz-json-1.1");
+        exchange.sendResponseHeaders(200, NO_JOBS.length);
+        try (OutputStream response = exchange.getResponseBody()) {
+            response.write(NO_JOBS);
+        }
+        // only the first poll of a job worker is waited for
+        polls.offer(received);
+    }
+}
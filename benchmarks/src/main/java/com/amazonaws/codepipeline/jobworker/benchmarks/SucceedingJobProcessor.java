@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.benchmarks;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.amazonaws.codepipeline.jobworker.JobProcessor;
+import com.amazonaws.codepipeline.jobworker.model.CurrentRevision;
+import com.amazonaws.codepipeline.jobworker.model.ExecutionDetails;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import com.amazonaws.codepipeline.jobworker.model.WorkResult;
+
+/**
+ * Job processor which reads the job configuration, burns a fixed amount of CPU and succeeds.
+ */
+final class SucceedingJobProcessor implements JobProcessor {
+
+    private final long workTokens;
+
+    /**
+     * @param workTokens amount of CPU work per job, see Blackhole.consumeCPU
+     */
+    SucceedingJobProcessor(final long workTokens) {
+        this.workTokens = workTokens;
+    }
+
+    @Override
+    public WorkResult process(final WorkItem workItem) {
+        workItem.getJobData().getActionConfiguration();
+        if (workTokens > 0) {
+            Blackhole.consumeCPU(workTokens);
+        }
+        return WorkResult.success(workItem.getJobId(),
+                new ExecutionDetails("Succeeded", workItem.getJobId(), 100),
+                new CurrentRevision("revision", "change"));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.sdkv2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.codepipeline.jobworker.LogMarkers;
+import com.amazonaws.codepipeline.jobworker.Validator;
+import com.amazonaws.codepipeline.jobworker.model.ActionTypeId;
+import com.amazonaws.codepipeline.jobworker.model.CurrentRevision;
+import com.amazonaws.codepipeline.jobworker.model.ExecutionDetails;
+import com.amazonaws.codepipeline.jobworker.model.FailureDetails;
+import com.amazonaws.codepipeline.jobworker.model.JobStatus;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import software.amazon.awssdk.services.codepipeline.CodePipelineAsyncClient;
+import software.amazon.awssdk.services.codepipeline.model.AcknowledgeJobRequest;
+import software.amazon.awssdk.services.codepipeline.model.Job;
+import software.amazon.awssdk.services.codepipeline.model.PollForJobsRequest;
+import software.amazon.awssdk.services.codepipeline.model.PutJobFailureResultRequest;
+import software.amazon.awssdk.services.codepipeline.model.PutJobSuccessResultRequest;
+
+/**
+ * Async job service for the custom action job api on the SDK v2 async client.
+ */
+public class AsyncCustomActionJobService implements AsyncJobService {
+    private static final Logger LOGGER = LogManager.getLogger(AsyncCustomActionJobService.class);
+
+    private final CodePipelineAsyncClient codePipelineClient;
+    private final ActionTypeId actionTypeId;
+
+    /**
+     * Initializes the custom action job service.
+     * @param codePipelineClient async service client for the AWS CodePipeline api.
+     * @param actionTypeId action type id to poll for.
+     */
+    public AsyncCustomActionJobService(final CodePipelineAsyncClient codePipelineClient, final ActionTypeId actionTypeId) {
+        Validator.notNull(codePipelineClient);
+        Validator.notNull(actionTypeId);
+
+        this.codePipelineClient = codePipelineClient;
+        this.actionTypeId = actionTypeId;
+    }
+
+    @Override
+    public CompletableFuture<List<WorkItem>> pollForJobs(final int maxBatchSize) {
+        LOGGER.info(LogMarkers.JOB, "PollForJobs for action type id {}", actionTypeId);
+        final PollForJobsRequest request = PollForJobsRequest.builder()
+                .actionTypeId(ModelConverter.convert(actionTypeId))
+                .maxBatchSize(maxBatchSize)
+                .build();
+        return codePipelineClient.pollForJobs(request).thenApply(response -> {
+            final List<WorkItem> result = new ArrayList<>(response.jobs().size());
+            for (final Job job : response.jobs()) {
+                result.add(ModelConverter.convert(job));
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public CompletableFuture<JobStatus> acknowledgeJob(final String jobId, final String clientId, final String nonce) {
+        LOGGER.info(LogMarkers.JOB, "AcknowledgeJob for job '{}' and nonce '{}'", jobId, nonce);
+        final AcknowledgeJobRequest request = AcknowledgeJobRequest.builder()
+                .jobId(jobId)
+                .nonce(nonce)
+                .build();
+        return codePipelineClient.acknowledgeJob(request)
+                .thenApply(response -> JobStatus.valueOf(response.statusAsString()));
+    }
+
+    @Override
+    public CompletableFuture<Void> putJobSuccess(final String jobId,
+                                                 final String clientId,
+                                                 final ExecutionDetails executionDetails,
+                                                 final CurrentRevision currentRevision,
+                                                 final String continuationToken) {
+        LOGGER.info(LogMarkers.JOB, "PutJobSuccessResult for job '{}'", jobId);
+        final PutJobSuccessResultRequest request = PutJobSuccessResultRequest.builder()
+                .jobId(jobId)
+                .executionDetails(ModelConverter.convert(executionDetails))
+                .currentRevision(ModelConverter.convert(currentRevision))
+                .continuationToken(continuationToken)
+                .build();
+        return codePipelineClient.putJobSuccessResult(request).thenApply(response -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> putJobFailure(final String jobId,
+                                                 final String clientId,
+                                                 final FailureDetails failureDetails) {
+        LOGGER.info(LogMarkers.JOB, "PutJobFailureResult for job '{}'", jobId);
+        final PutJobFailureResultRequest request = PutJobFailureResultRequest.builder()
+                .jobId(jobId)
+                .failureDetails(ModelConverter.convert(failureDetails))
+                .build();
+        return codePipelineClient.putJobFailureResult(request).thenApply(response -> null);
+    }
+}
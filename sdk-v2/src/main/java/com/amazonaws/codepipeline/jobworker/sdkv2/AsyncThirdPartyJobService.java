@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.sdkv2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.codepipeline.jobworker.LogMarkers;
+import com.amazonaws.codepipeline.jobworker.Validator;
+import com.amazonaws.codepipeline.jobworker.model.ActionTypeId;
+import com.amazonaws.codepipeline.jobworker.model.CurrentRevision;
+import com.amazonaws.codepipeline.jobworker.model.ExecutionDetails;
+import com.amazonaws.codepipeline.jobworker.model.FailureDetails;
+import com.amazonaws.codepipeline.jobworker.model.JobStatus;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import com.amazonaws.codepipeline.jobworker.plugin.thirdparty.ClientTokenProvider;
+import software.amazon.awssdk.services.codepipeline.CodePipelineAsyncClient;
+import software.amazon.awssdk.services.codepipeline.model.AcknowledgeThirdPartyJobRequest;
+import software.amazon.awssdk.services.codepipeline.model.GetThirdPartyJobDetailsRequest;
+import software.amazon.awssdk.services.codepipeline.model.PollForThirdPartyJobsRequest;
+import software.amazon.awssdk.services.codepipeline.model.PutThirdPartyJobFailureResultRequest;
+import software.amazon.awssdk.services.codepipeline.model.PutThirdPartyJobSuccessResultRequest;
+import software.amazon.awssdk.services.codepipeline.model.ThirdPartyJob;
+
+/**
+ * Async job service for the third party job api on the SDK v2 async client.
+ * The job details of a poll batch are requested concurrently.
+ */
+public class AsyncThirdPartyJobService implements AsyncJobService {
+    private static final Logger LOGGER = LogManager.getLogger(AsyncThirdPartyJobService.class);
+
+    private final CodePipelineAsyncClient codePipelineClient;
+    private final ActionTypeId actionTypeId;
+    private final ClientTokenProvider clientTokenProvider;
+
+    /**
+     * Initializes the third party job service.
+     * @param codePipelineClient async service client for the AWS CodePipeline api.
+     * @param actionTypeId action type id to poll for.
+     * @param clientTokenProvider client token provider to look up client token by client id,
+     *                            in order to get the job details.
+     */
+    public AsyncThirdPartyJobService(final CodePipelineAsyncClient codePipelineClient,
+                                     final ActionTypeId actionTypeId,
+                                     final ClientTokenProvider clientTokenProvider) {
+        Validator.notNull(codePipelineClient);
+        Validator.notNull(actionTypeId);
+        Validator.notNull(clientTokenProvider);
+
+        this.codePipelineClient = codePipelineClient;
+        this.actionTypeId = actionTypeId;
+        this.clientTokenProvider = clientTokenProvider;
+    }
+
+    @Override
+    public CompletableFuture<List<WorkItem>> pollForJobs(final int maxBatchSize) {
+        LOGGER.info(LogMarkers.JOB, "PollForThirdPartyJobs for action type id '{}'", actionTypeId);
+        final PollForThirdPartyJobsRequest request = PollForThirdPartyJobsRequest.builder()
+                .actionTypeId(ModelConverter.convert(actionTypeId))
+                .maxBatchSize(maxBatchSize)
+                .build();
+        return codePipelineClient.pollForThirdPartyJobs(request).thenCompose(response -> {
+            final List<CompletableFuture<WorkItem>> workItems = new ArrayList<>(response.jobs().size());
+            for (final ThirdPartyJob job : response.jobs()) {
+                workItems.add(getWorkItem(job.jobId(), job.clientId()));
+            }
+            return CompletableFuture.allOf(workItems.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+                final List<WorkItem> result = new ArrayList<>(workItems.size());
+                for (final CompletableFuture<WorkItem> workItem : workItems) {
+                    result.add(workItem.join());
+                }
+                return result;
+            });
+        });
+    }
+
+    @Override
+    public CompletableFuture<JobStatus> acknowledgeJob(final String jobId, final String clientId, final String nonce) {
+        LOGGER.info(LogMarkers.JOB, "AcknowledgeThirdPartyJob for job '{}' with clientId '{}' and nonce '{}'", jobId, clientId, nonce);
+        final AcknowledgeThirdPartyJobRequest request = AcknowledgeThirdPartyJobRequest.builder()
+                .jobId(jobId)
+                .nonce(nonce)
+                .clientToken(clientTokenProvider.lookupClientSecret(clientId))
+                .build();
+        return codePipelineClient.acknowledgeThirdPartyJob(request)
+                .thenApply(response -> JobStatus.valueOf(response.statusAsString()));
+    }
+
+    @Override
+    public CompletableFuture<Void> putJobSuccess(final String jobId,
+                                                 final String clientId,
+                                                 final ExecutionDetails executionDetails,
+                                                 final CurrentRevision currentRevision,
+                                                 final String continuationToken) {
+        LOGGER.info(LogMarkers.JOB, "PutThirdPartyJobSuccessResult for job '{}'", jobId);
+        final PutThirdPartyJobSuccessResultRequest request = PutThirdPartyJobSuccessResultRequest.builder()
+                .jobId(jobId)
+                .clientToken(clientTokenProvider.lookupClientSecret(clientId))
+                .executionDetails(ModelConverter.convert(executionDetails))
+                .currentRevision(ModelConverter.convert(currentRevision))
+                .continuationToken(continuationToken)
+                .build();
+        return codePipelineClient.putThirdPartyJobSuccessResult(request).thenApply(response -> null);
+    }
+
+    @Override
+    public CompletableFuture<Void> putJobFailure(final String jobId,
+                                                 final String clientId,
+                                                 final FailureDetails failureDetails) {
+        LOGGER.info(LogMarkers.JOB, "PutThirdPartyJobFailureResult for job '{}'", jobId);
+        final PutThirdPartyJobFailureResultRequest request = PutThirdPartyJobFailureResultRequest.builder()
+                .jobId(jobId)
+                .clientToken(clientTokenProvider.lookupClientSecret(clientId))
+                .failureDetails(ModelConverter.convert(failureDetails))
+                .build();
+        return codePipelineClient.putThirdPartyJobFailureResult(request).thenApply(response -> null);
+    }
+
+    private CompletableFuture<WorkItem> getWorkItem(final String jobId, final String clientId) {
+        LOGGER.info(LogMarkers.JOB, "GetThirdPartyJobDetails for job '{}'", jobId);
+        final GetThirdPartyJobDetailsRequest request = GetThirdPartyJobDetailsRequest.builder()
+                .jobId(jobId)
+                .clientToken(clientTokenProvider.lookupClientSecret(clientId))
+                .build();
+        return codePipelineClient.getThirdPartyJobDetails(request)
+                .thenApply(response -> ModelConverter.convert(clientId, response.jobDetails()));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.sdkv2;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.codepipeline.jobworker.JobService;
+import com.amazonaws.codepipeline.jobworker.Validator;
+import com.amazonaws.codepipeline.jobworker.model.CurrentRevision;
+import com.amazonaws.codepipeline.jobworker.model.ExecutionDetails;
+import com.amazonaws.codepipeline.jobworker.model.FailureDetails;
+import com.amazonaws.codepipeline.jobworker.model.JobStatus;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import com.amazonaws.retry.RetryUtils;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+
+/**
+ * Job service on top of an async job service, for the job poller and the job processors.
+ * Waits for every call and rethrows its failure, e.g. the SDK exception, unwrapped.
+ * Throttling errors are rethrown as v1 service exceptions with the SDK v2 exception as cause,
+ * so the API metrics count them as throttles and the poll auto tuner backs off.
+ */
+public class BlockingJobService implements JobService {
+
+    /**
+     * Error code the v1 SDK recognizes as throttling, used if it does not know the code of the v2 exception.
+     */
+    private static final String THROTTLING_ERROR_CODE = "ThrottlingException";
+
+    private final AsyncJobService asyncJobService;
+
+    /**
+     * Initializes the job service.
+     * @param asyncJobService async job service which makes the API calls
+     */
+    public BlockingJobService(final AsyncJobService asyncJobService) {
+        Validator.notNull(asyncJobService);
+        this.asyncJobService = asyncJobService;
+    }
+
+    /**
+     * @return async job service which makes the API calls
+     */
+    public AsyncJobService getAsyncJobService() {
+        return asyncJobService;
+    }
+
+    @Override
+    public List<WorkItem> pollForJobs(final int maxBatchSize) {
+        return join(asyncJobService.pollForJobs(maxBatchSize));
+    }
+
+    @Override
+    public JobStatus acknowledgeJob(final String jobId, final String clientId, final String nonce) {
+        return join(asyncJobService.acknowledgeJob(jobId, clientId, nonce));
+    }
+
+    @Override
+    public void putJobSuccess(final String jobId,
+                              final String clientId,
+                              final ExecutionDetails executionDetails,
+                              final CurrentRevision currentRevision,
+                              final String continuationToken) {
+        join(asyncJobService.putJobSuccess(jobId, clientId, executionDetails, currentRevision, continuationToken));
+    }
+
+    @Override
+    public void putJobFailure(final String jobId, final String clientId, final FailureDetails failureDetails) {
+        join(asyncJobService.putJobFailure(jobId, clientId, failureDetails));
+    }
+
+    private static <T> T join(final CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof AwsServiceException && ((AwsServiceException) e.getCause()).isThrottlingException()) {
+                throw throttlingException((AwsServiceException) e.getCause());
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static AmazonServiceException throttlingException(final AwsServiceException cause) {
+        final AmazonServiceException throttling = new AmazonServiceException(cause.getMessage(), cause);
+        throttling.setStatusCode(cause.statusCode());
+        throttling.setRequestId(cause.requestId());
+        if (cause.awsErrorDetails() != null) {
+            throttling.setErrorCode(cause.awsErrorDetails().errorCode());
+            throttling.setServiceName(cause.awsErrorDetails().serviceName());
+        }
+        if (!RetryUtils.isThrottlingException(throttling)) {
+            throttling.setErrorCode(THROTTLING_ERROR_CODE);
+        }
+        return throttling;
+    }
+}
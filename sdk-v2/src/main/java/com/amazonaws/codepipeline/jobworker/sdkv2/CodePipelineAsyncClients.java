@@ -0,0 +1,63 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.sdkv2;
+
+import java.net.URI;
+import java.time.Duration;
+
+import com.amazonaws.codepipeline.jobworker.configuration.HttpClientSettings;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.codepipeline.CodePipelineAsyncClient;
+import software.amazon.awssdk.services.codepipeline.CodePipelineAsyncClientBuilder;
+
+/**
+ * Creates SDK v2 async CodePipeline clients on the non-blocking Netty HTTP client.
+ */
+public final class CodePipelineAsyncClients {
+
+    private CodePipelineAsyncClients() {
+    }
+
+    /**
+     * Creates a client with the connection pool, keep-alive and timeout settings of the v1 client.
+     * Calls in flight hold a pooled connection but no thread, the event loop threads of Netty read the responses.
+     * @param regionName region name, e.g. us-east-1
+     * @param settings connection pool and timeout settings
+     * @param endpoint endpoint override, null for the endpoint of the region
+     * @return async client, closing it closes its HTTP client
+     */
+    public static CodePipelineAsyncClient create(final String regionName,
+                                                 final HttpClientSettings settings,
+                                                 final URI endpoint) {
+        final CodePipelineAsyncClientBuilder builder = CodePipelineAsyncClient.builder()
+                .region(Region.of(regionName))
+                .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(settings.getMaxConnections())
+                        .connectionTimeout(Duration.ofMillis(settings.getConnectionTimeoutMs()))
+                        .readTimeout(Duration.ofMillis(settings.getSocketTimeoutMs()))
+                        .writeTimeout(Duration.ofMillis(settings.getSocketTimeoutMs()))
+                        .connectionTimeToLive(Duration.ofMillis(settings.getConnectionTtlMs()))
+                        .connectionMaxIdleTime(Duration.ofMillis(settings.getConnectionMaxIdleMs()))
+                        .useIdleConnectionReaper(true)
+                        .tcpKeepAlive(true))
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .apiCallAttemptTimeout(Duration.ofMillis(settings.getRequestTimeoutMs()))
+                        .build());
+        if (endpoint != null) {
+            builder.endpointOverride(endpoint);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.sdkv2;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.amazonaws.codepipeline.jobworker.model.AWSSessionCredentials;
+import com.amazonaws.codepipeline.jobworker.model.ActionTypeId;
+import com.amazonaws.codepipeline.jobworker.model.Artifact;
+import com.amazonaws.codepipeline.jobworker.model.CurrentRevision;
+import com.amazonaws.codepipeline.jobworker.model.EncryptionKey;
+import com.amazonaws.codepipeline.jobworker.model.EncryptionKeyType;
+import com.amazonaws.codepipeline.jobworker.model.ExecutionDetails;
+import com.amazonaws.codepipeline.jobworker.model.FailureDetails;
+import com.amazonaws.codepipeline.jobworker.model.JobData;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import software.amazon.awssdk.services.codepipeline.model.ActionConfiguration;
+import software.amazon.awssdk.services.codepipeline.model.Job;
+import software.amazon.awssdk.services.codepipeline.model.S3ArtifactLocation;
+import software.amazon.awssdk.services.codepipeline.model.ThirdPartyJobData;
+import software.amazon.awssdk.services.codepipeline.model.ThirdPartyJobDetails;
+
+/**
+ * Converts between the SDK v2 CodePipeline model and the job worker model, the counterpart of the
+ * v1 JobConverter. Job processors see the same work items with either SDK.
+ */
+final class ModelConverter {
+
+    private ModelConverter() {
+    }
+
+    static WorkItem convert(final Job job) {
+        final software.amazon.awssdk.services.codepipeline.model.JobData data = job.data();
+        return new WorkItem(job.id(),
+                job.nonce(),
+                new JobData(configuration(data.actionConfiguration()),
+                        convert(data.inputArtifacts()),
+                        convert(data.outputArtifacts()),
+                        convert(data.artifactCredentials()),
+                        data.continuationToken(),
+                        convert(data.encryptionKey())),
+                job.accountId());
+    }
+
+    static WorkItem convert(final String clientId, final ThirdPartyJobDetails jobDetails) {
+        final ThirdPartyJobData data = jobDetails.data();
+        return new WorkItem(jobDetails.id(),
+                jobDetails.nonce(),
+                new JobData(configuration(data.actionConfiguration()),
+                        convert(data.inputArtifacts()),
+                        convert(data.outputArtifacts()),
+                        convert(data.artifactCredentials()),
+                        data.continuationToken(),
+                        convert(data.encryptionKey())),
+                clientId);
+    }
+
+    static software.amazon.awssdk.services.codepipeline.model.ActionTypeId convert(final ActionTypeId actionTypeId) {
+        return software.amazon.awssdk.services.codepipeline.model.ActionTypeId.builder()
+                .category(actionTypeId.getCategory())
+                .owner(actionTypeId.getOwner())
+                .provider(actionTypeId.getProvider())
+                .version(actionTypeId.getVersion())
+                .build();
+    }
+
+    static software.amazon.awssdk.services.codepipeline.model.ExecutionDetails convert(final ExecutionDetails executionDetails) {
+        if (executionDetails == null) {
+            return null;
+        }
+        return software.amazon.awssdk.services.codepipeline.model.ExecutionDetails.builder()
+                .summary(executionDetails.getSummary())
+                .externalExecutionId(executionDetails.getExternalExecutionId())
+                .percentComplete(executionDetails.getPercentComplete())
+                .build();
+    }
+
+    static software.amazon.awssdk.services.codepipeline.model.CurrentRevision convert(final CurrentRevision currentRevision) {
+        if (currentRevision == null) {
+            return null;
+        }
+        return software.amazon.awssdk.services.codepipeline.model.CurrentRevision.builder()
+                .revision(currentRevision.getRevision())
+                .changeIdentifier(currentRevision.getChangeIdentifier())
+                .build();
+    }
+
+    static software.amazon.awssdk.services.codepipeline.model.FailureDetails convert(final FailureDetails failureDetails) {
+        return software.amazon.awssdk.services.codepipeline.model.FailureDetails.builder()
+                .type(failureDetails.getType().toString())
+                .message(failureDetails.getMessage())
+                .externalExecutionId(failureDetails.getExternalExecutionId())
+                .build();
+    }
+
+    private static java.util.Map<String, String> configuration(final ActionConfiguration actionConfiguration) {
+        return actionConfiguration == null ? null : actionConfiguration.configuration();
+    }
+
+    private static List<Artifact> convert(final List<software.amazon.awssdk.services.codepipeline.model.Artifact> artifacts) {
+        final List<Artifact> result = new ArrayList<>(artifacts.size());
+        for (final software.amazon.awssdk.services.codepipeline.model.Artifact artifact : artifacts) {
+            String bucketName = null;
+            String objectKey = null;
+            if (artifact.location() != null && artifact.location().s3Location() != null) {
+                final S3ArtifactLocation s3Location = artifact.location().s3Location();
+                bucketName = s3Location.bucketName();
+                objectKey = s3Location.objectKey();
+            }
+            result.add(new Artifact(artifact.name(), artifact.revision(), bucketName, objectKey));
+        }
+        return result;
+    }
+
+    private static AWSSessionCredentials convert(
+            final software.amazon.awssdk.services.codepipeline.model.AWSSessionCredentials credentials) {
+        if (credentials == null) {
+            return null;
+        }
+        return new AWSSessionCredentials(credentials.accessKeyId(),
+                credentials.secretAccessKey(),
+                credentials.sessionToken());
+    }
+
+    private static EncryptionKey convert(final software.amazon.awssdk.services.codepipeline.model.EncryptionKey encryptionKey) {
+        if (encryptionKey == null) {
+            return null;
+        }
+        return new EncryptionKey(EncryptionKeyType.valueOf(encryptionKey.typeAsString()), encryptionKey.id());
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.sdkv2;
+
+import java.net.URI;
+import java.nio.file.Path;
+
+import com.amazonaws.codepipeline.jobworker.JobService;
+import com.amazonaws.codepipeline.jobworker.configuration.PropertiesJobWorkerConfiguration;
+import com.amazonaws.codepipeline.jobworker.plugin.thirdparty.CachingClientTokenProvider;
+import com.amazonaws.util.StringUtils;
+import software.amazon.awssdk.services.codepipeline.CodePipelineAsyncClient;
+
+/**
+ * Properties file configuration which calls the job api with the SDK v2 async client instead of the v1 client.
+ * Start the daemon with this class name to switch the backend, all other settings stay the same.
+ */
+public class SdkV2JobWorkerConfiguration extends PropertiesJobWorkerConfiguration {
+
+    /**
+     * System property to override the CodePipeline endpoint, the same as for the v1 client.
+     */
+    private static final String CODEPIPELINE_ENDPOINT = "CODEPIPELINE_ENDPOINT";
+
+    /**
+     * Reads the properties file given by CONFIG_FILE.
+     */
+    public SdkV2JobWorkerConfiguration() {
+        super();
+    }
+
+    /**
+     * Reads the given properties file.
+     * @param file properties file
+     */
+    public SdkV2JobWorkerConfiguration(final Path file) {
+        super(file);
+    }
+
+    /**
+     * @return blocking job service on top of the async job service
+     */
+    @Override
+    protected JobService jobService() {
+        return new BlockingJobService(asyncJobService());
+    }
+
+    /**
+     * @return async job service of the custom action or the third party API, depending on the action type owner
+     */
+    protected AsyncJobService asyncJobService() {
+        final CodePipelineAsyncClient codePipelineClient = codePipelineAsyncClient();
+        if (getProperties().isThirdParty()) {
+            return new AsyncThirdPartyJobService(codePipelineClient,
+                    getActionTypeId(),
+                    new CachingClientTokenProvider(clientTokenProvider()));
+        }
+        return new AsyncCustomActionJobService(codePipelineClient, getActionTypeId());
+    }
+
+    /**
+     * @return async code pipeline client with the HTTP client settings of the properties file
+     */
+    protected CodePipelineAsyncClient codePipelineAsyncClient() {
+        final String endpoint = System.getProperty(CODEPIPELINE_ENDPOINT);
+        return CodePipelineAsyncClients.create(region().getName(),
+                httpClientSettings(),
+                StringUtils.isNullOrEmpty(endpoint) ? null : URI.create(endpoint));
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.sdkv2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.amazonaws.codepipeline.jobworker.JobService;
+import com.amazonaws.codepipeline.jobworker.model.ActionTypeId;
+import com.amazonaws.codepipeline.jobworker.model.FailureDetails;
+import com.amazonaws.codepipeline.jobworker.model.FailureType;
+import com.amazonaws.codepipeline.jobworker.model.JobStatus;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import software.amazon.awssdk.services.codepipeline.CodePipelineAsyncClient;
+import software.amazon.awssdk.services.codepipeline.model.AcknowledgeJobRequest;
+import software.amazon.awssdk.services.codepipeline.model.AcknowledgeJobResponse;
+import software.amazon.awssdk.services.codepipeline.model.ActionConfiguration;
+import software.amazon.awssdk.services.codepipeline.model.Artifact;
+import software.amazon.awssdk.services.codepipeline.model.ArtifactLocation;
+import software.amazon.awssdk.services.codepipeline.model.Job;
+import software.amazon.awssdk.services.codepipeline.model.JobData;
+import software.amazon.awssdk.services.codepipeline.model.PollForJobsRequest;
+import software.amazon.awssdk.services.codepipeline.model.PollForJobsResponse;
+import software.amazon.awssdk.services.codepipeline.model.PutJobFailureResultRequest;
+import software.amazon.awssdk.services.codepipeline.model.S3ArtifactLocation;
+
+public class AsyncCustomActionJobServiceTest {
+
+    private final ActionTypeId actionTypeId = new ActionTypeId("Build", "Custom", "MyCustomAction", "1.0");
+
+    @Mock
+    private CodePipelineAsyncClient codePipelineClient;
+
+    private AsyncJobService asyncJobService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        asyncJobService = new AsyncCustomActionJobService(codePipelineClient, actionTypeId);
+    }
+
+    @Test
+    public void shouldConvertPolledJobsToWorkItems() {
+        // given
+        final Job job = Job.builder()
+                .id("job-1")
+                .nonce("nonce-1")
+                .accountId("123456789012")
+                .data(JobData.builder()
+                        .actionConfiguration(ActionConfiguration.builder()
+                                .configuration(Collections.singletonMap("ProjectName", "my-project"))
+                                .build())
+                        .inputArtifacts(Collections.singletonList(Artifact.builder()
+                                .name("source")
+                                .revision("abc")
+                                .location(ArtifactLocation.builder()
+                                        .s3Location(S3ArtifactLocation.builder().bucketName("bucket").objectKey("key").build())
+                                        .build())
+                                .build()))
+                        .outputArtifacts(Collections.emptyList())
+                        .build())
+                .build();
+        when(codePipelineClient.pollForJobs(any(PollForJobsRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(PollForJobsResponse.builder()
+                        .jobs(Collections.singletonList(job))
+                        .build()));
+
+        // when
+        final List<WorkItem> workItems = asyncJobService.pollForJobs(5).join();
+
+        // then
+        final ArgumentCaptor<PollForJobsRequest> request = ArgumentCaptor.forClass(PollForJobsRequest.class);
+        verify(codePipelineClient).pollForJobs(request.capture());
+        assertEquals(Integer.valueOf(5), request.getValue().maxBatchSize());
+        assertEquals("MyCustomAction", request.getValue().actionTypeId().provider());
+        assertEquals(1, workItems.size());
+        final WorkItem workItem = workItems.get(0);
+        assertEquals("job-1", workItem.getJobId());
+        assertEquals("nonce-1", workItem.getJobNonce());
+        assertEquals("123456789012", workItem.getClientId());
+        assertEquals("my-project", workItem.getJobData().getActionConfiguration().get("ProjectName"));
+        assertEquals("bucket", workItem.getJobData().getInputArtifacts().get(0).getS3BucketName());
+        assertNull(workItem.getJobData().getArtifactCredentials());
+    }
+
+    @Test
+    public void shouldReturnJobStatusOfAcknowledgement() {
+        // given
+        when(codePipelineClient.acknowledgeJob(any(AcknowledgeJobRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(AcknowledgeJobResponse.builder().status("InProgress").build()));
+
+        // when
+        final CompletableFuture<JobStatus> status = asyncJobService.acknowledgeJob("job-1", "123456789012", "nonce-1");
+
+        // then
+        assertEquals(JobStatus.InProgress, status.join());
+    }
+
+    @Test
+    public void shouldReportFailureDetails() {
+        // given
+        when(codePipelineClient.putJobFailureResult(any(PutJobFailureResultRequest.class)))
+                .thenReturn(new CompletableFuture<>());
+
+        // when
+        final CompletableFuture<Void> reported = asyncJobService.putJobFailure("job-1", "123456789012",
+                new FailureDetails(FailureType.JobFailed, "compilation failed"));
+
+        // then
+        final ArgumentCaptor<PutJobFailureResultRequest> request = ArgumentCaptor.forClass(PutJobFailureResultRequest.class);
+        verify(codePipelineClient).putJobFailureResult(request.capture());
+        assertEquals("JobFailed", request.getValue().failureDetails().typeAsString());
+        assertEquals("compilation failed", request.getValue().failureDetails().message());
+        assertFalse(reported.isDone());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldRethrowFailureOfAsyncCallUnwrapped() {
+        // given
+        final CompletableFuture<AcknowledgeJobResponse> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("connection reset"));
+        when(codePipelineClient.acknowledgeJob(any(AcknowledgeJobRequest.class))).thenReturn(failed);
+        final JobService jobService = new BlockingJobService(asyncJobService);
+
+        // when
+        jobService.acknowledgeJob("job-1", "123456789012", "nonce-1");
+    }
+}
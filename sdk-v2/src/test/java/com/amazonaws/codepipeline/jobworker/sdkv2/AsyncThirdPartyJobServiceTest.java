@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.sdkv2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.amazonaws.codepipeline.jobworker.model.ActionTypeId;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import software.amazon.awssdk.services.codepipeline.CodePipelineAsyncClient;
+import software.amazon.awssdk.services.codepipeline.model.GetThirdPartyJobDetailsRequest;
+import software.amazon.awssdk.services.codepipeline.model.GetThirdPartyJobDetailsResponse;
+import software.amazon.awssdk.services.codepipeline.model.PollForThirdPartyJobsRequest;
+import software.amazon.awssdk.services.codepipeline.model.PollForThirdPartyJobsResponse;
+import software.amazon.awssdk.services.codepipeline.model.ThirdPartyJob;
+import software.amazon.awssdk.services.codepipeline.model.ThirdPartyJobData;
+import software.amazon.awssdk.services.codepipeline.model.ThirdPartyJobDetails;
+
+public class AsyncThirdPartyJobServiceTest {
+
+    private final ActionTypeId actionTypeId = new ActionTypeId("Build", "ThirdParty", "MyProvider", "1.0");
+
+    private final Map<String, CompletableFuture<GetThirdPartyJobDetailsResponse>> jobDetails = new HashMap<>();
+
+    @Mock
+    private CodePipelineAsyncClient codePipelineClient;
+
+    private AsyncJobService asyncJobService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        asyncJobService = new AsyncThirdPartyJobService(codePipelineClient, actionTypeId, clientId -> "token-" + clientId);
+        when(codePipelineClient.pollForThirdPartyJobs(any(PollForThirdPartyJobsRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(PollForThirdPartyJobsResponse.builder()
+                        .jobs(Arrays.asList(thirdPartyJob("job-1", "client-1"), thirdPartyJob("job-2", "client-2")))
+                        .build()));
+        jobDetails.put("job-1", new CompletableFuture<>());
+        jobDetails.put("job-2", new CompletableFuture<>());
+        when(codePipelineClient.getThirdPartyJobDetails(any(GetThirdPartyJobDetailsRequest.class)))
+                .thenAnswer(invocation -> jobDetails.get(((GetThirdPartyJobDetailsRequest) invocation.getArguments()[0]).jobId()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowWhenClientTokenProviderIsNull() {
+        new AsyncThirdPartyJobService(codePipelineClient, actionTypeId, null);
+    }
+
+    @Test
+    public void shouldRequestJobDetailsOfAllPolledJobsBeforeAnyAnswered() {
+        // when
+        final CompletableFuture<List<WorkItem>> workItems = asyncJobService.pollForJobs(5);
+
+        // then
+        final ArgumentCaptor<GetThirdPartyJobDetailsRequest> request = ArgumentCaptor.forClass(GetThirdPartyJobDetailsRequest.class);
+        verify(codePipelineClient, times(2)).getThirdPartyJobDetails(request.capture());
+        assertEquals("token-client-1", request.getAllValues().get(0).clientToken());
+        assertEquals("token-client-2", request.getAllValues().get(1).clientToken());
+        assertFalse(workItems.isDone());
+    }
+
+    @Test
+    public void shouldKeepPollOrderWhenJobDetailsAnswerOutOfOrder() {
+        // given
+        final CompletableFuture<List<WorkItem>> workItems = asyncJobService.pollForJobs(5);
+
+        // when
+        jobDetails.get("job-2").complete(jobDetailsResponse("job-2", "nonce-2"));
+        assertFalse(workItems.isDone());
+        jobDetails.get("job-1").complete(jobDetailsResponse("job-1", "nonce-1"));
+
+        // then
+        final List<WorkItem> result = workItems.join();
+        assertEquals(2, result.size());
+        assertEquals("job-1", result.get(0).getJobId());
+        assertEquals("nonce-1", result.get(0).getJobNonce());
+        assertEquals("client-1", result.get(0).getClientId());
+        assertEquals("job-2", result.get(1).getJobId());
+        assertEquals("nonce-2", result.get(1).getJobNonce());
+        assertEquals("client-2", result.get(1).getClientId());
+    }
+
+    @Test
+    public void shouldFailPollWhenOneJobDetailsLookUpFails() {
+        // given
+        final CompletableFuture<List<WorkItem>> workItems = asyncJobService.pollForJobs(5);
+        final IllegalStateException failure = new IllegalStateException("throttled");
+
+        // when
+        jobDetails.get("job-1").complete(jobDetailsResponse("job-1", "nonce-1"));
+        jobDetails.get("job-2").completeExceptionally(failure);
+
+        // then
+        assertTrue(workItems.isCompletedExceptionally());
+        try {
+            workItems.join();
+            fail("expected the failure of the job details look up");
+        } catch (final CompletionException e) {
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test
+    public void shouldFailPollOnlyWhenAllJobDetailsLookUpsAnswered() {
+        // given
+        final CompletableFuture<List<WorkItem>> workItems = asyncJobService.pollForJobs(5);
+
+        // when
+        jobDetails.get("job-1").completeExceptionally(new IllegalStateException("throttled"));
+
+        // then
+        assertFalse(workItems.isDone());
+        jobDetails.get("job-2").complete(jobDetailsResponse("job-2", "nonce-2"));
+        assertTrue(workItems.isCompletedExceptionally());
+    }
+
+    private static ThirdPartyJob thirdPartyJob(final String jobId, final String clientId) {
+        return ThirdPartyJob.builder().jobId(jobId).clientId(clientId).build();
+    }
+
+    private static GetThirdPartyJobDetailsResponse jobDetailsResponse(final String jobId, final String nonce) {
+        return GetThirdPartyJobDetailsResponse.builder()
+                .jobDetails(ThirdPartyJobDetails.builder()
+                        .id(jobId)
+                        .nonce(nonce)
+                        .data(ThirdPartyJobData.builder()
+                                .inputArtifacts(Collections.emptyList())
+                                .outputArtifacts(Collections.emptyList())
+                                .build())
+                        .build())
+                .build();
+    }
+}
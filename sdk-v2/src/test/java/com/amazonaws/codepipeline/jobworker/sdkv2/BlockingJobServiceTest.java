@@ -0,0 +1,197 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.sdkv2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.codepipeline.jobworker.JobService;
+import com.amazonaws.codepipeline.jobworker.metrics.InstrumentedJobService;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Api;
+import com.amazonaws.codepipeline.jobworker.model.FailureDetails;
+import com.amazonaws.codepipeline.jobworker.model.FailureType;
+import com.amazonaws.codepipeline.jobworker.model.JobStatus;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import com.amazonaws.retry.RetryUtils;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+
+public class BlockingJobServiceTest {
+
+    @Mock
+    private AsyncJobService asyncJobService;
+
+    private JobService jobService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        jobService = new BlockingJobService(asyncJobService);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowWhenAsyncJobServiceIsNull() {
+        new BlockingJobService(null);
+    }
+
+    @Test
+    public void shouldReturnResultOfAsyncCall() {
+        // given
+        final List<WorkItem> workItems = Collections.emptyList();
+        when(asyncJobService.pollForJobs(5)).thenReturn(CompletableFuture.completedFuture(workItems));
+        when(asyncJobService.acknowledgeJob("job-1", "client-1", "nonce-1"))
+                .thenReturn(CompletableFuture.completedFuture(JobStatus.InProgress));
+
+        // when
+        final List<WorkItem> polled = jobService.pollForJobs(5);
+        final JobStatus jobStatus = jobService.acknowledgeJob("job-1", "client-1", "nonce-1");
+
+        // then
+        assertSame(workItems, polled);
+        assertEquals(JobStatus.InProgress, jobStatus);
+    }
+
+    @Test
+    public void shouldRethrowRuntimeExceptionOfAsyncCallUnwrapped() {
+        // given
+        final IllegalStateException failure = new IllegalStateException("connection reset");
+        when(asyncJobService.pollForJobs(5)).thenReturn(failed(failure));
+
+        // when
+        try {
+            jobService.pollForJobs(5);
+            fail("expected the failure of the async call");
+        } catch (final IllegalStateException e) {
+            // then
+            assertSame(failure, e);
+        }
+    }
+
+    @Test
+    public void shouldRethrowErrorOfAsyncCallUnwrapped() {
+        // given
+        final OutOfMemoryError failure = new OutOfMemoryError("direct buffer memory");
+        final FailureDetails failureDetails = new FailureDetails(FailureType.JobFailed, "compilation failed");
+        when(asyncJobService.putJobFailure("job-1", "client-1", failureDetails)).thenReturn(failed(failure));
+
+        // when
+        try {
+            jobService.putJobFailure("job-1", "client-1", failureDetails);
+            fail("expected the failure of the async call");
+        } catch (final OutOfMemoryError e) {
+            // then
+            assertSame(failure, e);
+        }
+    }
+
+    @Test
+    public void shouldRethrowCheckedExceptionOfAsyncCallAsCompletionException() {
+        // given
+        final IOException failure = new IOException("connection reset");
+        when(asyncJobService.putJobSuccess("job-1", "client-1", null, null, null)).thenReturn(failed(failure));
+
+        // when
+        try {
+            jobService.putJobSuccess("job-1", "client-1", null, null, null);
+            fail("expected the failure of the async call");
+        } catch (final CompletionException e) {
+            // then
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test
+    public void shouldRethrowThrottlingOfAsyncCallAsV1ServiceException() {
+        // given
+        final AwsServiceException failure = AwsServiceException.builder()
+                .message("Rate exceeded")
+                .statusCode(400)
+                .requestId("request-1")
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("ThrottlingException").serviceName("CodePipeline").build())
+                .build();
+        when(asyncJobService.pollForJobs(5)).thenReturn(failed(failure));
+
+        // when
+        try {
+            jobService.pollForJobs(5);
+            fail("expected the failure of the async call");
+        } catch (final AmazonServiceException e) {
+            // then
+            assertTrue(RetryUtils.isThrottlingException(e));
+            assertEquals("ThrottlingException", e.getErrorCode());
+            assertEquals("request-1", e.getRequestId());
+            assertSame(failure, e.getCause());
+        }
+    }
+
+    @Test
+    public void shouldCountThrottlingOfAsyncCallInApiMetrics() {
+        // given
+        final AwsServiceException failure = AwsServiceException.builder().message("Too many requests").statusCode(429).build();
+        when(asyncJobService.acknowledgeJob("job-1", "client-1", "nonce-1")).thenReturn(failed(failure));
+        final JobWorkerMetrics metrics = new JobWorkerMetrics("Build/Custom/MyCustomAction/1.0");
+        final JobService instrumentedJobService = new InstrumentedJobService(jobService, metrics);
+
+        // when
+        try {
+            instrumentedJobService.acknowledgeJob("job-1", "client-1", "nonce-1");
+            fail("expected the failure of the async call");
+        } catch (final AmazonServiceException e) {
+            // then
+            assertEquals(1, metrics.getApiErrors(Api.AcknowledgeJob));
+            assertEquals(1, metrics.getApiThrottles(Api.AcknowledgeJob));
+        }
+    }
+
+    @Test
+    public void shouldRethrowOtherServiceExceptionOfAsyncCallUnwrapped() {
+        // given
+        final AwsServiceException failure = AwsServiceException.builder()
+                .message("Job not found")
+                .statusCode(400)
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("JobNotFoundException").build())
+                .build();
+        when(asyncJobService.acknowledgeJob("job-1", "client-1", "nonce-1")).thenReturn(failed(failure));
+
+        // when
+        try {
+            jobService.acknowledgeJob("job-1", "client-1", "nonce-1");
+            fail("expected the failure of the async call");
+        } catch (final AwsServiceException e) {
+            // then
+            assertSame(failure, e);
+        }
+    }
+
+    private static <T> CompletableFuture<T> failed(final Throwable failure) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(failure);
+        return future;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.sdkv2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.amazonaws.codepipeline.jobworker.model.ActionTypeId;
+import com.amazonaws.codepipeline.jobworker.model.CurrentRevision;
+import com.amazonaws.codepipeline.jobworker.model.EncryptionKeyType;
+import com.amazonaws.codepipeline.jobworker.model.ExecutionDetails;
+import com.amazonaws.codepipeline.jobworker.model.FailureDetails;
+import com.amazonaws.codepipeline.jobworker.model.FailureType;
+import com.amazonaws.codepipeline.jobworker.model.JobData;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import software.amazon.awssdk.services.codepipeline.model.AWSSessionCredentials;
+import software.amazon.awssdk.services.codepipeline.model.ActionConfiguration;
+import software.amazon.awssdk.services.codepipeline.model.Artifact;
+import software.amazon.awssdk.services.codepipeline.model.ArtifactLocation;
+import software.amazon.awssdk.services.codepipeline.model.EncryptionKey;
+import software.amazon.awssdk.services.codepipeline.model.Job;
+import software.amazon.awssdk.services.codepipeline.model.S3ArtifactLocation;
+import software.amazon.awssdk.services.codepipeline.model.ThirdPartyJobData;
+import software.amazon.awssdk.services.codepipeline.model.ThirdPartyJobDetails;
+
+public class ModelConverterTest {
+
+    private final Map<String, String> configuration = Collections.singletonMap("ProjectName", "my-project");
+
+    @Test
+    public void shouldConvertJobWithAllFields() {
+        // given
+        final Job job = Job.builder()
+                .id("job-1")
+                .nonce("nonce-1")
+                .accountId("123456789012")
+                .data(software.amazon.awssdk.services.codepipeline.model.JobData.builder()
+                        .actionConfiguration(ActionConfiguration.builder().configuration(configuration).build())
+                        .inputArtifacts(Arrays.asList(artifact("source", "abc", "bucket", "source.zip"),
+                                Artifact.builder().name("empty").build()))
+                        .outputArtifacts(Collections.singletonList(artifact("build", null, "bucket", "build.zip")))
+                        .artifactCredentials(AWSSessionCredentials.builder()
+                                .accessKeyId("access-key")
+                                .secretAccessKey("secret-key")
+                                .sessionToken("session-token")
+                                .build())
+                        .continuationToken("continue")
+                        .encryptionKey(EncryptionKey.builder().id("key-id").type("KMS").build())
+                        .build())
+                .build();
+
+        // when
+        final WorkItem workItem = ModelConverter.convert(job);
+
+        // then
+        assertEquals("job-1", workItem.getJobId());
+        assertEquals("nonce-1", workItem.getJobNonce());
+        assertEquals("123456789012", workItem.getClientId());
+        final JobData jobData = workItem.getJobData();
+        assertEquals(configuration, jobData.getActionConfiguration());
+        assertEquals(2, jobData.getInputArtifacts().size());
+        assertEquals("source", jobData.getInputArtifacts().get(0).getName());
+        assertEquals("abc", jobData.getInputArtifacts().get(0).getRevision());
+        assertEquals("bucket", jobData.getInputArtifacts().get(0).getS3BucketName());
+        assertEquals("source.zip", jobData.getInputArtifacts().get(0).getS3ObjectKey());
+        assertEquals("empty", jobData.getInputArtifacts().get(1).getName());
+        assertNull(jobData.getInputArtifacts().get(1).getS3BucketName());
+        assertNull(jobData.getInputArtifacts().get(1).getS3ObjectKey());
+        assertEquals(1, jobData.getOutputArtifacts().size());
+        assertEquals("build.zip", jobData.getOutputArtifacts().get(0).getS3ObjectKey());
+        assertEquals("access-key", jobData.getArtifactCredentials().getAccessKeyId());
+        assertEquals("secret-key", jobData.getArtifactCredentials().getSecretAccessKey());
+        assertEquals("session-token", jobData.getArtifactCredentials().getSessionToken());
+        assertEquals("continue", jobData.getContinuationToken());
+        assertEquals(EncryptionKeyType.KMS, jobData.getEncryptionKey().getType());
+        assertEquals("key-id", jobData.getEncryptionKey().getId());
+    }
+
+    @Test
+    public void shouldConvertThirdPartyJobDetailsWithoutOptionalFields() {
+        // given
+        final ThirdPartyJobDetails jobDetails = ThirdPartyJobDetails.builder()
+                .id("job-1")
+                .nonce("nonce-1")
+                .data(ThirdPartyJobData.builder()
+                        .inputArtifacts(Collections.emptyList())
+                        .outputArtifacts(Collections.emptyList())
+                        .build())
+                .build();
+
+        // when
+        final WorkItem workItem = ModelConverter.convert("client-1", jobDetails);
+
+        // then
+        assertEquals("job-1", workItem.getJobId());
+        assertEquals("nonce-1", workItem.getJobNonce());
+        assertEquals("client-1", workItem.getClientId());
+        final JobData jobData = workItem.getJobData();
+        assertEquals(0, jobData.getActionConfiguration().size());
+        assertEquals(0, jobData.getInputArtifacts().size());
+        assertEquals(0, jobData.getOutputArtifacts().size());
+        assertNull(jobData.getArtifactCredentials());
+        assertNull(jobData.getContinuationToken());
+        assertNull(jobData.getEncryptionKey());
+    }
+
+    @Test
+    public void shouldKeepAllFieldsOfActionTypeId() {
+        // given
+        final ActionTypeId actionTypeId = new ActionTypeId("Build", "Custom", "MyCustomAction", "1.0");
+
+        // when
+        final software.amazon.awssdk.services.codepipeline.model.ActionTypeId converted = ModelConverter.convert(actionTypeId);
+
+        // then
+        assertEquals("Build", converted.category());
+        assertEquals("Custom", converted.owner());
+        assertEquals("MyCustomAction", converted.provider());
+        assertEquals("1.0", converted.version());
+    }
+
+    @Test
+    public void shouldKeepAllFieldsOfExecutionDetails() {
+        // given
+        final ExecutionDetails executionDetails = new ExecutionDetails("built", "execution-1", 80);
+
+        // when
+        final software.amazon.awssdk.services.codepipeline.model.ExecutionDetails converted = ModelConverter.convert(executionDetails);
+
+        // then
+        assertEquals("built", converted.summary());
+        assertEquals("execution-1", converted.externalExecutionId());
+        assertEquals(Integer.valueOf(80), converted.percentComplete());
+    }
+
+    @Test
+    public void shouldKeepAllFieldsOfCurrentRevision() {
+        // given
+        final CurrentRevision currentRevision = new CurrentRevision("abc", "change-1");
+
+        // when
+        final software.amazon.awssdk.services.codepipeline.model.CurrentRevision converted = ModelConverter.convert(currentRevision);
+
+        // then
+        assertEquals("abc", converted.revision());
+        assertEquals("change-1", converted.changeIdentifier());
+    }
+
+    @Test
+    public void shouldKeepAllFieldsOfFailureDetails() {
+        // given
+        final FailureDetails failureDetails = new FailureDetails(FailureType.ConfigurationError, "missing project", "execution-1");
+
+        // when
+        final software.amazon.awssdk.services.codepipeline.model.FailureDetails converted = ModelConverter.convert(failureDetails);
+
+        // then
+        assertEquals(FailureType.ConfigurationError, FailureType.valueOf(converted.typeAsString()));
+        assertEquals("missing project", converted.message());
+        assertEquals("execution-1", converted.externalExecutionId());
+    }
+
+    @Test
+    public void shouldConvertMissingExecutionDetailsAndCurrentRevisionToNull() {
+        assertNull(ModelConverter.convert((ExecutionDetails) null));
+        assertNull(ModelConverter.convert((CurrentRevision) null));
+    }
+
+    private static Artifact artifact(final String name, final String revision, final String bucketName, final String objectKey) {
+        return Artifact.builder()
+                .name(name)
+                .revision(revision)
+                .location(ArtifactLocation.builder()
+                        .s3Location(S3ArtifactLocation.builder().bucketName(bucketName).objectKey(objectKey).build())
+                        .build())
+                .build();
+    }
+}
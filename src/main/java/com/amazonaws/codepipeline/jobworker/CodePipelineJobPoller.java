@@ -18,11 +18,27 @@ import java.util.concurrent.ThreadPoolExecutor;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
 
+import com.amazonaws.codepipeline.jobworker.accounting.JobAccounting;
+import com.amazonaws.codepipeline.jobworker.accounting.JobResourceUsage;
+import com.amazonaws.codepipeline.jobworker.admission.AdmissionController;
+import com.amazonaws.codepipeline.jobworker.admission.AdmissionController.Reservation;
+import com.amazonaws.codepipeline.jobworker.jfr.JobEvent;
+import com.amazonaws.codepipeline.jobworker.jfr.JobEventRecorder;
+import com.amazonaws.codepipeline.jobworker.jfr.JobFlightRecorder;
+import com.amazonaws.codepipeline.jobworker.lifecycle.JobLifecycleDispatcher;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Count;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Phase;
+import com.amazonaws.codepipeline.jobworker.metrics.MetricsRegistry;
 import com.amazonaws.codepipeline.jobworker.model.WorkItem;
 import com.amazonaws.codepipeline.jobworker.model.JobStatus;
 import com.amazonaws.codepipeline.jobworker.model.WorkResult;
 import com.amazonaws.codepipeline.jobworker.model.WorkResultStatus;
+import com.amazonaws.codepipeline.jobworker.tracing.Scope;
+import com.amazonaws.codepipeline.jobworker.tracing.Span;
+import com.amazonaws.codepipeline.jobworker.tracing.Tracer;
 
 /**
  * The poller keeps sending requests to the job api for new jobs.
@@ -30,19 +46,40 @@ import com.amazonaws.codepipeline.jobworker.model.WorkResultStatus;
  * It waits for the result from the JobProcessor and reports back success or failure
  * to the JobService.
  *
- * It only takes on a single job per available worker thread.
+ * It only takes on a single job per available worker thread, and no more jobs than the admission controller
+ * admits for the resources of the host.
  */
 public class CodePipelineJobPoller implements JobPoller {
 
     private static final Logger LOGGER = LogManager.getLogger(CodePipelineJobPoller.class);
 
+    private static final String POLL_SPAN = "PollForJobs";
+    private static final String JOB_SPAN = "Job";
+    private static final String ACKNOWLEDGE_SPAN = "AcknowledgeJob";
+    private static final String PROCESS_SPAN = "ProcessJob";
+    private static final String REPORT_SPAN = "ReportJobResult";
+    private static final String BATCH_SIZE_ATTRIBUTE = "jobworker.batch_size";
+    private static final String JOB_COUNT_ATTRIBUTE = "jobworker.job_count";
+    private static final String JOB_ID_ATTRIBUTE = "jobworker.job_id";
+    private static final String JOB_STATUS_ATTRIBUTE = "jobworker.job_status";
+    private static final String RESULT_ATTRIBUTE = "jobworker.result";
+    private static final String SUCCEEDED = "Succeeded";
+    private static final String FAILED = "Failed";
+
     private final JobProcessor jobProcessor;
     private final JobService jobService;
     private final ThreadPoolExecutor executorService;
-    private final int pollBatchSize;
+    private final JobWorkerMetrics metrics;
+    private final Tracer tracer;
+    private final JobEventRecorder events;
+    private final JobLifecycleDispatcher lifecycle;
+    private final AdmissionController admissionController;
+    private final JobAccounting jobAccounting;
+    private volatile int pollBatchSize;
 
     /**
-     * Initializes a new instance of the code pipeline job poller.
+     * Initializes a new instance of the code pipeline job poller with the defaults of
+     * {@link #builder(JobService, JobProcessor, ThreadPoolExecutor, int)} for the optional collaborators.
      * @param jobService job service API to poll for jobs, acknowledge them and report status.
      * @param jobProcessor job processor which executes a given work item and returns the result.
      * @param executorService thread pool executor used to schedule now job processor threads.
@@ -52,13 +89,70 @@ public class CodePipelineJobPoller implements JobPoller {
                                  final JobProcessor jobProcessor,
                                  final ThreadPoolExecutor executorService,
                                  final int pollBatchSize) {
+        this(builder(jobService, jobProcessor, executorService, pollBatchSize));
+    }
+
+    /**
+     * Initializes a new instance of the code pipeline job poller.
+     * Use {@link #builder(JobService, JobProcessor, ThreadPoolExecutor, int)} to leave out optional collaborators.
+     * @param jobService job service API to poll for jobs, acknowledge them and report status.
+     * @param jobProcessor job processor which executes a given work item and returns the result.
+     * @param executorService thread pool executor used to schedule now job processor threads.
+     * @param pollBatchSize default poll batch size, should be the number of available worker threads.
+     * @param metrics metrics of the polled action type.
+     * @param tracer tracer which records a span for each poll and for the phases of each job.
+     * @param lifecycle dispatcher which notifies the job lifecycle listeners.
+     * @param admissionController limits the polled jobs to the resources of the host.
+     * @param jobAccounting measures and aggregates the CPU time, allocated memory and wall time of the jobs.
+     */
+    public CodePipelineJobPoller(final JobService jobService,
+                                 final JobProcessor jobProcessor,
+                                 final ThreadPoolExecutor executorService,
+                                 final int pollBatchSize,
+                                 final JobWorkerMetrics metrics,
+                                 final Tracer tracer,
+                                 final JobLifecycleDispatcher lifecycle,
+                                 final AdmissionController admissionController,
+                                 final JobAccounting jobAccounting) {
         Validator.notNull(jobService);
         Validator.notNull(jobProcessor);
         Validator.notNull(executorService);
+        Validator.notNull(metrics);
+        Validator.notNull(tracer);
+        Validator.notNull(lifecycle);
+        Validator.notNull(admissionController);
+        Validator.notNull(jobAccounting);
         this.jobService = jobService;
         this.jobProcessor = jobProcessor;
         this.executorService = executorService;
         this.pollBatchSize = pollBatchSize;
+        this.metrics = metrics;
+        this.tracer = tracer;
+        this.lifecycle = lifecycle;
+        this.admissionController = admissionController;
+        this.jobAccounting = jobAccounting;
+        this.events = JobFlightRecorder.forActionType(metrics.getActionType());
+    }
+
+    private CodePipelineJobPoller(final Builder builder) {
+        this(builder.jobService, builder.jobProcessor, builder.executorService, builder.pollBatchSize, builder.metrics,
+                builder.tracer, builder.lifecycle, builder.admissionController, builder.jobAccounting);
+    }
+
+    /**
+     * Starts building a code pipeline job poller. Without further settings it records untagged metrics
+     * and neither traces, publishes lifecycle events, limits admission nor accounts jobs.
+     * @param jobService job service API to poll for jobs, acknowledge them and report status.
+     * @param jobProcessor job processor which executes a given work item and returns the result.
+     * @param executorService thread pool executor used to schedule now job processor threads.
+     * @param pollBatchSize default poll batch size, should be the number of available worker threads.
+     * @return builder of the job poller.
+     */
+    public static Builder builder(final JobService jobService,
+                                  final JobProcessor jobProcessor,
+                                  final ThreadPoolExecutor executorService,
+                                  final int pollBatchSize) {
+        return new Builder(jobService, jobProcessor, executorService, pollBatchSize);
     }
 
     /**
@@ -69,57 +163,308 @@ public class CodePipelineJobPoller implements JobPoller {
     public void execute() {
         LOGGER.debug("New polling iteration");
 
-        final int batchSize = pollBatchSize - executorService.getActiveCount();
+        final int maxBatchSize = pollBatchSize;
+        final int freeWorkers = maxBatchSize - executorService.getActiveCount();
+        final int batchSize = freeWorkers > 0 ? admissionController.admit(freeWorkers) : 0;
+        if (batchSize < freeWorkers) {
+            metrics.increment(Count.HostLimitedPolls);
+        }
         if (batchSize > 0) {
-            final int pollingBatchSize = Math.min(batchSize, pollBatchSize);
-            LOGGER.debug("PollForJobs with batch size: " + pollingBatchSize);
-            final List<WorkItem> workItems = jobService.pollForJobs(pollingBatchSize);
+            final int pollingBatchSize = Math.min(batchSize, maxBatchSize);
+            LOGGER.debug("PollForJobs with batch size: {}", Unbox.box(pollingBatchSize));
+            final Span pollSpan = tracer.startSpan(POLL_SPAN).setAttribute(BATCH_SIZE_ATTRIBUTE, pollingBatchSize);
+            final JobEvent pollEvent = events.beginPoll(pollingBatchSize);
+            final long pollStart = System.nanoTime();
+            final List<WorkItem> workItems;
+            try {
+                workItems = jobService.pollForJobs(pollingBatchSize);
+            } catch (final RuntimeException e) {
+                pollEvent.commit(FAILED);
+                pollSpan.setError(e).end();
+                throw e;
+            }
+            pollEvent.setJobCount(workItems.size()).commit(SUCCEEDED);
+            metrics.getLatency(Phase.Poll).recordSince(pollStart);
+            metrics.add(Count.JobsPolled, workItems.size());
+            if (workItems.isEmpty()) {
+                metrics.increment(Count.EmptyPolls);
+            }
+            pollSpan.setAttribute(JOB_COUNT_ATTRIBUTE, workItems.size()).end();
 
             for (final WorkItem workItem : workItems) {
+                lifecycle.onPolled(workItem);
+                final Reservation reservation = admissionController.reserve(workItem);
+                if (reservation == null) {
+                    // not acknowledged, the job is handed out again once the acknowledgement times out
+                    metrics.increment(Count.JobsDeferred);
+                    lifecycle.onRejected(workItem,
+                            new RejectedExecutionException("Host is short of the resources the job needs"));
+                    continue;
+                }
+                final Span jobSpan = tracer.startSpan(JOB_SPAN, pollSpan).setAttribute(JOB_ID_ATTRIBUTE, workItem.getJobId());
                 try {
-                    executorService.submit(newProcessWorkItemRunnable(workItem));
+                    executorService.submit(newProcessWorkItemRunnable(workItem, System.nanoTime(), jobSpan, reservation));
                 } catch (final RejectedExecutionException e) {
+                    reservation.close();
+                    metrics.increment(Count.JobsRejected);
+                    lifecycle.onRejected(workItem, e);
+                    jobSpan.setError(e).end();
                     LOGGER.error("Executor service rejected task scheduling", e);
                 }
             }
         }
     }
 
-    private Runnable newProcessWorkItemRunnable(final WorkItem workItem) {
+    /**
+     * @return maximum number of jobs processed in parallel
+     */
+    public int getPollBatchSize() {
+        return pollBatchSize;
+    }
+
+    /**
+     * Changes the maximum number of jobs processed in parallel, takes effect with the next poll.
+     * @param pollBatchSize poll batch size, should be the number of available worker threads.
+     */
+    public void setPollBatchSize(final int pollBatchSize) {
+        if (pollBatchSize <= 0) {
+            throw new IllegalArgumentException("Poll batch size must be positive");
+        }
+        this.pollBatchSize = pollBatchSize;
+    }
+
+    /**
+     * Resizes the worker thread pool and the poll batch size together.
+     * Jobs in progress keep running, surplus threads terminate once they are idle.
+     * @param workerThreads number of worker threads, must be positive
+     */
+    public synchronized void resizeWorkerPool(final int workerThreads) {
+        if (workerThreads <= 0) {
+            throw new IllegalArgumentException("Number of worker threads must be positive");
+        }
+        // The core pool size must never exceed the maximum pool size, so the order depends on the direction.
+        if (workerThreads >= executorService.getMaximumPoolSize()) {
+            executorService.setMaximumPoolSize(workerThreads);
+            executorService.setCorePoolSize(workerThreads);
+        } else {
+            executorService.setCorePoolSize(workerThreads);
+            executorService.setMaximumPoolSize(workerThreads);
+        }
+        setPollBatchSize(workerThreads);
+    }
+
+    /**
+     * @return metrics of the polled action type
+     */
+    public JobWorkerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return admission controller which limits the polled jobs to the resources of the host
+     */
+    public AdmissionController getAdmissionController() {
+        return admissionController;
+    }
+
+    /**
+     * @return resources used by the jobs of the polled action type
+     */
+    public JobAccounting getJobAccounting() {
+        return jobAccounting;
+    }
+
+    /**
+     * @return thread pool executor which runs the job processor threads
+     */
+    public ThreadPoolExecutor getExecutorService() {
+        return executorService;
+    }
+
+    private Runnable newProcessWorkItemRunnable(final WorkItem workItem,
+                                                final long submitTime,
+                                                final Span jobSpan,
+                                                final Reservation reservation) {
         return () -> {
+            metrics.getLatency(Phase.QueueWait).recordSince(submitTime);
+            JobAccounting.Measurement measurement = null;
             try {
-                final JobStatus jobStatus = jobService.acknowledgeJob(workItem.getJobId(), workItem.getClientId(), workItem.getJobNonce());
+                final Span acknowledgeSpan = jobSpan.startChild(ACKNOWLEDGE_SPAN);
+                final JobEvent acknowledgeEvent = events.beginAcknowledge(workItem.getJobId());
+                final long acknowledgeStart = System.nanoTime();
+                final JobStatus jobStatus;
+                try {
+                    jobStatus = jobService.acknowledgeJob(workItem.getJobId(), workItem.getClientId(), workItem.getJobNonce());
+                } catch (final RuntimeException e) {
+                    acknowledgeEvent.commit(FAILED);
+                    acknowledgeSpan.setError(e);
+                    throw e;
+                } finally {
+                    acknowledgeSpan.end();
+                }
+                acknowledgeEvent.commit(String.valueOf(jobStatus));
+                lifecycle.onAcknowledged(workItem, jobStatus);
+                metrics.getLatency(Phase.Acknowledge).recordSince(acknowledgeStart);
+                jobSpan.setAttribute(JOB_STATUS_ATTRIBUTE, String.valueOf(jobStatus));
                 if (JobStatus.InProgress.equals(jobStatus)) {
-                    LOGGER.info(String.format("Handing workItem for job %s to JobWorker", workItem.getJobId()));
-                    final WorkResult result = jobProcessor.process(workItem);
+                    LOGGER.info(LogMarkers.JOB, "Handing workItem for job {} to JobWorker", workItem.getJobId());
+                    final Span processSpan = jobSpan.startChild(PROCESS_SPAN);
+                    lifecycle.onStarted(workItem);
+                    if (jobAccounting.isEnabled()) {
+                        measurement = jobAccounting.start();
+                    }
+                    final JobEvent processEvent = events.beginProcess(workItem.getJobId());
+                    final long processStart = System.nanoTime();
+                    final WorkResult result;
+                    try (Scope scope = processSpan.makeCurrent()) {
+                        result = jobProcessor.process(workItem);
+                    } catch (final RuntimeException e) {
+                        processEvent.commit(FAILED);
+                        processSpan.setError(e);
+                        throw e;
+                    } finally {
+                        processSpan.end();
+                    }
+                    processEvent.commit(String.valueOf(result.getStatus()));
+                    lifecycle.onFinished(workItem, result);
+                    metrics.getLatency(Phase.Process).recordSince(processStart);
+                    final WorkResult reportedResult = measurement == null
+                            ? result
+                            : jobAccounting.summarize(result, measurement.read());
 
-                    reportJobStatus(workItem, result);
+                    final Span reportSpan = jobSpan.startChild(REPORT_SPAN);
+                    final JobEvent reportEvent = events.beginReport(workItem.getJobId());
+                    final long reportStart = System.nanoTime();
+                    try {
+                        reportJobStatus(workItem, reportedResult, reportSpan);
+                    } catch (final RuntimeException e) {
+                        reportEvent.commit(FAILED);
+                        reportSpan.setError(e);
+                        throw e;
+                    } finally {
+                        reportSpan.end();
+                    }
+                    reportEvent.commit(SUCCEEDED);
+                    lifecycle.onReported(workItem, reportedResult);
+                    metrics.getLatency(Phase.Report).recordSince(reportStart);
                 } else {
-                    LOGGER.warn(String.format("Cannot process work item since AcknowledgeJob for job %s with nonce %s returned status %s",
-                            workItem.getJobId(), workItem.getJobNonce(), jobStatus));
+                    LOGGER.warn("Cannot process work item since AcknowledgeJob for job {} with nonce {} returned status {}",
+                            workItem.getJobId(), workItem.getJobNonce(), jobStatus);
                 }
             } catch(final RuntimeException e) {
-                LOGGER.error(String.format("Error occurred processing work item for job %s", workItem.getJobId()), e);
+                metrics.increment(Count.JobsFailed);
+                jobSpan.setError(e);
+                lifecycle.onFailed(workItem, e);
+                LOGGER.error("Error occurred processing work item for job {}", workItem.getJobId(), e);
+            } finally {
+                if (measurement != null) {
+                    // also accounts the jobs which failed while processing or reporting
+                    final JobResourceUsage usage = measurement.read();
+                    jobAccounting.record(workItem, usage);
+                    lifecycle.onAccounted(workItem, usage);
+                }
+                reservation.close();
+                jobSpan.end();
             }
         };
     }
 
-    private void reportJobStatus(final WorkItem workItem, final WorkResult result) {
+    private void reportJobStatus(final WorkItem workItem, final WorkResult result, final Span reportSpan) {
         Validator.notNull(workItem);
         Validator.notNull(result);
+        reportSpan.setAttribute(RESULT_ATTRIBUTE, String.valueOf(result.getStatus()));
 
         if (WorkResultStatus.Success.equals(result.getStatus())) {
-            LOGGER.info(String.format("Job %s succeeded.", workItem.getJobId()));
+            LOGGER.info(LogMarkers.JOB, "Job {} succeeded.", workItem.getJobId());
             jobService.putJobSuccess(workItem.getJobId(),
                     workItem.getClientId(),
                     result.getExecutionDetails(),
                     result.getCurrentRevision(),
                     result.getContinuationToken());
+            metrics.increment(Count.JobsSucceeded);
         } else {
-            LOGGER.info(String.format("Job %s failed.", workItem.getJobId()));
+            LOGGER.info(LogMarkers.JOB, "Job {} failed.", workItem.getJobId());
             jobService.putJobFailure(workItem.getJobId(),
                     workItem.getClientId(),
                     result.getFailureDetails());
+            metrics.increment(Count.JobsFailed);
+        }
+    }
+
+    /**
+     * Builder of a code pipeline job poller with defaults for the optional collaborators.
+     */
+    public static final class Builder {
+        private final JobService jobService;
+        private final JobProcessor jobProcessor;
+        private final ThreadPoolExecutor executorService;
+        private final int pollBatchSize;
+        private JobWorkerMetrics metrics = new JobWorkerMetrics(MetricsRegistry.UNTAGGED);
+        private Tracer tracer = Tracer.noop();
+        private JobLifecycleDispatcher lifecycle = JobLifecycleDispatcher.noop();
+        private AdmissionController admissionController = AdmissionController.unlimited();
+        private JobAccounting jobAccounting = JobAccounting.disabled();
+
+        private Builder(final JobService jobService,
+                        final JobProcessor jobProcessor,
+                        final ThreadPoolExecutor executorService,
+                        final int pollBatchSize) {
+            this.jobService = jobService;
+            this.jobProcessor = jobProcessor;
+            this.executorService = executorService;
+            this.pollBatchSize = pollBatchSize;
+        }
+
+        /**
+         * @param metrics metrics of the polled action type.
+         * @return this builder.
+         */
+        public Builder metrics(final JobWorkerMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * @param tracer tracer which records a span for each poll and for the phases of each job.
+         * @return this builder.
+         */
+        public Builder tracer(final Tracer tracer) {
+            this.tracer = tracer;
+            return this;
+        }
+
+        /**
+         * @param lifecycle dispatcher which notifies the job lifecycle listeners.
+         * @return this builder.
+         */
+        public Builder lifecycle(final JobLifecycleDispatcher lifecycle) {
+            this.lifecycle = lifecycle;
+            return this;
+        }
+
+        /**
+         * @param admissionController limits the polled jobs to the resources of the host.
+         * @return this builder.
+         */
+        public Builder admissionController(final AdmissionController admissionController) {
+            this.admissionController = admissionController;
+            return this;
+        }
+
+        /**
+         * @param jobAccounting measures and aggregates the CPU time, allocated memory and wall time of the jobs.
+         * @return this builder.
+         */
+        public Builder jobAccounting(final JobAccounting jobAccounting) {
+            this.jobAccounting = jobAccounting;
+            return this;
+        }
+
+        /**
+         * @return new job poller.
+         */
+        public CodePipelineJobPoller build() {
+            return new CodePipelineJobPoller(this);
         }
     }
 }
@@ -12,18 +12,35 @@
  */
 package com.amazonaws.codepipeline.jobworker;
 
+import java.io.UncheckedIOException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.commons.daemon.Daemon;
 import org.apache.commons.daemon.DaemonContext;
+import org.apache.commons.daemon.DaemonController;
 import org.apache.commons.daemon.DaemonInitException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
 
+import com.amazonaws.codepipeline.jobworker.configuration.ConfigurationWatcher;
 import com.amazonaws.codepipeline.jobworker.configuration.JobWorkerConfiguration;
+import com.amazonaws.codepipeline.jobworker.configuration.JobWorkerProperties;
+import com.amazonaws.codepipeline.jobworker.management.JobWorkerManagement;
+import com.amazonaws.codepipeline.jobworker.metrics.MetricsHttpServer;
+import com.amazonaws.codepipeline.jobworker.metrics.MetricsRegistry;
+import com.amazonaws.codepipeline.jobworker.metrics.PollHeartbeat;
+import com.amazonaws.codepipeline.jobworker.metrics.StartupTimer;
 import com.amazonaws.codepipeline.jobworker.model.RegionNotFoundException;
+import com.amazonaws.codepipeline.jobworker.lifecycle.JobLifecycleDispatcher;
+import com.amazonaws.codepipeline.jobworker.tracing.Tracer;
+import com.amazonaws.codepipeline.jobworker.tuning.PollAutoTuner;
+import com.amazonaws.codepipeline.jobworker.tuning.PollTuningSettings;
 import com.amazonaws.codepipeline.jobworker.configuration.CustomActionJobWorkerConfiguration;
 
 /**
@@ -33,10 +50,30 @@ public class JobWorkerDaemon implements Daemon {
 
     private static final Logger LOGGER = LogManager.getLogger(JobWorkerDaemon.class);
 
+    /**
+     * System property which makes {@link #main(String[])} stop the job worker after the first poll,
+     * used for training runs which record the classes loaded during start up.
+     */
+    public static final String STOP_AFTER_FIRST_POLL = "STOP_AFTER_FIRST_POLL";
+
     private final ScheduledExecutorService executorService;
+    private final AtomicBoolean polling = new AtomicBoolean();
+    private final CountDownLatch firstPollCompleted = new CountDownLatch(1);
 
     private JobPoller jobPoller;
-    private long pollingIntervalInMs;
+    private volatile long pollingIntervalInMs;
+    private ScheduledFuture<?> pollerFuture;
+    private boolean started;
+    private PollHeartbeat heartbeat;
+    private MetricsRegistry metricsRegistry;
+    private int metricsPort;
+    private MetricsHttpServer metricsServer;
+    private Tracer tracer;
+    private JobLifecycleDispatcher jobLifecycleDispatcher;
+    private PollTuningSettings pollTuningSettings;
+    private volatile PollAutoTuner pollAutoTuner;
+    private ConfigurationWatcher configurationWatcher;
+    private StartupTimer startupTimer;
 
     /**
      * Initializes the daemon with default settings:
@@ -60,6 +97,43 @@ public class JobWorkerDaemon implements Daemon {
         initConfiguration(jobWorkerConfiguration);
     }
 
+    /**
+     * Runs the job worker without jsvc, e.g. in a container. Stops the job worker on JVM shutdown.
+     * @param arguments optional job worker configuration class name, as passed by jsvc
+     * @throws Exception exception during start up
+     */
+    public static void main(final String[] arguments) throws Exception {
+        final JobWorkerDaemon daemon = new JobWorkerDaemon();
+        daemon.init(new DaemonContext() {
+            @Override
+            public DaemonController getController() {
+                return null;
+            }
+
+            @Override
+            public String[] getArguments() {
+                return arguments;
+            }
+        });
+        daemon.start();
+
+        if (Boolean.getBoolean(STOP_AFTER_FIRST_POLL)) {
+            daemon.firstPollCompleted.await();
+            daemon.stop();
+            daemon.destroy();
+            // worker threads are no daemon threads
+            System.exit(0);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                daemon.stop();
+            } catch (final Exception e) {
+                LOGGER.error("Caught exception while stopping daemon", e);
+            }
+            daemon.destroy();
+        }, "shutdown"));
+    }
+
     /**
      * Initializes the daemon.
      * @param context daemon context.
@@ -78,16 +152,46 @@ public class JobWorkerDaemon implements Daemon {
 
     /**
      * Starts the daemon. Initializes the executor service to execute the job poller at a fixed rate.
+     * The first poll runs right away, so a new job worker picks up jobs without waiting for a polling interval.
      * @throws Exception exception during start up
      */
     @Override
-    public void start() throws Exception {
+    public synchronized void start() throws Exception {
         LOGGER.info("Starting up daemon.");
+        final long start = System.nanoTime();
 
-        executorService.scheduleAtFixedRate(jobPollerRunnable(),
-                pollingIntervalInMs,
+        if (metricsPort > 0) {
+            metricsServer = new MetricsHttpServer(metricsPort,
+                    metricsRegistry,
+                    heartbeat,
+                    jobPoller instanceof CodePipelineJobPoller ? (CodePipelineJobPoller) jobPoller : null);
+        }
+
+        pollerFuture = executorService.scheduleAtFixedRate(jobPollerRunnable(),
+                0,
                 pollingIntervalInMs,
                 TimeUnit.MILLISECONDS);
+        started = true;
+
+        if (pollTuningSettings != null && jobPoller instanceof CodePipelineJobPoller) {
+            pollAutoTuner = new PollAutoTuner(this, (CodePipelineJobPoller) jobPoller, pollTuningSettings);
+            executorService.scheduleAtFixedRate(pollAutoTuner,
+                    pollTuningSettings.getTuningPeriodMs(),
+                    pollTuningSettings.getTuningPeriodMs(),
+                    TimeUnit.MILLISECONDS);
+            LOGGER.info("Tuning poll settings for a pickup latency of {} ms",
+                    Unbox.box(pollTuningSettings.getTargetPickupLatencyMs()));
+        }
+
+        if (jobPoller instanceof CodePipelineJobPoller) {
+            new JobWorkerManagement(this, (CodePipelineJobPoller) jobPoller).register();
+        }
+
+        if (configurationWatcher != null) {
+            configurationWatcher.addListener(this::applyConfiguration);
+            configurationWatcher.start();
+        }
+        startupTimer.recordSince(StartupTimer.Phase.Start, start);
     }
 
     /**
@@ -99,6 +203,18 @@ public class JobWorkerDaemon implements Daemon {
     public void stop() throws Exception {
         LOGGER.info("Stopping daemon.");
 
+        JobWorkerManagement.unregister();
+        if (configurationWatcher != null) {
+            configurationWatcher.close();
+        }
+        synchronized (this) {
+            started = false;
+            if (metricsServer != null) {
+                metricsServer.close();
+                metricsServer = null;
+            }
+        }
+
         this.executorService.shutdown();
         try {
             if (!this.executorService.awaitTermination(1, TimeUnit.MINUTES)) {
@@ -111,6 +227,12 @@ public class JobWorkerDaemon implements Daemon {
             this.executorService.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        if (tracer != null) {
+            tracer.close();
+        }
+        if (jobLifecycleDispatcher != null) {
+            jobLifecycleDispatcher.close();
+        }
         LOGGER.info("Stopped daemon.");
     }
 
@@ -122,12 +244,78 @@ public class JobWorkerDaemon implements Daemon {
         LOGGER.info("Destroying daemon.");
     }
 
+    /**
+     * @return the poll interval in milliseconds
+     */
+    public long getPollingIntervalInMs() {
+        return pollingIntervalInMs;
+    }
+
+    /**
+     * Changes the poll interval of a running daemon. The next poll happens one interval after the change,
+     * a poll in progress and the jobs it handed out are not affected.
+     * @param pollingIntervalInMs the poll interval in milliseconds
+     */
+    public synchronized void setPollingIntervalInMs(final long pollingIntervalInMs) {
+        if (pollingIntervalInMs <= 0) {
+            throw new IllegalArgumentException("Polling interval must be positive");
+        }
+        this.pollingIntervalInMs = pollingIntervalInMs;
+        heartbeat.setPollingIntervalInMs(pollingIntervalInMs);
+        if (started) {
+            if (pollerFuture != null) {
+                pollerFuture.cancel(false);
+            }
+            pollerFuture = executorService.scheduleAtFixedRate(jobPollerRunnable(),
+                    pollingIntervalInMs,
+                    pollingIntervalInMs,
+                    TimeUnit.MILLISECONDS);
+        }
+        LOGGER.info("Changed polling interval to {} ms", Unbox.box(pollingIntervalInMs));
+    }
+
+    /**
+     * @return tuner which adjusts the poll settings, null unless the configuration sets a tuning target
+     */
+    public PollAutoTuner getPollAutoTuner() {
+        return pollAutoTuner;
+    }
+
+    private void applyConfiguration(final JobWorkerProperties previous, final JobWorkerProperties reloaded) {
+        if (reloaded.getPollingIntervalMs() != previous.getPollingIntervalMs()) {
+            setPollingIntervalInMs(reloaded.getPollingIntervalMs());
+        }
+        if (jobPoller instanceof CodePipelineJobPoller) {
+            final CodePipelineJobPoller codePipelineJobPoller = (CodePipelineJobPoller) jobPoller;
+            if (reloaded.getWorkerThreads() != previous.getWorkerThreads()) {
+                codePipelineJobPoller.resizeWorkerPool(reloaded.getWorkerThreads());
+                LOGGER.info("Resized worker pool to {} threads", Unbox.box(reloaded.getWorkerThreads()));
+            }
+            if (reloaded.getPollBatchSize() != previous.getPollBatchSize()
+                    || reloaded.getWorkerThreads() != previous.getWorkerThreads()) {
+                codePipelineJobPoller.setPollBatchSize(reloaded.getPollBatchSize());
+            }
+        }
+    }
+
     private Runnable jobPollerRunnable() {
         return () -> {
+            // A poll of the previous schedule may still be running after the interval was changed.
+            if (!polling.compareAndSet(false, true)) {
+                return;
+            }
             try {
                 jobPoller.execute();
+                heartbeat.beat(true);
+                if (startupTimer.recordFirstPoll()) {
+                    LOGGER.info("Completed first poll, start up: {}", startupTimer.summary());
+                }
             } catch (final RuntimeException e) { // NOPMD
+                heartbeat.beat(false);
                 LOGGER.error("Caught exception while processing jobs", e);
+            } finally {
+                polling.set(false);
+                firstPollCompleted.countDown();
             }
         };
     }
@@ -139,7 +327,8 @@ public class JobWorkerDaemon implements Daemon {
                 final JobWorkerConfiguration jobWorkerConfiguration = (JobWorkerConfiguration) Class.forName(configurationClassName).newInstance();
                 initConfiguration(jobWorkerConfiguration);
             } catch (final InstantiationException | IllegalAccessException |
-                    ClassNotFoundException | ClassCastException | RegionNotFoundException e) {
+                    ClassNotFoundException | ClassCastException | RegionNotFoundException |
+                    IllegalArgumentException | UncheckedIOException e) {
                 throw new DaemonInitException(
                         String.format("Provided job worker configuration class '%s' could not be loaded.", configurationClassName),
                         e);
@@ -148,7 +337,17 @@ public class JobWorkerDaemon implements Daemon {
     }
 
     private void initConfiguration(final JobWorkerConfiguration jobWorkerConfiguration) {
+        final long start = System.nanoTime();
         this.jobPoller = jobWorkerConfiguration.jobPoller();
         this.pollingIntervalInMs = jobWorkerConfiguration.getPollingIntervalInMs();
+        this.heartbeat = new PollHeartbeat(pollingIntervalInMs);
+        this.metricsRegistry = jobWorkerConfiguration.metricsRegistry();
+        this.metricsPort = jobWorkerConfiguration.getMetricsPort();
+        this.tracer = jobWorkerConfiguration.tracer();
+        this.jobLifecycleDispatcher = jobWorkerConfiguration.jobLifecycleDispatcher();
+        this.pollTuningSettings = jobWorkerConfiguration.pollTuningSettings();
+        this.configurationWatcher = jobWorkerConfiguration.configurationWatcher();
+        this.startupTimer = metricsRegistry == null ? new StartupTimer() : metricsRegistry.getStartupTimer();
+        startupTimer.recordSince(StartupTimer.Phase.Configuration, start);
     }
 }
@@ -0,0 +1,31 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker;
+
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+
+/**
+ * Log markers of the job worker.
+ */
+public final class LogMarkers {
+
+    /**
+     * Marks informational log lines written for every job or every poll,
+     * the default log configuration samples them under load.
+     */
+    public static final Marker JOB = MarkerManager.getMarker("JOB");
+
+    private LogMarkers() {
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.accounting;
+
+/**
+ * Settings of the per job resource accounting.
+ */
+public final class AccountingSettings {
+
+    /**
+     * Default number of distinct values of the configuration property jobs are aggregated by.
+     */
+    public static final int DEFAULT_MAX_CONFIGURATION_VALUES = 100;
+
+    private final String configurationKey;
+    private final int maxConfigurationValues;
+    private final boolean executionDetailsSummary;
+
+    /**
+     * Initializes the settings which aggregate the jobs by action type only.
+     */
+    public AccountingSettings() {
+        this(null, DEFAULT_MAX_CONFIGURATION_VALUES, false);
+    }
+
+    /**
+     * Initializes the settings.
+     * @param configurationKey action configuration property the jobs are additionally aggregated by, null if none
+     * @param maxConfigurationValues number of distinct property values aggregated separately,
+     *                               the jobs with further values are aggregated as {@value JobAccounting#OTHER_VALUES}
+     * @param executionDetailsSummary true to append a summary of the used resources to the execution details
+     *                                of succeeded jobs
+     */
+    public AccountingSettings(final String configurationKey,
+                              final int maxConfigurationValues,
+                              final boolean executionDetailsSummary) {
+        if (maxConfigurationValues <= 0) {
+            throw new IllegalArgumentException("Maximum number of configuration values must be positive");
+        }
+        this.configurationKey = configurationKey;
+        this.maxConfigurationValues = maxConfigurationValues;
+        this.executionDetailsSummary = executionDetailsSummary;
+    }
+
+    /**
+     * @return action configuration property the jobs are additionally aggregated by, null if none
+     */
+    public String getConfigurationKey() {
+        return configurationKey;
+    }
+
+    /**
+     * @return number of distinct property values aggregated separately
+     */
+    public int getMaxConfigurationValues() {
+        return maxConfigurationValues;
+    }
+
+    /**
+     * @return true if a summary of the used resources is appended to the execution details of succeeded jobs
+     */
+    public boolean isExecutionDetailsSummary() {
+        return executionDetailsSummary;
+    }
+}
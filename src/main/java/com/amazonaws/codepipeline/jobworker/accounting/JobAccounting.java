@@ -0,0 +1,251 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.accounting;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.codepipeline.jobworker.Validator;
+import com.amazonaws.codepipeline.jobworker.model.ExecutionDetails;
+import com.amazonaws.codepipeline.jobworker.model.JobData;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import com.amazonaws.codepipeline.jobworker.model.WorkResult;
+import com.amazonaws.codepipeline.jobworker.model.WorkResultStatus;
+
+/**
+ * Measures the CPU time, allocated heap memory and wall time of the jobs of an action type and aggregates them
+ * in total and by the value of a configurable action configuration property, e.g. for chargeback or to find
+ * pathological jobs.
+ *
+ * Only the worker thread of a job is measured, threads the job processor starts are not accounted.
+ */
+public class JobAccounting {
+
+    private static final Logger LOGGER = LogManager.getLogger(JobAccounting.class);
+
+    /**
+     * Aggregate of the jobs without the configuration property.
+     */
+    public static final String NO_VALUE = "none";
+
+    /**
+     * Aggregate of the jobs with property values beyond the maximum number of configuration values.
+     */
+    public static final String OTHER_VALUES = "other";
+
+    /**
+     * Maximum length of the execution details summary accepted by the job service.
+     */
+    private static final int MAX_SUMMARY_LENGTH = 2048;
+
+    private static final JobAccounting DISABLED = new JobAccounting();
+
+    private final AccountingSettings settings;
+    private final ThreadMXBean threadMXBean;
+    private final com.sun.management.ThreadMXBean allocationMXBean;
+    private final JobUsageTotals total;
+    private final Map<String, JobUsageTotals> byConfiguration;
+
+    /**
+     * Initializes the accounting with the thread management bean of the JVM.
+     * @param settings accounting settings
+     */
+    public JobAccounting(final AccountingSettings settings) {
+        this(settings, ManagementFactory.getThreadMXBean());
+    }
+
+    /**
+     * Initializes the accounting.
+     * @param settings accounting settings
+     * @param threadMXBean thread management bean the CPU time and allocated memory are read from
+     */
+    JobAccounting(final AccountingSettings settings, final ThreadMXBean threadMXBean) {
+        Validator.notNull(settings);
+        Validator.notNull(threadMXBean);
+        this.settings = settings;
+        if (threadMXBean.isCurrentThreadCpuTimeSupported()) {
+            this.threadMXBean = threadMXBean;
+        } else {
+            this.threadMXBean = null;
+            LOGGER.info("Thread CPU time is not supported by the JVM, jobs are accounted without CPU time");
+        }
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported()) {
+            this.allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        } else {
+            this.allocationMXBean = null;
+            LOGGER.info("Thread allocated memory is not supported by the JVM, jobs are accounted without allocations");
+        }
+        this.total = new JobUsageTotals();
+        this.byConfiguration = new ConcurrentHashMap<>();
+    }
+
+    private JobAccounting() {
+        this.settings = null;
+        this.threadMXBean = null;
+        this.allocationMXBean = null;
+        this.total = null;
+        this.byConfiguration = Collections.emptyMap();
+    }
+
+    /**
+     * @return accounting which does not measure jobs
+     */
+    public static JobAccounting disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * @return true if jobs are measured
+     */
+    public boolean isEnabled() {
+        return settings != null;
+    }
+
+    /**
+     * @return action configuration property the jobs are additionally aggregated by, null if none
+     */
+    public String getConfigurationKey() {
+        return settings == null ? null : settings.getConfigurationKey();
+    }
+
+    /**
+     * Starts measuring the job of the current thread.
+     * @return measurement, must be read on the same thread
+     */
+    public Measurement start() {
+        return new Measurement();
+    }
+
+    /**
+     * Adds the resources used by a job to the aggregates.
+     * @param workItem measured job
+     * @param usage resources used by the job
+     */
+    public void record(final WorkItem workItem, final JobResourceUsage usage) {
+        if (!isEnabled()) {
+            return;
+        }
+        total.add(usage);
+        final String key = settings.getConfigurationKey();
+        if (key != null) {
+            totalsFor(configurationValue(workItem, key)).add(usage);
+        }
+    }
+
+    /**
+     * @return resources used by all accounted jobs, null if disabled
+     */
+    public JobUsageTotals getTotal() {
+        return total;
+    }
+
+    /**
+     * @return live view of the resources used by the jobs of each value of the configuration property
+     */
+    public Map<String, JobUsageTotals> getByConfiguration() {
+        return Collections.unmodifiableMap(byConfiguration);
+    }
+
+    /**
+     * Appends a summary of the used resources to the execution details of a succeeded job if the settings ask for it.
+     * @param result result returned by the job processor
+     * @param usage resources used by the job so far
+     * @return result to report
+     */
+    public WorkResult summarize(final WorkResult result, final JobResourceUsage usage) {
+        if (!isEnabled() || !settings.isExecutionDetailsSummary() || !WorkResultStatus.Success.equals(result.getStatus())) {
+            return result;
+        }
+        final ExecutionDetails executionDetails = result.getExecutionDetails();
+        final String resources = usage.toSummary();
+        final ExecutionDetails summarized;
+        if (executionDetails == null) {
+            summarized = new ExecutionDetails(resources, null, result.getContinuationToken() == null ? 100 : 0);
+        } else {
+            final String summary = executionDetails.getSummary();
+            final String prefix = summary == null || summary.isEmpty() ? "" : summary + " | ";
+            final int maxPrefixLength = MAX_SUMMARY_LENGTH - resources.length();
+            summarized = new ExecutionDetails(
+                    (prefix.length() > maxPrefixLength ? prefix.substring(0, maxPrefixLength) : prefix) + resources,
+                    executionDetails.getExternalExecutionId(),
+                    executionDetails.getPercentComplete());
+        }
+        return WorkResult.success(result.getJobId(), summarized, result.getCurrentRevision(), result.getContinuationToken());
+    }
+
+    private JobUsageTotals totalsFor(final String value) {
+        final JobUsageTotals totals = byConfiguration.get(value);
+        if (totals != null) {
+            return totals;
+        }
+        // concurrent first jobs of new values may exceed the limit by the number of worker threads
+        if (byConfiguration.size() >= settings.getMaxConfigurationValues()) {
+            return byConfiguration.computeIfAbsent(OTHER_VALUES, v -> new JobUsageTotals());
+        }
+        return byConfiguration.computeIfAbsent(value, v -> new JobUsageTotals());
+    }
+
+    private static String configurationValue(final WorkItem workItem, final String key) {
+        final JobData jobData = workItem.getJobData();
+        final Map<String, String> configuration = jobData == null ? null : jobData.getActionConfiguration();
+        final String value = configuration == null ? null : configuration.get(key);
+        return value == null ? NO_VALUE : value;
+    }
+
+    private long cpuNanos() {
+        // -1 if CPU time measurement is disabled
+        return threadMXBean == null ? JobResourceUsage.UNKNOWN : threadMXBean.getCurrentThreadCpuTime();
+    }
+
+    private long allocatedBytes(final long threadId) {
+        // -1 if allocated memory measurement is disabled
+        return allocationMXBean == null ? JobResourceUsage.UNKNOWN : allocationMXBean.getThreadAllocatedBytes(threadId);
+    }
+
+    /**
+     * Resources used by the current thread since the measurement started.
+     */
+    public final class Measurement {
+        private final long threadId;
+        private final long cpuStart;
+        private final long allocatedStart;
+        private final long wallStart;
+
+        private Measurement() {
+            this.threadId = Thread.currentThread().getId();
+            this.cpuStart = cpuNanos();
+            this.allocatedStart = allocatedBytes(threadId);
+            this.wallStart = System.nanoTime();
+        }
+
+        /**
+         * @return resources used by the current thread since the measurement started
+         */
+        public JobResourceUsage read() {
+            final long wallNanos = System.nanoTime() - wallStart;
+            final long cpuEnd = cpuNanos();
+            final long allocatedEnd = allocatedBytes(threadId);
+            return new JobResourceUsage(
+                    cpuStart < 0 || cpuEnd < 0 ? JobResourceUsage.UNKNOWN : cpuEnd - cpuStart,
+                    allocatedStart < 0 || allocatedEnd < 0 ? JobResourceUsage.UNKNOWN : allocatedEnd - allocatedStart,
+                    wallNanos);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.accounting;
+
+/**
+ * Resources a job used on its worker thread from the start of processing to the end of reporting its result.
+ */
+public final class JobResourceUsage {
+
+    /**
+     * Value of a measurement the JVM does not support.
+     */
+    public static final long UNKNOWN = -1;
+
+    private static final double NANOS_PER_SECOND = 1e9;
+    private static final double BYTES_PER_MB = 1024.0 * 1024.0;
+
+    private final long cpuNanos;
+    private final long allocatedBytes;
+    private final long wallNanos;
+
+    /**
+     * Initializes the usage.
+     * @param cpuNanos CPU time of the worker thread, {@value #UNKNOWN} if not measured
+     * @param allocatedBytes heap memory allocated by the worker thread, {@value #UNKNOWN} if not measured
+     * @param wallNanos elapsed time
+     */
+    public JobResourceUsage(final long cpuNanos, final long allocatedBytes, final long wallNanos) {
+        this.cpuNanos = cpuNanos;
+        this.allocatedBytes = allocatedBytes;
+        this.wallNanos = wallNanos;
+    }
+
+    /**
+     * @return CPU time of the worker thread in nanoseconds, {@value #UNKNOWN} if not measured
+     */
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    /**
+     * @return heap memory allocated by the worker thread in bytes, {@value #UNKNOWN} if not measured
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return elapsed time in nanoseconds
+     */
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * @return compact summary, e.g. "CPU 1.250 s, allocated 35.2 MB, wall 4.100 s"
+     */
+    public String toSummary() {
+        final StringBuilder summary = new StringBuilder("CPU ");
+        if (cpuNanos == UNKNOWN) {
+            summary.append("n/a");
+        } else {
+            summary.append(String.format("%.3f s", cpuNanos / NANOS_PER_SECOND));
+        }
+        summary.append(", allocated ");
+        if (allocatedBytes == UNKNOWN) {
+            summary.append("n/a");
+        } else {
+            summary.append(String.format("%.1f MB", allocatedBytes / BYTES_PER_MB));
+        }
+        return summary.append(String.format(", wall %.3f s", wallNanos / NANOS_PER_SECOND)).toString();
+    }
+
+    @Override
+    public String toString() {
+        return toSummary();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.accounting;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Resources used by all jobs of an aggregate, e.g. of an action type or of an action configuration value.
+ */
+public final class JobUsageTotals {
+
+    private final LongAdder jobs = new LongAdder();
+    private final LongAdder cpuNanos = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder wallNanos = new LongAdder();
+
+    JobUsageTotals() {
+    }
+
+    void add(final JobResourceUsage usage) {
+        jobs.increment();
+        if (usage.getCpuNanos() != JobResourceUsage.UNKNOWN) {
+            cpuNanos.add(usage.getCpuNanos());
+        }
+        if (usage.getAllocatedBytes() != JobResourceUsage.UNKNOWN) {
+            allocatedBytes.add(usage.getAllocatedBytes());
+        }
+        wallNanos.add(usage.getWallNanos());
+    }
+
+    /**
+     * @return number of accounted jobs
+     */
+    public long getJobs() {
+        return jobs.sum();
+    }
+
+    /**
+     * @return CPU time of the worker threads in nanoseconds
+     */
+    public long getCpuNanos() {
+        return cpuNanos.sum();
+    }
+
+    /**
+     * @return heap memory allocated by the worker threads in bytes
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    /**
+     * @return elapsed time in nanoseconds
+     */
+    public long getWallNanos() {
+        return wallNanos.sum();
+    }
+}
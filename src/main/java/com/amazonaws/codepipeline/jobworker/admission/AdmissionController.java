@@ -0,0 +1,246 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.admission;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+import com.amazonaws.codepipeline.jobworker.LogMarkers;
+import com.amazonaws.codepipeline.jobworker.Validator;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+
+/**
+ * Decides how many jobs the host can take on, based on its CPU load, heap, free memory and free disk space.
+ *
+ * Before every poll the job poller asks for the batch size: polling stops while the CPU load or the heap usage
+ * is above its threshold or the free memory or disk space is below its minimum, and the batch size is reduced
+ * to the number of jobs whose default hint fits the remaining headroom. After the poll every job reserves the
+ * resources of its hint until it ends. A job whose hint does not fit is not acknowledged, so CodePipeline
+ * hands it out again, possibly to another host, instead of the job failing on an overloaded host.
+ *
+ * Only the reservations made since the last measurement are subtracted from the measured free memory and disk
+ * space. Older reservations are expected to show up in the measurement once their jobs have allocated the
+ * resources, subtracting them as well would count these jobs twice.
+ */
+public class AdmissionController {
+
+    private static final Logger LOGGER = LogManager.getLogger(AdmissionController.class);
+
+    private static final AdmissionController UNLIMITED = new AdmissionController();
+
+    private final ResourceMonitor monitor;
+    private final AdmissionSettings settings;
+
+    private volatile ResourceUsage lastUsage;
+    private long reservedMemoryBytes;
+    private long reservedDiskBytes;
+    private long sampleCount;
+    private long unmeasuredMemoryBytes;
+    private long unmeasuredDiskBytes;
+
+    /**
+     * Initializes the admission controller.
+     * @param monitor measures the resource usage of the host
+     * @param settings resource thresholds
+     */
+    public AdmissionController(final ResourceMonitor monitor, final AdmissionSettings settings) {
+        Validator.notNull(monitor);
+        Validator.notNull(settings);
+        this.monitor = monitor;
+        this.settings = settings;
+    }
+
+    private AdmissionController() {
+        this.monitor = null;
+        this.settings = null;
+    }
+
+    /**
+     * @return admission controller which admits every job the worker threads can take on
+     */
+    public static AdmissionController unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * @return true if the resources of the host are checked
+     */
+    public boolean isEnabled() {
+        return monitor != null;
+    }
+
+    /**
+     * Measures the resource usage and returns the number of jobs to poll.
+     * @param batchSize number of jobs the worker threads can take on
+     * @return number of jobs the host can take on, zero to skip the poll
+     */
+    public int admit(final int batchSize) {
+        if (monitor == null) {
+            return batchSize;
+        }
+        final ResourceUsage usage = sample();
+        if (usage.getCpuLoad() > settings.getMaxCpuLoad()) {
+            LOGGER.info(LogMarkers.JOB, "Skipping poll, CPU load {} is above {}",
+                    Unbox.box(usage.getCpuLoad()), Unbox.box(settings.getMaxCpuLoad()));
+            return 0;
+        }
+        if (usage.getHeapUsage() > settings.getMaxHeapUsage()) {
+            LOGGER.info(LogMarkers.JOB, "Skipping poll, heap usage {} is above {}",
+                    Unbox.box(usage.getHeapUsage()), Unbox.box(settings.getMaxHeapUsage()));
+            return 0;
+        }
+        final ResourceHint hint = settings.getDefaultJobHint();
+        final long admitted;
+        synchronized (this) {
+            admitted = Math.min(
+                    jobsFitting(batchSize, usage.getFreeMemoryBytes(), settings.getMinFreeMemoryBytes(),
+                            unmeasuredMemoryBytes, hint.getMemoryBytes()),
+                    jobsFitting(batchSize, usage.getFreeDiskBytes(), settings.getMinFreeDiskBytes(),
+                            unmeasuredDiskBytes, hint.getDiskBytes()));
+        }
+        if (admitted < batchSize) {
+            LOGGER.info(LogMarkers.JOB, "Reducing poll batch size from {} to {}, {}",
+                    Unbox.box(batchSize), Unbox.box(admitted), usage);
+        }
+        return (int) admitted;
+    }
+
+    /**
+     * Reserves the resources of a polled job until the job ends.
+     * @param workItem polled job
+     * @return reservation to close when the job ends, null if the resources of the job do not fit the host
+     */
+    public Reservation reserve(final WorkItem workItem) {
+        if (monitor == null) {
+            return Reservation.NONE;
+        }
+        final ResourceUsage usage = lastUsage == null ? sample() : lastUsage;
+        final ResourceHint hint = ResourceHint.forJob(workItem, settings.getDefaultJobHint());
+        synchronized (this) {
+            if (!fits(usage.getFreeMemoryBytes(), settings.getMinFreeMemoryBytes(), unmeasuredMemoryBytes, hint.getMemoryBytes())
+                    || !fits(usage.getFreeDiskBytes(), settings.getMinFreeDiskBytes(), unmeasuredDiskBytes, hint.getDiskBytes())) {
+                LOGGER.info(LogMarkers.JOB, "Host cannot take on job {} with {}, {}",
+                        workItem.getJobId(), hint, usage);
+                return null;
+            }
+            reservedMemoryBytes += hint.getMemoryBytes();
+            reservedDiskBytes += hint.getDiskBytes();
+            unmeasuredMemoryBytes += hint.getMemoryBytes();
+            unmeasuredDiskBytes += hint.getDiskBytes();
+            return new Reservation(this, hint, sampleCount);
+        }
+    }
+
+    /**
+     * @return resource usage measured before the last poll, null if not measured yet
+     */
+    public ResourceUsage getLastUsage() {
+        return lastUsage;
+    }
+
+    /**
+     * @return memory reserved by the jobs in progress in bytes, including the jobs already part of the last measurement
+     */
+    public synchronized long getReservedMemoryBytes() {
+        return reservedMemoryBytes;
+    }
+
+    /**
+     * @return disk space reserved by the jobs in progress in bytes
+     */
+    public synchronized long getReservedDiskBytes() {
+        return reservedDiskBytes;
+    }
+
+    private ResourceUsage sample() {
+        final ResourceUsage usage = monitor.sample();
+        synchronized (this) {
+            // the jobs reserved so far are part of this measurement
+            sampleCount++;
+            unmeasuredMemoryBytes = 0;
+            unmeasuredDiskBytes = 0;
+            lastUsage = usage;
+        }
+        return usage;
+    }
+
+    private synchronized void release(final ResourceHint hint, final long reservedAtSample) {
+        reservedMemoryBytes -= hint.getMemoryBytes();
+        reservedDiskBytes -= hint.getDiskBytes();
+        if (reservedAtSample == sampleCount) {
+            unmeasuredMemoryBytes -= hint.getMemoryBytes();
+            unmeasuredDiskBytes -= hint.getDiskBytes();
+        }
+    }
+
+    private static long jobsFitting(final long batchSize,
+                                    final long freeBytes,
+                                    final long minFreeBytes,
+                                    final long reservedBytes,
+                                    final long bytesPerJob) {
+        if (freeBytes < 0) {
+            return batchSize;
+        }
+        final long headroom = freeBytes - minFreeBytes - reservedBytes;
+        if (headroom <= 0) {
+            return 0;
+        }
+        return bytesPerJob > 0 ? Math.min(batchSize, headroom / bytesPerJob) : batchSize;
+    }
+
+    private static boolean fits(final long freeBytes,
+                                final long minFreeBytes,
+                                final long reservedBytes,
+                                final long bytes) {
+        return freeBytes < 0 || bytes == 0 || freeBytes - minFreeBytes - reservedBytes >= bytes;
+    }
+
+    /**
+     * Resources reserved by a job in progress.
+     */
+    public static final class Reservation implements AutoCloseable {
+
+        private static final Reservation NONE = new Reservation(null, ResourceHint.NONE, 0);
+
+        private final AdmissionController controller;
+        private final ResourceHint hint;
+        private final long sampleCount;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Reservation(final AdmissionController controller, final ResourceHint hint, final long sampleCount) {
+            this.controller = controller;
+            this.hint = hint;
+            this.sampleCount = sampleCount;
+        }
+
+        /**
+         * @return reserved resources
+         */
+        public ResourceHint getHint() {
+            return hint;
+        }
+
+        /**
+         * Releases the resources. Only the first call has an effect.
+         */
+        @Override
+        public void close() {
+            if (controller != null && released.compareAndSet(false, true)) {
+                controller.release(hint, sampleCount);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.admission;
+
+import java.nio.file.Path;
+
+import com.amazonaws.codepipeline.jobworker.Validator;
+
+/**
+ * Resource thresholds above which the job worker takes on no more jobs.
+ */
+public final class AdmissionSettings {
+
+    /**
+     * Default CPU load of the host above which the job worker stops polling.
+     */
+    public static final double DEFAULT_MAX_CPU_LOAD = 0.9;
+
+    /**
+     * Default used share of the maximum heap above which the job worker stops polling.
+     */
+    public static final double DEFAULT_MAX_HEAP_USAGE = 0.9;
+
+    /**
+     * Default physical memory kept free for the operating system and the jobs in progress.
+     */
+    public static final long DEFAULT_MIN_FREE_MEMORY_BYTES = 256L * 1024L * 1024L;
+
+    /**
+     * Default disk space kept free in the job directory.
+     */
+    public static final long DEFAULT_MIN_FREE_DISK_BYTES = 1024L * 1024L * 1024L;
+
+    private final Path directory;
+    private final double maxCpuLoad;
+    private final double maxHeapUsage;
+    private final long minFreeMemoryBytes;
+    private final long minFreeDiskBytes;
+    private final ResourceHint defaultJobHint;
+
+    /**
+     * Initializes the settings with the default thresholds, jobs without hints are admitted until a threshold is crossed.
+     * @param directory directory the jobs write to
+     */
+    public AdmissionSettings(final Path directory) {
+        this(directory,
+                DEFAULT_MAX_CPU_LOAD,
+                DEFAULT_MAX_HEAP_USAGE,
+                DEFAULT_MIN_FREE_MEMORY_BYTES,
+                DEFAULT_MIN_FREE_DISK_BYTES,
+                ResourceHint.NONE);
+    }
+
+    /**
+     * Initializes the settings.
+     * @param directory directory the jobs write to
+     * @param maxCpuLoad CPU load of the host between 0 and 1 above which the job worker stops polling
+     * @param maxHeapUsage used share of the maximum heap between 0 and 1 above which the job worker stops polling
+     * @param minFreeMemoryBytes physical memory kept free
+     * @param minFreeDiskBytes disk space kept free in the job directory
+     * @param defaultJobHint resources a job needs unless its action configuration declares otherwise,
+     *                       used to reduce the poll batch size to the jobs which fit the host
+     */
+    public AdmissionSettings(final Path directory,
+                             final double maxCpuLoad,
+                             final double maxHeapUsage,
+                             final long minFreeMemoryBytes,
+                             final long minFreeDiskBytes,
+                             final ResourceHint defaultJobHint) {
+        Validator.notNull(directory);
+        Validator.notNull(defaultJobHint);
+        if (maxCpuLoad <= 0 || maxCpuLoad > 1 || maxHeapUsage <= 0 || maxHeapUsage > 1) {
+            throw new IllegalArgumentException("Maximum CPU load and heap usage must be between 0 and 1");
+        }
+        if (minFreeMemoryBytes < 0 || minFreeDiskBytes < 0) {
+            throw new IllegalArgumentException("Free memory and disk space must not be negative");
+        }
+        this.directory = directory;
+        this.maxCpuLoad = maxCpuLoad;
+        this.maxHeapUsage = maxHeapUsage;
+        this.minFreeMemoryBytes = minFreeMemoryBytes;
+        this.minFreeDiskBytes = minFreeDiskBytes;
+        this.defaultJobHint = defaultJobHint;
+    }
+
+    /**
+     * @return directory the jobs write to
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * @return CPU load of the host above which the job worker stops polling
+     */
+    public double getMaxCpuLoad() {
+        return maxCpuLoad;
+    }
+
+    /**
+     * @return used share of the maximum heap above which the job worker stops polling
+     */
+    public double getMaxHeapUsage() {
+        return maxHeapUsage;
+    }
+
+    /**
+     * @return physical memory kept free in bytes
+     */
+    public long getMinFreeMemoryBytes() {
+        return minFreeMemoryBytes;
+    }
+
+    /**
+     * @return disk space kept free in the job directory in bytes
+     */
+    public long getMinFreeDiskBytes() {
+        return minFreeDiskBytes;
+    }
+
+    /**
+     * @return resources a job needs unless its action configuration declares otherwise
+     */
+    public ResourceHint getDefaultJobHint() {
+        return defaultJobHint;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.admission;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.codepipeline.jobworker.Validator;
+
+/**
+ * Reads the resource usage from the platform MXBeans and the file store of the job directory.
+ *
+ * The CPU load is read from the {@code com.sun.management} extension of the operating system MXBean, on JVMs
+ * without the extension it is estimated from the load average. The free memory is MemAvailable of
+ * /proc/meminfo on Linux, which unlike the free physical memory of the MXBean includes the page cache the kernel
+ * reclaims on demand. Elsewhere it falls back to the MXBean, and is not reported without the extension.
+ */
+public class HostResourceMonitor implements ResourceMonitor {
+
+    private static final Logger LOGGER = LogManager.getLogger(HostResourceMonitor.class);
+
+    private static final Path MEMINFO = Paths.get("/proc/meminfo");
+    private static final String MEM_AVAILABLE = "MemAvailable:";
+    private static final long BYTES_PER_KB = 1024L;
+
+    private final OperatingSystemMXBean operatingSystem;
+    private final MemoryMXBean memory;
+    private final FileStore fileStore;
+    private final Path meminfo;
+
+    /**
+     * Initializes the monitor.
+     * @param directory directory the jobs write to, its file store is checked for free space
+     */
+    public HostResourceMonitor(final Path directory) {
+        this(directory, MEMINFO);
+    }
+
+    /**
+     * Initializes the monitor.
+     * @param directory directory the jobs write to, its file store is checked for free space
+     * @param meminfo memory statistics of the kernel in the format of /proc/meminfo
+     */
+    HostResourceMonitor(final Path directory, final Path meminfo) {
+        Validator.notNull(directory);
+        Validator.notNull(meminfo);
+        this.operatingSystem = ManagementFactory.getOperatingSystemMXBean();
+        this.memory = ManagementFactory.getMemoryMXBean();
+        try {
+            this.fileStore = Files.getFileStore(directory);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(String.format("Could not find file store of '%s'", directory), e);
+        }
+        this.meminfo = Files.isReadable(meminfo) ? meminfo : null;
+    }
+
+    @Override
+    public ResourceUsage sample() {
+        final MemoryUsage heap = memory.getHeapMemoryUsage();
+        return new ResourceUsage(cpuLoad(), heap.getUsed(), heap.getMax(), freeMemoryBytes(), freeDiskBytes());
+    }
+
+    @SuppressWarnings("deprecation")
+    private double cpuLoad() {
+        if (operatingSystem instanceof com.sun.management.OperatingSystemMXBean) {
+            final double load = ((com.sun.management.OperatingSystemMXBean) operatingSystem).getSystemCpuLoad();
+            if (load >= 0) {
+                return load;
+            }
+        }
+        final double loadAverage = operatingSystem.getSystemLoadAverage();
+        return loadAverage < 0 ? -1 : loadAverage / operatingSystem.getAvailableProcessors();
+    }
+
+    @SuppressWarnings("deprecation")
+    private long freeMemoryBytes() {
+        if (meminfo != null) {
+            final long available = availableMemoryBytes();
+            if (available >= 0) {
+                return available;
+            }
+        }
+        if (operatingSystem instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) operatingSystem).getFreePhysicalMemorySize();
+        }
+        return -1;
+    }
+
+    private long availableMemoryBytes() {
+        try (BufferedReader reader = Files.newBufferedReader(meminfo, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(MEM_AVAILABLE)) {
+                    // e.g. "MemAvailable:   12345678 kB"
+                    final String value = line.substring(MEM_AVAILABLE.length()).trim();
+                    final int unit = value.indexOf(' ');
+                    return Long.parseLong(unit < 0 ? value : value.substring(0, unit)) * BYTES_PER_KB;
+                }
+            }
+        } catch (final IOException | NumberFormatException e) {
+            LOGGER.warn("Could not read available memory", e);
+        }
+        // kernels before 3.14 do not report MemAvailable
+        return -1;
+    }
+
+    private long freeDiskBytes() {
+        try {
+            return fileStore.getUsableSpace();
+        } catch (final IOException e) {
+            LOGGER.warn("Could not read free space of the job directory", e);
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.admission;
+
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.codepipeline.jobworker.model.JobData;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+
+/**
+ * Memory and disk space a job is expected to need on the host.
+ *
+ * Action types can declare the needs of a job with the configuration properties {@value #MEMORY_MB_KEY}
+ * and {@value #DISK_MB_KEY}, jobs without them are expected to need the default hint of the admission settings.
+ */
+public final class ResourceHint {
+
+    private static final Logger LOGGER = LogManager.getLogger(ResourceHint.class);
+
+    /**
+     * Action configuration property with the memory a job needs in megabytes.
+     */
+    public static final String MEMORY_MB_KEY = "JobWorkerMemoryMb";
+
+    /**
+     * Action configuration property with the disk space a job needs in megabytes.
+     */
+    public static final String DISK_MB_KEY = "JobWorkerDiskMb";
+
+    /**
+     * Hint of a job which needs no noteworthy resources.
+     */
+    public static final ResourceHint NONE = new ResourceHint(0, 0);
+
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+
+    private final long memoryBytes;
+    private final long diskBytes;
+
+    /**
+     * Initializes the hint.
+     * @param memoryBytes memory the job needs
+     * @param diskBytes disk space the job needs
+     */
+    public ResourceHint(final long memoryBytes, final long diskBytes) {
+        if (memoryBytes < 0 || diskBytes < 0) {
+            throw new IllegalArgumentException("Memory and disk space of a resource hint must not be negative");
+        }
+        this.memoryBytes = memoryBytes;
+        this.diskBytes = diskBytes;
+    }
+
+    /**
+     * Reads the hint of a job from its action configuration.
+     * @param workItem polled job
+     * @param defaultHint hint used for the properties the job does not declare or declares invalid
+     * @return resource hint of the job
+     */
+    public static ResourceHint forJob(final WorkItem workItem, final ResourceHint defaultHint) {
+        final JobData jobData = workItem.getJobData();
+        final Map<String, String> configuration = jobData == null ? null : jobData.getActionConfiguration();
+        if (configuration == null) {
+            return defaultHint;
+        }
+        return new ResourceHint(
+                megabytes(workItem, configuration, MEMORY_MB_KEY, defaultHint.memoryBytes),
+                megabytes(workItem, configuration, DISK_MB_KEY, defaultHint.diskBytes));
+    }
+
+    /**
+     * @return memory the job needs in bytes
+     */
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * @return disk space the job needs in bytes
+     */
+    public long getDiskBytes() {
+        return diskBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("memoryMb=%d, diskMb=%d", memoryBytes / BYTES_PER_MB, diskBytes / BYTES_PER_MB);
+    }
+
+    private static long megabytes(final WorkItem workItem,
+                                  final Map<String, String> configuration,
+                                  final String key,
+                                  final long defaultBytes) {
+        final String value = configuration.get(key);
+        if (value == null) {
+            return defaultBytes;
+        }
+        try {
+            final long megabytes = Long.parseLong(value.trim());
+            if (megabytes >= 0) {
+                return megabytes * BYTES_PER_MB;
+            }
+        } catch (final NumberFormatException e) {
+            // reported below
+        }
+        LOGGER.warn("Ignoring invalid {} '{}' of job {}", key, value, workItem.getJobId());
+        return defaultBytes;
+    }
+}
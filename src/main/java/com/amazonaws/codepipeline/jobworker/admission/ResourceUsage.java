@@ -0,0 +1,94 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.admission;
+
+/**
+ * Resource usage of the host and the JVM at one point in time.
+ * Values the platform does not report are negative.
+ */
+public final class ResourceUsage {
+
+    private final double cpuLoad;
+    private final long heapUsedBytes;
+    private final long heapMaxBytes;
+    private final long freeMemoryBytes;
+    private final long freeDiskBytes;
+
+    /**
+     * Initializes the resource usage.
+     * @param cpuLoad recent CPU load of the host between 0 and 1, negative if not available
+     * @param heapUsedBytes used heap of the JVM
+     * @param heapMaxBytes maximum heap of the JVM, negative if not limited
+     * @param freeMemoryBytes free physical memory of the host, negative if not available
+     * @param freeDiskBytes usable space of the file store jobs write to, negative if not available
+     */
+    public ResourceUsage(final double cpuLoad,
+                         final long heapUsedBytes,
+                         final long heapMaxBytes,
+                         final long freeMemoryBytes,
+                         final long freeDiskBytes) {
+        this.cpuLoad = cpuLoad;
+        this.heapUsedBytes = heapUsedBytes;
+        this.heapMaxBytes = heapMaxBytes;
+        this.freeMemoryBytes = freeMemoryBytes;
+        this.freeDiskBytes = freeDiskBytes;
+    }
+
+    /**
+     * @return recent CPU load of the host between 0 and 1, negative if not available
+     */
+    public double getCpuLoad() {
+        return cpuLoad;
+    }
+
+    /**
+     * @return used heap of the JVM in bytes
+     */
+    public long getHeapUsedBytes() {
+        return heapUsedBytes;
+    }
+
+    /**
+     * @return maximum heap of the JVM in bytes, negative if not limited
+     */
+    public long getHeapMaxBytes() {
+        return heapMaxBytes;
+    }
+
+    /**
+     * @return used share of the maximum heap between 0 and 1, negative if the heap is not limited
+     */
+    public double getHeapUsage() {
+        return heapMaxBytes > 0 ? (double) heapUsedBytes / heapMaxBytes : -1;
+    }
+
+    /**
+     * @return free physical memory of the host in bytes, negative if not available
+     */
+    public long getFreeMemoryBytes() {
+        return freeMemoryBytes;
+    }
+
+    /**
+     * @return usable space of the file store jobs write to in bytes, negative if not available
+     */
+    public long getFreeDiskBytes() {
+        return freeDiskBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("cpuLoad=%.2f, heapUsage=%.2f, freeMemoryBytes=%d, freeDiskBytes=%d",
+                cpuLoad, getHeapUsage(), freeMemoryBytes, freeDiskBytes);
+    }
+}
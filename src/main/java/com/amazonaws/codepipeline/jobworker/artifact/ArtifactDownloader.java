@@ -0,0 +1,530 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.artifact;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.codepipeline.jobworker.LogMarkers;
+import com.amazonaws.codepipeline.jobworker.Validator;
+import com.amazonaws.codepipeline.jobworker.model.AWSSessionCredentials;
+import com.amazonaws.codepipeline.jobworker.model.Artifact;
+import com.amazonaws.codepipeline.jobworker.model.JobData;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.util.BinaryUtils;
+
+/**
+ * Downloads artifacts from the artifact store by splitting them into byte ranges which are fetched concurrently.
+ * Each range is streamed through a fixed size buffer and written with positional writes into a preallocated file,
+ * so memory usage only depends on the number of concurrent parts and not on the artifact size.
+ *
+ * A failed range is retried from the last byte written. All ranges are requested with the ETag of the first
+ * metadata request as precondition, so a download never mixes two versions of an object.
+ * The downloaded content is verified against the MD5 based ETag unless the object is encrypted with SSE-KMS
+ * or SSE-C, in which case S3 does not expose a content checksum. For multipart objects the ranges are aligned
+ * with the upload parts, whose sizes are looked up part by part, so the ETag can be verified from the digests
+ * calculated while downloading. Objects uploaded in a single request are digested while downloading if they fit
+ * into a single range and read back from the file otherwise.
+ */
+public class ArtifactDownloader {
+
+    private static final Logger LOGGER = LogManager.getLogger(ArtifactDownloader.class);
+
+    /**
+     * Default size of a single byte range.
+     */
+    public static final long DEFAULT_PART_SIZE = 16L * 1024 * 1024;
+
+    /**
+     * Default number of byte ranges fetched in parallel for a single artifact.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_PARTS = 8;
+
+    /**
+     * Default number of retries for a single byte range.
+     */
+    public static final int DEFAULT_MAX_PART_RETRIES = 3;
+
+    /**
+     * Size of the buffer each part download streams through.
+     */
+    private static final int BUFFER_SIZE = 128 * 1024;
+
+    private static final long RETRY_BACKOFF_MS = 200L;
+    private static final String SSE_KMS = "aws:kms";
+    private static final String MD5 = "MD5";
+
+    private final S3ClientFactory s3ClientFactory;
+    private final ExecutorService executorService;
+    private final long partSize;
+    private final int maxConcurrentParts;
+    private final int maxPartRetries;
+
+    /**
+     * Initializes the artifact downloader with default part size, concurrency and retries.
+     * @param s3ClientFactory factory for S3 clients using the job credentials.
+     * @param executorService executor service which runs the part downloads.
+     */
+    public ArtifactDownloader(final S3ClientFactory s3ClientFactory, final ExecutorService executorService) {
+        this(s3ClientFactory, executorService, DEFAULT_PART_SIZE, DEFAULT_MAX_CONCURRENT_PARTS, DEFAULT_MAX_PART_RETRIES);
+    }
+
+    /**
+     * Initializes the artifact downloader.
+     * @param s3ClientFactory factory for S3 clients using the job credentials.
+     * @param executorService executor service which runs the part downloads.
+     *                        Should provide at least maxConcurrentParts threads.
+     * @param partSize size of a single byte range in bytes.
+     * @param maxConcurrentParts maximum number of byte ranges fetched in parallel for a single artifact.
+     * @param maxPartRetries number of retries for a single byte range before the download fails.
+     */
+    public ArtifactDownloader(final S3ClientFactory s3ClientFactory,
+                              final ExecutorService executorService,
+                              final long partSize,
+                              final int maxConcurrentParts,
+                              final int maxPartRetries) {
+        Validator.notNull(s3ClientFactory);
+        Validator.notNull(executorService);
+        if (partSize <= 0 || maxConcurrentParts <= 0 || maxPartRetries < 0) {
+            throw new IllegalArgumentException("Part size and concurrency must be positive, retries must not be negative");
+        }
+        this.s3ClientFactory = s3ClientFactory;
+        this.executorService = executorService;
+        this.partSize = partSize;
+        this.maxConcurrentParts = maxConcurrentParts;
+        this.maxPartRetries = maxPartRetries;
+    }
+
+    /**
+     * Downloads all input artifacts of the job into the given directory.
+     * Each artifact is stored in a file named after the artifact.
+     * @param jobData job data containing the input artifacts and artifact credentials.
+     * @param directory target directory.
+     * @return downloaded files by artifact name.
+     */
+    public Map<String, Path> downloadInputArtifacts(final JobData jobData, final Path directory) {
+        Validator.notNull(jobData);
+        Validator.notNull(directory);
+        final Map<String, Path> result = new LinkedHashMap<>();
+        for (final Artifact artifact : jobData.getInputArtifacts()) {
+            final Path target = directory.resolve(artifact.getName());
+            download(artifact, jobData.getArtifactCredentials(), target);
+            result.put(artifact.getName(), target);
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Downloads a single artifact into the given file. An existing file is overwritten.
+     * The file is deleted if the download fails.
+     * @param artifact artifact to download.
+     * @param credentials artifact credentials of the job.
+     * @param target target file.
+     * @throws ArtifactTransferException if the artifact could not be downloaded or failed verification.
+     */
+    public void download(final Artifact artifact, final AWSSessionCredentials credentials, final Path target) {
+        Validator.notNull(artifact);
+        Validator.notNull(credentials);
+        Validator.notNull(target);
+
+        final AmazonS3 s3Client = s3ClientFactory.getS3Client(credentials);
+        final long startTime = System.currentTimeMillis();
+        try {
+            final DownloadPlan plan = plan(s3Client, artifact);
+            LOGGER.info(LogMarkers.JOB, "Downloading artifact {} ({} bytes) in {} parts",
+                    artifact.getName(), Unbox.box(plan.contentLength), Unbox.box(plan.partCount));
+
+            try (FileChannel channel = FileChannel.open(target,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                preallocate(channel, plan.contentLength);
+                final byte[][] digests = downloadParts(s3Client, artifact, plan, channel);
+                verify(artifact, plan, digests, channel);
+            }
+            LOGGER.info(LogMarkers.JOB, "Downloaded artifact {} in {} ms",
+                    artifact.getName(), Unbox.box(System.currentTimeMillis() - startTime));
+        } catch (final IOException | RuntimeException e) {
+            deleteQuietly(target);
+            if (e instanceof ArtifactTransferException) {
+                throw (ArtifactTransferException) e;
+            }
+            throw new ArtifactTransferException(String.format("Failed to download artifact %s", artifact.getName()), e);
+        } finally {
+            s3Client.shutdown();
+        }
+    }
+
+    private DownloadPlan plan(final AmazonS3 s3Client, final Artifact artifact) throws IOException {
+        final ObjectMetadata metadata = s3Client.getObjectMetadata(
+                new GetObjectMetadataRequest(artifact.getS3BucketName(), artifact.getS3ObjectKey()));
+        final long contentLength = metadata.getContentLength();
+        final String eTag = metadata.getETag();
+
+        if (eTag == null
+                || SSE_KMS.equals(metadata.getSSEAlgorithm())
+                || metadata.getSSECustomerAlgorithm() != null) {
+            return new DownloadPlan(contentLength, eTag, partSize, ChecksumMode.None);
+        }
+
+        final int separator = eTag.indexOf('-');
+        if (separator < 0) {
+            return new DownloadPlan(contentLength, eTag, partSize, ChecksumMode.Object);
+        }
+
+        // Multipart ETags are the digest of the part digests, so ranges have to follow the upload parts.
+        // Parts may have any size but the last, so the layout is only trusted if the part sizes add up.
+        final int uploadParts = Integer.parseInt(eTag.substring(separator + 1));
+        final long[] offsets = uploadPartOffsets(s3Client, artifact, uploadParts);
+        if (offsets != null && offsets[uploadParts] == contentLength) {
+            return new DownloadPlan(contentLength, eTag, offsets, ChecksumMode.Parts);
+        }
+        return new DownloadPlan(contentLength, eTag, partSize, ChecksumMode.None);
+    }
+
+    /**
+     * Looks up the size of every upload part concurrently.
+     * @return start offsets of the upload parts followed by the end of the last part, null if a part is empty
+     */
+    private long[] uploadPartOffsets(final AmazonS3 s3Client, final Artifact artifact, final int uploadParts) throws IOException {
+        final long[] sizes = new long[uploadParts];
+        forEachPart(artifact, uploadParts, () -> index -> sizes[index] = s3Client.getObjectMetadata(
+                new GetObjectMetadataRequest(artifact.getS3BucketName(), artifact.getS3ObjectKey())
+                        .withPartNumber(index + 1)).getContentLength());
+        final long[] offsets = new long[uploadParts + 1];
+        for (int i = 0; i < uploadParts; i++) {
+            if (sizes[i] <= 0) {
+                return null;
+            }
+            offsets[i + 1] = offsets[i] + sizes[i];
+        }
+        return offsets;
+    }
+
+    private byte[][] downloadParts(final AmazonS3 s3Client,
+                                   final Artifact artifact,
+                                   final DownloadPlan plan,
+                                   final FileChannel channel) throws IOException {
+        final byte[][] digests = new byte[plan.partCount][];
+        forEachPart(artifact, plan.partCount, () -> {
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            return index -> {
+                final Part part = new Part(index, plan);
+                downloadPart(s3Client, artifact, plan, part, channel, buffer);
+                digests[index] = part.digest == null ? null : part.digest.digest();
+            };
+        });
+        return digests;
+    }
+
+    /**
+     * Runs a task for every part with at most the maximum number of concurrent parts,
+     * stops handing out parts after the first failure.
+     * @param workers creates the task of a worker, called once per worker
+     */
+    private void forEachPart(final Artifact artifact, final int partCount, final Supplier<PartTask> workers) throws IOException {
+        final AtomicInteger nextPart = new AtomicInteger();
+        final AtomicBoolean aborted = new AtomicBoolean();
+        final int workerCount = Math.min(maxConcurrentParts, partCount);
+
+        final List<Future<?>> futures = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            futures.add(executorService.submit(() -> {
+                final PartTask task = workers.get();
+                int index;
+                while (!aborted.get() && (index = nextPart.getAndIncrement()) < partCount) {
+                    task.run(index);
+                }
+                return null;
+            }));
+        }
+
+        Throwable failure = null;
+        for (final Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (final ExecutionException e) {
+                aborted.set(true);
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            } catch (final InterruptedException e) {
+                aborted.set(true);
+                futures.forEach(f -> f.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new ArtifactTransferException(String.format("Interrupted while downloading artifact %s", artifact.getName()), e);
+            }
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure != null) {
+            throw new ArtifactTransferException(String.format("Failed to download artifact %s", artifact.getName()), failure);
+        }
+    }
+
+    private void downloadPart(final AmazonS3 s3Client,
+                              final Artifact artifact,
+                              final DownloadPlan plan,
+                              final Part part,
+                              final FileChannel channel,
+                              final byte[] buffer) throws IOException {
+        int attempt = 0;
+        while (true) {
+            try {
+                downloadRange(s3Client, artifact, plan, part, channel, buffer);
+                return;
+            } catch (final IOException | SdkClientException e) {
+                if (attempt >= maxPartRetries || !isRetryable(e)) {
+                    throw new ArtifactTransferException(String.format("Failed to download part %d of artifact %s after %d attempts",
+                            part.index, artifact.getName(), attempt + 1), e);
+                }
+                attempt++;
+                LOGGER.warn("Retrying part {} of artifact {} from byte {} (attempt {}): {}",
+                        Unbox.box(part.index), artifact.getName(), Unbox.box(part.position), Unbox.box(attempt), e.getMessage());
+                backoff(attempt);
+            }
+        }
+    }
+
+    private void downloadRange(final AmazonS3 s3Client,
+                               final Artifact artifact,
+                               final DownloadPlan plan,
+                               final Part part,
+                               final FileChannel channel,
+                               final byte[] buffer) throws IOException {
+        final GetObjectRequest request = new GetObjectRequest(artifact.getS3BucketName(), artifact.getS3ObjectKey())
+                .withRange(part.position, part.end);
+        if (plan.eTag != null) {
+            request.withMatchingETagConstraint(plan.eTag);
+        }
+
+        final S3Object object = s3Client.getObject(request);
+        if (object == null) {
+            throw new ArtifactTransferException(String.format("Artifact %s changed while it was downloaded", artifact.getName()));
+        }
+
+        boolean complete = false;
+        final S3ObjectInputStream input = object.getObjectContent();
+        try {
+            copy(input, part, channel, buffer);
+            complete = true;
+        } finally {
+            if (complete) {
+                input.close();
+            } else {
+                input.abort();
+            }
+        }
+    }
+
+    private static void copy(final InputStream input, final Part part, final FileChannel channel, final byte[] buffer) throws IOException {
+        while (part.position <= part.end) {
+            final int read = input.read(buffer, 0, (int) Math.min(buffer.length, part.end - part.position + 1));
+            if (read < 0) {
+                throw new IOException(String.format("Connection closed at byte %d, expected range to end at byte %d",
+                        part.position, part.end));
+            }
+            final ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+            long position = part.position;
+            while (bytes.hasRemaining()) {
+                position += channel.write(bytes, position);
+            }
+            if (part.digest != null) {
+                part.digest.update(buffer, 0, read);
+            }
+            part.position = position;
+        }
+    }
+
+    private void verify(final Artifact artifact,
+                        final DownloadPlan plan,
+                        final byte[][] digests,
+                        final FileChannel channel) throws IOException {
+        final String expected = plan.eTag == null ? null : plan.eTag.replace("\"", "");
+        final String actual;
+        switch (plan.checksumMode) {
+            case Parts:
+                final MessageDigest combined = newDigest();
+                for (final byte[] digest : digests) {
+                    combined.update(digest);
+                }
+                actual = BinaryUtils.toHex(combined.digest()) + "-" + digests.length;
+                break;
+            case Object:
+                actual = BinaryUtils.toHex(plan.partCount == 1 ? digests[0] : digest(channel));
+                break;
+            default:
+                return;
+        }
+        if (!actual.equalsIgnoreCase(expected)) {
+            throw new ArtifactTransferException(String.format("Checksum mismatch for artifact %s: expected ETag %s but calculated %s",
+                    artifact.getName(), expected, actual));
+        }
+    }
+
+    private static byte[] digest(final FileChannel channel) throws IOException {
+        final MessageDigest digest = newDigest();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        long position = 0;
+        int read;
+        while ((read = channel.read(ByteBuffer.wrap(buffer), position)) > 0) {
+            digest.update(buffer, 0, read);
+            position += read;
+        }
+        return digest.digest();
+    }
+
+    private static void preallocate(final FileChannel channel, final long size) throws IOException {
+        if (size > 0) {
+            channel.write(ByteBuffer.allocate(1), size - 1);
+        }
+    }
+
+    private static boolean isRetryable(final Exception e) {
+        if (e instanceof AmazonServiceException) {
+            final int statusCode = ((AmazonServiceException) e).getStatusCode();
+            return statusCode >= 500 || statusCode == 408 || statusCode == 429;
+        }
+        return true;
+    }
+
+    private static void backoff(final int attempt) {
+        try {
+            Thread.sleep(RETRY_BACKOFF_MS << (attempt - 1));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ArtifactTransferException("Interrupted while waiting to retry part download", e);
+        }
+    }
+
+    private static void deleteQuietly(final Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (final IOException e) {
+            LOGGER.warn("Could not delete incomplete download {}", path, e);
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance(MD5);
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 digest not available", e);
+        }
+    }
+
+    private static long[] uniformOffsets(final long contentLength, final long partSize) {
+        final int partCount = (int) ((contentLength + partSize - 1) / partSize);
+        final long[] offsets = new long[partCount + 1];
+        for (int i = 0; i < partCount; i++) {
+            offsets[i] = i * partSize;
+        }
+        offsets[partCount] = contentLength;
+        return offsets;
+    }
+
+    /**
+     * Work on a single part, run by one worker thread.
+     */
+    private interface PartTask {
+        void run(int index) throws IOException;
+    }
+
+    private enum ChecksumMode {
+        /**
+         * ETag is not a content digest, the content cannot be verified.
+         */
+        None,
+        /**
+         * ETag is the digest of the whole object.
+         */
+        Object,
+        /**
+         * ETag is the digest of the upload part digests, parts are aligned with the upload parts.
+         */
+        Parts
+    }
+
+    private static final class DownloadPlan {
+        private final long contentLength;
+        private final String eTag;
+        private final long[] offsets;
+        private final int partCount;
+        private final ChecksumMode checksumMode;
+
+        private DownloadPlan(final long contentLength, final String eTag, final long partSize, final ChecksumMode checksumMode) {
+            this(contentLength, eTag, uniformOffsets(contentLength, partSize), checksumMode);
+        }
+
+        private DownloadPlan(final long contentLength, final String eTag, final long[] offsets, final ChecksumMode checksumMode) {
+            this.contentLength = contentLength;
+            this.eTag = eTag;
+            this.offsets = offsets;
+            this.partCount = offsets.length - 1;
+            this.checksumMode = checksumMode;
+        }
+
+        /**
+         * @return true if the parts are digested while they are downloaded
+         */
+        private boolean digestsParts() {
+            return checksumMode == ChecksumMode.Parts || checksumMode == ChecksumMode.Object && partCount == 1;
+        }
+    }
+
+    private static final class Part {
+        private final int index;
+        private final long end;
+        private final MessageDigest digest;
+        private long position;
+
+        private Part(final int index, final DownloadPlan plan) {
+            this.index = index;
+            this.position = plan.offsets[index];
+            this.end = plan.offsets[index + 1] - 1;
+            this.digest = plan.digestsParts() ? newDigest() : null;
+        }
+    }
+}
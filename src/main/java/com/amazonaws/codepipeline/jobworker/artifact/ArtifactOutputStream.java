@@ -0,0 +1,379 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.artifact;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+import com.amazonaws.codepipeline.jobworker.LogMarkers;
+import com.amazonaws.codepipeline.jobworker.model.Artifact;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.SSEAwsKeyManagementParams;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+
+/**
+ * Output stream which uploads an output artifact while it is written.
+ * Written data is collected in pooled direct buffers of part size. Every full buffer is uploaded
+ * as a part of a multipart upload in the background while the caller keeps writing. The number of parts
+ * in flight is bounded, once the limit is reached write blocks until a part upload finished.
+ *
+ * Artifacts smaller than a single part are uploaded with a single put object request on close.
+ * The multipart upload is completed on close and aborted if any part or write failed,
+ * a stream whose write failed never publishes the artifact.
+ * Instances are not thread safe and must be written by a single thread.
+ */
+public class ArtifactOutputStream extends OutputStream {
+
+    private static final Logger LOGGER = LogManager.getLogger(ArtifactOutputStream.class);
+
+    private final AmazonS3 s3Client;
+    private final Artifact artifact;
+    private final SSEAwsKeyManagementParams sseParams;
+    private final DirectBufferPool bufferPool;
+    private final ExecutorService executorService;
+    private final Semaphore inFlightParts;
+    private final List<PartUpload> parts = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private ByteBuffer buffer;
+    private String uploadId;
+    private long bytesWritten;
+    private boolean closed;
+    private boolean failed;
+
+    ArtifactOutputStream(final AmazonS3 s3Client,
+                         final Artifact artifact,
+                         final SSEAwsKeyManagementParams sseParams,
+                         final DirectBufferPool bufferPool,
+                         final ExecutorService executorService,
+                         final int maxInFlightParts) {
+        this.s3Client = s3Client;
+        this.artifact = artifact;
+        this.sseParams = sseParams;
+        this.bufferPool = bufferPool;
+        this.executorService = executorService;
+        this.inFlightParts = new Semaphore(maxInFlightParts);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        try {
+            ensureBuffer();
+            buffer.put((byte) b);
+            bytesWritten++;
+            if (!buffer.hasRemaining()) {
+                uploadPart();
+            }
+        } catch (final IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    @Override
+    public void write(final byte[] bytes, final int offset, final int length) throws IOException {
+        if (offset < 0 || length < 0 || offset + length > bytes.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        int position = offset;
+        int remaining = length;
+        try {
+            while (remaining > 0) {
+                ensureBuffer();
+                final int count = Math.min(remaining, buffer.remaining());
+                buffer.put(bytes, position, count);
+                position += count;
+                remaining -= count;
+                bytesWritten += count;
+                if (!buffer.hasRemaining()) {
+                    uploadPart();
+                }
+            }
+        } catch (final IOException | RuntimeException e) {
+            failed = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Uploads the remaining data and completes the upload, or aborts it if a write failed.
+     * Shuts down the S3 client of the stream in either case.
+     * @throws IOException if the artifact could not be uploaded
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (failed) {
+                throw new IOException(String.format("Failed to write artifact %s", artifact.getName()));
+            }
+            if (uploadId == null) {
+                putObject();
+            } else {
+                if (buffer != null && buffer.position() > 0) {
+                    uploadPart();
+                }
+                completeUpload();
+            }
+            LOGGER.info(LogMarkers.JOB, "Uploaded artifact {} ({} bytes)", artifact.getName(), Unbox.box(bytesWritten));
+        } catch (final IOException | RuntimeException e) {
+            abort();
+            throw e instanceof IOException ? (IOException) e
+                    : new IOException(String.format("Failed to upload artifact %s", artifact.getName()), e);
+        } finally {
+            if (buffer != null) {
+                bufferPool.release(buffer);
+                buffer = null;
+            }
+            s3Client.shutdown();
+        }
+    }
+
+    /**
+     * @return number of bytes written to this stream
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    private void ensureBuffer() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (buffer == null) {
+            try {
+                buffer = bufferPool.acquire();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for upload buffer");
+            }
+        }
+    }
+
+    private void uploadPart() throws IOException {
+        checkFailure();
+        if (uploadId == null) {
+            final InitiateMultipartUploadRequest request = new InitiateMultipartUploadRequest(
+                    artifact.getS3BucketName(), artifact.getS3ObjectKey());
+            request.setSSEAwsKeyManagementParams(sseParams);
+            uploadId = s3Client.initiateMultipartUpload(request).getUploadId();
+        }
+
+        try {
+            inFlightParts.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for part upload");
+        }
+
+        final PartUpload part = new PartUpload(buffer, parts.size() + 1);
+        buffer = null;
+        ((Buffer) part.buffer).flip();
+        try {
+            part.future = executorService.submit(part);
+            parts.add(part);
+        } catch (final RejectedExecutionException e) {
+            releasePart(part.buffer);
+            throw new IOException("Part upload rejected", e);
+        }
+    }
+
+    private PartETag uploadPart(final ByteBuffer part, final int partNumber) {
+        try {
+            final int size = part.remaining();
+            final UploadPartRequest request = new UploadPartRequest()
+                    .withBucketName(artifact.getS3BucketName())
+                    .withKey(artifact.getS3ObjectKey())
+                    .withUploadId(uploadId)
+                    .withPartNumber(partNumber)
+                    .withPartSize(size)
+                    .withInputStream(new ByteBufferInputStream(part));
+            request.getRequestClientOptions().setReadLimit(size + 1);
+            return s3Client.uploadPart(request).getPartETag();
+        } catch (final RuntimeException e) {
+            failure.compareAndSet(null, e);
+            throw e;
+        } finally {
+            releasePart(part);
+        }
+    }
+
+    private void releasePart(final ByteBuffer part) {
+        bufferPool.release(part);
+        inFlightParts.release();
+    }
+
+    private void putObject() {
+        final int size = buffer == null ? 0 : buffer.position();
+        final ObjectMetadata metadata = new ObjectMetadata();
+        metadata.setContentLength(size);
+        final InputStream content;
+        if (buffer == null) {
+            content = new ByteBufferInputStream(ByteBuffer.allocate(0));
+        } else {
+            ((Buffer) buffer).flip();
+            content = new ByteBufferInputStream(buffer);
+        }
+        final PutObjectRequest request = new PutObjectRequest(artifact.getS3BucketName(), artifact.getS3ObjectKey(), content, metadata)
+                .withSSEAwsKeyManagementParams(sseParams);
+        request.getRequestClientOptions().setReadLimit(size + 1);
+        s3Client.putObject(request);
+    }
+
+    private void completeUpload() throws IOException {
+        final List<PartETag> partETags = new ArrayList<>(parts.size());
+        for (final PartUpload part : parts) {
+            try {
+                partETags.add(part.future.get());
+            } catch (final ExecutionException e) {
+                throw new IOException(String.format("Failed to upload part of artifact %s", artifact.getName()), e.getCause());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for part uploads");
+            }
+        }
+        s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(
+                artifact.getS3BucketName(), artifact.getS3ObjectKey(), uploadId, partETags));
+    }
+
+    private void checkFailure() throws IOException {
+        final Throwable cause = failure.get();
+        if (cause != null) {
+            throw new IOException(String.format("Failed to upload part of artifact %s", artifact.getName()), cause);
+        }
+    }
+
+    private void abort() {
+        if (uploadId == null) {
+            return;
+        }
+        for (final PartUpload part : parts) {
+            if (part.claim()) {
+                // never started, so its buffer and in flight permit are released here instead of by the upload
+                part.future.cancel(false);
+                releasePart(part.buffer);
+            } else {
+                part.future.cancel(true);
+            }
+        }
+        try {
+            s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(
+                    artifact.getS3BucketName(), artifact.getS3ObjectKey(), uploadId));
+        } catch (final RuntimeException e) {
+            LOGGER.warn("Could not abort multipart upload {} of artifact {}", uploadId, artifact.getName(), e);
+        }
+    }
+
+    /**
+     * Upload of a part, claimed either by the thread which runs it or by abort if it has not started yet.
+     * Whoever claims the part releases its buffer and in flight permit.
+     */
+    private final class PartUpload implements Callable<PartETag> {
+        private final ByteBuffer buffer;
+        private final int partNumber;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private Future<PartETag> future;
+
+        private PartUpload(final ByteBuffer buffer, final int partNumber) {
+            this.buffer = buffer;
+            this.partNumber = partNumber;
+        }
+
+        private boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        @Override
+        public PartETag call() {
+            if (!claim()) {
+                throw new CancellationException("Part upload aborted");
+            }
+            return uploadPart(buffer, partNumber);
+        }
+    }
+
+    /**
+     * Input stream over the readable bytes of a buffer. Supports mark and reset so the SDK can retry requests.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(final ByteBuffer buffer) {
+            this.buffer = buffer.duplicate();
+            ((Buffer) this.buffer).mark();
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(final byte[] bytes, final int offset, final int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            final int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(final int readLimit) {
+            ((Buffer) buffer).mark();
+        }
+
+        @Override
+        public synchronized void reset() {
+            ((Buffer) buffer).reset();
+        }
+    }
+}
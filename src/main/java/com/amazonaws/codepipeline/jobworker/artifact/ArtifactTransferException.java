@@ -0,0 +1,44 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.artifact;
+
+/**
+ * Artifact transfer exception. Thrown if an artifact could not be transferred from or to the artifact store.
+ */
+public class ArtifactTransferException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a new ArtifactTransferException with the specified error
+     * message.
+     *
+     * @param message
+     *        Describes the error encountered.
+     */
+    public ArtifactTransferException(final String message) {
+        super(message);
+    }
+
+    /**
+     * Constructs a new ArtifactTransferException with the specified error
+     * message.
+     *
+     * @param message
+     *        Describes the error encountered.
+     * @param e
+     *        The root exception that caused this exception to be thrown.
+     */
+    public ArtifactTransferException(final String message, final Throwable e) {
+        super(message, e);
+    }
+}
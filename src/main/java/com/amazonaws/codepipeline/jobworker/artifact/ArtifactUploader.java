@@ -0,0 +1,162 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.artifact;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+
+import com.amazonaws.codepipeline.jobworker.Validator;
+import com.amazonaws.codepipeline.jobworker.model.AWSSessionCredentials;
+import com.amazonaws.codepipeline.jobworker.model.Artifact;
+import com.amazonaws.codepipeline.jobworker.model.EncryptionKey;
+import com.amazonaws.codepipeline.jobworker.model.EncryptionKeyType;
+import com.amazonaws.codepipeline.jobworker.model.JobData;
+import com.amazonaws.services.s3.model.SSEAwsKeyManagementParams;
+
+/**
+ * Uploads output artifacts to the artifact store while they are produced.
+ * Streams returned by this uploader apply the encryption key of the job as server side encryption.
+ * All streams of an uploader share a pool of direct buffers, which bounds the memory used by concurrent uploads.
+ */
+public class ArtifactUploader {
+
+    /**
+     * Minimum part size accepted by S3 for all but the last part of a multipart upload.
+     */
+    public static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    /**
+     * Default size of a single upload part.
+     */
+    public static final int DEFAULT_PART_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * Default number of parts uploaded in parallel for a single artifact.
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT_PARTS = 4;
+
+    /**
+     * Default number of pooled buffers shared by all uploads.
+     */
+    public static final int DEFAULT_MAX_BUFFERS = 16;
+
+    private final S3ClientFactory s3ClientFactory;
+    private final ExecutorService executorService;
+    private final DirectBufferPool bufferPool;
+    private final int maxInFlightParts;
+
+    /**
+     * Initializes the artifact uploader with default part size and concurrency.
+     * @param s3ClientFactory factory for S3 clients using the job credentials.
+     * @param executorService executor service which runs the part uploads.
+     */
+    public ArtifactUploader(final S3ClientFactory s3ClientFactory, final ExecutorService executorService) {
+        this(s3ClientFactory, executorService, DEFAULT_PART_SIZE, DEFAULT_MAX_IN_FLIGHT_PARTS, DEFAULT_MAX_BUFFERS);
+    }
+
+    /**
+     * Initializes the artifact uploader.
+     * @param s3ClientFactory factory for S3 clients using the job credentials.
+     * @param executorService executor service which runs the part uploads.
+     * @param partSize size of a single upload part in bytes, at least 5 MB.
+     * @param maxInFlightParts maximum number of parts uploaded in parallel for a single artifact.
+     * @param maxBuffers maximum number of part buffers shared by all uploads.
+     *                   Each stream holds one additional buffer which is currently written.
+     */
+    public ArtifactUploader(final S3ClientFactory s3ClientFactory,
+                            final ExecutorService executorService,
+                            final int partSize,
+                            final int maxInFlightParts,
+                            final int maxBuffers) {
+        Validator.notNull(s3ClientFactory);
+        Validator.notNull(executorService);
+        if (partSize < MIN_PART_SIZE) {
+            throw new IllegalArgumentException(String.format("Part size must be at least %d bytes", MIN_PART_SIZE));
+        }
+        if (maxInFlightParts <= 0) {
+            throw new IllegalArgumentException("Number of in flight parts must be positive");
+        }
+        this.s3ClientFactory = s3ClientFactory;
+        this.executorService = executorService;
+        this.bufferPool = new DirectBufferPool(partSize, maxBuffers);
+        this.maxInFlightParts = maxInFlightParts;
+    }
+
+    /**
+     * Opens a stream which uploads the given output artifact of the job.
+     * The artifact is complete once the stream was closed successfully.
+     * @param jobData job data containing artifact credentials and encryption key.
+     * @param artifact output artifact.
+     * @return output stream for the artifact content.
+     */
+    public ArtifactOutputStream newOutputStream(final JobData jobData, final Artifact artifact) {
+        Validator.notNull(jobData);
+        return newOutputStream(artifact, jobData.getArtifactCredentials(), jobData.getEncryptionKey());
+    }
+
+    /**
+     * Opens a stream which uploads the given artifact.
+     * @param artifact output artifact.
+     * @param credentials artifact credentials of the job.
+     * @param encryptionKey encryption key of the artifact store, uses the bucket default encryption if null.
+     * @return output stream for the artifact content.
+     */
+    public ArtifactOutputStream newOutputStream(final Artifact artifact,
+                                                final AWSSessionCredentials credentials,
+                                                final EncryptionKey encryptionKey) {
+        Validator.notNull(artifact);
+        Validator.notNull(credentials);
+        return new ArtifactOutputStream(s3ClientFactory.getS3Client(credentials),
+                artifact,
+                sseParams(encryptionKey),
+                bufferPool,
+                executorService,
+                maxInFlightParts);
+    }
+
+    /**
+     * Uploads a file as output artifact of the job.
+     * @param jobData job data containing artifact credentials and encryption key.
+     * @param artifact output artifact.
+     * @param file file to upload.
+     * @throws ArtifactTransferException if the artifact could not be uploaded.
+     */
+    public void upload(final JobData jobData, final Artifact artifact, final Path file) {
+        Validator.notNull(jobData);
+        Validator.notNull(artifact);
+        Validator.notNull(file);
+        try (InputStream input = Files.newInputStream(file);
+             ArtifactOutputStream output = newOutputStream(jobData, artifact)) {
+            final byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        } catch (final IOException | RuntimeException e) {
+            if (e instanceof ArtifactTransferException) {
+                throw (ArtifactTransferException) e;
+            }
+            throw new ArtifactTransferException(String.format("Failed to upload artifact %s", artifact.getName()), e);
+        }
+    }
+
+    private static SSEAwsKeyManagementParams sseParams(final EncryptionKey encryptionKey) {
+        if (encryptionKey == null || encryptionKey.getType() != EncryptionKeyType.KMS) {
+            return null;
+        }
+        return new SSEAwsKeyManagementParams(encryptionKey.getId());
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.artifact;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicSessionCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.amazonaws.codepipeline.jobworker.Validator;
+import com.amazonaws.codepipeline.jobworker.model.AWSSessionCredentials;
+import com.amazonaws.regions.Region;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+
+/**
+ * Builds a new S3 client for every set of job credentials.
+ * Each client has its own connection pool, which is released when the client is shut down.
+ */
+public class DefaultS3ClientFactory implements S3ClientFactory {
+
+    private final Region region;
+    private final EndpointConfiguration endpointConfiguration;
+
+    /**
+     * Initializes the factory for the artifact store in the given region.
+     * @param region region of the artifact store
+     */
+    public DefaultS3ClientFactory(final Region region) {
+        Validator.notNull(region);
+        this.region = region;
+        this.endpointConfiguration = null;
+    }
+
+    /**
+     * Initializes the factory for a custom S3 compatible endpoint, e.g. a local test server.
+     * Requests use path style access since the endpoint usually does not resolve bucket sub-domains.
+     * @param endpointConfiguration service endpoint and signing region
+     */
+    public DefaultS3ClientFactory(final EndpointConfiguration endpointConfiguration) {
+        Validator.notNull(endpointConfiguration);
+        this.region = null;
+        this.endpointConfiguration = endpointConfiguration;
+    }
+
+    /**
+     * Returns a new S3 client which signs its requests with the given job credentials.
+     * @param credentials artifact credentials of the job
+     * @return S3 client
+     */
+    @Override
+    public AmazonS3 getS3Client(final AWSSessionCredentials credentials) {
+        Validator.notNull(credentials);
+        final AmazonS3ClientBuilder builder = AmazonS3ClientBuilder.standard()
+                .withCredentials(new AWSStaticCredentialsProvider(new BasicSessionCredentials(
+                        credentials.getAccessKeyId(),
+                        credentials.getSecretAccessKey(),
+                        credentials.getSessionToken())));
+        if (endpointConfiguration != null) {
+            builder.withEndpointConfiguration(endpointConfiguration)
+                    .withPathStyleAccessEnabled(true);
+        } else {
+            builder.withRegion(region.getName());
+        }
+        return builder.build();
+    }
+}
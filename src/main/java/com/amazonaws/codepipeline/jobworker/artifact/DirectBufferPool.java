@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.artifact;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded pool of equally sized direct byte buffers.
+ * Buffers are allocated lazily up to the maximum number of buffers. Once all buffers are in use
+ * acquire blocks until another buffer is released, which caps the direct memory used by all uploads.
+ */
+public class DirectBufferPool {
+
+    private final int bufferSize;
+    private final int maxBuffers;
+    private final BlockingQueue<ByteBuffer> available;
+    private final AtomicInteger allocated = new AtomicInteger();
+
+    /**
+     * Initializes the buffer pool.
+     * @param bufferSize size of each buffer in bytes.
+     * @param maxBuffers maximum number of buffers allocated by this pool.
+     */
+    public DirectBufferPool(final int bufferSize, final int maxBuffers) {
+        if (bufferSize <= 0 || maxBuffers <= 0) {
+            throw new IllegalArgumentException("Buffer size and number of buffers must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.maxBuffers = maxBuffers;
+        this.available = new LinkedBlockingQueue<>(maxBuffers);
+    }
+
+    /**
+     * Takes a cleared buffer from the pool, blocks if all buffers are in use.
+     * @return direct byte buffer
+     * @throws InterruptedException if interrupted while waiting for a buffer
+     */
+    public ByteBuffer acquire() throws InterruptedException {
+        final ByteBuffer buffer = available.poll();
+        if (buffer != null) {
+            return buffer;
+        }
+        int count;
+        while ((count = allocated.get()) < maxBuffers) {
+            if (allocated.compareAndSet(count, count + 1)) {
+                return ByteBuffer.allocateDirect(bufferSize);
+            }
+        }
+        return available.take();
+    }
+
+    /**
+     * Returns a buffer to the pool.
+     * @param buffer buffer previously acquired from this pool
+     */
+    public void release(final ByteBuffer buffer) {
+        // Cast keeps the Java 8 method signature when compiled with a newer JDK.
+        ((Buffer) buffer).clear();
+        available.offer(buffer);
+    }
+
+    /**
+     * @return size of each buffer in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return number of buffers allocated so far
+     */
+    public int getAllocatedBuffers() {
+        return allocated.get();
+    }
+}
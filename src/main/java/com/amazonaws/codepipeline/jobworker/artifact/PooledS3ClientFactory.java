@@ -0,0 +1,282 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.artifact;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicSessionCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.amazonaws.codepipeline.jobworker.Validator;
+import com.amazonaws.codepipeline.jobworker.model.AWSSessionCredentials;
+import com.amazonaws.regions.Region;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+
+/**
+ * S3 client factory which shares a single S3 client, and with it the HTTP connection pool, across all jobs.
+ *
+ * Clients returned by this factory are light weight views on the shared client which attach the job credentials
+ * to every request object passed through them. Views are cached per set of credentials and evicted once the
+ * credentials expire, or as soon as S3 reports the session token as expired. Only operations which take a request
+ * object are supported, convenience overloads such as getObject(bucket, key) cannot carry the job credentials
+ * and fail with an exception.
+ */
+public class PooledS3ClientFactory implements S3ClientFactory, AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(PooledS3ClientFactory.class);
+
+    /**
+     * Default lifetime of cached clients, shorter than the lifetime of the job credentials.
+     */
+    public static final long DEFAULT_CREDENTIALS_TTL_MS = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * Default maximum number of cached clients.
+     */
+    public static final int DEFAULT_MAX_CLIENTS = 256;
+
+    private static final String EXPIRED_TOKEN = "ExpiredToken";
+
+    private final AmazonS3 sharedClient;
+    private final long credentialsTtlMs;
+    private final int maxClients;
+    private final Map<CredentialsKey, CachedClient> clients = new ConcurrentHashMap<>();
+
+    /**
+     * Initializes the factory for the artifact store in the given region with default settings.
+     * @param region region of the artifact store
+     */
+    public PooledS3ClientFactory(final Region region) {
+        this(region, new ClientConfiguration(), DEFAULT_CREDENTIALS_TTL_MS, DEFAULT_MAX_CLIENTS);
+    }
+
+    /**
+     * Initializes the factory for the artifact store in the given region.
+     * @param region region of the artifact store
+     * @param clientConfiguration configuration of the shared client, e.g. the size of the connection pool
+     * @param credentialsTtlMs time after which cached clients are evicted
+     * @param maxClients maximum number of cached clients
+     */
+    public PooledS3ClientFactory(final Region region,
+                                 final ClientConfiguration clientConfiguration,
+                                 final long credentialsTtlMs,
+                                 final int maxClients) {
+        this(newBuilder(clientConfiguration).withRegion(regionName(region)).build(), credentialsTtlMs, maxClients);
+    }
+
+    /**
+     * Initializes the factory for a custom S3 compatible endpoint, e.g. a local test server.
+     * @param endpointConfiguration service endpoint and signing region
+     * @param credentialsTtlMs time after which cached clients are evicted
+     * @param maxClients maximum number of cached clients
+     */
+    public PooledS3ClientFactory(final EndpointConfiguration endpointConfiguration,
+                                 final long credentialsTtlMs,
+                                 final int maxClients) {
+        this(newBuilder(new ClientConfiguration())
+                .withEndpointConfiguration(endpointConfiguration)
+                .withPathStyleAccessEnabled(true)
+                .build(), credentialsTtlMs, maxClients);
+    }
+
+    private PooledS3ClientFactory(final AmazonS3 sharedClient, final long credentialsTtlMs, final int maxClients) {
+        if (credentialsTtlMs < 0 || maxClients <= 0) {
+            throw new IllegalArgumentException("Credentials ttl must not be negative, maximum number of clients must be positive");
+        }
+        this.sharedClient = sharedClient;
+        this.credentialsTtlMs = credentialsTtlMs;
+        this.maxClients = maxClients;
+    }
+
+    /**
+     * Returns a client which signs its requests with the given job credentials
+     * and sends them over the shared connection pool.
+     * @param credentials artifact credentials of the job
+     * @return S3 client
+     */
+    @Override
+    public AmazonS3 getS3Client(final AWSSessionCredentials credentials) {
+        Validator.notNull(credentials);
+        final CredentialsKey key = new CredentialsKey(credentials);
+        final long now = System.currentTimeMillis();
+
+        final CachedClient cached = clients.get(key);
+        if (cached != null && cached.expiresAt > now) {
+            return cached.client;
+        }
+
+        final CachedClient created = new CachedClient(newScopedClient(key, credentials), now + credentialsTtlMs);
+        clients.put(key, created);
+        if (clients.size() > maxClients) {
+            evict(now);
+        }
+        return created.client;
+    }
+
+    /**
+     * @return number of cached clients
+     */
+    public int getCachedClients() {
+        return clients.size();
+    }
+
+    /**
+     * Shuts down the shared client and releases its connection pool.
+     */
+    @Override
+    public void close() {
+        clients.clear();
+        sharedClient.shutdown();
+    }
+
+    private void evict(final long now) {
+        clients.entrySet().removeIf(entry -> entry.getValue().expiresAt <= now);
+        while (clients.size() > maxClients) {
+            clients.entrySet().stream()
+                    .min((a, b) -> Long.compare(a.getValue().expiresAt, b.getValue().expiresAt))
+                    .ifPresent(oldest -> clients.remove(oldest.getKey(), oldest.getValue()));
+        }
+    }
+
+    private AmazonS3 newScopedClient(final CredentialsKey key, final AWSSessionCredentials credentials) {
+        final AWSCredentialsProvider credentialsProvider = new AWSStaticCredentialsProvider(new BasicSessionCredentials(
+                credentials.getAccessKeyId(),
+                credentials.getSecretAccessKey(),
+                credentials.getSessionToken()));
+        final InvocationHandler handler = (proxy, method, arguments) -> invoke(proxy, key, credentialsProvider, method, arguments);
+        return (AmazonS3) Proxy.newProxyInstance(AmazonS3.class.getClassLoader(), new Class<?>[] { AmazonS3.class }, handler);
+    }
+
+    private Object invoke(final Object proxy,
+                          final CredentialsKey key,
+                          final AWSCredentialsProvider credentialsProvider,
+                          final Method method,
+                          final Object[] arguments) throws Throwable {
+        if (method.getDeclaringClass() == Object.class) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == arguments[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return "PooledS3Client(" + key.accessKeyId + ")";
+            }
+        }
+        if ("shutdown".equals(method.getName())) {
+            // The shared client is owned by the factory.
+            return null;
+        }
+        if (arguments != null) {
+            for (final Object argument : arguments) {
+                if (argument instanceof AmazonWebServiceRequest) {
+                    ((AmazonWebServiceRequest) argument).setRequestCredentialsProvider(credentialsProvider);
+                }
+            }
+        }
+        try {
+            return method.invoke(sharedClient, arguments);
+        } catch (final InvocationTargetException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof AmazonServiceException
+                    && EXPIRED_TOKEN.equals(((AmazonServiceException) cause).getErrorCode())) {
+                LOGGER.info("Evicting S3 client since job credentials expired");
+                clients.remove(key);
+            }
+            throw cause;
+        }
+    }
+
+    private static AmazonS3ClientBuilder newBuilder(final ClientConfiguration clientConfiguration) {
+        Validator.notNull(clientConfiguration);
+        return AmazonS3ClientBuilder.standard()
+                .withClientConfiguration(clientConfiguration)
+                .withCredentials(new MissingJobCredentialsProvider());
+    }
+
+    private static String regionName(final Region region) {
+        Validator.notNull(region);
+        return region.getName();
+    }
+
+    /**
+     * Credentials provider of the shared client. Requests without job credentials are rejected.
+     */
+    private static final class MissingJobCredentialsProvider implements AWSCredentialsProvider {
+        @Override
+        public AWSCredentials getCredentials() {
+            throw new UnsupportedOperationException(
+                    "S3 requests have to carry job credentials, use the operations which take a request object");
+        }
+
+        @Override
+        public void refresh() {
+        }
+    }
+
+    private static final class CachedClient {
+        private final AmazonS3 client;
+        private final long expiresAt;
+
+        private CachedClient(final AmazonS3 client, final long expiresAt) {
+            this.client = client;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class CredentialsKey {
+        private final String accessKeyId;
+        private final String secretAccessKey;
+        private final String sessionToken;
+
+        private CredentialsKey(final AWSSessionCredentials credentials) {
+            this.accessKeyId = credentials.getAccessKeyId();
+            this.secretAccessKey = credentials.getSecretAccessKey();
+            this.sessionToken = credentials.getSessionToken();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CredentialsKey)) {
+                return false;
+            }
+            final CredentialsKey other = (CredentialsKey) obj;
+            return accessKeyId.equals(other.accessKeyId)
+                    && secretAccessKey.equals(other.secretAccessKey)
+                    && sessionToken.equals(other.sessionToken);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accessKeyId, sessionToken);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.artifact;
+
+import com.amazonaws.codepipeline.jobworker.model.AWSSessionCredentials;
+import com.amazonaws.services.s3.AmazonS3;
+
+/**
+ * Provides S3 clients which access the artifact store with the credentials handed out for a job.
+ */
+public interface S3ClientFactory {
+    /**
+     * Returns an S3 client which signs its requests with the given job credentials.
+     * Callers shut the client down once the transfer finished, clients which share resources
+     * with other jobs ignore the shutdown.
+     * @param credentials artifact credentials of the job
+     * @return S3 client
+     */
+    AmazonS3 getS3Client(AWSSessionCredentials credentials);
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.configuration;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.codepipeline.jobworker.Validator;
+
+/**
+ * Watches a properties file and hands the settings to the listeners whenever they change.
+ *
+ * The directory of the file is watched, so the file may be replaced by a rename as editors and
+ * configuration management tools do. Changes are read after a short quiet period; if the new file is invalid
+ * the error is logged and the previous settings stay in effect.
+ */
+public class ConfigurationWatcher implements AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(ConfigurationWatcher.class);
+
+    /**
+     * Time to wait for further changes before the file is read.
+     */
+    private static final long QUIET_PERIOD_MS = 200L;
+
+    private final Path file;
+    private final List<BiConsumer<JobWorkerProperties, JobWorkerProperties>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile JobWorkerProperties properties;
+    private WatchService watchService;
+    private Thread thread;
+
+    /**
+     * Initializes the watcher.
+     * @param file watched properties file
+     * @param properties settings currently in effect
+     */
+    public ConfigurationWatcher(final Path file, final JobWorkerProperties properties) {
+        Validator.notNull(file);
+        Validator.notNull(properties);
+        this.file = file.toAbsolutePath();
+        this.properties = properties;
+    }
+
+    /**
+     * Adds a listener which is called on the watcher thread with the previous and the new settings
+     * whenever they change.
+     * @param listener listener
+     */
+    public void addListener(final BiConsumer<JobWorkerProperties, JobWorkerProperties> listener) {
+        Validator.notNull(listener);
+        listeners.add(listener);
+    }
+
+    /**
+     * Starts watching the file.
+     * @throws IOException if the directory of the file cannot be watched
+     */
+    public synchronized void start() throws IOException {
+        if (thread != null) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY);
+        thread = new Thread(this::run, "configuration-watcher");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.info("Watching configuration file {}", file);
+    }
+
+    /**
+     * @return settings currently in effect
+     */
+    public JobWorkerProperties getProperties() {
+        return properties;
+    }
+
+    /**
+     * Reads the file and notifies the listeners if the settings changed.
+     * @return true if the settings changed
+     */
+    public boolean reload() {
+        final JobWorkerProperties reloaded;
+        try {
+            reloaded = JobWorkerProperties.load(file);
+        } catch (final IOException | IllegalArgumentException e) {
+            LOGGER.error("Could not reload configuration file {}, keeping the previous settings", file, e);
+            return false;
+        }
+        final JobWorkerProperties previous = properties;
+        if (reloaded.equals(previous)) {
+            return false;
+        }
+        if (reloaded.requiresRestart(previous)) {
+            LOGGER.warn("Action type and region changes take effect after a restart of the job worker");
+        }
+        properties = reloaded;
+        LOGGER.info("Reloaded configuration: {}", reloaded);
+        for (final BiConsumer<JobWorkerProperties, JobWorkerProperties> listener : listeners) {
+            try {
+                listener.accept(previous, reloaded);
+            } catch (final RuntimeException e) {
+                LOGGER.error("Could not apply reloaded configuration", e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stops watching the file.
+     */
+    @Override
+    public synchronized void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (final IOException e) {
+                LOGGER.warn("Could not close configuration watch service", e);
+            }
+        }
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(1));
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean changed = false;
+                // Collect the events of the quiet period, writes of one save often arrive as several events.
+                while (key != null) {
+                    changed |= affectsFile(key);
+                    key.reset();
+                    key = watchService.poll(QUIET_PERIOD_MS, TimeUnit.MILLISECONDS);
+                }
+                if (changed) {
+                    reload();
+                }
+            }
+        } catch (final InterruptedException | ClosedWatchServiceException e) {
+            LOGGER.debug("Stopped watching configuration file");
+        }
+    }
+
+    private boolean affectsFile(final WatchKey key) {
+        boolean affected = false;
+        for (final WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || file.getFileName().equals(event.context())) {
+                affected = true;
+            }
+        }
+        return affected;
+    }
+}
@@ -25,6 +25,7 @@ public class CustomActionJobWorkerConfiguration extends DefaultJobWorkerConfigur
      * Action type this job worker is polling and processing jobs for.
      * @return action type identifier
      */
+    @Override
     public ActionTypeId getActionTypeId() {
         return new ActionTypeId("Deploy", "Custom", "MyCustomAction", "1");
     }
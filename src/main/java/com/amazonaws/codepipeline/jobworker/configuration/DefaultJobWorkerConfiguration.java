@@ -12,16 +12,45 @@
  */
 package com.amazonaws.codepipeline.jobworker.configuration;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.ThreadPoolExecutor;
 
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.DefaultAWSCredentialsProviderChain;
 import com.amazonaws.codepipeline.jobworker.CodePipelineJobPoller;
 import com.amazonaws.codepipeline.jobworker.JobPoller;
 import com.amazonaws.codepipeline.jobworker.JobProcessor;
 import com.amazonaws.codepipeline.jobworker.JobService;
-import com.amazonaws.codepipeline.jobworker.model.RegionNotFoundException;
+import com.amazonaws.codepipeline.jobworker.accounting.AccountingSettings;
+import com.amazonaws.codepipeline.jobworker.accounting.JobAccounting;
+import com.amazonaws.codepipeline.jobworker.admission.AdmissionController;
+import com.amazonaws.codepipeline.jobworker.admission.AdmissionSettings;
+import com.amazonaws.codepipeline.jobworker.admission.HostResourceMonitor;
+import com.amazonaws.codepipeline.jobworker.hedging.HedgedJobService;
+import com.amazonaws.codepipeline.jobworker.hedging.HedgingSettings;
+import com.amazonaws.codepipeline.jobworker.lifecycle.JobLifecycleDispatcher;
+import com.amazonaws.codepipeline.jobworker.lifecycle.JobLifecycleListener;
+import com.amazonaws.codepipeline.jobworker.metrics.ConnectionPoolMetrics;
+import com.amazonaws.codepipeline.jobworker.metrics.InstrumentedJobService;
+import com.amazonaws.codepipeline.jobworker.metrics.InstrumentedSslSocketFactory;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics;
+import com.amazonaws.codepipeline.jobworker.metrics.MetricsRegistry;
+import com.amazonaws.codepipeline.jobworker.metrics.StartupTimer;
+import com.amazonaws.codepipeline.jobworker.model.ActionTypeId;
+import com.amazonaws.codepipeline.jobworker.ratelimit.RateLimitedJobService;
+import com.amazonaws.codepipeline.jobworker.ratelimit.RateLimiter;
+import com.amazonaws.codepipeline.jobworker.tracing.JsonLinesSpanExporter;
+import com.amazonaws.codepipeline.jobworker.tracing.Tracer;
+import com.amazonaws.codepipeline.jobworker.tuning.PollTuningSettings;
 import com.amazonaws.regions.Region;
-import com.amazonaws.regions.Regions;
 import com.amazonaws.services.codepipeline.AWSCodePipeline;
 import com.amazonaws.services.codepipeline.AWSCodePipelineClient;
 import com.amazonaws.util.StringUtils;
@@ -51,9 +80,37 @@ public abstract class DefaultJobWorkerConfiguration implements JobWorkerConfigur
     private static final int POLL_BATCH_SIZE = WORKER_THREADS;
 
     /**
-     * Environment variable to override region.
+     * System property to enable the embedded Prometheus metrics server on the given port.
      */
-    private static final String AWS_REGION = "AWS_REGION";
+    private static final String METRICS_PORT = "METRICS_PORT";
+
+    /**
+     * System property to enable tracing, spans are appended to the given file.
+     */
+    private static final String TRACES_FILE = "TRACES_FILE";
+
+    /**
+     * System property to override the CodePipeline endpoint, e.g. to point the job worker at a local emulator.
+     */
+    private static final String CODEPIPELINE_ENDPOINT = "CODEPIPELINE_ENDPOINT";
+
+    /**
+     * System property to enable the poll auto tuner with the given 95th percentile pickup latency target.
+     */
+    private static final String TARGET_PICKUP_LATENCY_MS = "TARGET_PICKUP_LATENCY_MS";
+
+    /**
+     * Service name the spans are exported with.
+     */
+    private static final String SERVICE_NAME = "aws-codepipeline-jobworker";
+
+    /**
+     * Name of the thread which creates the job service while the worker pool starts.
+     */
+    private static final String JOB_SERVICE_THREAD_NAME = "job-service-init";
+
+    private Tracer tracer;
+    private JobLifecycleDispatcher jobLifecycleDispatcher;
 
     /**
      * @return the poll interval in milliseconds
@@ -64,11 +121,150 @@ public abstract class DefaultJobWorkerConfiguration implements JobWorkerConfigur
     }
 
     /**
+     * @return port of the embedded Prometheus metrics server, disabled unless system property METRICS_PORT is set
+     */
+    @Override
+    public int getMetricsPort() {
+        final String metricsPort = System.getProperty(METRICS_PORT);
+        if (StringUtils.isNullOrEmpty(metricsPort)) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(metricsPort.trim());
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Invalid metrics port: '%s'", metricsPort), e);
+        }
+    }
+
+    /**
+     * @return target of the poll auto tuner given by system property TARGET_PICKUP_LATENCY_MS, disabled if not set
+     */
+    @Override
+    public PollTuningSettings pollTuningSettings() {
+        final String targetPickupLatency = System.getProperty(TARGET_PICKUP_LATENCY_MS);
+        if (StringUtils.isNullOrEmpty(targetPickupLatency)) {
+            return null;
+        }
+        try {
+            return new PollTuningSettings(Long.parseLong(targetPickupLatency.trim()));
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Invalid target pickup latency: '%s'", targetPickupLatency), e);
+        }
+    }
+
+    /**
+     * @return tracer which appends spans to the file given by system property TRACES_FILE, disabled if not set
+     */
+    @Override
+    public synchronized Tracer tracer() {
+        if (tracer == null) {
+            final String tracesFile = System.getProperty(TRACES_FILE);
+            if (StringUtils.isNullOrEmpty(tracesFile)) {
+                tracer = Tracer.noop();
+            } else {
+                try {
+                    tracer = new Tracer(new JsonLinesSpanExporter(Paths.get(tracesFile), SERVICE_NAME));
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(String.format("Could not open traces file '%s'", tracesFile), e);
+                }
+            }
+        }
+        return tracer;
+    }
+
+    /**
+     * @return dispatcher which notifies the listeners returned by jobLifecycleListeners()
+     */
+    @Override
+    public synchronized JobLifecycleDispatcher jobLifecycleDispatcher() {
+        if (jobLifecycleDispatcher == null) {
+            final List<JobLifecycleListener> listeners = jobLifecycleListeners();
+            jobLifecycleDispatcher = listeners.isEmpty()
+                    ? JobLifecycleDispatcher.noop()
+                    : new JobLifecycleDispatcher(listeners);
+        }
+        return jobLifecycleDispatcher;
+    }
+
+    /**
+     * Creates the job poller. The job service, which resolves the region and builds the SDK client, is created
+     * on a dedicated thread while the worker pool starts its threads, see {@link #jobService()}.
      * @return job poller implementation
      */
     @Override
     public JobPoller jobPoller() {
-        return new CodePipelineJobPoller(jobService(), jobProcessor(), threadPoolExecutor(), POLL_BATCH_SIZE);
+        final MetricsRegistry registry = metricsRegistry();
+        final StartupTimer startupTimer = registry.getStartupTimer();
+        final FutureTask<JobService> jobService = new FutureTask<>(() -> {
+            final long start = System.nanoTime();
+            final JobService service = jobService();
+            startupTimer.recordSince(StartupTimer.Phase.JobService, start);
+            return service;
+        });
+        final Thread jobServiceThread = new Thread(jobService, JOB_SERVICE_THREAD_NAME);
+        jobServiceThread.setDaemon(true);
+        jobServiceThread.start();
+
+        final long workerPoolStart = System.nanoTime();
+        final ThreadPoolExecutor executor = threadPoolExecutor();
+        executor.prestartAllCoreThreads();
+        startupTimer.recordSince(StartupTimer.Phase.WorkerPool, workerPoolStart);
+
+        final ActionTypeId actionTypeId = getActionTypeId();
+        final JobWorkerMetrics metrics = actionTypeId == null ? registry.untagged() : registry.forActionType(actionTypeId);
+        final JobProcessor jobProcessor = jobProcessor();
+        final Tracer jobTracer = tracer();
+        final JobLifecycleDispatcher dispatcher = jobLifecycleDispatcher();
+
+        JobService service = join(jobService);
+        final HedgingSettings hedgingSettings = hedgingSettings();
+        if (hedgingSettings != null) {
+            service = new HedgedJobService(service, hedgingSettings, metrics);
+        }
+        service = new InstrumentedJobService(service, metrics);
+        final RateLimiter rateLimiter = rateLimiter();
+        if (rateLimiter != null) {
+            service = new RateLimitedJobService(service, rateLimiter);
+        }
+        final AdmissionSettings admissionSettings = admissionSettings();
+        final AdmissionController admissionController = admissionSettings == null
+                ? AdmissionController.unlimited()
+                : new AdmissionController(new HostResourceMonitor(admissionSettings.getDirectory()), admissionSettings);
+        final AccountingSettings accountingSettings = accountingSettings();
+        final JobAccounting jobAccounting = accountingSettings == null
+                ? JobAccounting.disabled()
+                : new JobAccounting(accountingSettings);
+        return new CodePipelineJobPoller(service,
+                jobProcessor,
+                executor,
+                getPollBatchSize(),
+                metrics,
+                jobTracer,
+                dispatcher,
+                admissionController,
+                jobAccounting);
+    }
+
+    /**
+     * Action type this job worker is polling and processing jobs for, the metrics of the job poller are tagged with it.
+     * @return action type identifier, null records the metrics untagged
+     */
+    public ActionTypeId getActionTypeId() {
+        return null;
+    }
+
+    /**
+     * @return number of worker threads, the number of jobs processed in parallel
+     */
+    protected int getWorkerThreads() {
+        return WORKER_THREADS;
+    }
+
+    /**
+     * @return maximum number of jobs polled at once
+     */
+    protected int getPollBatchSize() {
+        return POLL_BATCH_SIZE;
     }
 
     /**
@@ -79,11 +275,72 @@ public abstract class DefaultJobWorkerConfiguration implements JobWorkerConfigur
     }
 
     /**
-     * @return code pipeline client implementation
+     * @return listeners notified of the lifecycle events of the jobs, none by default
+     */
+    protected List<JobLifecycleListener> jobLifecycleListeners() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * @return rate limiter of the job service API calls, null does not limit calls
+     */
+    protected RateLimiter rateLimiter() {
+        return null;
+    }
+
+    /**
+     * @return delay and budget of hedged acknowledge and result requests, null does not hedge requests
+     */
+    protected HedgingSettings hedgingSettings() {
+        return null;
+    }
+
+    /**
+     * @return resource thresholds above which the job worker takes on no more jobs, null admits jobs
+     *         regardless of the host resources
+     */
+    protected AdmissionSettings admissionSettings() {
+        return null;
+    }
+
+    /**
+     * @return settings of the per job CPU time, allocated memory and wall time accounting, null does not measure jobs
+     */
+    protected AccountingSettings accountingSettings() {
+        return null;
+    }
+
+    /**
+     * @return region the job worker polls jobs in
+     */
+    protected Region region() {
+        return getRegion();
+    }
+
+    /**
+     * @return connection pool and timeout settings of the code pipeline client, sized for the worker threads
+     *         and their hedged requests
+     */
+    protected HttpClientSettings httpClientSettings() {
+        return HttpClientSettings.forWorkerThreads(getWorkerThreads(), getPollingIntervalInMs(), hedgingSettings());
+    }
+
+    /**
+     * @return code pipeline client implementation, records its connection pool usage in the metrics registry
      */
     protected AWSCodePipeline codePipelineClient() {
-        final AWSCodePipeline codePipelineClient = new AWSCodePipelineClient();
-        codePipelineClient.setRegion(getRegion());
+        final ConnectionPoolMetrics connectionPoolMetrics = metricsRegistry().getConnectionPoolMetrics();
+        final ClientConfiguration clientConfiguration = httpClientSettings().toClientConfiguration();
+        clientConfiguration.getApacheHttpClientConfig()
+                .setSslSocketFactory(new InstrumentedSslSocketFactory(connectionPoolMetrics));
+        final AWSCodePipeline codePipelineClient = new AWSCodePipelineClient(DefaultAWSCredentialsProviderChain.getInstance(),
+                clientConfiguration,
+                connectionPoolMetrics);
+        codePipelineClient.setRegion(region());
+        final String endpoint = System.getProperty(CODEPIPELINE_ENDPOINT);
+        if (!StringUtils.isNullOrEmpty(endpoint)) {
+            codePipelineClient.setEndpoint(endpoint);
+        }
         return codePipelineClient;
     }
 
@@ -91,33 +348,49 @@ public abstract class DefaultJobWorkerConfiguration implements JobWorkerConfigur
      * @return thread pool executor implementation
      */
     protected ThreadPoolExecutor threadPoolExecutor() {
-        return (ThreadPoolExecutor) Executors.newFixedThreadPool(WORKER_THREADS);
+        return (ThreadPoolExecutor) Executors.newFixedThreadPool(getWorkerThreads());
     }
 
     /**
+     * Creates the job service. Called once by jobPoller() on a thread of its own, at the same time as
+     * threadPoolExecutor(), jobProcessor(), tracer() and jobLifecycleDispatcher() run on the calling thread.
+     * Implementations must not depend on state those methods set up. Exceptions are rethrown by jobPoller().
      * @return job service implementation
      */
     protected abstract JobService jobService();
 
     /**
      * Fetch region from environment variable, if not found fetch from EC2 instance metadata.
+     * The instance metadata lookup is bounded by a timeout and its result is cached for the process.
      *
      * @return Region the region
      */
     protected static Region getRegion() {
-        final String awsRegion = System.getProperty(AWS_REGION);
-        if (!StringUtils.isNullOrEmpty(awsRegion)) {
-            try {
-                return Region.getRegion(Regions.fromName(awsRegion));
-            } catch (final IllegalArgumentException e) {
-                throw new RegionNotFoundException(String.format("Unknown AWS region: '%s'. Choose a valid value for environment variable AWS_REGION", awsRegion), e);
-            }
-        }
+        return RegionResolver.resolve();
+    }
+
+    /**
+     * @param awsRegion region name, e.g. us-east-1
+     * @return Region the region
+     */
+    protected static Region getRegion(final String awsRegion) {
+        return RegionResolver.fromName(awsRegion);
+    }
 
-        final Region region = Regions.getCurrentRegion();
-        if (region == null) {
-            throw new RegionNotFoundException("Region could not be determined from EC2 instance metadata");
+    private static <T> T join(final Future<T> future) {
+        try {
+            return future.get();
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Could not create the job service", e.getCause());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while creating the job service", e);
         }
-        return region;
     }
 }
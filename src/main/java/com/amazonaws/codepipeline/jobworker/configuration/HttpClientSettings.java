@@ -0,0 +1,206 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.configuration;
+
+import com.amazonaws.ClientConfiguration;
+
+import com.amazonaws.codepipeline.jobworker.hedging.HedgingSettings;
+
+/**
+ * Connection pool, keep-alive and timeout settings of the HTTP client of the job service.
+ *
+ * Every worker thread holds at most one connection at a time to acknowledge and report its job, the poller
+ * one more to poll. A worker thread whose request is hedged holds a second connection until the first answer arrives,
+ * so hedging doubles the connections of the worker threads. Pooled connections are kept longer than the polling interval, so polls reuse a connection
+ * and its TLS session instead of opening a new one, and TCP keep-alive stops middle boxes from dropping them.
+ * The SDK's idle connection reaper closes connections idle for longer than the maximum idle time.
+ */
+public final class HttpClientSettings {
+
+    /**
+     * Connections in addition to one per worker thread, for the poller and API calls outside the worker threads.
+     */
+    public static final int SPARE_CONNECTIONS = 2;
+
+    /**
+     * Default time to establish a connection.
+     */
+    public static final int DEFAULT_CONNECTION_TIMEOUT_MS = 2000;
+
+    /**
+     * Default time to wait for data on an established connection.
+     */
+    public static final int DEFAULT_SOCKET_TIMEOUT_MS = 15000;
+
+    /**
+     * Default time an HTTP request may take, including sending the request and reading the response.
+     */
+    public static final int DEFAULT_REQUEST_TIMEOUT_MS = 20000;
+
+    /**
+     * Default time a connection is used at most, afterwards a new connection picks up DNS changes of the endpoint.
+     */
+    public static final long DEFAULT_CONNECTION_TTL_MS = 300000L;
+
+    /**
+     * Minimum time an idle connection is kept in the pool.
+     */
+    public static final long MIN_CONNECTION_MAX_IDLE_MS = 60000L;
+
+    private final int maxConnections;
+    private final int connectionTimeoutMs;
+    private final int socketTimeoutMs;
+    private final int requestTimeoutMs;
+    private final long connectionTtlMs;
+    private final long connectionMaxIdleMs;
+
+    /**
+     * Initializes the settings.
+     * @param maxConnections maximum number of pooled connections
+     * @param connectionTimeoutMs time to establish a connection
+     * @param socketTimeoutMs time to wait for data on an established connection
+     * @param requestTimeoutMs time an HTTP request may take
+     * @param connectionTtlMs time a connection is used at most
+     * @param connectionMaxIdleMs time an idle connection is kept in the pool
+     */
+    public HttpClientSettings(final int maxConnections,
+                              final int connectionTimeoutMs,
+                              final int socketTimeoutMs,
+                              final int requestTimeoutMs,
+                              final long connectionTtlMs,
+                              final long connectionMaxIdleMs) {
+        if (maxConnections <= 0 || connectionTimeoutMs <= 0 || socketTimeoutMs <= 0 || requestTimeoutMs <= 0
+                || connectionTtlMs <= 0 || connectionMaxIdleMs <= 0) {
+            throw new IllegalArgumentException("Connections, timeouts, time to live and idle time must be positive");
+        }
+        this.maxConnections = maxConnections;
+        this.connectionTimeoutMs = connectionTimeoutMs;
+        this.socketTimeoutMs = socketTimeoutMs;
+        this.requestTimeoutMs = requestTimeoutMs;
+        this.connectionTtlMs = connectionTtlMs;
+        this.connectionMaxIdleMs = connectionMaxIdleMs;
+    }
+
+    /**
+     * Default settings for a worker pool: one connection per worker thread plus spare connections,
+     * idle connections are kept for at least two polling intervals.
+     * @param workerThreads number of worker threads
+     * @param pollingIntervalMs polling interval in milliseconds
+     * @return settings
+     */
+    public static HttpClientSettings forWorkerThreads(final int workerThreads, final long pollingIntervalMs) {
+        return forWorkerThreads(workerThreads, pollingIntervalMs, null);
+    }
+
+    /**
+     * Default settings for a worker pool whose requests may be hedged, see {@link #maxConnections(int, HedgingSettings)}.
+     * @param workerThreads number of worker threads
+     * @param pollingIntervalMs polling interval in milliseconds
+     * @param hedgingSettings settings of the hedged requests, null if requests are not hedged
+     * @return settings
+     */
+    public static HttpClientSettings forWorkerThreads(final int workerThreads,
+                                                      final long pollingIntervalMs,
+                                                      final HedgingSettings hedgingSettings) {
+        return new HttpClientSettings(maxConnections(workerThreads, hedgingSettings),
+                DEFAULT_CONNECTION_TIMEOUT_MS,
+                DEFAULT_SOCKET_TIMEOUT_MS,
+                DEFAULT_REQUEST_TIMEOUT_MS,
+                DEFAULT_CONNECTION_TTL_MS,
+                connectionMaxIdleMs(pollingIntervalMs));
+    }
+
+    /**
+     * Every worker thread may wait for a hedged request next to its first request, so the pool is not exhausted
+     * by a burst of hedges, whatever the burst size of the hedging settings.
+     * @param workerThreads number of worker threads
+     * @param hedgingSettings settings of the hedged requests, null if requests are not hedged
+     * @return one connection per worker thread, a second one if requests are hedged, plus spare connections
+     */
+    public static int maxConnections(final int workerThreads, final HedgingSettings hedgingSettings) {
+        final int connectionsPerThread = hedgingSettings != null ? 2 : 1;
+        return connectionsPerThread * workerThreads + SPARE_CONNECTIONS;
+    }
+
+    /**
+     * @param pollingIntervalMs polling interval in milliseconds
+     * @return time an idle connection is kept, long enough for the connection to be reused by the next poll
+     */
+    static long connectionMaxIdleMs(final long pollingIntervalMs) {
+        return Math.max(MIN_CONNECTION_MAX_IDLE_MS, 2 * pollingIntervalMs);
+    }
+
+    /**
+     * @return SDK client configuration with these settings and TCP keep-alive
+     */
+    public ClientConfiguration toClientConfiguration() {
+        return new ClientConfiguration()
+                .withMaxConnections(maxConnections)
+                .withConnectionTimeout(connectionTimeoutMs)
+                .withSocketTimeout(socketTimeoutMs)
+                .withRequestTimeout(requestTimeoutMs)
+                .withConnectionTTL(connectionTtlMs)
+                .withConnectionMaxIdleMillis(connectionMaxIdleMs)
+                .withTcpKeepAlive(true)
+                .withReaper(true);
+    }
+
+    /**
+     * @return maximum number of pooled connections
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @return time to establish a connection in milliseconds
+     */
+    public int getConnectionTimeoutMs() {
+        return connectionTimeoutMs;
+    }
+
+    /**
+     * @return time to wait for data on an established connection in milliseconds
+     */
+    public int getSocketTimeoutMs() {
+        return socketTimeoutMs;
+    }
+
+    /**
+     * @return time an HTTP request may take in milliseconds
+     */
+    public int getRequestTimeoutMs() {
+        return requestTimeoutMs;
+    }
+
+    /**
+     * @return time a connection is used at most in milliseconds
+     */
+    public long getConnectionTtlMs() {
+        return connectionTtlMs;
+    }
+
+    /**
+     * @return time an idle connection is kept in the pool in milliseconds
+     */
+    public long getConnectionMaxIdleMs() {
+        return connectionMaxIdleMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("maxConnections=%d, connectionTimeoutMs=%d, socketTimeoutMs=%d, requestTimeoutMs=%d, "
+                        + "connectionTtlMs=%d, connectionMaxIdleMs=%d",
+                maxConnections, connectionTimeoutMs, socketTimeoutMs, requestTimeoutMs, connectionTtlMs, connectionMaxIdleMs);
+    }
+}
@@ -13,6 +13,10 @@
 package com.amazonaws.codepipeline.jobworker.configuration;
 
 import com.amazonaws.codepipeline.jobworker.JobPoller;
+import com.amazonaws.codepipeline.jobworker.lifecycle.JobLifecycleDispatcher;
+import com.amazonaws.codepipeline.jobworker.metrics.MetricsRegistry;
+import com.amazonaws.codepipeline.jobworker.tracing.Tracer;
+import com.amazonaws.codepipeline.jobworker.tuning.PollTuningSettings;
 
 /**
  * Configuration for settings and dependencies of the job worker.
@@ -28,4 +32,50 @@ public interface JobWorkerConfiguration {
      * @return the poll interval in milliseconds
      */
     public long getPollingIntervalInMs();
+
+    /**
+     * @return registry the job poller records its metrics in
+     */
+    public default MetricsRegistry metricsRegistry() {
+        return MetricsRegistry.defaultRegistry();
+    }
+
+    /**
+     * Tracer of the job poller, closed by the daemon when it stops. Must return the same tracer on every call.
+     * @return tracer which records the spans of polls and jobs
+     */
+    public default Tracer tracer() {
+        return Tracer.noop();
+    }
+
+    /**
+     * Dispatcher of the job lifecycle events, closed by the daemon when it stops. Must return the same dispatcher on every call.
+     * @return dispatcher which notifies the job lifecycle listeners
+     */
+    public default JobLifecycleDispatcher jobLifecycleDispatcher() {
+        return JobLifecycleDispatcher.noop();
+    }
+
+    /**
+     * @return port of the embedded Prometheus metrics server, 0 disables the server
+     */
+    public default int getMetricsPort() {
+        return 0;
+    }
+
+    /**
+     * @return target of the poll auto tuner, null keeps the polling interval and the poll batch size fixed
+     */
+    public default PollTuningSettings pollTuningSettings() {
+        return null;
+    }
+
+    /**
+     * Watcher of the configuration, started by the daemon to apply changed settings while the job worker is running
+     * and closed when it stops. Must return the same watcher on every call.
+     * @return configuration watcher, null if the configuration does not change at runtime
+     */
+    public default ConfigurationWatcher configurationWatcher() {
+        return null;
+    }
 }
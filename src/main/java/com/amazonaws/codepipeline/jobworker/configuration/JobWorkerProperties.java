@@ -0,0 +1,554 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.configuration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+
+import com.amazonaws.codepipeline.jobworker.accounting.AccountingSettings;
+import com.amazonaws.codepipeline.jobworker.admission.AdmissionSettings;
+import com.amazonaws.codepipeline.jobworker.admission.ResourceHint;
+import com.amazonaws.codepipeline.jobworker.hedging.HedgingSettings;
+import com.amazonaws.codepipeline.jobworker.model.ActionTypeId;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Settings of the job worker read from a properties file, overridden by system properties and environment variables.
+ *
+ * Every setting can be overridden by a system property or an environment variable with the upper case name
+ * of the key, e.g. {@code workerThreads} by {@code WORKER_THREADS} and {@code aws.region} by {@code AWS_REGION}.
+ * System properties take precedence over environment variables, both take precedence over the file.
+ */
+public final class JobWorkerProperties {
+
+    /**
+     * Action type category, e.g. Build or Deploy.
+     */
+    public static final String ACTION_TYPE_CATEGORY = "actionType.category";
+
+    /**
+     * Action type owner, Custom or ThirdParty.
+     */
+    public static final String ACTION_TYPE_OWNER = "actionType.owner";
+
+    /**
+     * Action type provider.
+     */
+    public static final String ACTION_TYPE_PROVIDER = "actionType.provider";
+
+    /**
+     * Action type version.
+     */
+    public static final String ACTION_TYPE_VERSION = "actionType.version";
+
+    /**
+     * Region of the job worker, determined from the EC2 instance metadata if not set.
+     */
+    public static final String REGION = "aws.region";
+
+    /**
+     * Polling interval in milliseconds, applied while the job worker is running.
+     */
+    public static final String POLLING_INTERVAL_MS = "pollingIntervalMs";
+
+    /**
+     * Number of worker threads, applied while the job worker is running.
+     */
+    public static final String WORKER_THREADS = "workerThreads";
+
+    /**
+     * Poll batch size, the number of worker threads if not set. Applied while the job worker is running.
+     */
+    public static final String POLL_BATCH_SIZE = "pollBatchSize";
+
+    /**
+     * Maximum job service API calls per second, zero does not limit calls. Applied while the job worker is running.
+     */
+    public static final String API_CALLS_PER_SECOND = "apiCallsPerSecond";
+
+    /**
+     * Maximum number of connections of the HTTP client, the number of worker threads plus spare connections if not set.
+     */
+    public static final String HTTP_MAX_CONNECTIONS = "http.maxConnections";
+
+    /**
+     * Time to establish a connection in milliseconds.
+     */
+    public static final String HTTP_CONNECTION_TIMEOUT_MS = "http.connectionTimeoutMs";
+
+    /**
+     * Time to wait for data on an established connection in milliseconds.
+     */
+    public static final String HTTP_SOCKET_TIMEOUT_MS = "http.socketTimeoutMs";
+
+    /**
+     * Time an HTTP request may take in milliseconds.
+     */
+    public static final String HTTP_REQUEST_TIMEOUT_MS = "http.requestTimeoutMs";
+
+    /**
+     * Time a connection is used at most in milliseconds.
+     */
+    public static final String HTTP_CONNECTION_TTL_MS = "http.connectionTtlMs";
+
+    /**
+     * Hedged acknowledge and result requests in percent of all requests, zero does not hedge requests.
+     */
+    public static final String HEDGING_BUDGET_PERCENT = "hedging.budgetPercent";
+
+    /**
+     * Percentile of the observed latency after which a request is hedged, 95 if not set.
+     */
+    public static final String HEDGING_PERCENTILE = "hedging.percentile";
+
+    /**
+     * True to take on only the jobs the host has the CPU, memory and disk space for.
+     */
+    public static final String ADMISSION_ENABLED = "admission.enabled";
+
+    /**
+     * Directory the jobs write to, its free space is checked by the admission control. The temporary directory if not set.
+     */
+    public static final String ADMISSION_DIRECTORY = "admission.directory";
+
+    /**
+     * CPU load of the host between 0 and 1 above which the job worker stops polling.
+     */
+    public static final String ADMISSION_MAX_CPU_LOAD = "admission.maxCpuLoad";
+
+    /**
+     * Physical memory in megabytes kept free.
+     */
+    public static final String ADMISSION_MIN_FREE_MEMORY_MB = "admission.minFreeMemoryMb";
+
+    /**
+     * Disk space in megabytes kept free in the job directory.
+     */
+    public static final String ADMISSION_MIN_FREE_DISK_MB = "admission.minFreeDiskMb";
+
+    /**
+     * Memory in megabytes a job needs unless its action configuration declares otherwise.
+     */
+    public static final String ADMISSION_JOB_MEMORY_MB = "admission.jobMemoryMb";
+
+    /**
+     * Disk space in megabytes a job needs unless its action configuration declares otherwise.
+     */
+    public static final String ADMISSION_JOB_DISK_MB = "admission.jobDiskMb";
+
+    /**
+     * True to measure the CPU time, allocated memory and wall time of each job.
+     */
+    public static final String ACCOUNTING_ENABLED = "accounting.enabled";
+
+    /**
+     * Action configuration property the measured jobs are additionally aggregated by.
+     */
+    public static final String ACCOUNTING_CONFIGURATION_KEY = "accounting.configurationKey";
+
+    /**
+     * True to append the used resources to the execution details summary of succeeded jobs.
+     */
+    public static final String ACCOUNTING_EXECUTION_DETAILS_SUMMARY = "accounting.executionDetailsSummary";
+
+    /**
+     * True to cache the client tokens of third party actions instead of looking them up for every job.
+     */
+    public static final String CLIENT_TOKEN_CACHE_ENABLED = "clientTokenCache.enabled";
+
+    private static final String CUSTOM_OWNER = "Custom";
+    private static final String THIRD_PARTY_OWNER = "ThirdParty";
+    private static final long DEFAULT_POLLING_INTERVAL_MS = 30000L;
+    private static final int DEFAULT_WORKER_THREADS = 10;
+    private static final long BYTES_PER_MB = 1024L * 1024L;
+
+    private final String actionTypeCategory;
+    private final String actionTypeOwner;
+    private final String actionTypeProvider;
+    private final String actionTypeVersion;
+    private final String region;
+    private final long pollingIntervalMs;
+    private final int workerThreads;
+    private final int pollBatchSize;
+    private final double apiCallsPerSecond;
+    private final int httpMaxConnections;
+    private final int httpConnectionTimeoutMs;
+    private final int httpSocketTimeoutMs;
+    private final int httpRequestTimeoutMs;
+    private final long httpConnectionTtlMs;
+    private final double hedgingBudgetPercent;
+    private final double hedgingPercentile;
+    private final boolean admissionEnabled;
+    private final String admissionDirectory;
+    private final double admissionMaxCpuLoad;
+    private final long admissionMinFreeMemoryMb;
+    private final long admissionMinFreeDiskMb;
+    private final long admissionJobMemoryMb;
+    private final long admissionJobDiskMb;
+    private final boolean accountingEnabled;
+    private final String accountingConfigurationKey;
+    private final boolean accountingExecutionDetailsSummary;
+    private final boolean clientTokenCacheEnabled;
+
+    private JobWorkerProperties(final Resolver resolver) {
+        this.actionTypeCategory = resolver.required(ACTION_TYPE_CATEGORY);
+        this.actionTypeOwner = resolver.required(ACTION_TYPE_OWNER);
+        if (!CUSTOM_OWNER.equals(actionTypeOwner) && !THIRD_PARTY_OWNER.equals(actionTypeOwner)) {
+            throw new IllegalArgumentException(String.format("Invalid %s: '%s', must be %s or %s",
+                    ACTION_TYPE_OWNER, actionTypeOwner, CUSTOM_OWNER, THIRD_PARTY_OWNER));
+        }
+        this.actionTypeProvider = resolver.required(ACTION_TYPE_PROVIDER);
+        this.actionTypeVersion = resolver.required(ACTION_TYPE_VERSION);
+        this.region = resolver.get(REGION);
+        this.pollingIntervalMs = resolver.positiveLong(POLLING_INTERVAL_MS, DEFAULT_POLLING_INTERVAL_MS);
+        this.workerThreads = (int) resolver.positiveLong(WORKER_THREADS, DEFAULT_WORKER_THREADS);
+        this.pollBatchSize = (int) resolver.positiveLong(POLL_BATCH_SIZE, workerThreads);
+        this.apiCallsPerSecond = resolver.nonNegativeDouble(API_CALLS_PER_SECOND);
+        // zero follows the number of worker threads
+        this.httpMaxConnections = (int) resolver.nonNegativeLong(HTTP_MAX_CONNECTIONS);
+        this.httpConnectionTimeoutMs = (int) resolver.positiveLong(HTTP_CONNECTION_TIMEOUT_MS,
+                HttpClientSettings.DEFAULT_CONNECTION_TIMEOUT_MS);
+        this.httpSocketTimeoutMs = (int) resolver.positiveLong(HTTP_SOCKET_TIMEOUT_MS,
+                HttpClientSettings.DEFAULT_SOCKET_TIMEOUT_MS);
+        this.httpRequestTimeoutMs = (int) resolver.positiveLong(HTTP_REQUEST_TIMEOUT_MS,
+                HttpClientSettings.DEFAULT_REQUEST_TIMEOUT_MS);
+        this.httpConnectionTtlMs = resolver.positiveLong(HTTP_CONNECTION_TTL_MS,
+                HttpClientSettings.DEFAULT_CONNECTION_TTL_MS);
+        this.hedgingBudgetPercent = resolver.nonNegativeDouble(HEDGING_BUDGET_PERCENT);
+        final double percentile = resolver.nonNegativeDouble(HEDGING_PERCENTILE);
+        this.hedgingPercentile = percentile > 0 ? percentile : HedgingSettings.DEFAULT_PERCENTILE;
+        this.admissionEnabled = Boolean.parseBoolean(resolver.get(ADMISSION_ENABLED));
+        final String directory = resolver.get(ADMISSION_DIRECTORY);
+        this.admissionDirectory = directory != null ? directory : System.getProperty("java.io.tmpdir");
+        final double maxCpuLoad = resolver.nonNegativeDouble(ADMISSION_MAX_CPU_LOAD);
+        this.admissionMaxCpuLoad = maxCpuLoad > 0 ? maxCpuLoad : AdmissionSettings.DEFAULT_MAX_CPU_LOAD;
+        this.admissionMinFreeMemoryMb = resolver.positiveLong(ADMISSION_MIN_FREE_MEMORY_MB,
+                AdmissionSettings.DEFAULT_MIN_FREE_MEMORY_BYTES / BYTES_PER_MB);
+        this.admissionMinFreeDiskMb = resolver.positiveLong(ADMISSION_MIN_FREE_DISK_MB,
+                AdmissionSettings.DEFAULT_MIN_FREE_DISK_BYTES / BYTES_PER_MB);
+        this.admissionJobMemoryMb = resolver.nonNegativeLong(ADMISSION_JOB_MEMORY_MB);
+        this.admissionJobDiskMb = resolver.nonNegativeLong(ADMISSION_JOB_DISK_MB);
+        this.accountingEnabled = Boolean.parseBoolean(resolver.get(ACCOUNTING_ENABLED));
+        this.accountingConfigurationKey = resolver.get(ACCOUNTING_CONFIGURATION_KEY);
+        this.accountingExecutionDetailsSummary = Boolean.parseBoolean(resolver.get(ACCOUNTING_EXECUTION_DETAILS_SUMMARY));
+        this.clientTokenCacheEnabled = Boolean.parseBoolean(resolver.get(CLIENT_TOKEN_CACHE_ENABLED));
+        // validates the hedging and admission settings while the file is read
+        getHedgingSettings();
+        getAdmissionSettings();
+    }
+
+    /**
+     * Reads the settings from a file and applies the overrides of the system properties and the environment.
+     * @param file properties file, only the overrides are used if the file does not exist
+     * @return settings
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a setting is missing or invalid
+     */
+    public static JobWorkerProperties load(final Path file) throws IOException {
+        final Properties fileProperties = new Properties();
+        if (Files.exists(file)) {
+            try (InputStream in = Files.newInputStream(file)) {
+                fileProperties.load(in);
+            }
+        }
+        return parse(fileProperties, System.getProperties(), System.getenv());
+    }
+
+    /**
+     * Resolves the settings.
+     * @param fileProperties properties read from the file
+     * @param systemProperties system properties
+     * @param environment environment variables
+     * @return settings
+     * @throws IllegalArgumentException if a setting is missing or invalid
+     */
+    static JobWorkerProperties parse(final Properties fileProperties,
+                                     final Properties systemProperties,
+                                     final Map<String, String> environment) {
+        return new JobWorkerProperties(new Resolver(fileProperties, systemProperties, environment));
+    }
+
+    /**
+     * Name of the system property and environment variable which override a key.
+     * @param key key of the setting
+     * @return upper case name, words separated by underscores
+     */
+    static String overrideName(final String key) {
+        return key.replaceAll("([a-z0-9])([A-Z])", "$1_$2").replace('.', '_').toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * @return action type the job worker polls jobs for
+     */
+    public ActionTypeId getActionTypeId() {
+        return new ActionTypeId(actionTypeCategory, actionTypeOwner, actionTypeProvider, actionTypeVersion);
+    }
+
+    /**
+     * @return true if the action type is owned by a third party
+     */
+    public boolean isThirdParty() {
+        return THIRD_PARTY_OWNER.equals(actionTypeOwner);
+    }
+
+    /**
+     * @return true if the client tokens of third party actions are cached
+     */
+    public boolean isClientTokenCacheEnabled() {
+        return clientTokenCacheEnabled;
+    }
+
+    /**
+     * @return region name, null if the region is determined from the EC2 instance metadata
+     */
+    public String getRegion() {
+        return region;
+    }
+
+    /**
+     * @return the poll interval in milliseconds
+     */
+    public long getPollingIntervalMs() {
+        return pollingIntervalMs;
+    }
+
+    /**
+     * @return number of worker threads
+     */
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    /**
+     * @return maximum number of jobs polled at once
+     */
+    public int getPollBatchSize() {
+        return pollBatchSize;
+    }
+
+    /**
+     * @return maximum job service API calls per second, zero if calls are not limited
+     */
+    public double getApiCallsPerSecond() {
+        return apiCallsPerSecond;
+    }
+
+    /**
+     * @return connection pool and timeout settings of the HTTP client, idle connections are kept
+     *         for at least two polling intervals
+     */
+    public HttpClientSettings getHttpClientSettings() {
+        return new HttpClientSettings(
+                httpMaxConnections > 0
+                        ? httpMaxConnections
+                        : HttpClientSettings.maxConnections(workerThreads, getHedgingSettings()),
+                httpConnectionTimeoutMs,
+                httpSocketTimeoutMs,
+                httpRequestTimeoutMs,
+                httpConnectionTtlMs,
+                HttpClientSettings.connectionMaxIdleMs(pollingIntervalMs));
+    }
+
+    /**
+     * @return delay and budget of hedged requests, null if requests are not hedged
+     */
+    public HedgingSettings getHedgingSettings() {
+        if (hedgingBudgetPercent == 0) {
+            return null;
+        }
+        return new HedgingSettings(hedgingBudgetPercent,
+                hedgingPercentile,
+                HedgingSettings.DEFAULT_MIN_SAMPLES,
+                HedgingSettings.DEFAULT_WINDOW_MS,
+                HedgingSettings.DEFAULT_MAX_BURST);
+    }
+
+    /**
+     * @return resource thresholds of the admission control, null if jobs are admitted regardless of the host resources
+     */
+    public AdmissionSettings getAdmissionSettings() {
+        if (!admissionEnabled) {
+            return null;
+        }
+        return new AdmissionSettings(Paths.get(admissionDirectory),
+                admissionMaxCpuLoad,
+                AdmissionSettings.DEFAULT_MAX_HEAP_USAGE,
+                admissionMinFreeMemoryMb * BYTES_PER_MB,
+                admissionMinFreeDiskMb * BYTES_PER_MB,
+                new ResourceHint(admissionJobMemoryMb * BYTES_PER_MB, admissionJobDiskMb * BYTES_PER_MB));
+    }
+
+    /**
+     * @return settings of the per job resource accounting, null if jobs are not measured
+     */
+    public AccountingSettings getAccountingSettings() {
+        if (!accountingEnabled) {
+            return null;
+        }
+        return new AccountingSettings(accountingConfigurationKey,
+                AccountingSettings.DEFAULT_MAX_CONFIGURATION_VALUES,
+                accountingExecutionDetailsSummary);
+    }
+
+    /**
+     * @param other settings read before
+     * @return true if settings which are not applied while the job worker is running differ
+     */
+    public boolean requiresRestart(final JobWorkerProperties other) {
+        return !actionTypeCategory.equals(other.actionTypeCategory)
+                || !actionTypeOwner.equals(other.actionTypeOwner)
+                || !actionTypeProvider.equals(other.actionTypeProvider)
+                || !actionTypeVersion.equals(other.actionTypeVersion)
+                || !Objects.equals(region, other.region)
+                || httpMaxConnections != other.httpMaxConnections
+                || httpConnectionTimeoutMs != other.httpConnectionTimeoutMs
+                || httpSocketTimeoutMs != other.httpSocketTimeoutMs
+                || httpRequestTimeoutMs != other.httpRequestTimeoutMs
+                || httpConnectionTtlMs != other.httpConnectionTtlMs
+                || Double.compare(hedgingBudgetPercent, other.hedgingBudgetPercent) != 0
+                || Double.compare(hedgingPercentile, other.hedgingPercentile) != 0
+                || admissionEnabled != other.admissionEnabled
+                || !admissionDirectory.equals(other.admissionDirectory)
+                || Double.compare(admissionMaxCpuLoad, other.admissionMaxCpuLoad) != 0
+                || admissionMinFreeMemoryMb != other.admissionMinFreeMemoryMb
+                || admissionMinFreeDiskMb != other.admissionMinFreeDiskMb
+                || admissionJobMemoryMb != other.admissionJobMemoryMb
+                || admissionJobDiskMb != other.admissionJobDiskMb
+                || accountingEnabled != other.accountingEnabled
+                || !Objects.equals(accountingConfigurationKey, other.accountingConfigurationKey)
+                || accountingExecutionDetailsSummary != other.accountingExecutionDetailsSummary
+                || clientTokenCacheEnabled != other.clientTokenCacheEnabled;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof JobWorkerProperties)) {
+            return false;
+        }
+        final JobWorkerProperties other = (JobWorkerProperties) o;
+        return !requiresRestart(other)
+                && pollingIntervalMs == other.pollingIntervalMs
+                && workerThreads == other.workerThreads
+                && pollBatchSize == other.pollBatchSize
+                && Double.compare(apiCallsPerSecond, other.apiCallsPerSecond) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(actionTypeCategory, actionTypeOwner, actionTypeProvider, actionTypeVersion, region,
+                pollingIntervalMs, workerThreads, pollBatchSize, apiCallsPerSecond, httpMaxConnections,
+                httpConnectionTimeoutMs, httpSocketTimeoutMs, httpRequestTimeoutMs, httpConnectionTtlMs,
+                hedgingBudgetPercent, hedgingPercentile, admissionEnabled, admissionDirectory, admissionMaxCpuLoad,
+                admissionMinFreeMemoryMb, admissionMinFreeDiskMb, admissionJobMemoryMb, admissionJobDiskMb,
+                accountingEnabled, accountingConfigurationKey, accountingExecutionDetailsSummary,
+                clientTokenCacheEnabled);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s=%d, %s=%d, %s=%d, %s=%s", POLLING_INTERVAL_MS, pollingIntervalMs,
+                WORKER_THREADS, workerThreads, POLL_BATCH_SIZE, pollBatchSize, API_CALLS_PER_SECOND, apiCallsPerSecond);
+    }
+
+    private static final class Resolver {
+        private final Properties fileProperties;
+        private final Properties systemProperties;
+        private final Map<String, String> environment;
+
+        private Resolver(final Properties fileProperties,
+                         final Properties systemProperties,
+                         final Map<String, String> environment) {
+            this.fileProperties = fileProperties;
+            this.systemProperties = systemProperties;
+            this.environment = environment;
+        }
+
+        private String get(final String key) {
+            final String name = overrideName(key);
+            String value = systemProperties.getProperty(name);
+            if (StringUtils.isNullOrEmpty(value)) {
+                value = environment.get(name);
+            }
+            if (StringUtils.isNullOrEmpty(value)) {
+                value = fileProperties.getProperty(key);
+            }
+            return StringUtils.isNullOrEmpty(value) ? null : value.trim();
+        }
+
+        private String required(final String key) {
+            final String value = get(key);
+            if (value == null) {
+                throw new IllegalArgumentException(String.format("Missing setting %s", key));
+            }
+            return value;
+        }
+
+        private long positiveLong(final String key, final long defaultValue) {
+            final String value = get(key);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                final long result = Long.parseLong(value);
+                if (result > 0 && result <= Integer.MAX_VALUE) {
+                    return result;
+                }
+            } catch (final NumberFormatException e) {
+                // reported below
+            }
+            throw new IllegalArgumentException(String.format("Invalid %s: '%s', must be a positive number", key, value));
+        }
+
+        private long nonNegativeLong(final String key) {
+            final String value = get(key);
+            if (value == null) {
+                return 0;
+            }
+            try {
+                final long result = Long.parseLong(value);
+                if (result >= 0 && result <= Integer.MAX_VALUE) {
+                    return result;
+                }
+            } catch (final NumberFormatException e) {
+                // reported below
+            }
+            throw new IllegalArgumentException(String.format("Invalid %s: '%s', must not be negative", key, value));
+        }
+
+        private double nonNegativeDouble(final String key) {
+            final String value = get(key);
+            if (value == null) {
+                return 0;
+            }
+            try {
+                final double result = Double.parseDouble(value);
+                if (result >= 0 && !Double.isInfinite(result)) {
+                    return result;
+                }
+            } catch (final NumberFormatException e) {
+                // reported below
+            }
+            throw new IllegalArgumentException(String.format("Invalid %s: '%s', must not be negative", key, value));
+        }
+    }
+}
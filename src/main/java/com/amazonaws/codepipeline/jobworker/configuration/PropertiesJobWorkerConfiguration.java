@@ -0,0 +1,180 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.configuration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import com.amazonaws.codepipeline.jobworker.JobService;
+import com.amazonaws.codepipeline.jobworker.accounting.AccountingSettings;
+import com.amazonaws.codepipeline.jobworker.admission.AdmissionSettings;
+import com.amazonaws.codepipeline.jobworker.hedging.HedgingSettings;
+import com.amazonaws.codepipeline.jobworker.model.ActionTypeId;
+import com.amazonaws.codepipeline.jobworker.plugin.customaction.CustomActionJobService;
+import com.amazonaws.codepipeline.jobworker.plugin.thirdparty.CachingClientTokenProvider;
+import com.amazonaws.codepipeline.jobworker.plugin.thirdparty.ClientTokenProvider;
+import com.amazonaws.codepipeline.jobworker.plugin.thirdparty.DefaultClientTokenProvider;
+import com.amazonaws.codepipeline.jobworker.plugin.thirdparty.ThirdPartyJobService;
+import com.amazonaws.codepipeline.jobworker.ratelimit.RateLimiter;
+import com.amazonaws.regions.Region;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Configuration read from a properties file instead of code, see {@link JobWorkerProperties} for the settings.
+ * The file is given by the system property or environment variable CONFIG_FILE.
+ *
+ * The file is watched while the job worker runs: changes of the polling interval, the number of worker threads,
+ * the poll batch size and the API call rate are applied without a restart.
+ */
+public class PropertiesJobWorkerConfiguration extends DefaultJobWorkerConfiguration {
+
+    /**
+     * System property or environment variable with the path of the properties file.
+     */
+    private static final String CONFIG_FILE = "CONFIG_FILE";
+
+    /**
+     * Properties file used if CONFIG_FILE is not set.
+     */
+    private static final String DEFAULT_CONFIG_FILE = "/opt/aws-codepipeline-jobworker/jobworker.properties";
+
+    private final Path file;
+    private final JobWorkerProperties properties;
+    private final RateLimiter rateLimiter;
+    private ConfigurationWatcher configurationWatcher;
+
+    /**
+     * Reads the properties file given by CONFIG_FILE.
+     */
+    public PropertiesJobWorkerConfiguration() {
+        this(configFile());
+    }
+
+    /**
+     * Reads the given properties file.
+     * @param file properties file
+     * @throws IllegalArgumentException if a setting is missing or invalid
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    public PropertiesJobWorkerConfiguration(final Path file) {
+        this.file = file;
+        try {
+            this.properties = JobWorkerProperties.load(file);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(String.format("Could not read configuration file '%s'", file), e);
+        }
+        this.rateLimiter = new RateLimiter(properties.getApiCallsPerSecond());
+    }
+
+    /**
+     * @return settings read when the job worker started
+     */
+    public JobWorkerProperties getProperties() {
+        return properties;
+    }
+
+    @Override
+    public ActionTypeId getActionTypeId() {
+        return properties.getActionTypeId();
+    }
+
+    @Override
+    public long getPollingIntervalInMs() {
+        return properties.getPollingIntervalMs();
+    }
+
+    /**
+     * @return watcher of the properties file, which also applies changes of the API call rate
+     */
+    @Override
+    public synchronized ConfigurationWatcher configurationWatcher() {
+        if (configurationWatcher == null) {
+            configurationWatcher = new ConfigurationWatcher(file, properties);
+            configurationWatcher.addListener((previous, reloaded) ->
+                    rateLimiter.setPermitsPerSecond(reloaded.getApiCallsPerSecond()));
+        }
+        return configurationWatcher;
+    }
+
+    @Override
+    protected int getPollBatchSize() {
+        return properties.getPollBatchSize();
+    }
+
+    @Override
+    protected RateLimiter rateLimiter() {
+        return rateLimiter;
+    }
+
+    @Override
+    protected HedgingSettings hedgingSettings() {
+        return properties.getHedgingSettings();
+    }
+
+    @Override
+    protected AdmissionSettings admissionSettings() {
+        return properties.getAdmissionSettings();
+    }
+
+    @Override
+    protected AccountingSettings accountingSettings() {
+        return properties.getAccountingSettings();
+    }
+
+    @Override
+    protected Region region() {
+        final String region = properties.getRegion();
+        return region == null ? getRegion() : getRegion(region);
+    }
+
+    @Override
+    protected int getWorkerThreads() {
+        return properties.getWorkerThreads();
+    }
+
+    @Override
+    protected HttpClientSettings httpClientSettings() {
+        return properties.getHttpClientSettings();
+    }
+
+    /**
+     * @return job service of the custom action or the third party API, depending on the action type owner
+     */
+    @Override
+    protected JobService jobService() {
+        if (properties.isThirdParty()) {
+            final ClientTokenProvider provider = properties.isClientTokenCacheEnabled()
+                    ? new CachingClientTokenProvider(clientTokenProvider())
+                    : clientTokenProvider();
+            return new ThirdPartyJobService(codePipelineClient(), getActionTypeId(), provider);
+        }
+        return new CustomActionJobService(codePipelineClient(), getActionTypeId());
+    }
+
+    /**
+     * @return client token provider implementation for third party actions
+     */
+    protected ClientTokenProvider clientTokenProvider() {
+        return new DefaultClientTokenProvider();
+    }
+
+    private static Path configFile() {
+        String configFile = System.getProperty(CONFIG_FILE);
+        if (StringUtils.isNullOrEmpty(configFile)) {
+            configFile = System.getenv(CONFIG_FILE);
+        }
+        return Paths.get(StringUtils.isNullOrEmpty(configFile) ? DEFAULT_CONFIG_FILE : configFile);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.configuration;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.codepipeline.jobworker.model.RegionNotFoundException;
+import com.amazonaws.regions.Region;
+import com.amazonaws.regions.Regions;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Resolves the region of the job worker once per process.
+ *
+ * The region is taken from the system property or environment variable AWS_REGION, then from the environment
+ * variable AWS_DEFAULT_REGION. Only if neither is set the EC2 instance metadata is queried, on a background thread
+ * and bounded by a timeout, because the metadata client retries for several seconds when there is no metadata
+ * service. The region found in the instance metadata is cached, later configurations do not query it again.
+ */
+final class RegionResolver {
+
+    private static final Logger LOGGER = LogManager.getLogger(RegionResolver.class);
+
+    private static final String AWS_REGION = "AWS_REGION";
+    private static final String AWS_DEFAULT_REGION = "AWS_DEFAULT_REGION";
+
+    /**
+     * System property to change the time the instance metadata lookup may take.
+     */
+    private static final String INSTANCE_METADATA_TIMEOUT_MS = "INSTANCE_METADATA_TIMEOUT_MS";
+
+    private static final long DEFAULT_INSTANCE_METADATA_TIMEOUT_MS = 1000L;
+
+    private static FutureTask<Region> instanceMetadataLookup;
+
+    private RegionResolver() {
+    }
+
+    /**
+     * @return region of the job worker
+     * @throws RegionNotFoundException if the region is unknown or cannot be determined in time
+     */
+    static Region resolve() {
+        final String awsRegion = firstNonEmpty(System.getProperty(AWS_REGION),
+                System.getenv(AWS_REGION),
+                System.getenv(AWS_DEFAULT_REGION));
+        if (awsRegion != null) {
+            return fromName(awsRegion);
+        }
+        return fromInstanceMetadata(instanceMetadataTimeoutMs());
+    }
+
+    /**
+     * @param awsRegion region name, e.g. us-east-1
+     * @return region
+     * @throws RegionNotFoundException if the region is unknown
+     */
+    static Region fromName(final String awsRegion) {
+        try {
+            return Region.getRegion(Regions.fromName(awsRegion.trim()));
+        } catch (final IllegalArgumentException e) {
+            throw new RegionNotFoundException(String.format("Unknown AWS region: '%s'. Choose a valid value for environment variable AWS_REGION", awsRegion), e);
+        }
+    }
+
+    private static Region fromInstanceMetadata(final long timeoutMs) {
+        final long start = System.nanoTime();
+        final Region region;
+        try {
+            region = instanceMetadataLookup().get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (final TimeoutException e) {
+            throw new RegionNotFoundException(String.format(
+                    "Region could not be determined from EC2 instance metadata within %d ms", timeoutMs), e);
+        } catch (final ExecutionException e) {
+            throw new RegionNotFoundException("Region could not be determined from EC2 instance metadata", e);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RegionNotFoundException("Interrupted while determining the region from EC2 instance metadata", e);
+        }
+        if (region == null) {
+            throw new RegionNotFoundException("Region could not be determined from EC2 instance metadata");
+        }
+        LOGGER.debug("Resolved region {} from EC2 instance metadata after {} ms", region.getName(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return region;
+    }
+
+    private static synchronized FutureTask<Region> instanceMetadataLookup() {
+        // A failed lookup is not cached, the next configuration tries again.
+        if (instanceMetadataLookup == null || (instanceMetadataLookup.isDone() && !succeeded(instanceMetadataLookup))) {
+            instanceMetadataLookup = new FutureTask<>(Regions::getCurrentRegion);
+            final Thread thread = new Thread(instanceMetadataLookup, "region-lookup");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return instanceMetadataLookup;
+    }
+
+    private static boolean succeeded(final FutureTask<Region> lookup) {
+        try {
+            return lookup.get() != null;
+        } catch (final ExecutionException | InterruptedException e) {
+            return false;
+        }
+    }
+
+    private static long instanceMetadataTimeoutMs() {
+        final String timeout = System.getProperty(INSTANCE_METADATA_TIMEOUT_MS);
+        if (StringUtils.isNullOrEmpty(timeout)) {
+            return DEFAULT_INSTANCE_METADATA_TIMEOUT_MS;
+        }
+        try {
+            return Long.parseLong(timeout.trim());
+        } catch (final NumberFormatException e) {
+            throw new IllegalArgumentException(String.format("Invalid instance metadata timeout: '%s'", timeout), e);
+        }
+    }
+
+    private static String firstNonEmpty(final String... values) {
+        for (final String value : values) {
+            if (!StringUtils.isNullOrEmpty(value)) {
+                return value;
+            }
+        }
+        return null;
+    }
+}
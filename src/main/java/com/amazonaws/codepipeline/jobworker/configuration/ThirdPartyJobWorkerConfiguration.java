@@ -13,6 +13,7 @@
 package com.amazonaws.codepipeline.jobworker.configuration;
 
 import com.amazonaws.codepipeline.jobworker.model.ActionTypeId;
+import com.amazonaws.codepipeline.jobworker.plugin.thirdparty.CachingClientTokenProvider;
 import com.amazonaws.codepipeline.jobworker.plugin.thirdparty.ClientTokenProvider;
 import com.amazonaws.codepipeline.jobworker.plugin.thirdparty.DefaultClientTokenProvider;
 import com.amazonaws.codepipeline.jobworker.JobService;
@@ -32,15 +33,31 @@ public class ThirdPartyJobWorkerConfiguration extends DefaultJobWorkerConfigurat
      * Action type this job worker is polling and processing jobs for.
      * @return action type identifier
      */
+    @Override
     public ActionTypeId getActionTypeId() {
         return new ActionTypeId("Deploy", "ThirdParty", "ThirdPartyDeployProvider", "1");
     }
 
     /**
      * @return job service implementation for the third party API.
+     *         Client tokens are cached if {@link #cacheClientTokens()} is enabled.
      */
     @Override
-    public JobService jobService() { return new ThirdPartyJobService(codePipelineClient(), getActionTypeId(), clientTokenProvider()); }
+    public JobService jobService() {
+        final ClientTokenProvider provider = cacheClientTokens()
+                ? new CachingClientTokenProvider(clientTokenProvider())
+                : clientTokenProvider();
+        return new ThirdPartyJobService(codePipelineClient(), getActionTypeId(), provider);
+    }
+
+    /**
+     * Caching spares the client token provider a look up for every job, but a rotated client token
+     * is only picked up once the cached token expires.
+     * @return true to cache client tokens for five minutes, false to look them up for every job
+     */
+    protected boolean cacheClientTokens() {
+        return false;
+    }
 
     /**
      * @return the poll interval in milliseconds
@@ -0,0 +1,259 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.hedging;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import com.amazonaws.AbortedException;
+
+import com.amazonaws.codepipeline.jobworker.JobService;
+import com.amazonaws.codepipeline.jobworker.Validator;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Api;
+import com.amazonaws.codepipeline.jobworker.metrics.LatencyHistogram;
+import com.amazonaws.codepipeline.jobworker.model.CurrentRevision;
+import com.amazonaws.codepipeline.jobworker.model.ExecutionDetails;
+import com.amazonaws.codepipeline.jobworker.model.FailureDetails;
+import com.amazonaws.codepipeline.jobworker.model.JobStatus;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+
+/**
+ * Job service decorator which hedges the idempotent API calls: acknowledge job and put job success or failure result.
+ * If a request has not answered within the configured percentile of the observed latency, an identical second
+ * request is sent and the first successful answer is used, the other request is cancelled. The second request
+ * leases another connection from the pool, so one stalled connection does not delay the job until the SDK timeout.
+ *
+ * Hedged requests are limited by a budget: every request of an API earns a fraction of a hedge, a hedge spends one.
+ * Poll for jobs is not hedged, a second poll would hand out other jobs.
+ */
+public class HedgedJobService implements JobService {
+
+    private static final Api[] HEDGED_APIS = {Api.AcknowledgeJob, Api.PutJobSuccessResult, Api.PutJobFailureResult};
+
+    private final JobService jobService;
+    private final JobWorkerMetrics metrics;
+    private final ExecutorService executor;
+    private final Map<Api, Hedging> hedging = new EnumMap<>(Api.class);
+
+    /**
+     * Initializes the hedged job service with its own pool of daemon threads for the requests.
+     * @param jobService job service the calls are delegated to
+     * @param settings delay and budget of the hedged requests
+     * @param metrics metrics the hedged requests are counted in
+     */
+    public HedgedJobService(final JobService jobService, final HedgingSettings settings, final JobWorkerMetrics metrics) {
+        this(jobService, settings, metrics, Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "hedged-request");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * Initializes the hedged job service.
+     * @param jobService job service the calls are delegated to
+     * @param settings delay and budget of the hedged requests
+     * @param metrics metrics the hedged requests are counted in
+     * @param executor runs the requests, needs a thread for every request in flight
+     */
+    public HedgedJobService(final JobService jobService,
+                            final HedgingSettings settings,
+                            final JobWorkerMetrics metrics,
+                            final ExecutorService executor) {
+        Validator.notNull(jobService);
+        Validator.notNull(settings);
+        Validator.notNull(metrics);
+        Validator.notNull(executor);
+        this.jobService = jobService;
+        this.metrics = metrics;
+        this.executor = executor;
+        for (final Api api : HEDGED_APIS) {
+            hedging.put(api, new Hedging(settings));
+        }
+    }
+
+    @Override
+    public List<WorkItem> pollForJobs(final int maxBatchSize) {
+        return jobService.pollForJobs(maxBatchSize);
+    }
+
+    @Override
+    public JobStatus acknowledgeJob(final String jobId, final String clientId, final String nonce) {
+        return call(Api.AcknowledgeJob, () -> jobService.acknowledgeJob(jobId, clientId, nonce));
+    }
+
+    @Override
+    public void putJobSuccess(final String jobId,
+                              final String clientId,
+                              final ExecutionDetails executionDetails,
+                              final CurrentRevision currentRevision,
+                              final String continuationToken) {
+        call(Api.PutJobSuccessResult, () -> {
+            jobService.putJobSuccess(jobId, clientId, executionDetails, currentRevision, continuationToken);
+            return null;
+        });
+    }
+
+    @Override
+    public void putJobFailure(final String jobId, final String clientId, final FailureDetails failureDetails) {
+        call(Api.PutJobFailureResult, () -> {
+            jobService.putJobFailure(jobId, clientId, failureDetails);
+            return null;
+        });
+    }
+
+    /**
+     * @param api hedged job service API
+     * @return current hedging delay in nanoseconds, zero while not enough requests have been observed
+     */
+    long getDelayNanos(final Api api) {
+        return hedging.get(api).delayNanos(System.nanoTime());
+    }
+
+    private <T> T call(final Api api, final Supplier<T> request) {
+        final Hedging apiHedging = hedging.get(api);
+        final long delayNanos = apiHedging.delayNanos(System.nanoTime());
+        apiHedging.earn();
+
+        final CompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        final Future<T> primary = completion.submit(() -> apiHedging.timed(request));
+        Future<T> hedge = null;
+        try {
+            Future<T> first = delayNanos > 0 ? completion.poll(delayNanos, TimeUnit.NANOSECONDS) : completion.take();
+            if (first == null) {
+                if (apiHedging.spend()) {
+                    hedge = completion.submit(() -> apiHedging.timed(request));
+                    metrics.incrementApiHedges(api);
+                }
+                first = completion.take();
+            }
+            try {
+                return result(api, first, hedge);
+            } catch (final RuntimeException e) {
+                if (hedge == null) {
+                    throw e;
+                }
+                // the other request may still succeed
+                try {
+                    return result(api, completion.take(), hedge);
+                } catch (final RuntimeException second) {
+                    e.addSuppressed(second);
+                    throw e;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AbortedException(e);
+        } finally {
+            primary.cancel(true);
+            if (hedge != null) {
+                hedge.cancel(true);
+            }
+        }
+    }
+
+    private <T> T result(final Api api, final Future<T> done, final Future<T> hedge) throws InterruptedException {
+        final T result;
+        try {
+            result = done.get();
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        if (done == hedge) {
+            metrics.incrementApiHedgeWins(api);
+        }
+        return result;
+    }
+
+    /**
+     * Latency percentile and budget of the hedged requests of one API.
+     */
+    private static final class Hedging {
+        private final HedgingSettings settings;
+        private final long windowNanos;
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private LatencyHistogram.Snapshot windowStart;
+        private volatile long nextRefreshNanos;
+        private volatile long delayNanos;
+        private double tokens;
+
+        private Hedging(final HedgingSettings settings) {
+            this.settings = settings;
+            this.windowNanos = TimeUnit.MILLISECONDS.toNanos(settings.getWindowMs());
+            this.windowStart = latency.snapshot();
+            this.nextRefreshNanos = System.nanoTime() + windowNanos;
+        }
+
+        /**
+         * Records the latency of answered requests. Failed and cancelled requests are not recorded,
+         * so the delay is not skewed by the requests this decorator cancels.
+         */
+        private <T> T timed(final Supplier<T> request) {
+            final long start = System.nanoTime();
+            final T result = request.get();
+            latency.recordSince(start);
+            return result;
+        }
+
+        private long delayNanos(final long now) {
+            if (now - nextRefreshNanos >= 0) {
+                refresh(now);
+            }
+            return delayNanos;
+        }
+
+        private synchronized void refresh(final long now) {
+            if (now - nextRefreshNanos < 0) {
+                return;
+            }
+            nextRefreshNanos = now + windowNanos;
+            final LatencyHistogram.Snapshot current = latency.snapshot();
+            final LatencyHistogram.Snapshot window = current.since(windowStart);
+            // a quiet window keeps the previous delay and is measured together with the next one
+            if (window.getCount() >= settings.getMinSamples()) {
+                delayNanos = Math.max(1, window.getValueAtPercentile(settings.getPercentile()));
+                windowStart = current;
+            }
+        }
+
+        private synchronized void earn() {
+            tokens = Math.min(settings.getMaxBurst(), tokens + settings.getBudgetPercent() / 100);
+        }
+
+        private synchronized boolean spend() {
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+}
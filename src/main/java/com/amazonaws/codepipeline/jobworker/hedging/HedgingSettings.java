@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.hedging;
+
+/**
+ * Delay and budget of hedged job service requests.
+ */
+public final class HedgingSettings {
+
+    /**
+     * Default percentile of the observed latency after which a request is hedged.
+     */
+    public static final double DEFAULT_PERCENTILE = 95;
+
+    /**
+     * Default number of answered requests needed before the latency percentile is trusted.
+     */
+    public static final int DEFAULT_MIN_SAMPLES = 50;
+
+    /**
+     * Default time over which the latency percentile is measured.
+     */
+    public static final long DEFAULT_WINDOW_MS = 60000L;
+
+    /**
+     * Default number of hedged requests which may be sent back to back when the budget has been saved up.
+     */
+    public static final int DEFAULT_MAX_BURST = 10;
+
+    private final double budgetPercent;
+    private final double percentile;
+    private final int minSamples;
+    private final long windowMs;
+    private final int maxBurst;
+
+    /**
+     * Initializes the settings with the default percentile, window and burst.
+     * @param budgetPercent hedged requests in percent of all requests of an API
+     */
+    public HedgingSettings(final double budgetPercent) {
+        this(budgetPercent, DEFAULT_PERCENTILE, DEFAULT_MIN_SAMPLES, DEFAULT_WINDOW_MS, DEFAULT_MAX_BURST);
+    }
+
+    /**
+     * Initializes the settings.
+     * @param budgetPercent hedged requests in percent of all requests of an API
+     * @param percentile percentile of the observed latency after which a request is hedged
+     * @param minSamples number of answered requests needed in a window before the percentile is trusted
+     * @param windowMs time over which the latency percentile is measured
+     * @param maxBurst number of hedged requests which may be sent back to back
+     */
+    public HedgingSettings(final double budgetPercent,
+                           final double percentile,
+                           final int minSamples,
+                           final long windowMs,
+                           final int maxBurst) {
+        if (budgetPercent <= 0 || budgetPercent > 100) {
+            throw new IllegalArgumentException("Hedging budget must be between 0 and 100 percent");
+        }
+        if (percentile <= 0 || percentile >= 100) {
+            throw new IllegalArgumentException("Hedging percentile must be between 0 and 100");
+        }
+        if (minSamples <= 0 || windowMs <= 0 || maxBurst <= 0) {
+            throw new IllegalArgumentException("Minimum samples, window and burst must be positive");
+        }
+        this.budgetPercent = budgetPercent;
+        this.percentile = percentile;
+        this.minSamples = minSamples;
+        this.windowMs = windowMs;
+        this.maxBurst = maxBurst;
+    }
+
+    /**
+     * @return hedged requests in percent of all requests of an API
+     */
+    public double getBudgetPercent() {
+        return budgetPercent;
+    }
+
+    /**
+     * @return percentile of the observed latency after which a request is hedged
+     */
+    public double getPercentile() {
+        return percentile;
+    }
+
+    /**
+     * @return number of answered requests needed in a window before the percentile is trusted
+     */
+    public int getMinSamples() {
+        return minSamples;
+    }
+
+    /**
+     * @return time over which the latency percentile is measured in milliseconds
+     */
+    public long getWindowMs() {
+        return windowMs;
+    }
+
+    /**
+     * @return number of hedged requests which may be sent back to back
+     */
+    public int getMaxBurst() {
+        return maxBurst;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("budget=%s%%, percentile=%s, minSamples=%d, windowMs=%d, maxBurst=%d",
+                budgetPercent, percentile, minSamples, windowMs, maxBurst);
+    }
+}
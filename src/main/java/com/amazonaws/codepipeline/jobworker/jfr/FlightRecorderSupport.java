@@ -0,0 +1,87 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.jfr;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Flight recorder access of JVMs which provide the jdk.jfr API, only loaded through reflection.
+ */
+final class FlightRecorderSupport implements FlightRecorderAccess {
+
+    @Override
+    public boolean isAvailable() {
+        return FlightRecorder.isAvailable();
+    }
+
+    @Override
+    public JobEventRecorder recorder(final String actionType) {
+        return new FlightRecorderJobEventRecorder(actionType);
+    }
+
+    @Override
+    public Path dump(final Path destination) throws IOException {
+        for (final Recording recording : FlightRecorder.getFlightRecorder().getRecordings()) {
+            if (recording.getState() == RecordingState.RUNNING) {
+                recording.dump(destination);
+                return destination;
+            }
+        }
+        throw new IllegalStateException("No flight recording is running, start one with -XX:StartFlightRecording");
+    }
+
+    private static final class FlightRecorderJobEventRecorder implements JobEventRecorder {
+        private final String actionType;
+
+        private FlightRecorderJobEventRecorder(final String actionType) {
+            this.actionType = actionType;
+        }
+
+        @Override
+        public JobEvent beginPoll(final int batchSize) {
+            final PollEvent event = new PollEvent();
+            event.batchSize = batchSize;
+            return begin(event, null);
+        }
+
+        @Override
+        public JobEvent beginAcknowledge(final String jobId) {
+            return begin(new AcknowledgeEvent(), jobId);
+        }
+
+        @Override
+        public JobEvent beginProcess(final String jobId) {
+            return begin(new ProcessEvent(), jobId);
+        }
+
+        @Override
+        public JobEvent beginReport(final String jobId) {
+            return begin(new ReportEvent(), jobId);
+        }
+
+        private JobEvent begin(final JobPhaseEvent event, final String jobId) {
+            if (!event.isEnabled()) {
+                return JobEvent.NOOP;
+            }
+            event.actionType = actionType;
+            event.jobId = jobId;
+            event.begin();
+            return event;
+        }
+    }
+}
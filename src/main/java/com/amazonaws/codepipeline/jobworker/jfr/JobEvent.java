@@ -0,0 +1,47 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.jfr;
+
+/**
+ * Started flight recorder event of a job phase, its duration ends when the event is committed.
+ */
+public interface JobEvent {
+
+    /**
+     * Event which is not recorded.
+     */
+    JobEvent NOOP = new JobEvent() {
+        @Override
+        public JobEvent setJobCount(final int jobCount) {
+            return this;
+        }
+
+        @Override
+        public void commit(final String status) {
+            // not recorded
+        }
+    };
+
+    /**
+     * Sets the number of jobs returned by a poll, ignored by the events of other phases.
+     * @param jobCount number of jobs
+     * @return this event
+     */
+    JobEvent setJobCount(int jobCount);
+
+    /**
+     * Ends the event and commits it to the flight recorder.
+     * @param status outcome of the phase, e.g. the job status or Failed
+     */
+    void commit(String status);
+}
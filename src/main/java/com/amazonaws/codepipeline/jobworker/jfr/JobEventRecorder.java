@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.jfr;
+
+/**
+ * Records the phases of jobs as Java Flight Recorder events.
+ * Events are only recorded while a flight recording with the job worker events enabled is running.
+ */
+public interface JobEventRecorder {
+
+    /**
+     * Recorder which does not record events, used when the JVM has no flight recorder.
+     */
+    JobEventRecorder NOOP = new JobEventRecorder() {
+        @Override
+        public JobEvent beginPoll(final int batchSize) {
+            return JobEvent.NOOP;
+        }
+
+        @Override
+        public JobEvent beginAcknowledge(final String jobId) {
+            return JobEvent.NOOP;
+        }
+
+        @Override
+        public JobEvent beginProcess(final String jobId) {
+            return JobEvent.NOOP;
+        }
+
+        @Override
+        public JobEvent beginReport(final String jobId) {
+            return JobEvent.NOOP;
+        }
+    };
+
+    /**
+     * Starts a poll for jobs event.
+     * @param batchSize requested number of jobs
+     * @return started event
+     */
+    JobEvent beginPoll(int batchSize);
+
+    /**
+     * Starts an acknowledge job event.
+     * @param jobId job id
+     * @return started event
+     */
+    JobEvent beginAcknowledge(String jobId);
+
+    /**
+     * Starts a process job event.
+     * @param jobId job id
+     * @return started event
+     */
+    JobEvent beginProcess(String jobId);
+
+    /**
+     * Starts a report job result event.
+     * @param jobId job id
+     * @return started event
+     */
+    JobEvent beginReport(String jobId);
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.jfr;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Entry point to the Java Flight Recorder integration of the job worker.
+ *
+ * The flight recorder API is only loaded if the JVM provides it (JDK 11 or newer, OpenJDK 8u262 or newer),
+ * on other JVMs events are not recorded and dumps are not supported.
+ */
+public final class JobFlightRecorder {
+
+    private static final Logger LOGGER = LogManager.getLogger(JobFlightRecorder.class);
+
+    private static final String SUPPORT_CLASS = "com.amazonaws.codepipeline.jobworker.jfr.FlightRecorderSupport";
+
+    private static final FlightRecorderAccess ACCESS = loadAccess();
+
+    private JobFlightRecorder() {
+    }
+
+    /**
+     * @return true if the JVM has a flight recorder
+     */
+    public static boolean isAvailable() {
+        return ACCESS != null;
+    }
+
+    /**
+     * Returns the event recorder of an action type.
+     * @param actionType action type the events are tagged with
+     * @return event recorder, a no-op recorder if the JVM has no flight recorder
+     */
+    public static JobEventRecorder forActionType(final String actionType) {
+        return ACCESS == null ? JobEventRecorder.NOOP : ACCESS.recorder(actionType);
+    }
+
+    /**
+     * Dumps the data of the running flight recording to a file.
+     * @param destination file the recording is written to
+     * @return path of the written recording
+     * @throws IOException if the recording could not be written
+     * @throws IllegalStateException if the JVM has no flight recorder or no recording is running
+     */
+    public static Path dump(final Path destination) throws IOException {
+        if (ACCESS == null) {
+            throw new IllegalStateException("Flight recorder is not available in this JVM");
+        }
+        return ACCESS.dump(destination);
+    }
+
+    private static FlightRecorderAccess loadAccess() {
+        try {
+            Class.forName("jdk.jfr.FlightRecorder");
+        } catch (final ClassNotFoundException e) {
+            return null;
+        }
+        try {
+            final FlightRecorderAccess access = (FlightRecorderAccess) Class.forName(SUPPORT_CLASS).newInstance();
+            return access.isAvailable() ? access : null;
+        } catch (final ReflectiveOperationException | LinkageError e) {
+            LOGGER.warn("Could not initialize flight recorder events", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base class of the flight recorder events of the job phases.
+ */
+@Category({"AWS CodePipeline", "Job Worker"})
+@StackTrace(false)
+abstract class JobPhaseEvent extends Event implements JobEvent {
+
+    @Label("Action Type")
+    String actionType;
+
+    @Label("Job Id")
+    String jobId;
+
+    @Label("Status")
+    String status;
+
+    @Override
+    public JobEvent setJobCount(final int jobCount) {
+        return this;
+    }
+
+    @Override
+    public void commit(final String status) {
+        end();
+        if (shouldCommit()) {
+            this.status = status;
+            commit();
+        }
+    }
+}
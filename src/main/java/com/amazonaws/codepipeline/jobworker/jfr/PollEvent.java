@@ -0,0 +1,38 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.jfr;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Poll for jobs request of the job poller.
+ */
+@Name("com.amazonaws.codepipeline.jobworker.PollForJobs")
+@Label("Poll For Jobs")
+@Description("Poll for jobs request of the job poller.")
+final class PollEvent extends JobPhaseEvent {
+
+    @Label("Batch Size")
+    int batchSize;
+
+    @Label("Job Count")
+    int jobCount;
+
+    @Override
+    public JobEvent setJobCount(final int jobCount) {
+        this.jobCount = jobCount;
+        return this;
+    }
+}
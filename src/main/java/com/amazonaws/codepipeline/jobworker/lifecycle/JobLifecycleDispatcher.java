@@ -0,0 +1,264 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.lifecycle;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.codepipeline.jobworker.Validator;
+import com.amazonaws.codepipeline.jobworker.accounting.JobResourceUsage;
+import com.amazonaws.codepipeline.jobworker.model.JobStatus;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import com.amazonaws.codepipeline.jobworker.model.WorkResult;
+
+/**
+ * Publishes the lifecycle events of the job poller to the registered listeners.
+ *
+ * Events go through a lock-free ring buffer: job worker threads claim a slot with a compare-and-set
+ * and every listener has its own thread which follows the buffer with its own sequence. Publishing never
+ * blocks, when the slowest listener is a full buffer behind the event is dropped and counted.
+ * Listener threads without events park until a publisher unparks them.
+ * Without listeners publishing returns immediately without allocating.
+ */
+public class JobLifecycleDispatcher implements JobLifecycleListener, AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(JobLifecycleDispatcher.class);
+
+    /**
+     * Default number of slots in the ring buffer.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    /**
+     * Maximum time close waits for each listener thread to deliver the remaining events.
+     */
+    private static final long CLOSE_TIMEOUT_MS = 5000L;
+
+    /**
+     * Maximum time an idle listener thread parks, only matters if a wake up is lost.
+     */
+    private static final long MAX_IDLE_PARK_NS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final JobLifecycleDispatcher NOOP = new JobLifecycleDispatcher(Collections.emptyList());
+
+    private final AtomicReferenceArray<JobLifecycleEvent> slots;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final ListenerThread[] listenerThreads;
+
+    private volatile boolean closed;
+
+    /**
+     * Initializes the dispatcher with the default buffer size and starts one thread per listener.
+     * @param listeners listeners notified of the job lifecycle events
+     */
+    public JobLifecycleDispatcher(final List<JobLifecycleListener> listeners) {
+        this(listeners, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Initializes the dispatcher and starts one thread per listener.
+     * @param listeners listeners notified of the job lifecycle events
+     * @param bufferSize number of slots in the ring buffer, must be a power of two
+     */
+    public JobLifecycleDispatcher(final List<JobLifecycleListener> listeners, final int bufferSize) {
+        Validator.notNull(listeners);
+        if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("Buffer size must be a positive power of two");
+        }
+        this.slots = new AtomicReferenceArray<>(listeners.isEmpty() ? 0 : bufferSize);
+        this.mask = bufferSize - 1;
+        this.listenerThreads = new ListenerThread[listeners.size()];
+        for (int i = 0; i < listenerThreads.length; i++) {
+            final JobLifecycleListener listener = listeners.get(i);
+            Validator.notNull(listener);
+            listenerThreads[i] = new ListenerThread(listener, "job-lifecycle-listener-" + i);
+        }
+        for (final ListenerThread listenerThread : listenerThreads) {
+            listenerThread.start();
+        }
+    }
+
+    /**
+     * @return dispatcher without listeners
+     */
+    public static JobLifecycleDispatcher noop() {
+        return NOOP;
+    }
+
+    /**
+     * @return true if at least one listener is registered
+     */
+    public boolean isEnabled() {
+        return listenerThreads.length > 0;
+    }
+
+    /**
+     * @return number of events dropped because the ring buffer was full or the dispatcher was closed
+     */
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    @Override
+    public void onPolled(final WorkItem workItem) {
+        publish(JobLifecycleEvent.Type.Polled, workItem, null, null, null, null);
+    }
+
+    @Override
+    public void onAcknowledged(final WorkItem workItem, final JobStatus jobStatus) {
+        publish(JobLifecycleEvent.Type.Acknowledged, workItem, jobStatus, null, null, null);
+    }
+
+    @Override
+    public void onStarted(final WorkItem workItem) {
+        publish(JobLifecycleEvent.Type.Started, workItem, null, null, null, null);
+    }
+
+    @Override
+    public void onFinished(final WorkItem workItem, final WorkResult result) {
+        publish(JobLifecycleEvent.Type.Finished, workItem, null, result, null, null);
+    }
+
+    @Override
+    public void onReported(final WorkItem workItem, final WorkResult result) {
+        publish(JobLifecycleEvent.Type.Reported, workItem, null, result, null, null);
+    }
+
+    @Override
+    public void onRejected(final WorkItem workItem, final Throwable cause) {
+        publish(JobLifecycleEvent.Type.Rejected, workItem, null, null, cause, null);
+    }
+
+    @Override
+    public void onFailed(final WorkItem workItem, final Throwable cause) {
+        publish(JobLifecycleEvent.Type.Failed, workItem, null, null, cause, null);
+    }
+
+    @Override
+    public void onAccounted(final WorkItem workItem, final JobResourceUsage usage) {
+        publish(JobLifecycleEvent.Type.Accounted, workItem, null, null, null, usage);
+    }
+
+    /**
+     * Stops accepting events and waits for the listener threads to deliver the published events.
+     */
+    @Override
+    public void close() {
+        if (!isEnabled()) {
+            return;
+        }
+        closed = true;
+        for (final ListenerThread listenerThread : listenerThreads) {
+            LockSupport.unpark(listenerThread);
+        }
+        try {
+            for (final ListenerThread listenerThread : listenerThreads) {
+                listenerThread.join(CLOSE_TIMEOUT_MS);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publish(final JobLifecycleEvent.Type type,
+                         final WorkItem workItem,
+                         final JobStatus jobStatus,
+                         final WorkResult result,
+                         final Throwable cause,
+                         final JobResourceUsage usage) {
+        if (listenerThreads.length == 0) {
+            return;
+        }
+        long sequence;
+        do {
+            sequence = cursor.get();
+            if (closed || sequence - slots.length() >= slowestSequence()) {
+                droppedEvents.incrementAndGet();
+                return;
+            }
+        } while (!cursor.compareAndSet(sequence, sequence + 1));
+        // A volatile write, so a listener which announces it is waiting either sees the event or is unparked.
+        slots.set((int) sequence & mask, new JobLifecycleEvent(sequence, type, workItem, jobStatus, result, cause, usage));
+        for (final ListenerThread listenerThread : listenerThreads) {
+            if (listenerThread.waiting) {
+                LockSupport.unpark(listenerThread);
+            }
+        }
+    }
+
+    private long slowestSequence() {
+        long slowest = Long.MAX_VALUE;
+        for (final ListenerThread listenerThread : listenerThreads) {
+            slowest = Math.min(slowest, listenerThread.sequence);
+        }
+        return slowest;
+    }
+
+    private final class ListenerThread extends Thread {
+        private final JobLifecycleListener listener;
+
+        /**
+         * Sequence of the next event this listener reads, slots before it can be reused by publishers.
+         */
+        private volatile long sequence;
+
+        /**
+         * True while this listener parks or is about to park, publishers unpark it then.
+         */
+        private volatile boolean waiting;
+
+        private ListenerThread(final JobLifecycleListener listener, final String name) {
+            super(name);
+            this.listener = listener;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long next = 0;
+            while (!closed || next < cursor.get()) {
+                final JobLifecycleEvent event = slots.get((int) next & mask);
+                if (event == null || event.sequence != next) {
+                    // Nothing published yet, or the slot is claimed but not yet written.
+                    waiting = true;
+                    if (!isPublished(next) && !closed) {
+                        LockSupport.parkNanos(this, MAX_IDLE_PARK_NS);
+                    }
+                    waiting = false;
+                    continue;
+                }
+                try {
+                    event.dispatchTo(listener);
+                } catch (final RuntimeException e) {
+                    LOGGER.warn("Job lifecycle listener failed on {} event", event.type, e);
+                }
+                next++;
+                sequence = next;
+            }
+        }
+
+        private boolean isPublished(final long next) {
+            final JobLifecycleEvent event = slots.get((int) next & mask);
+            return event != null && event.sequence == next;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.lifecycle;
+
+import com.amazonaws.codepipeline.jobworker.accounting.JobResourceUsage;
+import com.amazonaws.codepipeline.jobworker.model.JobStatus;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import com.amazonaws.codepipeline.jobworker.model.WorkResult;
+
+/**
+ * Lifecycle event in a slot of the ring buffer, immutable once published.
+ */
+final class JobLifecycleEvent {
+
+    enum Type {
+        Polled,
+        Acknowledged,
+        Started,
+        Finished,
+        Reported,
+        Rejected,
+        Failed,
+        Accounted
+    }
+
+    final long sequence;
+    final Type type;
+    final WorkItem workItem;
+    final JobStatus jobStatus;
+    final WorkResult result;
+    final Throwable cause;
+    final JobResourceUsage usage;
+
+    JobLifecycleEvent(final long sequence,
+                      final Type type,
+                      final WorkItem workItem,
+                      final JobStatus jobStatus,
+                      final WorkResult result,
+                      final Throwable cause,
+                      final JobResourceUsage usage) {
+        this.sequence = sequence;
+        this.type = type;
+        this.workItem = workItem;
+        this.jobStatus = jobStatus;
+        this.result = result;
+        this.cause = cause;
+        this.usage = usage;
+    }
+
+    void dispatchTo(final JobLifecycleListener listener) {
+        switch (type) {
+            case Polled:
+                listener.onPolled(workItem);
+                break;
+            case Acknowledged:
+                listener.onAcknowledged(workItem, jobStatus);
+                break;
+            case Started:
+                listener.onStarted(workItem);
+                break;
+            case Finished:
+                listener.onFinished(workItem, result);
+                break;
+            case Reported:
+                listener.onReported(workItem, result);
+                break;
+            case Rejected:
+                listener.onRejected(workItem, cause);
+                break;
+            case Failed:
+                listener.onFailed(workItem, cause);
+                break;
+            case Accounted:
+                listener.onAccounted(workItem, usage);
+                break;
+            default:
+                throw new IllegalStateException("Unknown lifecycle event " + type);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.lifecycle;
+
+import com.amazonaws.codepipeline.jobworker.accounting.JobResourceUsage;
+import com.amazonaws.codepipeline.jobworker.model.JobStatus;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import com.amazonaws.codepipeline.jobworker.model.WorkResult;
+
+/**
+ * Receives the lifecycle events of the jobs handled by the job poller, e.g. for audit logs or notifications.
+ * Listeners only implement the callbacks they are interested in.
+ *
+ * Callbacks run on a dedicated listener thread, never on a job worker thread. Events of a listener are
+ * delivered in the order they were published, a slow listener only delays its own events.
+ */
+public interface JobLifecycleListener {
+
+    /**
+     * A job was returned by a poll for jobs request.
+     * @param workItem polled job
+     */
+    default void onPolled(final WorkItem workItem) {
+    }
+
+    /**
+     * A job was acknowledged.
+     * @param workItem acknowledged job
+     * @param jobStatus status returned by the acknowledge job request, the job is only processed if InProgress
+     */
+    default void onAcknowledged(final WorkItem workItem, final JobStatus jobStatus) {
+    }
+
+    /**
+     * The job processor started to process a job.
+     * @param workItem job
+     */
+    default void onStarted(final WorkItem workItem) {
+    }
+
+    /**
+     * The job processor returned the result of a job.
+     * @param workItem job
+     * @param result result of the job processor
+     */
+    default void onFinished(final WorkItem workItem, final WorkResult result) {
+    }
+
+    /**
+     * The result of a job was reported to the job service.
+     * @param workItem job
+     * @param result reported result
+     */
+    default void onReported(final WorkItem workItem, final WorkResult result) {
+    }
+
+    /**
+     * The worker thread pool rejected a polled job.
+     * @param workItem rejected job
+     * @param cause rejection of the executor service
+     */
+    default void onRejected(final WorkItem workItem, final Throwable cause) {
+    }
+
+    /**
+     * Acknowledging, processing or reporting a job failed with an exception.
+     * @param workItem failed job
+     * @param cause exception
+     */
+    default void onFailed(final WorkItem workItem, final Throwable cause) {
+    }
+
+    /**
+     * The resources a job used from the start of processing to the end of reporting were measured,
+     * only published if job accounting is enabled.
+     * @param workItem job
+     * @param usage CPU time, allocated memory and wall time of the job
+     */
+    default void onAccounted(final WorkItem workItem, final JobResourceUsage usage) {
+    }
+}
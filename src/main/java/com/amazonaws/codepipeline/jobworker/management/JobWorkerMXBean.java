@@ -0,0 +1,113 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.management;
+
+import java.io.IOException;
+
+/**
+ * Management interface of the job worker. Exposes the worker thread pool and the poll settings
+ * and allows to change them while the job worker is running.
+ */
+public interface JobWorkerMXBean {
+
+    /**
+     * @return number of worker threads kept in the pool
+     */
+    int getCorePoolSize();
+
+    /**
+     * Changes the number of worker threads like {@link #resizeWorkerPool(int)}.
+     * @param corePoolSize number of worker threads, must be positive
+     */
+    void setCorePoolSize(int corePoolSize);
+
+    /**
+     * @return maximum number of worker threads, the pool has a fixed size, so this equals the core pool size
+     */
+    int getMaximumPoolSize();
+
+    /**
+     * @return current number of worker threads
+     */
+    int getPoolSize();
+
+    /**
+     * @return number of worker threads processing jobs
+     */
+    int getActiveCount();
+
+    /**
+     * @return number of jobs waiting for a worker thread
+     */
+    int getQueueSize();
+
+    /**
+     * @return number of processed jobs
+     */
+    long getCompletedTaskCount();
+
+    /**
+     * @return the poll interval in milliseconds
+     */
+    long getPollingIntervalInMs();
+
+    /**
+     * Changes the poll interval. The next poll happens one interval after the change.
+     * @param pollingIntervalInMs the poll interval in milliseconds, must be positive
+     */
+    void setPollingIntervalInMs(long pollingIntervalInMs);
+
+    /**
+     * @return maximum number of jobs processed in parallel, which is the upper bound for the poll batch size
+     */
+    int getPollBatchSize();
+
+    /**
+     * Changes the maximum number of jobs processed in parallel.
+     * @param pollBatchSize poll batch size, must be positive
+     */
+    void setPollBatchSize(int pollBatchSize);
+
+    /**
+     * Resizes the worker thread pool and the poll batch size together.
+     * Jobs in progress keep running, surplus threads terminate once they are idle.
+     * @param workerThreads number of worker threads, must be positive
+     */
+    void resizeWorkerPool(int workerThreads);
+
+    /**
+     * @return true if the poll auto tuner adjusts the poll interval and the poll batch size
+     */
+    boolean isAutoTuningEnabled();
+
+    /**
+     * Pauses or resumes the poll auto tuner, e.g. to change the poll settings manually.
+     * @param autoTuningEnabled true to resume tuning
+     * @throws IllegalStateException if the job worker is not configured with a tuning target
+     */
+    void setAutoTuningEnabled(boolean autoTuningEnabled);
+
+    /**
+     * @return last decision of the poll auto tuner with the signals it was based on, null if there is none
+     */
+    String getLastTuningDecision();
+
+    /**
+     * Writes the data of the running flight recording to a file, e.g. to capture a slow job as it happens.
+     * Requires a recording started with -XX:StartFlightRecording.
+     * @param path file the recording is written to
+     * @return absolute path of the written recording
+     * @throws IOException if the recording could not be written
+     */
+    String dumpFlightRecording(String path) throws IOException;
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.management;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+import com.amazonaws.codepipeline.jobworker.CodePipelineJobPoller;
+import com.amazonaws.codepipeline.jobworker.JobWorkerDaemon;
+import com.amazonaws.codepipeline.jobworker.Validator;
+import com.amazonaws.codepipeline.jobworker.jfr.JobFlightRecorder;
+import com.amazonaws.codepipeline.jobworker.tuning.PollAutoTuner;
+import com.amazonaws.codepipeline.jobworker.tuning.TuningDecision;
+
+/**
+ * JMX management of a running job worker, registered by the daemon in the platform MBean server.
+ */
+public class JobWorkerManagement implements JobWorkerMXBean {
+
+    private static final Logger LOGGER = LogManager.getLogger(JobWorkerManagement.class);
+
+    /**
+     * Object name the job worker is registered with.
+     */
+    public static final String OBJECT_NAME = "com.amazonaws.codepipeline.jobworker:type=JobWorker";
+
+    private final JobWorkerDaemon daemon;
+    private final CodePipelineJobPoller jobPoller;
+    private final ThreadPoolExecutor executorService;
+
+    /**
+     * Initializes the management interface.
+     * @param daemon daemon which schedules the job poller
+     * @param jobPoller job poller
+     */
+    public JobWorkerManagement(final JobWorkerDaemon daemon, final CodePipelineJobPoller jobPoller) {
+        Validator.notNull(daemon);
+        Validator.notNull(jobPoller);
+        this.daemon = daemon;
+        this.jobPoller = jobPoller;
+        this.executorService = jobPoller.getExecutorService();
+    }
+
+    @Override
+    public int getCorePoolSize() {
+        return executorService.getCorePoolSize();
+    }
+
+    @Override
+    public void setCorePoolSize(final int corePoolSize) {
+        resizeWorkerPool(corePoolSize);
+    }
+
+    @Override
+    public int getMaximumPoolSize() {
+        return executorService.getMaximumPoolSize();
+    }
+
+    @Override
+    public int getPoolSize() {
+        return executorService.getPoolSize();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return executorService.getActiveCount();
+    }
+
+    @Override
+    public int getQueueSize() {
+        return executorService.getQueue().size();
+    }
+
+    @Override
+    public long getCompletedTaskCount() {
+        return executorService.getCompletedTaskCount();
+    }
+
+    @Override
+    public long getPollingIntervalInMs() {
+        return daemon.getPollingIntervalInMs();
+    }
+
+    @Override
+    public void setPollingIntervalInMs(final long pollingIntervalInMs) {
+        daemon.setPollingIntervalInMs(pollingIntervalInMs);
+    }
+
+    @Override
+    public int getPollBatchSize() {
+        return jobPoller.getPollBatchSize();
+    }
+
+    @Override
+    public void setPollBatchSize(final int pollBatchSize) {
+        jobPoller.setPollBatchSize(pollBatchSize);
+    }
+
+    @Override
+    public void resizeWorkerPool(final int workerThreads) {
+        jobPoller.resizeWorkerPool(workerThreads);
+        LOGGER.info("Resized worker pool to {} threads", Unbox.box(workerThreads));
+    }
+
+    @Override
+    public boolean isAutoTuningEnabled() {
+        final PollAutoTuner tuner = daemon.getPollAutoTuner();
+        return tuner != null && tuner.isEnabled();
+    }
+
+    @Override
+    public void setAutoTuningEnabled(final boolean autoTuningEnabled) {
+        final PollAutoTuner tuner = daemon.getPollAutoTuner();
+        if (tuner == null) {
+            throw new IllegalStateException("Poll auto tuning is not configured");
+        }
+        tuner.setEnabled(autoTuningEnabled);
+    }
+
+    @Override
+    public String getLastTuningDecision() {
+        final PollAutoTuner tuner = daemon.getPollAutoTuner();
+        final TuningDecision decision = tuner == null ? null : tuner.getLastDecision();
+        return decision == null ? null : decision.toString();
+    }
+
+    @Override
+    public String dumpFlightRecording(final String path) throws IOException {
+        Validator.notNull(path);
+        final Path destination = JobFlightRecorder.dump(Paths.get(path)).toAbsolutePath();
+        LOGGER.info("Dumped flight recording to {}", destination);
+        return destination.toString();
+    }
+
+    /**
+     * Registers this management interface in the platform MBean server,
+     * replaces a previously registered job worker.
+     */
+    public void register() {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = objectName();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(this, name);
+        } catch (final JMException e) {
+            LOGGER.warn("Could not register job worker MBean", e);
+        }
+    }
+
+    /**
+     * Removes the job worker from the platform MBean server.
+     */
+    public static void unregister() {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = objectName();
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (final JMException e) {
+            LOGGER.warn("Could not unregister job worker MBean", e);
+        }
+    }
+
+    /**
+     * @return object name the job worker is registered with
+     */
+    public static ObjectName objectName() {
+        try {
+            return new ObjectName(OBJECT_NAME);
+        } catch (final MalformedObjectNameException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
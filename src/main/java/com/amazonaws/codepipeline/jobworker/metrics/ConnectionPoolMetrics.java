@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.TimingInfo;
+
+/**
+ * Connection pool usage of the HTTP client of the job service.
+ *
+ * As request metric collector of the SDK client it samples the leased, available and pending connections
+ * of the pool before every request. The instrumented socket factory records every new connection, the
+ * ratio of new connections to requests shows how often a request paid for a TCP and TLS handshake.
+ */
+public class ConnectionPoolMetrics extends RequestMetricCollector {
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong connectionsOpened = new AtomicLong();
+    private final LatencyHistogram connectLatency = new LatencyHistogram();
+
+    private volatile long leasedConnections;
+    private volatile long availableConnections;
+    private volatile long pendingRequests;
+
+    @Override
+    public void collectMetrics(final Request<?> request, final Response<?> response) {
+        requests.incrementAndGet();
+        final AWSRequestMetrics requestMetrics = request.getAWSRequestMetrics();
+        if (requestMetrics == null) {
+            return;
+        }
+        final TimingInfo timingInfo = requestMetrics.getTimingInfo();
+        leasedConnections = counter(timingInfo, AWSRequestMetrics.Field.HttpClientPoolLeasedCount, leasedConnections);
+        availableConnections = counter(timingInfo, AWSRequestMetrics.Field.HttpClientPoolAvailableCount, availableConnections);
+        pendingRequests = counter(timingInfo, AWSRequestMetrics.Field.HttpClientPoolPendingCount, pendingRequests);
+    }
+
+    /**
+     * Records a new connection.
+     * @param nanos time to connect and complete the TLS handshake
+     */
+    public void recordConnect(final long nanos) {
+        connectionsOpened.incrementAndGet();
+        connectLatency.record(nanos);
+    }
+
+    /**
+     * @return number of HTTP requests, including failed ones
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return number of connections opened
+     */
+    public long getConnectionsOpened() {
+        return connectionsOpened.get();
+    }
+
+    /**
+     * @return time to connect and complete the TLS handshake of the new connections
+     */
+    public LatencyHistogram getConnectLatency() {
+        return connectLatency;
+    }
+
+    /**
+     * @return connections leased from the pool before the last request
+     */
+    public long getLeasedConnections() {
+        return leasedConnections;
+    }
+
+    /**
+     * @return idle connections in the pool before the last request
+     */
+    public long getAvailableConnections() {
+        return availableConnections;
+    }
+
+    /**
+     * @return requests waiting for a connection before the last request, more than zero if the pool is too small
+     */
+    public long getPendingRequests() {
+        return pendingRequests;
+    }
+
+    private static long counter(final TimingInfo timingInfo, final AWSRequestMetrics.Field field, final long previous) {
+        final Number value = timingInfo.getCounter(field.name());
+        return value == null ? previous : value.longValue();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.metrics;
+
+import java.util.List;
+
+import com.amazonaws.AmazonServiceException;
+
+import com.amazonaws.codepipeline.jobworker.JobService;
+import com.amazonaws.codepipeline.jobworker.Validator;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Api;
+import com.amazonaws.codepipeline.jobworker.model.CurrentRevision;
+import com.amazonaws.codepipeline.jobworker.model.ExecutionDetails;
+import com.amazonaws.codepipeline.jobworker.model.FailureDetails;
+import com.amazonaws.codepipeline.jobworker.model.JobStatus;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import com.amazonaws.retry.RetryUtils;
+
+/**
+ * Job service decorator which records the latency, the errors and the throttling of every API call.
+ */
+public class InstrumentedJobService implements JobService {
+
+    private final JobService jobService;
+    private final JobWorkerMetrics metrics;
+
+    /**
+     * Initializes the instrumented job service.
+     * @param jobService job service the calls are delegated to
+     * @param metrics metrics of the polled action type
+     */
+    public InstrumentedJobService(final JobService jobService, final JobWorkerMetrics metrics) {
+        Validator.notNull(jobService);
+        Validator.notNull(metrics);
+        this.jobService = jobService;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public List<WorkItem> pollForJobs(final int maxBatchSize) {
+        final long start = System.nanoTime();
+        try {
+            return jobService.pollForJobs(maxBatchSize);
+        } catch (final RuntimeException e) {
+            countError(Api.PollForJobs, e);
+            throw e;
+        } finally {
+            metrics.getApiLatency(Api.PollForJobs).recordSince(start);
+        }
+    }
+
+    @Override
+    public JobStatus acknowledgeJob(final String jobId, final String clientId, final String nonce) {
+        final long start = System.nanoTime();
+        try {
+            return jobService.acknowledgeJob(jobId, clientId, nonce);
+        } catch (final RuntimeException e) {
+            countError(Api.AcknowledgeJob, e);
+            throw e;
+        } finally {
+            metrics.getApiLatency(Api.AcknowledgeJob).recordSince(start);
+        }
+    }
+
+    @Override
+    public void putJobSuccess(final String jobId,
+                              final String clientId,
+                              final ExecutionDetails executionDetails,
+                              final CurrentRevision currentRevision,
+                              final String continuationToken) {
+        final long start = System.nanoTime();
+        try {
+            jobService.putJobSuccess(jobId, clientId, executionDetails, currentRevision, continuationToken);
+        } catch (final RuntimeException e) {
+            countError(Api.PutJobSuccessResult, e);
+            throw e;
+        } finally {
+            metrics.getApiLatency(Api.PutJobSuccessResult).recordSince(start);
+        }
+    }
+
+    @Override
+    public void putJobFailure(final String jobId, final String clientId, final FailureDetails failureDetails) {
+        final long start = System.nanoTime();
+        try {
+            jobService.putJobFailure(jobId, clientId, failureDetails);
+        } catch (final RuntimeException e) {
+            countError(Api.PutJobFailureResult, e);
+            throw e;
+        } finally {
+            metrics.getApiLatency(Api.PutJobFailureResult).recordSince(start);
+        }
+    }
+
+    private void countError(final Api api, final RuntimeException e) {
+        metrics.incrementApiErrors(api);
+        if (e instanceof AmazonServiceException && RetryUtils.isThrottlingException((AmazonServiceException) e)) {
+            metrics.incrementApiThrottles(api);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.metrics;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.ssl.SSLContexts;
+
+import com.amazonaws.codepipeline.jobworker.Validator;
+import com.amazonaws.http.conn.ssl.SdkTLSSocketFactory;
+
+/**
+ * TLS socket factory of the SDK which records every new connection and the time of its handshake.
+ */
+public class InstrumentedSslSocketFactory implements LayeredConnectionSocketFactory {
+
+    private final LayeredConnectionSocketFactory delegate;
+    private final ConnectionPoolMetrics metrics;
+
+    /**
+     * Wraps the default TLS socket factory of the SDK.
+     * @param metrics metrics the new connections are recorded in
+     */
+    public InstrumentedSslSocketFactory(final ConnectionPoolMetrics metrics) {
+        this(new SdkTLSSocketFactory(SSLContexts.createDefault(), SSLConnectionSocketFactory.getDefaultHostnameVerifier()),
+                metrics);
+    }
+
+    /**
+     * Wraps a socket factory.
+     * @param delegate socket factory which creates and connects the sockets
+     * @param metrics metrics the new connections are recorded in
+     */
+    public InstrumentedSslSocketFactory(final LayeredConnectionSocketFactory delegate, final ConnectionPoolMetrics metrics) {
+        Validator.notNull(delegate);
+        Validator.notNull(metrics);
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Socket createSocket(final HttpContext context) throws IOException {
+        return delegate.createSocket(context);
+    }
+
+    @Override
+    public Socket connectSocket(final int connectTimeout,
+                                final Socket socket,
+                                final HttpHost host,
+                                final InetSocketAddress remoteAddress,
+                                final InetSocketAddress localAddress,
+                                final HttpContext context) throws IOException {
+        final long start = System.nanoTime();
+        final Socket connected = delegate.connectSocket(connectTimeout, socket, host, remoteAddress, localAddress, context);
+        metrics.recordConnect(System.nanoTime() - start);
+        return connected;
+    }
+
+    @Override
+    public Socket createLayeredSocket(final Socket socket,
+                                      final String target,
+                                      final int port,
+                                      final HttpContext context) throws IOException {
+        return delegate.createLayeredSocket(socket, target, port, context);
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.amazonaws.codepipeline.jobworker.Validator;
+
+/**
+ * Latency histograms and counters of the job worker for a single action type.
+ * All methods are thread safe and lock free.
+ */
+public class JobWorkerMetrics {
+
+    /**
+     * Phases of a job whose latency is recorded.
+     */
+    public enum Phase {
+        /**
+         * Poll for jobs request.
+         */
+        Poll,
+        /**
+         * Time a polled job waits for a worker thread.
+         */
+        QueueWait,
+        /**
+         * Acknowledge job request.
+         */
+        Acknowledge,
+        /**
+         * Job processor execution.
+         */
+        Process,
+        /**
+         * Put job success or failure result request.
+         */
+        Report
+    }
+
+    /**
+     * Counted job worker events.
+     */
+    public enum Count {
+        /**
+         * Jobs returned by poll for jobs requests.
+         */
+        JobsPolled,
+        /**
+         * Poll for jobs requests which returned no jobs.
+         */
+        EmptyPolls,
+        /**
+         * Jobs reported as succeeded.
+         */
+        JobsSucceeded,
+        /**
+         * Jobs reported as failed or which could not be processed.
+         */
+        JobsFailed,
+        /**
+         * Jobs rejected by the worker thread pool.
+         */
+        JobsRejected,
+        /**
+         * Jobs not acknowledged because the host could not take on the resources of their hint.
+         */
+        JobsDeferred,
+        /**
+         * Polls whose batch size was reduced, or which were skipped, because the host was short of resources.
+         */
+        HostLimitedPolls
+    }
+
+    /**
+     * Job service API calls whose latency and errors are recorded.
+     */
+    public enum Api {
+        /**
+         * Poll for jobs API.
+         */
+        PollForJobs,
+        /**
+         * Acknowledge job API.
+         */
+        AcknowledgeJob,
+        /**
+         * Put job success result API.
+         */
+        PutJobSuccessResult,
+        /**
+         * Put job failure result API.
+         */
+        PutJobFailureResult
+    }
+
+    private final String actionType;
+    private final Map<Phase, LatencyHistogram> latencies = new EnumMap<>(Phase.class);
+    private final Map<Count, LongAdder> counters = new EnumMap<>(Count.class);
+    private final Map<Api, LatencyHistogram> apiLatencies = new EnumMap<>(Api.class);
+    private final Map<Api, LongAdder> apiErrors = new EnumMap<>(Api.class);
+    private final Map<Api, LongAdder> apiThrottles = new EnumMap<>(Api.class);
+    private final Map<Api, LongAdder> apiHedges = new EnumMap<>(Api.class);
+    private final Map<Api, LongAdder> apiHedgeWins = new EnumMap<>(Api.class);
+
+    /**
+     * Initializes the metrics for an action type.
+     * @param actionType action type the metrics are tagged with
+     */
+    public JobWorkerMetrics(final String actionType) {
+        Validator.notNull(actionType);
+        this.actionType = actionType;
+        for (final Phase phase : Phase.values()) {
+            latencies.put(phase, new LatencyHistogram());
+        }
+        for (final Count count : Count.values()) {
+            counters.put(count, new LongAdder());
+        }
+        for (final Api api : Api.values()) {
+            apiLatencies.put(api, new LatencyHistogram());
+            apiErrors.put(api, new LongAdder());
+            apiThrottles.put(api, new LongAdder());
+            apiHedges.put(api, new LongAdder());
+            apiHedgeWins.put(api, new LongAdder());
+        }
+    }
+
+    /**
+     * @return action type the metrics are tagged with
+     */
+    public String getActionType() {
+        return actionType;
+    }
+
+    /**
+     * @param phase job phase
+     * @return latency histogram of the phase
+     */
+    public LatencyHistogram getLatency(final Phase phase) {
+        return latencies.get(phase);
+    }
+
+    /**
+     * Increments a counter by one.
+     * @param count counter
+     */
+    public void increment(final Count count) {
+        counters.get(count).increment();
+    }
+
+    /**
+     * Increments a counter.
+     * @param count counter
+     * @param amount amount to add
+     */
+    public void add(final Count count, final long amount) {
+        counters.get(count).add(amount);
+    }
+
+    /**
+     * @param count counter
+     * @return current counter value
+     */
+    public long getCount(final Count count) {
+        return counters.get(count).sum();
+    }
+
+    /**
+     * @param api job service API
+     * @return latency histogram of the API calls, including failed calls
+     */
+    public LatencyHistogram getApiLatency(final Api api) {
+        return apiLatencies.get(api);
+    }
+
+    /**
+     * Counts a failed API call.
+     * @param api job service API
+     */
+    public void incrementApiErrors(final Api api) {
+        apiErrors.get(api).increment();
+    }
+
+    /**
+     * @param api job service API
+     * @return number of failed API calls
+     */
+    public long getApiErrors(final Api api) {
+        return apiErrors.get(api).sum();
+    }
+
+    /**
+     * Counts an API call which was rejected because the request rate exceeded the limit.
+     * Throttled calls are counted as errors as well.
+     * @param api job service API
+     */
+    public void incrementApiThrottles(final Api api) {
+        apiThrottles.get(api).increment();
+    }
+
+    /**
+     * @param api job service API
+     * @return number of throttled API calls
+     */
+    public long getApiThrottles(final Api api) {
+        return apiThrottles.get(api).sum();
+    }
+
+    /**
+     * Counts a hedged request, a second request sent because the first did not answer in time.
+     * @param api job service API
+     */
+    public void incrementApiHedges(final Api api) {
+        apiHedges.get(api).increment();
+    }
+
+    /**
+     * @param api job service API
+     * @return number of hedged requests sent
+     */
+    public long getApiHedges(final Api api) {
+        return apiHedges.get(api).sum();
+    }
+
+    /**
+     * Counts a hedged request which answered before the first request.
+     * @param api job service API
+     */
+    public void incrementApiHedgeWins(final Api api) {
+        apiHedgeWins.get(api).increment();
+    }
+
+    /**
+     * @param api job service API
+     * @return number of hedged requests whose answer was used
+     */
+    public long getApiHedgeWins(final Api api) {
+        return apiHedgeWins.get(api).sum();
+    }
+}
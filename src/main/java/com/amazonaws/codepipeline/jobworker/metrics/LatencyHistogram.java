@@ -0,0 +1,247 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock free latency histogram with log-linear buckets, similar to an HDR histogram.
+ *
+ * Values are grouped by their highest bit, each group is split into 32 linear sub buckets.
+ * Recorded values are therefore reported with a relative error of at most 1/32 (about 3%),
+ * over the full range of long values. Recording is a few atomic increments and never allocates.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Number of buckets, values below the sub bucket count are recorded exactly.
+     */
+    static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a latency.
+     * @param nanos latency in nanoseconds, negative values are recorded as zero
+     */
+    public void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        buckets.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sum.add(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * Records the time elapsed since the given start time.
+     * @param startNanos start time taken from {@link System#nanoTime()}
+     */
+    public void recordSince(final long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * @return number of recorded latencies
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return sum of all recorded latencies in nanoseconds
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * @return highest recorded latency in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Takes a consistent enough copy of the histogram to compute percentiles.
+     * Values recorded while the snapshot is taken may or may not be included.
+     * @return snapshot of the histogram
+     */
+    public Snapshot snapshot() {
+        final long[] counts = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        return new Snapshot(counts, total, sum.sum(), max.get());
+    }
+
+    /**
+     * Computes cumulative counts for the given upper bounds without taking a snapshot.
+     * Like {@link Snapshot#getCountAtOrBelow(long)} a bound includes the whole bucket which contains it.
+     * @param upperBounds ascending upper bounds in nanoseconds
+     * @param counts receives the count at or below each bound, followed by the total count
+     */
+    void cumulativeCounts(final long[] upperBounds, final long[] counts) {
+        long seen = 0;
+        int bound = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            while (bound < upperBounds.length && bucketIndex(upperBounds[bound]) < i) {
+                counts[bound++] = seen;
+            }
+            seen += buckets.get(i);
+        }
+        while (bound < upperBounds.length) {
+            counts[bound++] = seen;
+        }
+        counts[upperBounds.length] = seen;
+    }
+
+    static int bucketIndex(final long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketUpperBound(final int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        final int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        final long subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        final long lowerBound = (SUB_BUCKET_COUNT + subBucket) << shift;
+        return lowerBound + ((1L << shift) - 1);
+    }
+
+    /**
+     * Point in time copy of a latency histogram.
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(final long[] counts, final long count, final long sum, final long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * @return number of recorded latencies
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return sum of all recorded latencies in nanoseconds
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * @return highest recorded latency in nanoseconds
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * @return mean latency in nanoseconds, zero if nothing was recorded
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Returns the latency at the given percentile.
+         * @param percentile percentile between 0 and 100
+         * @return latency in nanoseconds, zero if nothing was recorded
+         */
+        public long getValueAtPercentile(final double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile must be between 0 and 100");
+            }
+            if (count == 0) {
+                return 0;
+            }
+            final long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * Returns the latencies recorded between an earlier snapshot of the same histogram and this snapshot,
+         * e.g. to compute the percentiles of the last minute. The maximum of the window is not known,
+         * it is reported as the upper bound of the highest non-empty bucket.
+         * @param earlier snapshot taken before this snapshot
+         * @return snapshot of the latencies recorded in between
+         */
+        public Snapshot since(final Snapshot earlier) {
+            final long[] window = new long[counts.length];
+            long windowMax = 0;
+            for (int i = 0; i < counts.length; i++) {
+                window[i] = Math.max(0, counts[i] - earlier.counts[i]);
+                if (window[i] > 0) {
+                    windowMax = Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return new Snapshot(window,
+                    Math.max(0, count - earlier.count),
+                    Math.max(0, sum - earlier.sum),
+                    windowMax);
+        }
+
+        /**
+         * Returns the number of recorded latencies less than or equal to the given value,
+         * rounded to the bucket which contains the value.
+         * @param nanos latency in nanoseconds
+         * @return number of recorded latencies
+         */
+        public long getCountAtOrBelow(final long nanos) {
+            if (nanos < 0) {
+                return 0;
+            }
+            final int last = bucketIndex(nanos);
+            long result = 0;
+            for (int i = 0; i <= last; i++) {
+                result += counts[i];
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,506 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+import com.amazonaws.codepipeline.jobworker.CodePipelineJobPoller;
+import com.amazonaws.codepipeline.jobworker.Validator;
+import com.amazonaws.codepipeline.jobworker.accounting.JobAccounting;
+import com.amazonaws.codepipeline.jobworker.accounting.JobUsageTotals;
+import com.amazonaws.codepipeline.jobworker.admission.AdmissionController;
+import com.amazonaws.codepipeline.jobworker.admission.ResourceUsage;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Api;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Count;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Phase;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Embedded HTTP server which serves the job worker metrics in the Prometheus text format
+ * together with liveness and readiness checks driven by the poll loop heartbeat.
+ *
+ * <ul>
+ * <li>{@code /metrics}: poller, worker pool, job and job service API metrics</li>
+ * <li>{@code /health/live}: 200 while the poll loop completes polls, 503 otherwise</li>
+ * <li>{@code /health/ready}: 200 while the poll loop is alive and the last poll succeeded, 503 otherwise</li>
+ * </ul>
+ *
+ * Scrapes are served by a single thread into a reused buffer, encoding a response does not allocate.
+ */
+public class MetricsHttpServer implements AutoCloseable {
+
+    private static final Logger LOGGER = LogManager.getLogger(MetricsHttpServer.class);
+
+    /**
+     * Path of the Prometheus metrics.
+     */
+    public static final String METRICS_PATH = "/metrics";
+
+    /**
+     * Path of the liveness check.
+     */
+    public static final String LIVENESS_PATH = "/health/live";
+
+    /**
+     * Path of the readiness check.
+     */
+    public static final String READINESS_PATH = "/health/ready";
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final byte[] HEALTHY = "OK\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] UNHEALTHY = "UNAVAILABLE\n".getBytes(StandardCharsets.US_ASCII);
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_UNAVAILABLE = 503;
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private static final String PREFIX = "codepipeline_jobworker_";
+    private static final String ACTION_TYPE = "action_type";
+    private static final String LE = "le";
+    private static final String PHASE_DURATION = PREFIX + "phase_duration_seconds";
+    private static final String API_DURATION = PREFIX + "api_duration_seconds";
+    private static final String API_ERRORS = PREFIX + "api_errors_total";
+    private static final String API_THROTTLES = PREFIX + "api_throttles_total";
+    private static final String API_HEDGES = PREFIX + "api_hedges_total";
+    private static final String API_HEDGE_WINS = PREFIX + "api_hedge_wins_total";
+    private static final String STARTUP_PHASE = PREFIX + "startup_phase_seconds";
+    private static final String HTTP_CONNECT_DURATION = PREFIX + "http_connect_seconds";
+    private static final String CONFIGURATION = "configuration";
+    private static final String[] ACCOUNTED_JOBS = usageNames("accounted_jobs");
+    private static final String[] JOB_CPU = usageNames("job_cpu_seconds");
+    private static final String[] JOB_ALLOCATED = usageNames("job_allocated_bytes");
+    private static final String[] JOB_WALL = usageNames("job_wall_seconds");
+
+    /**
+     * Upper bounds of the histogram buckets exposed to Prometheus, from 1 ms to 15 minutes.
+     */
+    private static final long[] BUCKET_BOUNDS = {
+        TimeUnit.MILLISECONDS.toNanos(1),
+        TimeUnit.MILLISECONDS.toNanos(5),
+        TimeUnit.MILLISECONDS.toNanos(10),
+        TimeUnit.MILLISECONDS.toNanos(25),
+        TimeUnit.MILLISECONDS.toNanos(50),
+        TimeUnit.MILLISECONDS.toNanos(100),
+        TimeUnit.MILLISECONDS.toNanos(250),
+        TimeUnit.MILLISECONDS.toNanos(500),
+        TimeUnit.SECONDS.toNanos(1),
+        TimeUnit.MILLISECONDS.toNanos(2500),
+        TimeUnit.SECONDS.toNanos(5),
+        TimeUnit.SECONDS.toNanos(10),
+        TimeUnit.SECONDS.toNanos(30),
+        TimeUnit.MINUTES.toNanos(1),
+        TimeUnit.MINUTES.toNanos(5),
+        TimeUnit.MINUTES.toNanos(15)
+    };
+
+    private static final Phase[] PHASES = Phase.values();
+    private static final Api[] APIS = Api.values();
+    private static final Count[] COUNTS = Count.values();
+    private static final StartupTimer.Phase[] STARTUP_PHASES = StartupTimer.Phase.values();
+    private static final String[] COUNT_NAMES = new String[COUNTS.length];
+    private static final String[] COUNT_HELP = new String[COUNTS.length];
+
+    static {
+        for (final Count count : COUNTS) {
+            COUNT_NAMES[count.ordinal()] = PREFIX + snakeCase(count.name()) + "_total";
+            COUNT_HELP[count.ordinal()] = "Job worker event counter " + count.name() + ".";
+        }
+    }
+
+    private final MetricsRegistry registry;
+    private final PollHeartbeat heartbeat;
+    private final CodePipelineJobPoller jobPoller;
+    private final PrometheusTextWriter writer = new PrometheusTextWriter(INITIAL_BUFFER_SIZE);
+    private final long[] cumulativeCounts = new long[BUCKET_BOUNDS.length + 1];
+    private final HttpServer server;
+    private final ExecutorService executorService;
+
+    /**
+     * Starts the metrics server for the metrics of the registry and the poll loop heartbeat.
+     * @param port port to listen on, 0 to pick a free port
+     * @param registry registry the job poller records its metrics in
+     * @param heartbeat heartbeat of the poll loop
+     * @throws IOException if the server could not be bound to the port
+     */
+    public MetricsHttpServer(final int port,
+                             final MetricsRegistry registry,
+                             final PollHeartbeat heartbeat) throws IOException {
+        this(port, registry, heartbeat, null);
+    }
+
+    /**
+     * Starts the metrics server, which additionally exposes the worker pool and poll batch size of the job poller.
+     * @param port port to listen on, 0 to pick a free port
+     * @param registry registry the job poller records its metrics in
+     * @param heartbeat heartbeat of the poll loop
+     * @param jobPoller job poller, may be null
+     * @throws IOException if the server could not be bound to the port
+     */
+    public MetricsHttpServer(final int port,
+                             final MetricsRegistry registry,
+                             final PollHeartbeat heartbeat,
+                             final CodePipelineJobPoller jobPoller) throws IOException {
+        Validator.notNull(registry);
+        Validator.notNull(heartbeat);
+        this.registry = registry;
+        this.heartbeat = heartbeat;
+        this.jobPoller = jobPoller;
+
+        executorService = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "metrics-http");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(executorService);
+        server.createContext(METRICS_PATH, this::handleMetrics);
+        server.createContext(LIVENESS_PATH, exchange -> respondHealth(exchange, heartbeat.isAlive()));
+        server.createContext(READINESS_PATH, exchange -> respondHealth(exchange, heartbeat.isReady()));
+        server.start();
+        LOGGER.info("Serving metrics on port {}", Unbox.box(getPort()));
+    }
+
+    /**
+     * @return port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops the server, scrapes in progress are given one second to complete.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executorService.shutdown();
+    }
+
+    private void handleMetrics(final HttpExchange exchange) throws IOException {
+        try {
+            synchronized (writer) {
+                writer.reset();
+                encode();
+                exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+                exchange.sendResponseHeaders(HTTP_OK, writer.size());
+                try (OutputStream body = exchange.getResponseBody()) {
+                    writer.writeTo(body);
+                }
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void respondHealth(final HttpExchange exchange, final boolean healthy) throws IOException {
+        try {
+            final byte[] body = healthy ? HEALTHY : UNHEALTHY;
+            exchange.sendResponseHeaders(healthy ? HTTP_OK : HTTP_UNAVAILABLE, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Encodes all metrics into the writer.
+     */
+    void encode() {
+        encodePoller();
+        encodeStartup(registry.getStartupTimer());
+        encodeConnectionPool(registry.getConnectionPoolMetrics());
+        if (jobPoller != null) {
+            encodeExecutor(jobPoller.getExecutorService());
+            encodeAccounting(jobPoller.getMetrics().getActionType(), jobPoller.getJobAccounting());
+        }
+
+        for (final Count count : COUNTS) {
+            writer.type(COUNT_NAMES[count.ordinal()], COUNT_HELP[count.ordinal()], "counter");
+            for (final JobWorkerMetrics metrics : registry.values()) {
+                writer.sample(COUNT_NAMES[count.ordinal()])
+                        .label(true, ACTION_TYPE, metrics.getActionType())
+                        .value(true, metrics.getCount(count));
+            }
+        }
+
+        writer.type(PHASE_DURATION, "Latency of the job phases.", "histogram");
+        for (final JobWorkerMetrics metrics : registry.values()) {
+            for (final Phase phase : PHASES) {
+                encodeHistogram(PHASE_DURATION, metrics.getActionType(), "phase", phase.name(), metrics.getLatency(phase));
+            }
+        }
+
+        writer.type(API_DURATION, "Latency of the job service API calls.", "histogram");
+        for (final JobWorkerMetrics metrics : registry.values()) {
+            for (final Api api : APIS) {
+                encodeHistogram(API_DURATION, metrics.getActionType(), "api", api.name(), metrics.getApiLatency(api));
+            }
+        }
+
+        writer.type(API_ERRORS, "Failed job service API calls.", "counter");
+        for (final JobWorkerMetrics metrics : registry.values()) {
+            for (final Api api : APIS) {
+                writer.sample(API_ERRORS)
+                        .label(true, ACTION_TYPE, metrics.getActionType())
+                        .label(false, "api", api.name())
+                        .value(true, metrics.getApiErrors(api));
+            }
+        }
+
+        writer.type(API_THROTTLES, "Job service API calls rejected by the request rate limit.", "counter");
+        for (final JobWorkerMetrics metrics : registry.values()) {
+            for (final Api api : APIS) {
+                writer.sample(API_THROTTLES)
+                        .label(true, ACTION_TYPE, metrics.getActionType())
+                        .label(false, "api", api.name())
+                        .value(true, metrics.getApiThrottles(api));
+            }
+        }
+
+        writer.type(API_HEDGES, "Hedged job service API requests sent because the first request was slow.", "counter");
+        for (final JobWorkerMetrics metrics : registry.values()) {
+            for (final Api api : APIS) {
+                writer.sample(API_HEDGES)
+                        .label(true, ACTION_TYPE, metrics.getActionType())
+                        .label(false, "api", api.name())
+                        .value(true, metrics.getApiHedges(api));
+            }
+        }
+
+        writer.type(API_HEDGE_WINS, "Hedged job service API requests which answered first.", "counter");
+        for (final JobWorkerMetrics metrics : registry.values()) {
+            for (final Api api : APIS) {
+                writer.sample(API_HEDGE_WINS)
+                        .label(true, ACTION_TYPE, metrics.getActionType())
+                        .label(false, "api", api.name())
+                        .value(true, metrics.getApiHedgeWins(api));
+            }
+        }
+    }
+
+    /**
+     * @return encoded metrics, for tests
+     */
+    String scrape() {
+        synchronized (writer) {
+            writer.reset();
+            encode();
+            final ByteArrayOutputStream output = new ByteArrayOutputStream(writer.size());
+            try {
+                writer.writeTo(output);
+            } catch (final IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private void encodePoller() {
+        gauge(PREFIX + "last_poll_timestamp_seconds", "Time of the last completed poll.");
+        writer.sample(PREFIX + "last_poll_timestamp_seconds").valueSeconds(false, heartbeat.getLastBeat() * NANOS_PER_MILLI);
+        gauge(PREFIX + "polling_interval_seconds", "Interval the job poller is scheduled in.");
+        writer.sample(PREFIX + "polling_interval_seconds")
+                .valueSeconds(false, heartbeat.getPollingIntervalInMs() * NANOS_PER_MILLI);
+        gauge(PREFIX + "alive", "1 if the poll loop completes polls.");
+        writer.sample(PREFIX + "alive").value(false, heartbeat.isAlive() ? 1 : 0);
+        gauge(PREFIX + "ready", "1 if the poll loop is alive and the last poll succeeded.");
+        writer.sample(PREFIX + "ready").value(false, heartbeat.isReady() ? 1 : 0);
+        if (jobPoller != null) {
+            gauge(PREFIX + "poll_batch_size", "Maximum number of jobs processed in parallel.");
+            writer.sample(PREFIX + "poll_batch_size").value(false, jobPoller.getPollBatchSize());
+            encodeAdmission(jobPoller.getAdmissionController());
+        }
+    }
+
+    private void encodeAdmission(final AdmissionController admissionController) {
+        final ResourceUsage usage = admissionController.getLastUsage();
+        if (usage == null) {
+            return;
+        }
+        gauge(PREFIX + "host_cpu_load", "CPU load of the host measured before the last poll, between 0 and 1.");
+        // a fraction is written with the nine decimal places of a duration in seconds
+        writer.sample(PREFIX + "host_cpu_load").valueSeconds(false, Math.round(usage.getCpuLoad() * NANOS_PER_SECOND));
+        gauge(PREFIX + "host_free_memory_bytes", "Free physical memory of the host measured before the last poll.");
+        writer.sample(PREFIX + "host_free_memory_bytes").value(false, usage.getFreeMemoryBytes());
+        gauge(PREFIX + "host_free_disk_bytes", "Free disk space of the job directory measured before the last poll.");
+        writer.sample(PREFIX + "host_free_disk_bytes").value(false, usage.getFreeDiskBytes());
+        gauge(PREFIX + "host_reserved_memory_bytes", "Memory reserved by the resource hints of the jobs in progress.");
+        writer.sample(PREFIX + "host_reserved_memory_bytes").value(false, admissionController.getReservedMemoryBytes());
+        gauge(PREFIX + "host_reserved_disk_bytes", "Disk space reserved by the resource hints of the jobs in progress.");
+        writer.sample(PREFIX + "host_reserved_disk_bytes").value(false, admissionController.getReservedDiskBytes());
+    }
+
+    private void encodeAccounting(final String actionType, final JobAccounting jobAccounting) {
+        if (!jobAccounting.isEnabled()) {
+            return;
+        }
+        encodeUsage(ACCOUNTED_JOBS, "Jobs whose resource usage was measured.",
+                actionType, jobAccounting, JobUsageTotals::getJobs, false);
+        encodeUsage(JOB_CPU, "CPU time of the job worker threads.",
+                actionType, jobAccounting, JobUsageTotals::getCpuNanos, true);
+        encodeUsage(JOB_ALLOCATED, "Heap memory allocated by the job worker threads.",
+                actionType, jobAccounting, JobUsageTotals::getAllocatedBytes, false);
+        encodeUsage(JOB_WALL, "Time from the start of processing to the end of reporting of the jobs.",
+                actionType, jobAccounting, JobUsageTotals::getWallNanos, true);
+    }
+
+    private void encodeUsage(final String[] names,
+                             final String help,
+                             final String actionType,
+                             final JobAccounting jobAccounting,
+                             final ToLongFunction<JobUsageTotals> field,
+                             final boolean nanos) {
+        writer.type(names[0], help, "counter");
+        encodeUsageValue(writer.sample(names[0]).label(true, ACTION_TYPE, actionType),
+                field.applyAsLong(jobAccounting.getTotal()), nanos);
+        if (jobAccounting.getConfigurationKey() == null) {
+            return;
+        }
+        writer.type(names[1], help, "counter");
+        for (final Map.Entry<String, JobUsageTotals> entry : jobAccounting.getByConfiguration().entrySet()) {
+            encodeUsageValue(writer.sample(names[1])
+                            .label(true, ACTION_TYPE, actionType)
+                            .label(false, CONFIGURATION, entry.getKey()),
+                    field.applyAsLong(entry.getValue()), nanos);
+        }
+    }
+
+    private static void encodeUsageValue(final PrometheusTextWriter sample, final long value, final boolean nanos) {
+        if (nanos) {
+            sample.valueSeconds(true, value);
+        } else {
+            sample.value(true, value);
+        }
+    }
+
+    private void encodeStartup(final StartupTimer startupTimer) {
+        gauge(STARTUP_PHASE, "Duration of the start up phases, FirstPoll is the time from JVM start to the first poll.");
+        for (final StartupTimer.Phase phase : STARTUP_PHASES) {
+            final long duration = startupTimer.getDuration(phase);
+            if (duration >= 0) {
+                writer.sample(STARTUP_PHASE).label(true, "phase", phase.name()).valueSeconds(true, duration);
+            }
+        }
+    }
+
+    private void encodeConnectionPool(final ConnectionPoolMetrics connectionPool) {
+        writer.type(PREFIX + "http_requests_total", "HTTP requests of the job service client.", "counter");
+        writer.sample(PREFIX + "http_requests_total").value(false, connectionPool.getRequests());
+        writer.type(PREFIX + "http_connections_opened_total", "Connections opened by the job service client.", "counter");
+        writer.sample(PREFIX + "http_connections_opened_total").value(false, connectionPool.getConnectionsOpened());
+        gauge(PREFIX + "http_pool_leased_connections", "Connections leased from the pool before the last request.");
+        writer.sample(PREFIX + "http_pool_leased_connections").value(false, connectionPool.getLeasedConnections());
+        gauge(PREFIX + "http_pool_available_connections", "Idle pooled connections before the last request.");
+        writer.sample(PREFIX + "http_pool_available_connections").value(false, connectionPool.getAvailableConnections());
+        gauge(PREFIX + "http_pool_pending_requests", "Requests waiting for a pooled connection before the last request.");
+        writer.sample(PREFIX + "http_pool_pending_requests").value(false, connectionPool.getPendingRequests());
+
+        writer.type(HTTP_CONNECT_DURATION, "Time to connect and complete the TLS handshake of new connections.", "histogram");
+        final LatencyHistogram histogram = connectionPool.getConnectLatency();
+        histogram.cumulativeCounts(BUCKET_BOUNDS, cumulativeCounts);
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            writer.sample(HTTP_CONNECT_DURATION, "_bucket")
+                    .labelSeconds(true, LE, BUCKET_BOUNDS[i])
+                    .value(true, cumulativeCounts[i]);
+        }
+        writer.sample(HTTP_CONNECT_DURATION, "_bucket")
+                .labelInfinity(true, LE)
+                .value(true, cumulativeCounts[BUCKET_BOUNDS.length]);
+        writer.sample(HTTP_CONNECT_DURATION, "_sum").valueSeconds(false, histogram.getSum());
+        writer.sample(HTTP_CONNECT_DURATION, "_count").value(false, cumulativeCounts[BUCKET_BOUNDS.length]);
+    }
+
+    private void encodeExecutor(final ThreadPoolExecutor executor) {
+        gauge(PREFIX + "executor_core_pool_size", "Core size of the worker pool.");
+        writer.sample(PREFIX + "executor_core_pool_size").value(false, executor.getCorePoolSize());
+        gauge(PREFIX + "executor_max_pool_size", "Maximum size of the worker pool.");
+        writer.sample(PREFIX + "executor_max_pool_size").value(false, executor.getMaximumPoolSize());
+        gauge(PREFIX + "executor_pool_size", "Current number of threads in the worker pool.");
+        writer.sample(PREFIX + "executor_pool_size").value(false, executor.getPoolSize());
+        gauge(PREFIX + "executor_active_threads", "Worker threads processing a job.");
+        writer.sample(PREFIX + "executor_active_threads").value(false, executor.getActiveCount());
+        gauge(PREFIX + "executor_queue_size", "Jobs waiting for a worker thread.");
+        writer.sample(PREFIX + "executor_queue_size").value(false, executor.getQueue().size());
+        writer.type(PREFIX + "executor_completed_tasks_total", "Jobs completed by the worker pool.", "counter");
+        writer.sample(PREFIX + "executor_completed_tasks_total").value(false, executor.getCompletedTaskCount());
+    }
+
+    private void encodeHistogram(final String name,
+                                 final String actionType,
+                                 final String labelName,
+                                 final String labelValue,
+                                 final LatencyHistogram histogram) {
+        histogram.cumulativeCounts(BUCKET_BOUNDS, cumulativeCounts);
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            writer.sample(name, "_bucket")
+                    .label(true, ACTION_TYPE, actionType)
+                    .label(false, labelName, labelValue)
+                    .labelSeconds(false, LE, BUCKET_BOUNDS[i])
+                    .value(true, cumulativeCounts[i]);
+        }
+        writer.sample(name, "_bucket")
+                .label(true, ACTION_TYPE, actionType)
+                .label(false, labelName, labelValue)
+                .labelInfinity(false, LE)
+                .value(true, cumulativeCounts[BUCKET_BOUNDS.length]);
+        writer.sample(name, "_sum")
+                .label(true, ACTION_TYPE, actionType)
+                .label(false, labelName, labelValue)
+                .valueSeconds(true, histogram.getSum());
+        writer.sample(name, "_count")
+                .label(true, ACTION_TYPE, actionType)
+                .label(false, labelName, labelValue)
+                .value(true, cumulativeCounts[BUCKET_BOUNDS.length]);
+    }
+
+    private void gauge(final String name, final String help) {
+        writer.type(name, help, "gauge");
+    }
+
+    /**
+     * @return names of the counter per action type and of the counter per action type and configuration value
+     */
+    private static String[] usageNames(final String name) {
+        return new String[] {PREFIX + name + "_total", PREFIX + name + "_by_configuration_total"};
+    }
+
+    private static String snakeCase(final String camelCase) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < camelCase.length(); i++) {
+            final char c = camelCase.charAt(i);
+            if (Character.isUpperCase(c) && i > 0) {
+                builder.append('_');
+            }
+            builder.append(Character.toLowerCase(c));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.amazonaws.codepipeline.jobworker.Validator;
+import com.amazonaws.codepipeline.jobworker.model.ActionTypeId;
+
+/**
+ * Registry of the job worker metrics of all action types polled by this process.
+ */
+public class MetricsRegistry {
+
+    /**
+     * Tag of the metrics of a job poller whose action type is not known.
+     */
+    public static final String UNTAGGED = "untagged";
+
+    private static final MetricsRegistry DEFAULT_REGISTRY = new MetricsRegistry();
+
+    private final Map<String, JobWorkerMetrics> metrics = new ConcurrentHashMap<>();
+    private final StartupTimer startupTimer = new StartupTimer();
+    private final ConnectionPoolMetrics connectionPoolMetrics = new ConnectionPoolMetrics();
+
+    /**
+     * @return registry shared by all job pollers of this process
+     */
+    public static MetricsRegistry defaultRegistry() {
+        return DEFAULT_REGISTRY;
+    }
+
+    /**
+     * Returns the metrics of an action type, creates them on first use.
+     * @param actionTypeId action type identifier
+     * @return metrics of the action type
+     */
+    public JobWorkerMetrics forActionType(final ActionTypeId actionTypeId) {
+        Validator.notNull(actionTypeId);
+        return metrics.computeIfAbsent(tag(actionTypeId), JobWorkerMetrics::new);
+    }
+
+    /**
+     * Returns the metrics of job pollers whose action type is not known, creates them on first use.
+     * @return untagged metrics
+     */
+    public JobWorkerMetrics untagged() {
+        return metrics.computeIfAbsent(UNTAGGED, JobWorkerMetrics::new);
+    }
+
+    /**
+     * @return durations of the start up phases of this process
+     */
+    public StartupTimer getStartupTimer() {
+        return startupTimer;
+    }
+
+    /**
+     * @return connection pool usage of the job service HTTP clients of this process
+     */
+    public ConnectionPoolMetrics getConnectionPoolMetrics() {
+        return connectionPoolMetrics;
+    }
+
+    /**
+     * @return metrics of all action types
+     */
+    public Collection<JobWorkerMetrics> getAll() {
+        return Collections.unmodifiableCollection(new ArrayList<>(metrics.values()));
+    }
+
+    /**
+     * @return live view of the metrics of all action types, iterating it does not copy the registry
+     */
+    Collection<JobWorkerMetrics> values() {
+        return metrics.values();
+    }
+
+    /**
+     * Formats the action type tag, e.g. Deploy/Custom/MyCustomAction/1
+     * @param actionTypeId action type identifier
+     * @return action type tag
+     */
+    public static String tag(final ActionTypeId actionTypeId) {
+        return actionTypeId.getCategory() + "/" + actionTypeId.getOwner() + "/"
+                + actionTypeId.getProvider() + "/" + actionTypeId.getVersion();
+    }
+}
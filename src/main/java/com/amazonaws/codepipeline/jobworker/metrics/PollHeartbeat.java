@@ -0,0 +1,95 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Heartbeat of the poll loop, beats whenever a scheduled poll completes.
+ *
+ * The job worker is alive as long as the poll loop completed a poll within the last few polling intervals,
+ * a poll which hangs or a poll loop which is no longer scheduled stops the heartbeat.
+ * It is ready when it is alive and the last poll succeeded.
+ */
+public class PollHeartbeat {
+
+    /**
+     * Number of polling intervals without a completed poll after which the job worker is no longer alive.
+     */
+    public static final int MISSED_POLLS_TOLERATED = 3;
+
+    private final LongSupplier clock;
+
+    private volatile long pollingIntervalInMs;
+    private volatile long lastBeat;
+    private volatile boolean lastPollSucceeded;
+
+    /**
+     * Initializes the heartbeat, the job worker is considered alive for the first polling intervals.
+     * @param pollingIntervalInMs the poll interval in milliseconds
+     */
+    public PollHeartbeat(final long pollingIntervalInMs) {
+        this(pollingIntervalInMs, System::currentTimeMillis);
+    }
+
+    PollHeartbeat(final long pollingIntervalInMs, final LongSupplier clock) {
+        this.clock = clock;
+        this.pollingIntervalInMs = pollingIntervalInMs;
+        this.lastBeat = clock.getAsLong();
+    }
+
+    /**
+     * Records a completed poll.
+     * @param succeeded true if the poll completed without an exception
+     */
+    public void beat(final boolean succeeded) {
+        lastPollSucceeded = succeeded;
+        lastBeat = clock.getAsLong();
+    }
+
+    /**
+     * Updates the polling interval the heartbeat is expected in.
+     * @param pollingIntervalInMs the poll interval in milliseconds
+     */
+    public void setPollingIntervalInMs(final long pollingIntervalInMs) {
+        this.pollingIntervalInMs = pollingIntervalInMs;
+    }
+
+    /**
+     * @return the poll interval in milliseconds
+     */
+    public long getPollingIntervalInMs() {
+        return pollingIntervalInMs;
+    }
+
+    /**
+     * @return time of the last completed poll, or of the start of the heartbeat, in epoch milliseconds
+     */
+    public long getLastBeat() {
+        return lastBeat;
+    }
+
+    /**
+     * @return true if the poll loop completed a poll recently
+     */
+    public boolean isAlive() {
+        return clock.getAsLong() - lastBeat <= MISSED_POLLS_TOLERATED * pollingIntervalInMs;
+    }
+
+    /**
+     * @return true if the poll loop is alive and the last poll succeeded
+     */
+    public boolean isReady() {
+        return lastPollSucceeded && isAlive();
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Encodes the Prometheus text exposition format into a reusable byte buffer.
+ * Numbers and strings are written byte by byte, once the buffer has grown to the size of a response
+ * encoding does not allocate. Not thread safe.
+ */
+final class PrometheusTextWriter {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final int NANO_DIGITS = 9;
+
+    private byte[] buffer;
+    private int size;
+
+    PrometheusTextWriter(final int initialCapacity) {
+        buffer = new byte[initialCapacity];
+    }
+
+    void reset() {
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void writeTo(final OutputStream output) throws IOException {
+        output.write(buffer, 0, size);
+    }
+
+    /**
+     * Writes a metric family header with its type.
+     */
+    PrometheusTextWriter type(final String name, final String help, final String type) {
+        return ascii("# HELP ").ascii(name).append(' ').ascii(help).append('\n')
+                .ascii("# TYPE ").ascii(name).append(' ').ascii(type).append('\n');
+    }
+
+    /**
+     * Writes a sample name, labels are added with {@link #label} and closed by the value.
+     */
+    PrometheusTextWriter sample(final String name) {
+        return ascii(name);
+    }
+
+    PrometheusTextWriter sample(final String name, final String suffix) {
+        return ascii(name).ascii(suffix);
+    }
+
+    PrometheusTextWriter label(final boolean first, final String name, final String value) {
+        append(first ? '{' : ',').ascii(name).ascii("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                append('\\').append(c);
+            } else if (c == '\n') {
+                append('\\').append('n');
+            } else {
+                append(c);
+            }
+        }
+        return append('"');
+    }
+
+    PrometheusTextWriter labelSeconds(final boolean first, final String name, final long nanos) {
+        append(first ? '{' : ',').ascii(name).ascii("=\"");
+        seconds(nanos);
+        return append('"');
+    }
+
+    /**
+     * Ends the sample with an integer value.
+     */
+    void value(final boolean labelled, final long value) {
+        if (labelled) {
+            append('}');
+        }
+        append(' ');
+        number(value);
+        append('\n');
+    }
+
+    /**
+     * Ends the sample with a duration in seconds.
+     */
+    void valueSeconds(final boolean labelled, final long nanos) {
+        if (labelled) {
+            append('}');
+        }
+        append(' ');
+        seconds(nanos);
+        append('\n');
+    }
+
+    /**
+     * Writes a label with the value +Inf, used for the last histogram bucket.
+     */
+    PrometheusTextWriter labelInfinity(final boolean first, final String name) {
+        return append(first ? '{' : ',').ascii(name).ascii("=\"+Inf\"");
+    }
+
+    PrometheusTextWriter ascii(final String value) {
+        ensureCapacity(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            buffer[size++] = (byte) value.charAt(i);
+        }
+        return this;
+    }
+
+    private PrometheusTextWriter append(final char c) {
+        if (c < 0x80) {
+            ensureCapacity(1);
+            buffer[size++] = (byte) c;
+        } else if (c < 0x800) {
+            ensureCapacity(2);
+            buffer[size++] = (byte) (0xC0 | c >> 6);
+            buffer[size++] = (byte) (0x80 | c & 0x3F);
+        } else {
+            // Surrogate pairs are written as replacement characters, action type names are plain ASCII.
+            final char encoded = Character.isSurrogate(c) ? '\uFFFD' : c;
+            ensureCapacity(3);
+            buffer[size++] = (byte) (0xE0 | encoded >> 12);
+            buffer[size++] = (byte) (0x80 | encoded >> 6 & 0x3F);
+            buffer[size++] = (byte) (0x80 | encoded & 0x3F);
+        }
+        return this;
+    }
+
+    private void number(final long value) {
+        if (value == Long.MIN_VALUE) {
+            ascii("-9223372036854775808");
+            return;
+        }
+        long remaining = value;
+        if (remaining < 0) {
+            append('-');
+            remaining = -remaining;
+        }
+        digits(remaining, 1);
+    }
+
+    private void seconds(final long nanos) {
+        long remaining = nanos;
+        if (remaining < 0) {
+            append('-');
+            remaining = remaining == Long.MIN_VALUE ? Long.MAX_VALUE : -remaining;
+        }
+        digits(remaining / NANOS_PER_SECOND, 1);
+        append('.');
+        long fraction = remaining % NANOS_PER_SECOND;
+        int fractionDigits = NANO_DIGITS;
+        while (fractionDigits > 1 && fraction % 10 == 0) {
+            fraction /= 10;
+            fractionDigits--;
+        }
+        digits(fraction, fractionDigits);
+    }
+
+    /**
+     * Writes a non negative number, left padded with zeros to the minimum number of digits.
+     */
+    private void digits(final long value, final int minDigits) {
+        int length = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            length++;
+        }
+        length = Math.max(length, minDigits);
+        ensureCapacity(length);
+        long rest = value;
+        for (int i = size + length - 1; i >= size; i--) {
+            buffer[i] = (byte) ('0' + rest % 10);
+            rest /= 10;
+        }
+        size += length;
+    }
+
+    private void ensureCapacity(final int additional) {
+        if (size + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + additional));
+        }
+    }
+}
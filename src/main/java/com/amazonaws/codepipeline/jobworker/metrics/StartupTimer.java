@@ -0,0 +1,108 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Durations of the start up phases of the job worker, to see how long a new worker takes until it polls.
+ */
+public class StartupTimer {
+
+    /**
+     * Start up phases.
+     */
+    public enum Phase {
+        /**
+         * Loading the configuration and creating the job poller, includes the job service and worker pool phases.
+         */
+        Configuration,
+        /**
+         * Resolving the region and creating the job service client, runs in parallel to the rest of the configuration.
+         */
+        JobService,
+        /**
+         * Creating the worker thread pool and starting its threads.
+         */
+        WorkerPool,
+        /**
+         * Starting the daemon: metrics server, poll schedule and management interface.
+         */
+        Start,
+        /**
+         * Time from the start of the JVM until the first poll completed.
+         */
+        FirstPoll
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final AtomicLongArray durations = new AtomicLongArray(PHASES.length);
+
+    /**
+     * Initializes the timer, no phase is recorded.
+     */
+    public StartupTimer() {
+        for (int i = 0; i < PHASES.length; i++) {
+            durations.set(i, -1);
+        }
+    }
+
+    /**
+     * Records the duration of a phase which started at the given time.
+     * @param phase start up phase
+     * @param startNanos start time taken from {@link System#nanoTime()}
+     */
+    public void recordSince(final Phase phase, final long startNanos) {
+        durations.set(phase.ordinal(), System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records the JVM uptime as the time to the first poll, only the first call has an effect.
+     * @return true if this was the first poll
+     */
+    public boolean recordFirstPoll() {
+        if (durations.get(Phase.FirstPoll.ordinal()) >= 0) {
+            return false;
+        }
+        final long uptimeNanos = TimeUnit.MILLISECONDS.toNanos(ManagementFactory.getRuntimeMXBean().getUptime());
+        return durations.compareAndSet(Phase.FirstPoll.ordinal(), -1, uptimeNanos);
+    }
+
+    /**
+     * @param phase start up phase
+     * @return duration of the phase in nanoseconds, -1 if the phase was not recorded
+     */
+    public long getDuration(final Phase phase) {
+        return durations.get(phase.ordinal());
+    }
+
+    /**
+     * @return recorded phases and their durations in milliseconds, e.g. for the log
+     */
+    public String summary() {
+        final StringBuilder builder = new StringBuilder();
+        for (final Phase phase : PHASES) {
+            final long duration = getDuration(phase);
+            if (duration >= 0) {
+                if (builder.length() > 0) {
+                    builder.append(", ");
+                }
+                builder.append(phase.name()).append(' ').append(TimeUnit.NANOSECONDS.toMillis(duration)).append(" ms");
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -12,10 +12,6 @@
  */
 package com.amazonaws.codepipeline.jobworker.plugin;
 
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
-
 import com.amazonaws.codepipeline.jobworker.model.ActionTypeId;
 import com.amazonaws.codepipeline.jobworker.model.Artifact;
 import com.amazonaws.codepipeline.jobworker.model.CurrentRevision;
@@ -33,6 +29,7 @@ import com.amazonaws.codepipeline.jobworker.model.AWSSessionCredentials;
 
 /**
  * Converts between the CodePipeline FrontEnd Job data structures and internal job worker structures.
+ * Job data is converted lazily, see {@link LazyJobData}.
  */
 public class JobConverter {
 
@@ -64,32 +61,24 @@ public class JobConverter {
     }
 
     private final static JobData convert(final com.amazonaws.services.codepipeline.model.JobData jobData) {
-        Map<String, String> actionConfiguration = null;
-        if (jobData.getActionConfiguration() != null) {
-            actionConfiguration = jobData.getActionConfiguration().getConfiguration();
-        }
-        return new JobData(actionConfiguration,
-                convert(jobData.getInputArtifacts()),
-                convert(jobData.getOutputArtifacts()),
-                convert(jobData.getArtifactCredentials()),
+        return new LazyJobData(jobData.getActionConfiguration(),
+                jobData.getInputArtifacts(),
+                jobData.getOutputArtifacts(),
+                jobData.getArtifactCredentials(),
                 jobData.getContinuationToken(),
-                convert(jobData.getEncryptionKey()));
+                jobData.getEncryptionKey());
     }
 
     private final static JobData convert(final com.amazonaws.services.codepipeline.model.ThirdPartyJobData jobData) {
-        Map<String, String> actionConfiguration = null;
-        if (jobData.getActionConfiguration() != null) {
-            actionConfiguration = jobData.getActionConfiguration().getConfiguration();
-        }
-        return new JobData(actionConfiguration,
-                convert(jobData.getInputArtifacts()),
-                convert(jobData.getOutputArtifacts()),
-                convert(jobData.getArtifactCredentials()),
+        return new LazyJobData(jobData.getActionConfiguration(),
+                jobData.getInputArtifacts(),
+                jobData.getOutputArtifacts(),
+                jobData.getArtifactCredentials(),
                 jobData.getContinuationToken(),
-                convert(jobData.getEncryptionKey()));
+                jobData.getEncryptionKey());
     }
 
-    private final static AWSSessionCredentials convert(final com.amazonaws.services.codepipeline.model.AWSSessionCredentials actionCredentials) {
+    final static AWSSessionCredentials convert(final com.amazonaws.services.codepipeline.model.AWSSessionCredentials actionCredentials) {
         if (actionCredentials == null) {
             return null;
         }
@@ -98,7 +87,7 @@ public class JobConverter {
                 actionCredentials.getSessionToken());
     }
 
-    private final static EncryptionKey convert(final com.amazonaws.services.codepipeline.model.EncryptionKey encryptionKey) {
+    final static EncryptionKey convert(final com.amazonaws.services.codepipeline.model.EncryptionKey encryptionKey) {
         if (encryptionKey == null) {
             return null;
         }
@@ -106,16 +95,7 @@ public class JobConverter {
                 encryptionKey.getId());
     }
 
-    private final static List<Artifact> convert(final List<com.amazonaws.services.codepipeline.model.Artifact> artifacts) {
-        if (artifacts == null) {
-            return null;
-        }
-        return artifacts.stream()
-                .map(a -> convert(a))
-                .collect(Collectors.toList());
-    }
-
-    private final static Artifact convert(final com.amazonaws.services.codepipeline.model.Artifact artifact) {
+    final static Artifact convert(final com.amazonaws.services.codepipeline.model.Artifact artifact) {
         String bucketName = null;
         String objectKey = null;
         if (artifact.getLocation() != null && artifact.getLocation().getS3Location() != null) {
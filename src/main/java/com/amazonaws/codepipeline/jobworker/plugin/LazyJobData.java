@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.plugin;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+import com.amazonaws.codepipeline.jobworker.model.AWSSessionCredentials;
+import com.amazonaws.codepipeline.jobworker.model.Artifact;
+import com.amazonaws.codepipeline.jobworker.model.EncryptionKey;
+import com.amazonaws.codepipeline.jobworker.model.JobData;
+import com.amazonaws.services.codepipeline.model.ActionConfiguration;
+
+/**
+ * Job data view over the CodePipeline job data structures.
+ * Fields are converted into the job worker model on first access and the result is reused afterwards,
+ * so fields the job processor never reads are never copied. Like {@link JobData} the view is immutable,
+ * the CodePipeline structures passed in must not be modified afterwards.
+ */
+final class LazyJobData extends JobData {
+    private final ActionConfiguration actionConfiguration;
+    private final List<com.amazonaws.services.codepipeline.model.Artifact> inputArtifacts;
+    private final List<com.amazonaws.services.codepipeline.model.Artifact> outputArtifacts;
+    private final com.amazonaws.services.codepipeline.model.AWSSessionCredentials artifactCredentials;
+    private final String continuationToken;
+    private final com.amazonaws.services.codepipeline.model.EncryptionKey encryptionKey;
+
+    // Converted values are immutable, so concurrent first accesses may convert twice but always see consistent values.
+    private volatile Map<String, String> convertedActionConfiguration;
+    private volatile List<Artifact> convertedInputArtifacts;
+    private volatile List<Artifact> convertedOutputArtifacts;
+    private volatile AWSSessionCredentials convertedArtifactCredentials;
+    private volatile EncryptionKey convertedEncryptionKey;
+
+    LazyJobData(final ActionConfiguration actionConfiguration,
+                final List<com.amazonaws.services.codepipeline.model.Artifact> inputArtifacts,
+                final List<com.amazonaws.services.codepipeline.model.Artifact> outputArtifacts,
+                final com.amazonaws.services.codepipeline.model.AWSSessionCredentials artifactCredentials,
+                final String continuationToken,
+                final com.amazonaws.services.codepipeline.model.EncryptionKey encryptionKey) {
+        super(null, null, null, null, null, null);
+        this.actionConfiguration = actionConfiguration;
+        this.inputArtifacts = inputArtifacts;
+        this.outputArtifacts = outputArtifacts;
+        this.artifactCredentials = artifactCredentials;
+        this.continuationToken = continuationToken;
+        this.encryptionKey = encryptionKey;
+    }
+
+    @Override
+    public Map<String, String> getActionConfiguration() {
+        Map<String, String> result = convertedActionConfiguration;
+        if (result == null) {
+            if (actionConfiguration == null || actionConfiguration.getConfiguration() == null) {
+                result = Collections.emptyMap();
+            } else {
+                result = Collections.unmodifiableMap(actionConfiguration.getConfiguration());
+            }
+            convertedActionConfiguration = result;
+        }
+        return result;
+    }
+
+    @Override
+    public List<Artifact> getInputArtifacts() {
+        List<Artifact> result = convertedInputArtifacts;
+        if (result == null) {
+            result = artifacts(inputArtifacts);
+            convertedInputArtifacts = result;
+        }
+        return result;
+    }
+
+    @Override
+    public List<Artifact> getOutputArtifacts() {
+        List<Artifact> result = convertedOutputArtifacts;
+        if (result == null) {
+            result = artifacts(outputArtifacts);
+            convertedOutputArtifacts = result;
+        }
+        return result;
+    }
+
+    @Override
+    public AWSSessionCredentials getArtifactCredentials() {
+        AWSSessionCredentials result = convertedArtifactCredentials;
+        if (result == null && artifactCredentials != null) {
+            result = JobConverter.convert(artifactCredentials);
+            convertedArtifactCredentials = result;
+        }
+        return result;
+    }
+
+    @Override
+    public String getContinuationToken() {
+        return continuationToken;
+    }
+
+    @Override
+    public EncryptionKey getEncryptionKey() {
+        EncryptionKey result = convertedEncryptionKey;
+        if (result == null && encryptionKey != null) {
+            result = JobConverter.convert(encryptionKey);
+            convertedEncryptionKey = result;
+        }
+        return result;
+    }
+
+    private static List<Artifact> artifacts(final List<com.amazonaws.services.codepipeline.model.Artifact> artifacts) {
+        if (artifacts == null || artifacts.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return new ArtifactList(artifacts);
+    }
+
+    /**
+     * Read only list which converts each artifact when it is first read.
+     */
+    private static final class ArtifactList extends AbstractList<Artifact> implements RandomAccess {
+        private final List<com.amazonaws.services.codepipeline.model.Artifact> artifacts;
+        private final Artifact[] converted;
+
+        private ArtifactList(final List<com.amazonaws.services.codepipeline.model.Artifact> artifacts) {
+            this.artifacts = artifacts;
+            this.converted = new Artifact[artifacts.size()];
+        }
+
+        @Override
+        public Artifact get(final int index) {
+            Artifact artifact = converted[index];
+            if (artifact == null) {
+                // Artifacts only have final fields and are safely published without synchronization.
+                artifact = JobConverter.convert(artifacts.get(index));
+                converted[index] = artifact;
+            }
+            return artifact;
+        }
+
+        @Override
+        public int size() {
+            return converted.length;
+        }
+    }
+}
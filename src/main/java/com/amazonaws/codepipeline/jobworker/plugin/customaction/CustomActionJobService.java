@@ -18,6 +18,7 @@ import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.amazonaws.codepipeline.jobworker.LogMarkers;
 import com.amazonaws.codepipeline.jobworker.JobService;
 import com.amazonaws.codepipeline.jobworker.Validator;
 import com.amazonaws.codepipeline.jobworker.model.ActionTypeId;
@@ -67,7 +68,7 @@ public class CustomActionJobService implements JobService {
      */
     @Override
     public List<WorkItem> pollForJobs(final int maxBatchSize) {
-        LOGGER.info(String.format("PollForJobs for action type id %s", actionTypeId));
+        LOGGER.info(LogMarkers.JOB, "PollForJobs for action type id {}", actionTypeId);
         final List<WorkItem> result = new ArrayList<>();
 
         final PollForJobsRequest pollForJobsRequest = new PollForJobsRequest();
@@ -91,7 +92,7 @@ public class CustomActionJobService implements JobService {
      */
     @Override
     public JobStatus acknowledgeJob(final String jobId, final String clientId, final String nonce) {
-        LOGGER.info(String.format("AcknowledgeJob for job '%s' and nonce '%s'", jobId, nonce));
+        LOGGER.info(LogMarkers.JOB, "AcknowledgeJob for job '{}' and nonce '{}'", jobId, nonce);
         final AcknowledgeJobRequest request = new AcknowledgeJobRequest();
         request.setJobId(jobId);
         request.setNonce(nonce);
@@ -113,7 +114,7 @@ public class CustomActionJobService implements JobService {
                               final ExecutionDetails executionDetails,
                               final CurrentRevision currentRevision,
                               final String continuationToken) {
-        LOGGER.info(String.format("PutJobSuccessResult for job '%s'", jobId));
+        LOGGER.info(LogMarkers.JOB, "PutJobSuccessResult for job '{}'", jobId);
         final PutJobSuccessResultRequest request = new PutJobSuccessResultRequest();
         request.setJobId(jobId);
         request.setExecutionDetails(JobConverter.convert(executionDetails));
@@ -130,7 +131,7 @@ public class CustomActionJobService implements JobService {
      */
     @Override
     public void putJobFailure(final String jobId, final String clientId, final FailureDetails failureDetails) {
-        LOGGER.info(String.format("PutJobFailureResult for job '%s'", jobId));
+        LOGGER.info(LogMarkers.JOB, "PutJobFailureResult for job '{}'", jobId);
         final PutJobFailureResultRequest request = new PutJobFailureResultRequest();
         request.setJobId(jobId);
         request.setFailureDetails(JobConverter.convert(failureDetails));
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.plugin.thirdparty;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.codepipeline.jobworker.Validator;
+
+/**
+ * Client token provider which caches the client tokens looked up by another provider.
+ *
+ * Every cached token expires independently after the configured time to live. Tokens which are used
+ * shortly before they expire are refreshed in the background, so jobs keep using the cached token while
+ * the new one is looked up. Concurrent look ups of the same missing client id are coalesced into a single
+ * call to the underlying provider. Once the cache is full the tokens closest to expiry are evicted.
+ */
+public class CachingClientTokenProvider implements ClientTokenProvider {
+
+    private static final Logger LOGGER = LogManager.getLogger(CachingClientTokenProvider.class);
+
+    /**
+     * Default time a client token is cached.
+     */
+    public static final long DEFAULT_TTL_MS = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * Default time before expiry after which a used client token is refreshed in the background.
+     */
+    public static final long DEFAULT_REFRESH_AHEAD_MS = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * Default maximum number of cached client tokens.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private final ClientTokenProvider clientTokenProvider;
+    private final Executor refreshExecutor;
+    private final long ttlMs;
+    private final long refreshAheadMs;
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Initializes the cache with default settings and a single background thread for refreshes.
+     * @param clientTokenProvider client token provider to look up tokens which are not cached
+     */
+    public CachingClientTokenProvider(final ClientTokenProvider clientTokenProvider) {
+        this(clientTokenProvider, newRefreshExecutor(), DEFAULT_TTL_MS, DEFAULT_REFRESH_AHEAD_MS, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Initializes the cache.
+     * @param clientTokenProvider client token provider to look up tokens which are not cached
+     * @param refreshExecutor executor which runs background refreshes
+     * @param ttlMs time a client token is cached
+     * @param refreshAheadMs time before expiry after which a used token is refreshed in the background
+     * @param maxEntries maximum number of cached client tokens
+     */
+    public CachingClientTokenProvider(final ClientTokenProvider clientTokenProvider,
+                                      final Executor refreshExecutor,
+                                      final long ttlMs,
+                                      final long refreshAheadMs,
+                                      final int maxEntries) {
+        this(clientTokenProvider, refreshExecutor, ttlMs, refreshAheadMs, maxEntries, System::currentTimeMillis);
+    }
+
+    CachingClientTokenProvider(final ClientTokenProvider clientTokenProvider,
+                               final Executor refreshExecutor,
+                               final long ttlMs,
+                               final long refreshAheadMs,
+                               final int maxEntries,
+                               final LongSupplier clock) {
+        Validator.notNull(clientTokenProvider);
+        Validator.notNull(refreshExecutor);
+        Validator.notNull(clock);
+        if (ttlMs <= 0 || refreshAheadMs < 0 || refreshAheadMs >= ttlMs) {
+            throw new IllegalArgumentException("Time to live must be positive and greater than the refresh ahead time");
+        }
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Maximum number of entries must be positive");
+        }
+        this.clientTokenProvider = clientTokenProvider;
+        this.refreshExecutor = refreshExecutor;
+        this.ttlMs = ttlMs;
+        this.refreshAheadMs = refreshAheadMs;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the cached client token or looks it up if it is not cached or expired.
+     * @param clientId client id
+     * @return client token
+     */
+    @Override
+    public String lookupClientSecret(final String clientId) {
+        Validator.notNull(clientId);
+        while (true) {
+            final long now = clock.getAsLong();
+            final Entry entry = entries.get(clientId);
+            if (entry == null) {
+                final Entry loading = new Entry();
+                if (entries.putIfAbsent(clientId, loading) == null) {
+                    return load(clientId, loading);
+                }
+            } else if (!entry.secret.isDone()) {
+                return await(entry);
+            } else if (entry.secret.isCompletedExceptionally() || now >= entry.expiresAt) {
+                entries.remove(clientId, entry);
+            } else {
+                if (now >= entry.expiresAt - refreshAheadMs) {
+                    refresh(clientId, entry);
+                }
+                return entry.secret.join();
+            }
+        }
+    }
+
+    /**
+     * Removes the cached token of a client, e.g. after the token was rotated.
+     * @param clientId client id
+     */
+    public void invalidate(final String clientId) {
+        entries.remove(clientId);
+    }
+
+    /**
+     * @return number of cached client tokens
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private String load(final String clientId, final Entry entry) {
+        try {
+            final String secret = clientTokenProvider.lookupClientSecret(clientId);
+            entry.complete(secret, clock.getAsLong() + ttlMs);
+            if (entries.size() > maxEntries) {
+                evict();
+            }
+            return secret;
+        } catch (final Throwable e) {
+            // Also on errors, otherwise waiting look ups of the client id block forever.
+            entries.remove(clientId, entry);
+            entry.secret.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private void refresh(final String clientId, final Entry entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    final Entry refreshed = new Entry();
+                    refreshed.complete(clientTokenProvider.lookupClientSecret(clientId), clock.getAsLong() + ttlMs);
+                    entries.replace(clientId, entry, refreshed);
+                } catch (final RuntimeException e) {
+                    LOGGER.warn("Could not refresh client token of client id {}", clientId, e);
+                } finally {
+                    entry.refreshing.set(false);
+                }
+            });
+        } catch (final RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private void evict() {
+        while (entries.size() > maxEntries) {
+            final Optional<Map.Entry<String, Entry>> oldest = entries.entrySet().stream()
+                    .filter(e -> e.getValue().secret.isDone())
+                    .min((a, b) -> Long.compare(a.getValue().expiresAt, b.getValue().expiresAt));
+            if (!oldest.isPresent()) {
+                // Only pending look ups left, these are inserted once they complete.
+                return;
+            }
+            entries.remove(oldest.get().getKey(), oldest.get().getValue());
+        }
+    }
+
+    private static String await(final Entry entry) {
+        try {
+            return entry.secret.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static ExecutorService newRefreshExecutor() {
+        return Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "client-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<String> secret = new CompletableFuture<>();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile long expiresAt;
+
+        private void complete(final String value, final long expiresAt) {
+            this.expiresAt = expiresAt;
+            secret.complete(value);
+        }
+    }
+}
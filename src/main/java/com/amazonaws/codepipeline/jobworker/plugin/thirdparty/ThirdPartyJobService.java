@@ -18,6 +18,7 @@ import java.util.List;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.amazonaws.codepipeline.jobworker.LogMarkers;
 import com.amazonaws.codepipeline.jobworker.Validator;
 import com.amazonaws.codepipeline.jobworker.JobService;
 import com.amazonaws.codepipeline.jobworker.model.JobStatus;
@@ -75,7 +76,7 @@ public class ThirdPartyJobService implements JobService {
      */
     @Override
     public List<WorkItem> pollForJobs(final int maxBatchSize) {
-        LOGGER.info(String.format("PollForThirdPartyJobs for action type id '%s'", actionTypeId));
+        LOGGER.info(LogMarkers.JOB, "PollForThirdPartyJobs for action type id '{}'", actionTypeId);
         final List<WorkItem> result = new ArrayList<>();
 
         final PollForThirdPartyJobsRequest pollForJobsRequest = new PollForThirdPartyJobsRequest();
@@ -84,7 +85,7 @@ public class ThirdPartyJobService implements JobService {
 
         final PollForThirdPartyJobsResult pollForJobsResult = codePipelineClient.pollForThirdPartyJobs(pollForJobsRequest);
         for (final ThirdPartyJob job : pollForJobsResult.getJobs()) {
-            LOGGER.info("GetThirdPartyJobDetails");
+            LOGGER.info(LogMarkers.JOB, "GetThirdPartyJobDetails for job '{}'", job.getJobId());
             final ThirdPartyJobDetails jobDetails = getJobDetails(job.getJobId(), job.getClientId());
             result.add(JobConverter.convert(job.getClientId(), jobDetails));
         }
@@ -101,7 +102,7 @@ public class ThirdPartyJobService implements JobService {
      */
     @Override
     public JobStatus acknowledgeJob(final String jobId, final String clientId, final String nonce) {
-        LOGGER.info(String.format("AcknowledgeThirdPartyJob for job '%s' with clientId '%s' and nonce '%s'", jobId, clientId, nonce));
+        LOGGER.info(LogMarkers.JOB, "AcknowledgeThirdPartyJob for job '{}' with clientId '{}' and nonce '{}'", jobId, clientId, nonce);
         final AcknowledgeThirdPartyJobRequest request = new AcknowledgeThirdPartyJobRequest();
         request.setJobId(jobId);
         request.setNonce(nonce);
@@ -124,7 +125,7 @@ public class ThirdPartyJobService implements JobService {
                               final ExecutionDetails executionDetails,
                               final CurrentRevision currentRevision,
                               final String continuationToken) {
-        LOGGER.info(String.format("PutThirdPartyJobSuccessResult for job '%s'", jobId));
+        LOGGER.info(LogMarkers.JOB, "PutThirdPartyJobSuccessResult for job '{}'", jobId);
         final PutThirdPartyJobSuccessResultRequest request = new PutThirdPartyJobSuccessResultRequest();
         request.setJobId(jobId);
         request.setClientToken(clientTokenProvider.lookupClientSecret(clientId));
@@ -142,7 +143,7 @@ public class ThirdPartyJobService implements JobService {
      */
     @Override
     public void putJobFailure(final String jobId, final String clientId, final FailureDetails failureDetails) {
-        LOGGER.info(String.format("PutThirdPartyJobFailureResult for job '%s'", jobId));
+        LOGGER.info(LogMarkers.JOB, "PutThirdPartyJobFailureResult for job '{}'", jobId);
         final PutThirdPartyJobFailureResultRequest request = new PutThirdPartyJobFailureResultRequest();
         request.setJobId(jobId);
         request.setClientToken(clientTokenProvider.lookupClientSecret(clientId));
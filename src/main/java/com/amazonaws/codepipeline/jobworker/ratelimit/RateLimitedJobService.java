@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.ratelimit;
+
+import java.util.List;
+
+import com.amazonaws.codepipeline.jobworker.JobService;
+import com.amazonaws.codepipeline.jobworker.Validator;
+import com.amazonaws.codepipeline.jobworker.model.CurrentRevision;
+import com.amazonaws.codepipeline.jobworker.model.ExecutionDetails;
+import com.amazonaws.codepipeline.jobworker.model.FailureDetails;
+import com.amazonaws.codepipeline.jobworker.model.JobStatus;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+
+/**
+ * Job service decorator which keeps the API calls of the job worker below a rate,
+ * so the worker does not run into the throttling limits of the account.
+ */
+public class RateLimitedJobService implements JobService {
+
+    private final JobService jobService;
+    private final RateLimiter rateLimiter;
+
+    /**
+     * Initializes the rate limited job service.
+     * @param jobService job service the calls are delegated to
+     * @param rateLimiter rate limiter shared by all API calls
+     */
+    public RateLimitedJobService(final JobService jobService, final RateLimiter rateLimiter) {
+        Validator.notNull(jobService);
+        Validator.notNull(rateLimiter);
+        this.jobService = jobService;
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public List<WorkItem> pollForJobs(final int maxBatchSize) {
+        rateLimiter.acquire();
+        return jobService.pollForJobs(maxBatchSize);
+    }
+
+    @Override
+    public JobStatus acknowledgeJob(final String jobId, final String clientId, final String nonce) {
+        rateLimiter.acquire();
+        return jobService.acknowledgeJob(jobId, clientId, nonce);
+    }
+
+    @Override
+    public void putJobSuccess(final String jobId,
+                              final String clientId,
+                              final ExecutionDetails executionDetails,
+                              final CurrentRevision currentRevision,
+                              final String continuationToken) {
+        rateLimiter.acquire();
+        jobService.putJobSuccess(jobId, clientId, executionDetails, currentRevision, continuationToken);
+    }
+
+    @Override
+    public void putJobFailure(final String jobId, final String clientId, final FailureDetails failureDetails) {
+        rateLimiter.acquire();
+        jobService.putJobFailure(jobId, clientId, failureDetails);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket which spaces out calls to a configured rate. The rate can be changed at any time,
+ * e.g. when the configuration is reloaded.
+ *
+ * The bucket holds up to one second of permits, so a burst after an idle period is bounded by the rate.
+ * Callers reserve a permit under a short lock and wait for it outside the lock.
+ */
+public class RateLimiter {
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private double permitsPerSecond;
+    private double storedPermits;
+    private long lastRefillNanos = System.nanoTime();
+
+    /**
+     * Initializes the rate limiter.
+     * @param permitsPerSecond permitted calls per second, zero or less does not limit calls
+     */
+    public RateLimiter(final double permitsPerSecond) {
+        setPermitsPerSecond(permitsPerSecond);
+        storedPermits = this.permitsPerSecond > 0 ? 1 : 0;
+    }
+
+    /**
+     * Waits until a call is permitted. Returns early if the thread is interrupted, keeping the interrupt flag set.
+     */
+    public void acquire() {
+        final long deadline;
+        synchronized (this) {
+            if (permitsPerSecond <= 0) {
+                return;
+            }
+            final long now = System.nanoTime();
+            refill(now);
+            storedPermits -= 1;
+            if (storedPermits >= 0) {
+                return;
+            }
+            deadline = now + (long) (-storedPermits / permitsPerSecond * NANOS_PER_SECOND);
+        }
+        long remaining = deadline - System.nanoTime();
+        while (remaining > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(remaining);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * @return permitted calls per second, zero if calls are not limited
+     */
+    public synchronized double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    /**
+     * Changes the rate, calls waiting for a permit keep their reservation.
+     * @param permitsPerSecond permitted calls per second, zero or less does not limit calls
+     */
+    public synchronized void setPermitsPerSecond(final double permitsPerSecond) {
+        final long now = System.nanoTime();
+        refill(now);
+        this.permitsPerSecond = Math.max(0, permitsPerSecond);
+        storedPermits = Math.min(storedPermits, this.permitsPerSecond);
+        if (this.permitsPerSecond == 0) {
+            storedPermits = 0;
+        }
+    }
+
+    private void refill(final long now) {
+        if (permitsPerSecond > 0) {
+            storedPermits = Math.min(permitsPerSecond,
+                    storedPermits + (now - lastRefillNanos) / NANOS_PER_SECOND * permitsPerSecond);
+        }
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.tracing;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.codepipeline.jobworker.Validator;
+
+/**
+ * Writes spans in batches to a JSON lines file, in the OTLP JSON encoding used by the file exporter
+ * of the OpenTelemetry collector: every line is an ExportTraceServiceRequest with up to one batch of spans.
+ *
+ * Spans are queued and written by a background thread. When the queue is full spans are dropped
+ * instead of blocking the job worker threads.
+ */
+public class JsonLinesSpanExporter implements SpanExporter {
+
+    private static final Logger LOGGER = LogManager.getLogger(JsonLinesSpanExporter.class);
+
+    /**
+     * Default number of spans waiting to be written.
+     */
+    public static final int DEFAULT_QUEUE_SIZE = 4096;
+
+    /**
+     * Default maximum number of spans written in one line.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 512;
+
+    /**
+     * Default maximum time a span waits for its batch to be written.
+     */
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 5000L;
+
+    private static final String SCOPE_NAME = "com.amazonaws.codepipeline.jobworker";
+    private static final int SPAN_KIND_INTERNAL = 1;
+    private static final int STATUS_CODE_ERROR = 2;
+
+    private final BlockingQueue<Span> queue;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final String resourcePrefix;
+    private final Writer writer;
+    private final Thread worker;
+    private final AtomicLong droppedSpans = new AtomicLong();
+
+    private volatile boolean closed;
+
+    /**
+     * Initializes the exporter with default queue size, batch size and flush interval.
+     * @param file file the spans are appended to
+     * @param serviceName service name resource attribute of the spans
+     * @throws IOException if the file cannot be opened
+     */
+    public JsonLinesSpanExporter(final Path file, final String serviceName) throws IOException {
+        this(file, serviceName, DEFAULT_QUEUE_SIZE, DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL_MS);
+    }
+
+    /**
+     * Initializes the exporter.
+     * @param file file the spans are appended to
+     * @param serviceName service name resource attribute of the spans
+     * @param queueSize maximum number of spans waiting to be written
+     * @param batchSize maximum number of spans written in one line
+     * @param flushIntervalMs maximum time a span waits for its batch to be written
+     * @throws IOException if the file cannot be opened
+     */
+    public JsonLinesSpanExporter(final Path file,
+                                 final String serviceName,
+                                 final int queueSize,
+                                 final int batchSize,
+                                 final long flushIntervalMs) throws IOException {
+        Validator.notNull(file);
+        Validator.notNull(serviceName);
+        if (queueSize <= 0 || batchSize <= 0 || flushIntervalMs <= 0) {
+            throw new IllegalArgumentException("Queue size, batch size and flush interval must be positive");
+        }
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+
+        final StringBuilder prefix = new StringBuilder("{\"resourceSpans\":[{\"resource\":{\"attributes\":[");
+        appendAttribute(prefix, "service.name", serviceName);
+        prefix.append("]},\"scopeSpans\":[{\"scope\":{\"name\":\"").append(SCOPE_NAME).append("\"},\"spans\":[");
+        this.resourcePrefix = prefix.toString();
+
+        // A plain file stream, unlike a file channel, is not closed when close() interrupts the writer thread.
+        this.writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(file.toFile(), true), StandardCharsets.UTF_8));
+        this.worker = new Thread(this::run, "span-exporter");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void export(final Span span) {
+        if (closed || !queue.offer(span)) {
+            droppedSpans.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return number of spans dropped because the queue was full or the exporter was closed
+     */
+    public long getDroppedSpans() {
+        return droppedSpans.get();
+    }
+
+    /**
+     * Writes the queued spans and closes the file. Waits up to one flush interval for the background thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        worker.interrupt();
+        try {
+            worker.join(flushIntervalMs);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        final List<Span> batch = new ArrayList<>(batchSize);
+        long deadline = 0;
+        try {
+            while (!closed || !queue.isEmpty() || !batch.isEmpty()) {
+                final long timeout = batch.isEmpty() ? flushIntervalMs : deadline - System.currentTimeMillis();
+                Span span = null;
+                if (!closed && timeout > 0) {
+                    try {
+                        span = queue.poll(timeout, TimeUnit.MILLISECONDS);
+                    } catch (final InterruptedException e) {
+                        // woken up by close, drains the queue below
+                    }
+                } else {
+                    span = queue.poll();
+                }
+                if (span != null) {
+                    if (batch.isEmpty()) {
+                        deadline = System.currentTimeMillis() + flushIntervalMs;
+                    }
+                    batch.add(span);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                if (!batch.isEmpty()
+                        && (batch.size() >= batchSize || closed || System.currentTimeMillis() >= deadline)) {
+                    write(batch);
+                    batch.clear();
+                }
+            }
+        } finally {
+            try {
+                writer.close();
+            } catch (final IOException e) {
+                LOGGER.warn("Could not close span file", e);
+            }
+        }
+    }
+
+    private void write(final List<Span> batch) {
+        final StringBuilder line = new StringBuilder(resourcePrefix);
+        for (int i = 0; i < batch.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            appendSpan(line, batch.get(i));
+        }
+        line.append("]}]}]}\n");
+        try {
+            writer.write(line.toString());
+            writer.flush();
+        } catch (final IOException e) {
+            droppedSpans.addAndGet(batch.size());
+            LOGGER.warn("Could not write spans", e);
+        }
+    }
+
+    private static void appendSpan(final StringBuilder json, final Span span) {
+        json.append("{\"traceId\":\"").append(span.getTraceId())
+                .append("\",\"spanId\":\"").append(span.getSpanId()).append('"');
+        if (span.getParentSpanId() != null) {
+            json.append(",\"parentSpanId\":\"").append(span.getParentSpanId()).append('"');
+        }
+        json.append(",\"name\":");
+        appendString(json, span.getName());
+        json.append(",\"kind\":").append(SPAN_KIND_INTERNAL)
+                .append(",\"startTimeUnixNano\":\"").append(span.getStartEpochNanos())
+                .append("\",\"endTimeUnixNano\":\"").append(span.getEndEpochNanos())
+                .append("\",\"attributes\":[");
+        boolean first = true;
+        for (final Map.Entry<String, Object> attribute : span.getAttributes().entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            appendAttribute(json, attribute.getKey(), attribute.getValue());
+        }
+        json.append("],\"status\":{");
+        if (span.getStatus() == Span.Status.Error) {
+            json.append("\"code\":").append(STATUS_CODE_ERROR);
+            if (span.getStatusMessage() != null) {
+                json.append(",\"message\":");
+                appendString(json, span.getStatusMessage());
+            }
+        }
+        json.append("}}");
+    }
+
+    private static void appendAttribute(final StringBuilder json, final String key, final Object value) {
+        json.append("{\"key\":");
+        appendString(json, key);
+        if (value instanceof Long) {
+            // OTLP JSON encodes 64 bit integers as strings
+            json.append(",\"value\":{\"intValue\":\"").append(value).append("\"}}");
+        } else {
+            json.append(",\"value\":{\"stringValue\":");
+            appendString(json, String.valueOf(value));
+            json.append("}}");
+        }
+    }
+
+    private static void appendString(final StringBuilder json, final String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.tracing;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A timed operation of a job, e.g. the acknowledgement or the processing of a job.
+ * Spans of the same job share a trace id and form a tree through their parent span ids.
+ *
+ * The job poller makes the process span current while the job processor runs, job processors can
+ * extend the trace with child spans:
+ * <pre>
+ * final Span span = Span.current().startChild("DownloadArtifacts");
+ * try {
+ *     ...
+ * } finally {
+ *     span.end();
+ * }
+ * </pre>
+ * Spans of a disabled tracer are not recorded, all methods are cheap no-ops.
+ */
+public final class Span {
+
+    /**
+     * Outcome of a span.
+     */
+    public enum Status {
+        /**
+         * The operation completed, or its outcome was not set.
+         */
+        Unset,
+        /**
+         * The operation failed.
+         */
+        Error
+    }
+
+    private static final Span NOOP = new Span(null, null, null, null, null, 0);
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+
+    private final Tracer tracer;
+    private final String traceId;
+    private final String spanId;
+    private final String parentSpanId;
+    private final String name;
+    private final long startEpochNanos;
+    private final Map<String, Object> attributes = new LinkedHashMap<>();
+    private final AtomicBoolean ended = new AtomicBoolean();
+
+    private volatile long endEpochNanos;
+    private volatile Status status = Status.Unset;
+    private volatile String statusMessage;
+
+    Span(final Tracer tracer,
+         final String traceId,
+         final String spanId,
+         final String parentSpanId,
+         final String name,
+         final long startEpochNanos) {
+        this.tracer = tracer;
+        this.traceId = traceId;
+        this.spanId = spanId;
+        this.parentSpanId = parentSpanId;
+        this.name = name;
+        this.startEpochNanos = startEpochNanos;
+    }
+
+    /**
+     * @return span which is not recorded
+     */
+    public static Span noop() {
+        return NOOP;
+    }
+
+    /**
+     * @return span made current on this thread, a no-op span if there is none
+     */
+    public static Span current() {
+        final Span span = CURRENT.get();
+        return span == null ? NOOP : span;
+    }
+
+    /**
+     * Starts a child span of this span.
+     * @param childName name of the child span
+     * @return child span, a no-op span if this span is not recorded
+     */
+    public Span startChild(final String childName) {
+        if (tracer == null) {
+            return NOOP;
+        }
+        return tracer.startSpan(childName, this);
+    }
+
+    /**
+     * Makes this span the current span of the calling thread until the scope is closed.
+     * @return scope which restores the previous current span when closed
+     */
+    public Scope makeCurrent() {
+        final Span previous = CURRENT.get();
+        CURRENT.set(this);
+        return () -> {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * Adds a string attribute.
+     * @param key attribute key
+     * @param value attribute value
+     * @return this span
+     */
+    public Span setAttribute(final String key, final String value) {
+        return putAttribute(key, value);
+    }
+
+    /**
+     * Adds a numeric attribute.
+     * @param key attribute key
+     * @param value attribute value
+     * @return this span
+     */
+    public Span setAttribute(final String key, final long value) {
+        return putAttribute(key, value);
+    }
+
+    /**
+     * Marks the span as failed.
+     * @param throwable cause of the failure
+     * @return this span
+     */
+    public Span setError(final Throwable throwable) {
+        return setError(throwable.getClass().getName() + ": " + throwable.getMessage());
+    }
+
+    /**
+     * Marks the span as failed.
+     * @param message description of the failure
+     * @return this span
+     */
+    public Span setError(final String message) {
+        if (isRecording()) {
+            statusMessage = message;
+            status = Status.Error;
+        }
+        return this;
+    }
+
+    /**
+     * Ends the span and hands it to the exporter. Only the first call has an effect.
+     */
+    public void end() {
+        if (isRecording() && ended.compareAndSet(false, true)) {
+            endEpochNanos = tracer.now();
+            tracer.export(this);
+        }
+    }
+
+    /**
+     * @return true if the span is recorded and exported
+     */
+    public boolean isRecording() {
+        return tracer != null;
+    }
+
+    /**
+     * @return 32 hex digits trace id
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+
+    /**
+     * @return 16 hex digits span id
+     */
+    public String getSpanId() {
+        return spanId;
+    }
+
+    /**
+     * @return span id of the parent span, null for the root span of a trace
+     */
+    public String getParentSpanId() {
+        return parentSpanId;
+    }
+
+    /**
+     * @return span name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return start time in nanoseconds since the epoch
+     */
+    public long getStartEpochNanos() {
+        return startEpochNanos;
+    }
+
+    /**
+     * @return end time in nanoseconds since the epoch, 0 while the span has not ended
+     */
+    public long getEndEpochNanos() {
+        return endEpochNanos;
+    }
+
+    /**
+     * @return copy of the attributes in the order they were added
+     */
+    public Map<String, Object> getAttributes() {
+        synchronized (attributes) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(attributes));
+        }
+    }
+
+    /**
+     * @return outcome of the span
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return description of the failure, null unless the span failed
+     */
+    public String getStatusMessage() {
+        return statusMessage;
+    }
+
+    private Span putAttribute(final String key, final Object value) {
+        if (isRecording()) {
+            synchronized (attributes) {
+                attributes.put(key, value);
+            }
+        }
+        return this;
+    }
+}
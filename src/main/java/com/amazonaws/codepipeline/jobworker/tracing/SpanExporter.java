@@ -0,0 +1,31 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.tracing;
+
+/**
+ * Receives ended spans. Called on the job worker threads, implementations must not block.
+ */
+public interface SpanExporter extends AutoCloseable {
+
+    /**
+     * Exports an ended span.
+     * @param span ended span
+     */
+    void export(Span span);
+
+    /**
+     * Exports pending spans and releases the resources of the exporter.
+     */
+    @Override
+    void close();
+}
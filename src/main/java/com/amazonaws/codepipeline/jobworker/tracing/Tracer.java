@@ -0,0 +1,118 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.tracing;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.codepipeline.jobworker.Validator;
+
+/**
+ * Starts spans and hands ended spans to the exporter.
+ */
+public class Tracer implements AutoCloseable {
+
+    private static final Tracer NOOP = new Tracer();
+
+    private final SpanExporter exporter;
+    private final long epochAnchorNanos;
+    private final long nanoTimeAnchor;
+
+    /**
+     * Initializes a tracer which exports all spans.
+     * @param exporter span exporter
+     */
+    public Tracer(final SpanExporter exporter) {
+        Validator.notNull(exporter);
+        this.exporter = exporter;
+        this.epochAnchorNanos = TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis());
+        this.nanoTimeAnchor = System.nanoTime();
+    }
+
+    private Tracer() {
+        this.exporter = null;
+        this.epochAnchorNanos = 0;
+        this.nanoTimeAnchor = 0;
+    }
+
+    /**
+     * @return tracer which does not record spans
+     */
+    public static Tracer noop() {
+        return NOOP;
+    }
+
+    /**
+     * @return true if spans are recorded
+     */
+    public boolean isEnabled() {
+        return exporter != null;
+    }
+
+    /**
+     * Starts the root span of a new trace.
+     * @param name span name
+     * @return root span
+     */
+    public Span startSpan(final String name) {
+        return startSpan(name, null);
+    }
+
+    /**
+     * Starts a span.
+     * @param name span name
+     * @param parent parent span, starts a new trace if null or not recorded
+     * @return started span
+     */
+    public Span startSpan(final String name, final Span parent) {
+        if (exporter == null) {
+            return Span.noop();
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final String spanId = hex(random.nextLong());
+        if (parent == null || !parent.isRecording()) {
+            return new Span(this, hex(random.nextLong()) + hex(random.nextLong()), spanId, null, name, now());
+        }
+        return new Span(this, parent.getTraceId(), spanId, parent.getSpanId(), name, now());
+    }
+
+    /**
+     * Exports pending spans and closes the exporter.
+     */
+    @Override
+    public void close() {
+        if (exporter != null) {
+            exporter.close();
+        }
+    }
+
+    long now() {
+        return epochAnchorNanos + (System.nanoTime() - nanoTimeAnchor);
+    }
+
+    void export(final Span span) {
+        exporter.export(span);
+    }
+
+    private static String hex(final long value) {
+        final String digits = Long.toHexString(value);
+        if (digits.length() == 16) {
+            return digits;
+        }
+        final StringBuilder builder = new StringBuilder(16);
+        for (int i = digits.length(); i < 16; i++) {
+            builder.append('0');
+        }
+        return builder.append(digits).toString();
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.tuning;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.amazonaws.codepipeline.jobworker.CodePipelineJobPoller;
+import com.amazonaws.codepipeline.jobworker.JobWorkerDaemon;
+import com.amazonaws.codepipeline.jobworker.Validator;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Api;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Count;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Phase;
+import com.amazonaws.codepipeline.jobworker.metrics.LatencyHistogram;
+
+/**
+ * Adjusts the polling interval and the poll batch size of a running job worker towards a target pickup latency,
+ * with as few API calls as possible. Scheduled by the daemon once per tuning period.
+ *
+ * A job becomes available at a random point of the polling interval and is picked up by the next poll,
+ * after the poll request and the wait for a worker thread. The 95th percentile of the pickup latency is estimated
+ * as 95% of the polling interval plus the 95th percentiles of the poll latency and the queue wait.
+ * Every period the tuner
+ * <ul>
+ * <li>doubles the polling interval if API calls were throttled,</li>
+ * <li>shortens the polling interval to the longest interval which meets the target if the estimate exceeds it,</li>
+ * <li>lengthens the polling interval by a quarter, up to that interval, if some polls returned no jobs,</li>
+ * <li>lowers the poll batch size if polled jobs wait for worker threads and raises it back
+ * up to the maximum pool size once they do not.</li>
+ * </ul>
+ * The polling interval therefore shrinks while jobs keep arriving and grows again when the workload drops,
+ * e.g. outside business hours. After throttling the interval shrinks by at most a tenth per period for a while.
+ */
+public class PollAutoTuner implements Runnable {
+
+    private static final Logger LOGGER = LogManager.getLogger(PollAutoTuner.class);
+
+    private static final double PICKUP_PERCENTILE = 95;
+    private static final double GROWTH_FACTOR = 1.25;
+    private static final double BACKOFF_FACTOR = 2;
+    private static final double RECOVERY_FACTOR = 0.9;
+    private static final int RECOVERY_PERIODS = 5;
+
+    private final JobWorkerDaemon daemon;
+    private final CodePipelineJobPoller jobPoller;
+    private final PollTuningSettings settings;
+    private final JobWorkerMetrics metrics;
+
+    private LatencyHistogram.Snapshot lastPoll;
+    private LatencyHistogram.Snapshot lastQueueWait;
+    private LatencyHistogram.Snapshot lastProcess;
+    private long lastEmptyPolls;
+    private long lastThrottles;
+    private int periodsSinceThrottle = RECOVERY_PERIODS;
+
+    private volatile boolean enabled = true;
+    private volatile TuningDecision lastDecision;
+
+    /**
+     * Initializes the tuner, the first tuning period starts now.
+     * @param daemon daemon which schedules the job poller
+     * @param jobPoller job poller
+     * @param settings target and bounds
+     */
+    public PollAutoTuner(final JobWorkerDaemon daemon,
+                         final CodePipelineJobPoller jobPoller,
+                         final PollTuningSettings settings) {
+        Validator.notNull(daemon);
+        Validator.notNull(jobPoller);
+        Validator.notNull(settings);
+        this.daemon = daemon;
+        this.jobPoller = jobPoller;
+        this.settings = settings;
+        this.metrics = jobPoller.getMetrics();
+        startPeriod();
+    }
+
+    /**
+     * Runs one tuning period, errors are logged to keep the schedule running.
+     */
+    @Override
+    public void run() {
+        try {
+            tune();
+        } catch (final RuntimeException e) {
+            LOGGER.error("Caught exception while tuning the poll settings", e);
+        }
+    }
+
+    /**
+     * Measures the signals since the last call and applies the poll settings chosen from them.
+     * @return decision, null if the tuner is disabled or nothing was polled in the period
+     */
+    public synchronized TuningDecision tune() {
+        final LatencyHistogram.Snapshot poll = metrics.getLatency(Phase.Poll).snapshot();
+        final LatencyHistogram.Snapshot queueWait = metrics.getLatency(Phase.QueueWait).snapshot();
+        final LatencyHistogram.Snapshot process = metrics.getLatency(Phase.Process).snapshot();
+        final long emptyPolls = metrics.getCount(Count.EmptyPolls);
+        final long throttles = countThrottles();
+
+        final LatencyHistogram.Snapshot pollWindow = poll.since(lastPoll);
+        final long windowEmptyPolls = emptyPolls - lastEmptyPolls;
+        final long windowThrottles = throttles - lastThrottles;
+        final long queueWaitP95Ms = percentileMs(queueWait.since(lastQueueWait));
+        final long processP95Ms = percentileMs(process.since(lastProcess));
+
+        lastPoll = poll;
+        lastQueueWait = queueWait;
+        lastProcess = process;
+        lastEmptyPolls = emptyPolls;
+        lastThrottles = throttles;
+
+        if (!enabled || (pollWindow.getCount() == 0 && windowThrottles == 0)) {
+            return null;
+        }
+
+        final long polls = pollWindow.getCount();
+        final double emptyPollRatio = polls == 0 ? 0 : (double) windowEmptyPolls / polls;
+        final long overheadMs = percentileMs(pollWindow) + queueWaitP95Ms;
+        final long interval = daemon.getPollingIntervalInMs();
+        final long estimatedPickupMs = Math.round(interval * PICKUP_PERCENTILE / 100) + overheadMs;
+        final long targetInterval = clamp(Math.round(
+                (settings.getTargetPickupLatencyMs() - overheadMs) * 100 / PICKUP_PERCENTILE));
+
+        long newInterval = interval;
+        final StringBuilder reason = new StringBuilder();
+        if (windowThrottles > 0) {
+            periodsSinceThrottle = 0;
+            newInterval = clamp(Math.round(interval * BACKOFF_FACTOR));
+            reason.append("API calls throttled");
+        } else {
+            periodsSinceThrottle++;
+            if (estimatedPickupMs > settings.getTargetPickupLatencyMs() && targetInterval < interval) {
+                newInterval = periodsSinceThrottle < RECOVERY_PERIODS
+                        ? Math.max(targetInterval, Math.round(interval * RECOVERY_FACTOR))
+                        : targetInterval;
+                reason.append("pickup latency above target");
+            } else if (windowEmptyPolls > 0 && targetInterval > interval) {
+                newInterval = Math.min(targetInterval, Math.round(interval * GROWTH_FACTOR));
+                reason.append("empty polls within target");
+            } else {
+                reason.append("within target");
+            }
+        }
+
+        final int batchSize = jobPoller.getPollBatchSize();
+        final int maxBatchSize = jobPoller.getExecutorService().getMaximumPoolSize();
+        int newBatchSize = batchSize;
+        if (queueWaitP95Ms > settings.getTargetPickupLatencyMs() / 2 && batchSize > 1) {
+            newBatchSize = batchSize - Math.max(1, batchSize / 4);
+            reason.append(", jobs wait for worker threads");
+        } else if (queueWaitP95Ms < settings.getTargetPickupLatencyMs() / 10 && batchSize < maxBatchSize) {
+            newBatchSize = Math.min(maxBatchSize, batchSize + Math.max(1, batchSize / 4));
+            reason.append(", worker threads available");
+        }
+
+        final TuningDecision decision = new TuningDecision(System.currentTimeMillis(),
+                interval, newInterval, batchSize, newBatchSize, reason.toString(),
+                polls, emptyPollRatio, queueWaitP95Ms, processP95Ms, windowThrottles, estimatedPickupMs);
+        if (newInterval != interval) {
+            daemon.setPollingIntervalInMs(newInterval);
+        }
+        if (newBatchSize != batchSize) {
+            jobPoller.setPollBatchSize(newBatchSize);
+        }
+        if (decision.isChanged()) {
+            LOGGER.info("Tuned {}", decision);
+        } else {
+            LOGGER.debug("Kept {}", decision);
+        }
+        lastDecision = decision;
+        return decision;
+    }
+
+    /**
+     * @return true if the tuner changes the poll settings
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Pauses or resumes tuning, e.g. while the poll settings are changed manually.
+     * @param enabled true to change the poll settings every tuning period
+     */
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+        LOGGER.info(enabled ? "Enabled poll auto tuning" : "Disabled poll auto tuning");
+    }
+
+    /**
+     * @return last decision, null before the first tuning period with polls
+     */
+    public TuningDecision getLastDecision() {
+        return lastDecision;
+    }
+
+    /**
+     * @return target and bounds of the tuner
+     */
+    public PollTuningSettings getSettings() {
+        return settings;
+    }
+
+    private void startPeriod() {
+        lastPoll = metrics.getLatency(Phase.Poll).snapshot();
+        lastQueueWait = metrics.getLatency(Phase.QueueWait).snapshot();
+        lastProcess = metrics.getLatency(Phase.Process).snapshot();
+        lastEmptyPolls = metrics.getCount(Count.EmptyPolls);
+        lastThrottles = countThrottles();
+    }
+
+    private long countThrottles() {
+        long throttles = 0;
+        for (final Api api : Api.values()) {
+            throttles += metrics.getApiThrottles(api);
+        }
+        return throttles;
+    }
+
+    private long clamp(final long intervalMs) {
+        return Math.min(settings.getMaxPollingIntervalMs(), Math.max(settings.getMinPollingIntervalMs(), intervalMs));
+    }
+
+    private static long percentileMs(final LatencyHistogram.Snapshot snapshot) {
+        return TimeUnit.NANOSECONDS.toMillis(snapshot.getValueAtPercentile(PICKUP_PERCENTILE));
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.tuning;
+
+/**
+ * Target and bounds of the poll auto tuner.
+ */
+public final class PollTuningSettings {
+
+    /**
+     * Default lower bound of the polling interval.
+     */
+    public static final long DEFAULT_MIN_POLLING_INTERVAL_MS = 1000L;
+
+    /**
+     * Default upper bound of the polling interval.
+     */
+    public static final long DEFAULT_MAX_POLLING_INTERVAL_MS = 60000L;
+
+    /**
+     * Default time between two tuning decisions.
+     */
+    public static final long DEFAULT_TUNING_PERIOD_MS = 60000L;
+
+    private final long targetPickupLatencyMs;
+    private final long minPollingIntervalMs;
+    private final long maxPollingIntervalMs;
+    private final long tuningPeriodMs;
+
+    /**
+     * Initializes the settings with the default bounds and tuning period.
+     * @param targetPickupLatencyMs 95th percentile of the time from a job becoming available
+     *                              until a worker thread picks it up
+     */
+    public PollTuningSettings(final long targetPickupLatencyMs) {
+        this(targetPickupLatencyMs,
+                DEFAULT_MIN_POLLING_INTERVAL_MS,
+                DEFAULT_MAX_POLLING_INTERVAL_MS,
+                DEFAULT_TUNING_PERIOD_MS);
+    }
+
+    /**
+     * Initializes the settings.
+     * @param targetPickupLatencyMs 95th percentile of the time from a job becoming available
+     *                              until a worker thread picks it up
+     * @param minPollingIntervalMs lower bound of the polling interval
+     * @param maxPollingIntervalMs upper bound of the polling interval
+     * @param tuningPeriodMs time between two tuning decisions, the signals are measured over this window
+     */
+    public PollTuningSettings(final long targetPickupLatencyMs,
+                              final long minPollingIntervalMs,
+                              final long maxPollingIntervalMs,
+                              final long tuningPeriodMs) {
+        if (targetPickupLatencyMs <= 0 || minPollingIntervalMs <= 0 || tuningPeriodMs <= 0) {
+            throw new IllegalArgumentException("Target pickup latency, polling interval and tuning period must be positive");
+        }
+        if (maxPollingIntervalMs < minPollingIntervalMs) {
+            throw new IllegalArgumentException("Maximum polling interval must not be smaller than the minimum polling interval");
+        }
+        this.targetPickupLatencyMs = targetPickupLatencyMs;
+        this.minPollingIntervalMs = minPollingIntervalMs;
+        this.maxPollingIntervalMs = maxPollingIntervalMs;
+        this.tuningPeriodMs = tuningPeriodMs;
+    }
+
+    /**
+     * @return target 95th percentile of the pickup latency in milliseconds
+     */
+    public long getTargetPickupLatencyMs() {
+        return targetPickupLatencyMs;
+    }
+
+    /**
+     * @return lower bound of the polling interval in milliseconds
+     */
+    public long getMinPollingIntervalMs() {
+        return minPollingIntervalMs;
+    }
+
+    /**
+     * @return upper bound of the polling interval in milliseconds
+     */
+    public long getMaxPollingIntervalMs() {
+        return maxPollingIntervalMs;
+    }
+
+    /**
+     * @return time between two tuning decisions in milliseconds
+     */
+    public long getTuningPeriodMs() {
+        return tuningPeriodMs;
+    }
+}
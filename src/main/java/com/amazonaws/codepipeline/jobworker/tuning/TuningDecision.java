@@ -0,0 +1,158 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.tuning;
+
+/**
+ * Outcome of one tuning period: the signals measured over the period and the poll settings chosen from them.
+ */
+public final class TuningDecision {
+
+    private final long timeMs;
+    private final long oldPollingIntervalMs;
+    private final long newPollingIntervalMs;
+    private final int oldPollBatchSize;
+    private final int newPollBatchSize;
+    private final String reason;
+    private final long polls;
+    private final double emptyPollRatio;
+    private final long queueWaitP95Ms;
+    private final long processP95Ms;
+    private final long throttles;
+    private final long estimatedPickupP95Ms;
+
+    TuningDecision(final long timeMs,
+                   final long oldPollingIntervalMs,
+                   final long newPollingIntervalMs,
+                   final int oldPollBatchSize,
+                   final int newPollBatchSize,
+                   final String reason,
+                   final long polls,
+                   final double emptyPollRatio,
+                   final long queueWaitP95Ms,
+                   final long processP95Ms,
+                   final long throttles,
+                   final long estimatedPickupP95Ms) {
+        this.timeMs = timeMs;
+        this.oldPollingIntervalMs = oldPollingIntervalMs;
+        this.newPollingIntervalMs = newPollingIntervalMs;
+        this.oldPollBatchSize = oldPollBatchSize;
+        this.newPollBatchSize = newPollBatchSize;
+        this.reason = reason;
+        this.polls = polls;
+        this.emptyPollRatio = emptyPollRatio;
+        this.queueWaitP95Ms = queueWaitP95Ms;
+        this.processP95Ms = processP95Ms;
+        this.throttles = throttles;
+        this.estimatedPickupP95Ms = estimatedPickupP95Ms;
+    }
+
+    /**
+     * @return time of the decision in milliseconds since the epoch
+     */
+    public long getTimeMs() {
+        return timeMs;
+    }
+
+    /**
+     * @return polling interval before the decision
+     */
+    public long getOldPollingIntervalMs() {
+        return oldPollingIntervalMs;
+    }
+
+    /**
+     * @return polling interval after the decision
+     */
+    public long getNewPollingIntervalMs() {
+        return newPollingIntervalMs;
+    }
+
+    /**
+     * @return poll batch size before the decision
+     */
+    public int getOldPollBatchSize() {
+        return oldPollBatchSize;
+    }
+
+    /**
+     * @return poll batch size after the decision
+     */
+    public int getNewPollBatchSize() {
+        return newPollBatchSize;
+    }
+
+    /**
+     * @return true if the polling interval or the poll batch size changed
+     */
+    public boolean isChanged() {
+        return oldPollingIntervalMs != newPollingIntervalMs || oldPollBatchSize != newPollBatchSize;
+    }
+
+    /**
+     * @return why the settings were changed or kept
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * @return number of successful polls in the tuning period
+     */
+    public long getPolls() {
+        return polls;
+    }
+
+    /**
+     * @return fraction of the polls which returned no jobs
+     */
+    public double getEmptyPollRatio() {
+        return emptyPollRatio;
+    }
+
+    /**
+     * @return 95th percentile of the time polled jobs waited for a worker thread
+     */
+    public long getQueueWaitP95Ms() {
+        return queueWaitP95Ms;
+    }
+
+    /**
+     * @return 95th percentile of the job processor latency
+     */
+    public long getProcessP95Ms() {
+        return processP95Ms;
+    }
+
+    /**
+     * @return number of throttled API calls in the tuning period
+     */
+    public long getThrottles() {
+        return throttles;
+    }
+
+    /**
+     * @return estimated 95th percentile of the pickup latency with the polling interval before the decision
+     */
+    public long getEstimatedPickupP95Ms() {
+        return estimatedPickupP95Ms;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("polling interval %d -> %d ms, poll batch size %d -> %d: %s "
+                        + "(polls=%d, emptyPollRatio=%.2f, queueWaitP95=%d ms, processP95=%d ms, "
+                        + "throttles=%d, estimatedPickupP95=%d ms)",
+                oldPollingIntervalMs, newPollingIntervalMs, oldPollBatchSize, newPollBatchSize, reason,
+                polls, emptyPollRatio, queueWaitP95Ms, processP95Ms, throttles, estimatedPickupP95Ms);
+    }
+}
@@ -12,16 +12,23 @@
  */
 package com.amazonaws.codepipeline.jobworker;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import org.junit.Before;
@@ -35,13 +42,28 @@ import com.amazonaws.codepipeline.jobworker.CodePipelineJobPoller;
 import com.amazonaws.codepipeline.jobworker.JobPoller;
 import com.amazonaws.codepipeline.jobworker.JobProcessor;
 import com.amazonaws.codepipeline.jobworker.JobService;
+import com.amazonaws.codepipeline.jobworker.accounting.AccountingSettings;
+import com.amazonaws.codepipeline.jobworker.accounting.JobAccounting;
+import com.amazonaws.codepipeline.jobworker.admission.AdmissionController;
+import com.amazonaws.codepipeline.jobworker.admission.AdmissionSettings;
+import com.amazonaws.codepipeline.jobworker.admission.ResourceHint;
+import com.amazonaws.codepipeline.jobworker.admission.ResourceUsage;
+import com.amazonaws.codepipeline.jobworker.lifecycle.JobLifecycleDispatcher;
+import com.amazonaws.codepipeline.jobworker.lifecycle.JobLifecycleListener;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Count;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Phase;
 import com.amazonaws.codepipeline.jobworker.model.CurrentRevision;
 import com.amazonaws.codepipeline.jobworker.model.ExecutionDetails;
 import com.amazonaws.codepipeline.jobworker.model.FailureDetails;
 import com.amazonaws.codepipeline.jobworker.model.FailureType;
+import com.amazonaws.codepipeline.jobworker.model.JobData;
 import com.amazonaws.codepipeline.jobworker.model.JobStatus;
 import com.amazonaws.codepipeline.jobworker.model.WorkItem;
 import com.amazonaws.codepipeline.jobworker.model.WorkResult;
+import com.amazonaws.codepipeline.jobworker.tracing.RecordingSpanExporter;
+import com.amazonaws.codepipeline.jobworker.tracing.Span;
+import com.amazonaws.codepipeline.jobworker.tracing.Tracer;
 
 public class CodePipelineJobPollerTest {
     private final static int POLL_BATCH_SIZE = 10;
@@ -60,11 +82,15 @@ public class CodePipelineJobPollerTest {
 
     private JobPoller jobPoller;
     private WorkResult workResult;
+    private JobWorkerMetrics metrics;
 
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
-        jobPoller = new CodePipelineJobPoller(jobService, jobProcessor, executorService, POLL_BATCH_SIZE);
+        metrics = new JobWorkerMetrics("Deploy/Custom/MyCustomAction/1");
+        jobPoller = CodePipelineJobPoller.builder(jobService, jobProcessor, executorService, POLL_BATCH_SIZE)
+                .metrics(metrics)
+                .build();
 
         workResult = WorkResult.success(
                 UUID.randomUUID().toString(),
@@ -99,6 +125,11 @@ public class CodePipelineJobPollerTest {
         new CodePipelineJobPoller(jobService, jobProcessor, null, POLL_BATCH_SIZE);
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowWhenTracerIsNull() {
+        CodePipelineJobPoller.builder(jobService, jobProcessor, executorService, POLL_BATCH_SIZE).tracer(null).build();
+    }
+
     @Test
     public void shouldPollForJobsWhenThereAreNoActiveWorkerThreads() {
         // given
@@ -218,6 +249,230 @@ public class CodePipelineJobPollerTest {
                 eq(workResult.getFailureDetails()));
     }
 
+    @Test
+    public void shouldRecordMetricsForProcessedJobs() {
+        // when
+        final int jobCount = 3;
+        executeProcessWorkRunnables(jobCount);
+
+        // then
+        assertEquals(jobCount, metrics.getCount(Count.JobsPolled));
+        assertEquals(jobCount, metrics.getCount(Count.JobsSucceeded));
+        assertEquals(0, metrics.getCount(Count.JobsFailed));
+        assertEquals(1, metrics.getLatency(Phase.Poll).getCount());
+        assertEquals(jobCount, metrics.getLatency(Phase.QueueWait).getCount());
+        assertEquals(jobCount, metrics.getLatency(Phase.Acknowledge).getCount());
+        assertEquals(jobCount, metrics.getLatency(Phase.Process).getCount());
+        assertEquals(jobCount, metrics.getLatency(Phase.Report).getCount());
+    }
+
+    @Test
+    public void shouldCountEmptyPolls() {
+        // given
+        when(jobService.pollForJobs(POLL_BATCH_SIZE)).thenReturn(Collections.emptyList());
+
+        // when
+        jobPoller.execute();
+
+        // then
+        assertEquals(1, metrics.getCount(Count.EmptyPolls));
+        assertEquals(0, metrics.getCount(Count.JobsPolled));
+    }
+
+    @Test
+    public void shouldCountFailedJobs() {
+        // given
+        when(jobService.acknowledgeJob(any(), any(), any()))
+                .thenThrow(new RuntimeException("Test Exception"));
+
+        // when
+        executeProcessWorkRunnables(2);
+
+        // then
+        assertEquals(2, metrics.getCount(Count.JobsFailed));
+    }
+
+    @Test
+    public void shouldCountRejectedJobs() {
+        // given
+        when(jobService.pollForJobs(POLL_BATCH_SIZE)).thenReturn(randomWorkItems(2));
+        when(executorService.submit(any(Runnable.class))).thenThrow(new RejectedExecutionException());
+
+        // when
+        jobPoller.execute();
+
+        // then
+        assertEquals(2, metrics.getCount(Count.JobsRejected));
+    }
+
+    @Test
+    public void shouldRecordSpansForProcessedJobs() {
+        // given
+        final RecordingSpanExporter exporter = new RecordingSpanExporter();
+        jobPoller = CodePipelineJobPoller.builder(jobService, jobProcessor, executorService, POLL_BATCH_SIZE)
+                .metrics(metrics)
+                .tracer(new Tracer(exporter))
+                .build();
+        when(jobProcessor.process(any())).thenAnswer(invocation -> {
+            Span.current().startChild("DownloadArtifacts").end();
+            return workResult;
+        });
+
+        // when
+        executeProcessWorkRunnables(1);
+
+        // then
+        final Span poll = exporter.getSpan("PollForJobs");
+        final Span job = exporter.getSpan("Job");
+        final Span process = exporter.getSpan("ProcessJob");
+        assertEquals(10L, poll.getAttributes().get("jobworker.batch_size"));
+        assertEquals(poll.getSpanId(), job.getParentSpanId());
+        assertEquals(job.getSpanId(), exporter.getSpan("AcknowledgeJob").getParentSpanId());
+        assertEquals(job.getSpanId(), process.getParentSpanId());
+        assertEquals(job.getSpanId(), exporter.getSpan("ReportJobResult").getParentSpanId());
+        assertEquals(process.getSpanId(), exporter.getSpan("DownloadArtifacts").getParentSpanId());
+        assertEquals(poll.getTraceId(), exporter.getSpan("DownloadArtifacts").getTraceId());
+        assertEquals(Span.Status.Unset, job.getStatus());
+    }
+
+    @Test
+    public void shouldMarkJobSpanAsFailedWhenProcessorThrows() {
+        // given
+        final RecordingSpanExporter exporter = new RecordingSpanExporter();
+        jobPoller = CodePipelineJobPoller.builder(jobService, jobProcessor, executorService, POLL_BATCH_SIZE)
+                .metrics(metrics)
+                .tracer(new Tracer(exporter))
+                .build();
+        when(jobProcessor.process(any())).thenThrow(new RuntimeException("Test Exception"));
+
+        // when
+        executeProcessWorkRunnables(1);
+
+        // then
+        assertEquals(Span.Status.Error, exporter.getSpan("ProcessJob").getStatus());
+        assertEquals(Span.Status.Error, exporter.getSpan("Job").getStatus());
+    }
+
+    @Test
+    public void shouldPublishLifecycleEventsOfProcessedJob() {
+        // given
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        final JobLifecycleDispatcher dispatcher = new JobLifecycleDispatcher(Collections.singletonList(new JobLifecycleListener() {
+            @Override
+            public void onPolled(final WorkItem workItem) {
+                events.add("Polled");
+            }
+
+            @Override
+            public void onAcknowledged(final WorkItem workItem, final JobStatus jobStatus) {
+                events.add("Acknowledged " + jobStatus);
+            }
+
+            @Override
+            public void onStarted(final WorkItem workItem) {
+                events.add("Started");
+            }
+
+            @Override
+            public void onFinished(final WorkItem workItem, final WorkResult result) {
+                events.add("Finished " + result.getStatus());
+            }
+
+            @Override
+            public void onReported(final WorkItem workItem, final WorkResult result) {
+                events.add("Reported " + result.getStatus());
+            }
+        }));
+        jobPoller = CodePipelineJobPoller.builder(jobService, jobProcessor, executorService, POLL_BATCH_SIZE)
+                .metrics(metrics)
+                .lifecycle(dispatcher)
+                .build();
+
+        // when
+        executeProcessWorkRunnables(1);
+        dispatcher.close();
+
+        // then
+        assertEquals(Arrays.asList("Polled", "Acknowledged InProgress", "Started", "Finished Success", "Reported Success"),
+                events);
+    }
+
+    @Test
+    public void shouldSkipPollWhenHostIsOverloaded() {
+        // given
+        jobPoller = pollerWithAdmission(new ResourceUsage(0.99, 0, -1, -1, -1));
+
+        // when
+        jobPoller.execute();
+
+        // then
+        verify(jobService, never()).pollForJobs(anyInt());
+        assertEquals(1, metrics.getCount(Count.HostLimitedPolls));
+    }
+
+    @Test
+    public void shouldDeferJobsWhoseResourceHintsDoNotFit() {
+        // given
+        final long megabyte = 1024L * 1024L;
+        final CodePipelineJobPoller poller = pollerWithAdmission(new ResourceUsage(0.1, 0, -1, 1024 * megabyte, -1));
+        jobPoller = poller;
+        final WorkItem first = workItemWithHint("512");
+        final WorkItem second = workItemWithHint("512");
+        when(jobService.pollForJobs(POLL_BATCH_SIZE)).thenReturn(Arrays.asList(first, second));
+
+        // when
+        jobPoller.execute();
+        verify(executorService).submit(processWorkRunnables.capture());
+        processWorkRunnables.getValue().run();
+
+        // then
+        verify(jobService).acknowledgeJob(eq(first.getJobId()), any(), any());
+        verify(jobService, never()).acknowledgeJob(eq(second.getJobId()), any(), any());
+        assertEquals(1, metrics.getCount(Count.JobsDeferred));
+        assertEquals(0, poller.getAdmissionController().getReservedMemoryBytes());
+    }
+
+    @Test
+    public void shouldAccountResourcesOfProcessedJobs() {
+        // given
+        final ArgumentCaptor<ExecutionDetails> executionDetails = ArgumentCaptor.forClass(ExecutionDetails.class);
+        final JobAccounting jobAccounting = new JobAccounting(new AccountingSettings(ResourceHint.MEMORY_MB_KEY, 10, true));
+        final CodePipelineJobPoller poller = CodePipelineJobPoller.builder(jobService, jobProcessor, executorService, POLL_BATCH_SIZE)
+                .metrics(metrics)
+                .jobAccounting(jobAccounting)
+                .build();
+        jobPoller = poller;
+        final WorkItem workItem = workItemWithHint("512");
+        when(jobService.pollForJobs(POLL_BATCH_SIZE)).thenReturn(Collections.singletonList(workItem));
+
+        // when
+        jobPoller.execute();
+        verify(executorService).submit(processWorkRunnables.capture());
+        processWorkRunnables.getValue().run();
+
+        // then
+        verify(jobService).putJobSuccess(eq(workItem.getJobId()), any(), executionDetails.capture(), any(), any());
+        assertTrue(executionDetails.getValue().getSummary().startsWith("test summary | CPU "));
+        assertEquals(1, poller.getJobAccounting().getTotal().getJobs());
+        assertEquals(1, poller.getJobAccounting().getByConfiguration().get("512").getJobs());
+    }
+
+    private CodePipelineJobPoller pollerWithAdmission(final ResourceUsage usage) {
+        final AdmissionController admissionController = new AdmissionController(() -> usage,
+                new AdmissionSettings(Paths.get("."), 0.9, 0.9, 256L * 1024L * 1024L, 0, ResourceHint.NONE));
+        return CodePipelineJobPoller.builder(jobService, jobProcessor, executorService, POLL_BATCH_SIZE)
+                .metrics(metrics)
+                .admissionController(admissionController)
+                .build();
+    }
+
+    private WorkItem workItemWithHint(final String memoryMb) {
+        return new WorkItem(UUID.randomUUID().toString(),
+                UUID.randomUUID().toString(),
+                new JobData(Collections.singletonMap(ResourceHint.MEMORY_MB_KEY, memoryMb), null, null, null, null, null),
+                UUID.randomUUID().toString());
+    }
+
     private void executeProcessWorkRunnables(final int workItemCount) {
         when(jobService.pollForJobs(POLL_BATCH_SIZE)).thenReturn(randomWorkItems(workItemCount));
 
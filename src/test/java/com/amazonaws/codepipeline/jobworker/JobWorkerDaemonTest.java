@@ -12,16 +12,27 @@
  */
 package com.amazonaws.codepipeline.jobworker;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 import org.apache.commons.daemon.DaemonContext;
 import org.apache.commons.daemon.DaemonInitException;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -31,7 +42,9 @@ import org.mockito.MockitoAnnotations;
 
 import com.amazonaws.codepipeline.jobworker.JobPoller;
 import com.amazonaws.codepipeline.jobworker.JobWorkerDaemon;
+import com.amazonaws.codepipeline.jobworker.configuration.ConfigurationWatcher;
 import com.amazonaws.codepipeline.jobworker.configuration.JobWorkerConfiguration;
+import com.amazonaws.codepipeline.jobworker.configuration.JobWorkerProperties;
 import com.amazonaws.regions.Regions;
 
 public class JobWorkerDaemonTest {
@@ -55,6 +68,9 @@ public class JobWorkerDaemonTest {
     @Captor
     private ArgumentCaptor<Runnable> pollerRunnable;
 
+    @Captor
+    private ArgumentCaptor<BiConsumer<JobWorkerProperties, JobWorkerProperties>> configurationListener;
+
     private JobWorkerDaemon jobWorkerDaemon;
 
     @Before
@@ -67,6 +83,12 @@ public class JobWorkerDaemonTest {
         jobWorkerDaemon = new JobWorkerDaemon(executorService, jobWorkerConfiguration);
     }
 
+    @After
+    public void tearDown() {
+        // stop() restores the interrupt flag when it is interrupted, do not leak it into the next test
+        Thread.interrupted();
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void shouldThrowWhenExecutorServiceIsNull() {
         new JobWorkerDaemon(null, jobWorkerConfiguration);
@@ -144,7 +166,7 @@ public class JobWorkerDaemonTest {
 
         // then
         verify(executorService).scheduleAtFixedRate(pollerRunnable.capture(),
-                eq(POLL_INTERVAL_MS),
+                eq(0L),
                 eq(POLL_INTERVAL_MS),
                 eq(TimeUnit.MILLISECONDS));
         assertNotNull(pollerRunnable.getValue());
@@ -156,6 +178,49 @@ public class JobWorkerDaemonTest {
         verify(jobPoller).execute();
     }
 
+    @Test
+    public void shouldRescheduleJobPollerWhenPollingIntervalChanges() throws Exception {
+        // given
+        jobWorkerDaemon.start();
+
+        // when
+        jobWorkerDaemon.setPollingIntervalInMs(5000L);
+
+        // then
+        verify(executorService).scheduleAtFixedRate(pollerRunnable.capture(),
+                eq(5000L),
+                eq(5000L),
+                eq(TimeUnit.MILLISECONDS));
+        assertEquals(5000L, jobWorkerDaemon.getPollingIntervalInMs());
+    }
+
+    @Test
+    public void shouldApplyReloadedPollingInterval() throws Exception {
+        // given
+        final ConfigurationWatcher configurationWatcher = mock(ConfigurationWatcher.class);
+        when(jobWorkerConfiguration.configurationWatcher()).thenReturn(configurationWatcher);
+        final JobWorkerDaemon daemon = new JobWorkerDaemon(executorService, jobWorkerConfiguration);
+        daemon.start();
+        verify(configurationWatcher).addListener(configurationListener.capture());
+        verify(configurationWatcher).start();
+
+        // when
+        configurationListener.getValue().accept(loadProperties(POLL_INTERVAL_MS), loadProperties(5000L));
+
+        // then
+        verify(executorService).scheduleAtFixedRate(any(), eq(5000L), eq(5000L), eq(TimeUnit.MILLISECONDS));
+        assertEquals(5000L, daemon.getPollingIntervalInMs());
+    }
+
+    @Test
+    public void shouldNotScheduleJobPollerWhenPollingIntervalChangesBeforeStart() throws Exception {
+        // when
+        jobWorkerDaemon.setPollingIntervalInMs(5000L);
+
+        // then
+        verify(executorService, never()).scheduleAtFixedRate(any(), anyLong(), anyLong(), any());
+    }
+
     @Test
     public void shouldStopSchedulingJobPoller() throws Exception {
         // given
@@ -203,4 +268,18 @@ public class JobWorkerDaemonTest {
         // when
         jobWorkerDaemon.stop();
     }
+
+    private JobWorkerProperties loadProperties(final long pollingIntervalMs) throws IOException {
+        final Path file = Files.createTempFile("jobworker", ".properties");
+        Files.write(file, ("actionType.category=Build\n"
+                + "actionType.owner=Custom\n"
+                + "actionType.provider=MyBuild\n"
+                + "actionType.version=1\n"
+                + "pollingIntervalMs=" + pollingIntervalMs + "\n").getBytes(StandardCharsets.UTF_8));
+        try {
+            return JobWorkerProperties.load(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
 }
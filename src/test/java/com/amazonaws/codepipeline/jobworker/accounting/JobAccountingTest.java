@@ -0,0 +1,168 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.accounting;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.codepipeline.jobworker.model.ExecutionDetails;
+import com.amazonaws.codepipeline.jobworker.model.FailureDetails;
+import com.amazonaws.codepipeline.jobworker.model.FailureType;
+import com.amazonaws.codepipeline.jobworker.model.JobData;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import com.amazonaws.codepipeline.jobworker.model.WorkResult;
+
+public class JobAccountingTest {
+
+    private static final String CONFIGURATION_KEY = "ProjectName";
+
+    private com.sun.management.ThreadMXBean threadMXBean;
+
+    @Before
+    public void setUp() {
+        threadMXBean = mock(com.sun.management.ThreadMXBean.class);
+        when(threadMXBean.isCurrentThreadCpuTimeSupported()).thenReturn(true);
+        when(threadMXBean.isThreadAllocatedMemorySupported()).thenReturn(true);
+    }
+
+    @Test
+    public void shouldMeasureCpuTimeAndAllocatedMemoryOfCurrentThread() {
+        // given
+        final JobAccounting jobAccounting = new JobAccounting(new AccountingSettings(), threadMXBean);
+        when(threadMXBean.getCurrentThreadCpuTime()).thenReturn(100L, 350L);
+        when(threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId())).thenReturn(1000L, 5000L);
+
+        // when
+        final JobResourceUsage usage = jobAccounting.start().read();
+
+        // then
+        assertEquals(250, usage.getCpuNanos());
+        assertEquals(4000, usage.getAllocatedBytes());
+        assertTrue(usage.getWallNanos() >= 0);
+    }
+
+    @Test
+    public void shouldMeasureWallTimeOnlyWhenThreadMeasurementsAreNotSupported() {
+        // given
+        when(threadMXBean.isCurrentThreadCpuTimeSupported()).thenReturn(false);
+        when(threadMXBean.isThreadAllocatedMemorySupported()).thenReturn(false);
+        final JobAccounting jobAccounting = new JobAccounting(new AccountingSettings(), threadMXBean);
+
+        // when
+        final JobResourceUsage usage = jobAccounting.start().read();
+        jobAccounting.record(workItem(null), usage);
+
+        // then
+        assertEquals(JobResourceUsage.UNKNOWN, usage.getCpuNanos());
+        assertEquals(JobResourceUsage.UNKNOWN, usage.getAllocatedBytes());
+        assertEquals(1, jobAccounting.getTotal().getJobs());
+        assertEquals(0, jobAccounting.getTotal().getCpuNanos());
+        assertEquals(0, jobAccounting.getTotal().getAllocatedBytes());
+    }
+
+    @Test
+    public void shouldAggregateByActionConfigurationValue() {
+        // given
+        final JobAccounting jobAccounting = new JobAccounting(
+                new AccountingSettings(CONFIGURATION_KEY, AccountingSettings.DEFAULT_MAX_CONFIGURATION_VALUES, false),
+                threadMXBean);
+
+        // when
+        jobAccounting.record(workItem("small"), new JobResourceUsage(10, 100, 1000));
+        jobAccounting.record(workItem("small"), new JobResourceUsage(20, 200, 2000));
+        jobAccounting.record(workItem("large"), new JobResourceUsage(300, 3000, 30000));
+        jobAccounting.record(workItem(null), new JobResourceUsage(4, 40, 400));
+
+        // then
+        assertEquals(4, jobAccounting.getTotal().getJobs());
+        assertEquals(334, jobAccounting.getTotal().getCpuNanos());
+        assertEquals(2, jobAccounting.getByConfiguration().get("small").getJobs());
+        assertEquals(30, jobAccounting.getByConfiguration().get("small").getCpuNanos());
+        assertEquals(300, jobAccounting.getByConfiguration().get("small").getAllocatedBytes());
+        assertEquals(3000, jobAccounting.getByConfiguration().get("small").getWallNanos());
+        assertEquals(3000, jobAccounting.getByConfiguration().get("large").getAllocatedBytes());
+        assertEquals(1, jobAccounting.getByConfiguration().get(JobAccounting.NO_VALUE).getJobs());
+    }
+
+    @Test
+    public void shouldAggregateValuesBeyondLimitAsOther() {
+        // given
+        final JobAccounting jobAccounting = new JobAccounting(new AccountingSettings(CONFIGURATION_KEY, 2, false),
+                threadMXBean);
+
+        // when
+        jobAccounting.record(workItem("first"), new JobResourceUsage(1, 1, 1));
+        jobAccounting.record(workItem("second"), new JobResourceUsage(1, 1, 1));
+        jobAccounting.record(workItem("third"), new JobResourceUsage(1, 1, 1));
+        jobAccounting.record(workItem("fourth"), new JobResourceUsage(1, 1, 1));
+        jobAccounting.record(workItem("first"), new JobResourceUsage(1, 1, 1));
+
+        // then
+        assertEquals(3, jobAccounting.getByConfiguration().size());
+        assertEquals(2, jobAccounting.getByConfiguration().get("first").getJobs());
+        assertEquals(2, jobAccounting.getByConfiguration().get(JobAccounting.OTHER_VALUES).getJobs());
+        assertFalse(jobAccounting.getByConfiguration().containsKey("third"));
+    }
+
+    @Test
+    public void shouldAppendSummaryToExecutionDetailsOfSucceededJobs() {
+        // given
+        final JobAccounting jobAccounting = new JobAccounting(
+                new AccountingSettings(null, AccountingSettings.DEFAULT_MAX_CONFIGURATION_VALUES, true), threadMXBean);
+        final JobResourceUsage usage = new JobResourceUsage(1250000000L, 35L * 1024L * 1024L, 4100000000L);
+        final WorkResult success = WorkResult.success("job", new ExecutionDetails("Deployed", "external", 100), null, null);
+        final WorkResult failure = WorkResult.failure("job", new FailureDetails(FailureType.JobFailed, "failed"));
+
+        // when
+        final WorkResult summarized = jobAccounting.summarize(success, usage);
+        final WorkResult unchanged = jobAccounting.summarize(failure, usage);
+
+        // then
+        assertEquals("Deployed | " + usage.toSummary(), summarized.getExecutionDetails().getSummary());
+        assertEquals("external", summarized.getExecutionDetails().getExternalExecutionId());
+        assertEquals(100, summarized.getExecutionDetails().getPercentComplete());
+        assertSame(failure, unchanged);
+    }
+
+    @Test
+    public void shouldNotMeasureWhenDisabled() {
+        // given
+        final JobAccounting jobAccounting = JobAccounting.disabled();
+        final WorkResult success = WorkResult.success("job");
+
+        // when
+        jobAccounting.record(workItem("value"), new JobResourceUsage(1, 1, 1));
+
+        // then
+        assertFalse(jobAccounting.isEnabled());
+        assertTrue(jobAccounting.getByConfiguration().isEmpty());
+        assertSame(success, jobAccounting.summarize(success, new JobResourceUsage(1, 1, 1)));
+    }
+
+    private static WorkItem workItem(final String configurationValue) {
+        final JobData jobData = configurationValue == null
+                ? null
+                : new JobData(Collections.singletonMap(CONFIGURATION_KEY, configurationValue), null, null, null, null, null);
+        return new WorkItem(UUID.randomUUID().toString(), UUID.randomUUID().toString(), jobData, UUID.randomUUID().toString());
+    }
+}
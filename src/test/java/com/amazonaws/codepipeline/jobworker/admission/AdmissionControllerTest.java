@@ -0,0 +1,182 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.admission;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.amazonaws.codepipeline.jobworker.model.JobData;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+
+public class AdmissionControllerTest {
+
+    private static final long MB = 1024L * 1024L;
+
+    private volatile ResourceUsage usage = usage(0.5, 0.5, 4096, 10240);
+
+    @Test
+    public void shouldAdmitAllJobsWhenHostHasResources() {
+        // given
+        final AdmissionController admissionController = admissionController(ResourceHint.NONE);
+
+        // when
+        final int batchSize = admissionController.admit(10);
+
+        // then
+        assertEquals(10, batchSize);
+    }
+
+    @Test
+    public void shouldStopPollingWhenCpuLoadIsAboveThreshold() {
+        // given
+        final AdmissionController admissionController = admissionController(ResourceHint.NONE);
+        usage = usage(0.95, 0.5, 4096, 10240);
+
+        // when
+        final int batchSize = admissionController.admit(10);
+
+        // then
+        assertEquals(0, batchSize);
+    }
+
+    @Test
+    public void shouldStopPollingWhenHeapIsAlmostFull() {
+        // given
+        final AdmissionController admissionController = admissionController(ResourceHint.NONE);
+        usage = usage(0.5, 0.95, 4096, 10240);
+
+        // when
+        final int batchSize = admissionController.admit(10);
+
+        // then
+        assertEquals(0, batchSize);
+    }
+
+    @Test
+    public void shouldStopPollingWhenDiskIsBelowMinimum() {
+        // given
+        final AdmissionController admissionController = admissionController(ResourceHint.NONE);
+        usage = usage(0.5, 0.5, 4096, 512);
+
+        // when
+        final int batchSize = admissionController.admit(10);
+
+        // then
+        assertEquals(0, batchSize);
+    }
+
+    @Test
+    public void shouldReduceBatchSizeToJobsFittingFreeMemory() {
+        // given
+        final AdmissionController admissionController = admissionController(new ResourceHint(1024 * MB, 0));
+
+        // when
+        final int batchSize = admissionController.admit(10);
+
+        // then
+        // 4096 MB free minus 256 MB kept free fits three jobs of 1024 MB
+        assertEquals(3, batchSize);
+    }
+
+    @Test
+    public void shouldReserveResourcesOfJobHintsUntilJobEnds() {
+        // given
+        final AdmissionController admissionController = admissionController(ResourceHint.NONE);
+        admissionController.admit(10);
+
+        // when
+        final AdmissionController.Reservation first = admissionController.reserve(workItem("2048"));
+        final AdmissionController.Reservation second = admissionController.reserve(workItem("2048"));
+        first.close();
+        final AdmissionController.Reservation third = admissionController.reserve(workItem("2048"));
+
+        // then
+        assertNotNull(first);
+        assertNull(second);
+        assertNotNull(third);
+        assertEquals(2048 * MB, admissionController.getReservedMemoryBytes());
+    }
+
+    @Test
+    public void shouldOnlySubtractReservationsMadeSinceLastMeasurement() {
+        // given
+        final AdmissionController admissionController = admissionController(new ResourceHint(1024 * MB, 0));
+        admissionController.admit(10);
+        admissionController.reserve(workItem("1024"));
+        admissionController.reserve(workItem("1024"));
+        // the two jobs have allocated their memory by the next measurement
+        usage = usage(0.5, 0.5, 2048, 10240);
+
+        // when
+        final int batchSize = admissionController.admit(10);
+
+        // then
+        // 2048 MB free minus 256 MB kept free fits one more job of 1024 MB
+        assertEquals(1, batchSize);
+        assertEquals(2048 * MB, admissionController.getReservedMemoryBytes());
+    }
+
+    @Test
+    public void shouldUseDefaultHintForInvalidJobHint() {
+        // given
+        final ResourceHint defaultHint = new ResourceHint(100 * MB, 200 * MB);
+
+        // when
+        final ResourceHint hint = ResourceHint.forJob(workItem("lots"), defaultHint);
+
+        // then
+        assertEquals(100 * MB, hint.getMemoryBytes());
+        assertEquals(200 * MB, hint.getDiskBytes());
+    }
+
+    @Test
+    public void shouldAdmitEverythingWhenUnlimited() {
+        // given
+        final AdmissionController admissionController = AdmissionController.unlimited();
+
+        // when
+        final int batchSize = admissionController.admit(10);
+
+        // then
+        assertEquals(10, batchSize);
+        assertNotNull(admissionController.reserve(workItem("1000000")));
+    }
+
+    private AdmissionController admissionController(final ResourceHint defaultJobHint) {
+        return new AdmissionController(() -> usage, new AdmissionSettings(Paths.get("."),
+                AdmissionSettings.DEFAULT_MAX_CPU_LOAD,
+                AdmissionSettings.DEFAULT_MAX_HEAP_USAGE,
+                AdmissionSettings.DEFAULT_MIN_FREE_MEMORY_BYTES,
+                AdmissionSettings.DEFAULT_MIN_FREE_DISK_BYTES,
+                defaultJobHint));
+    }
+
+    private static ResourceUsage usage(final double cpuLoad,
+                                       final double heapUsage,
+                                       final long freeMemoryMb,
+                                       final long freeDiskMb) {
+        return new ResourceUsage(cpuLoad, (long) (heapUsage * 1000 * MB), 1000 * MB, freeMemoryMb * MB, freeDiskMb * MB);
+    }
+
+    private static WorkItem workItem(final String memoryMb) {
+        final JobData jobData = new JobData(Collections.singletonMap(ResourceHint.MEMORY_MB_KEY, memoryMb),
+                null, null, null, null, null);
+        return new WorkItem("job-id", "nonce", jobData, "client-id");
+    }
+}
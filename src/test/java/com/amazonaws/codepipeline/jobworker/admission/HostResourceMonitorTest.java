@@ -0,0 +1,70 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.admission;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HostResourceMonitorTest {
+
+    private Path meminfo;
+
+    @Before
+    public void setUp() throws IOException {
+        meminfo = Files.createTempFile("meminfo", ".txt");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(meminfo);
+    }
+
+    @Test
+    public void shouldReadAvailableMemoryIncludingReclaimableCache() throws IOException {
+        // given
+        Files.write(meminfo, ("MemTotal:        8000000 kB\n"
+                + "MemFree:          100000 kB\n"
+                + "MemAvailable:    6000000 kB\n"
+                + "Cached:          5500000 kB\n").getBytes(StandardCharsets.US_ASCII));
+        final HostResourceMonitor monitor = new HostResourceMonitor(meminfo.getParent(), meminfo);
+
+        // when
+        final ResourceUsage usage = monitor.sample();
+
+        // then
+        assertEquals(6000000L * 1024L, usage.getFreeMemoryBytes());
+        assertTrue(usage.getFreeDiskBytes() > 0);
+    }
+
+    @Test
+    public void shouldFallBackToMXBeanWithoutMeminfo() throws IOException {
+        // given
+        Files.delete(meminfo);
+        final HostResourceMonitor monitor = new HostResourceMonitor(meminfo.getParent(), meminfo);
+
+        // when
+        final ResourceUsage usage = monitor.sample();
+
+        // then
+        assertTrue(usage.getFreeMemoryBytes() != 0);
+    }
+}
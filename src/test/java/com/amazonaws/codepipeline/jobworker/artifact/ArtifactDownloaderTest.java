@@ -0,0 +1,232 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.artifact;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.codepipeline.jobworker.model.AWSSessionCredentials;
+import com.amazonaws.codepipeline.jobworker.model.Artifact;
+import com.amazonaws.services.s3.AmazonS3;
+
+public class ArtifactDownloaderTest {
+
+    private static final String BUCKET = "my-bucket";
+    private static final String KEY = "my-object-key";
+    private static final int PART_SIZE = 64 * 1024;
+
+    private final AWSSessionCredentials credentials = new AWSSessionCredentials("access-key", "secret-key", "session-token");
+    private final Artifact artifact = new Artifact("MyArtifact", "revision", BUCKET, KEY);
+
+    private LocalS3Server s3Server;
+    private ExecutorService executorService;
+    private ArtifactDownloader artifactDownloader;
+    private Path target;
+
+    @Before
+    public void setUp() throws Exception {
+        s3Server = new LocalS3Server();
+        executorService = Executors.newFixedThreadPool(4);
+        artifactDownloader = new ArtifactDownloader(new DefaultS3ClientFactory(s3Server.endpoint()),
+                executorService, PART_SIZE, 4, 2);
+        target = Files.createTempFile("artifact", ".zip");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        s3Server.close();
+        executorService.shutdownNow();
+        Files.deleteIfExists(target);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowWhenS3ClientFactoryIsNull() {
+        new ArtifactDownloader(null, executorService);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowWhenPartSizeIsNotPositive() {
+        new ArtifactDownloader(new DefaultS3ClientFactory(s3Server.endpoint()), executorService, 0, 4, 2);
+    }
+
+    @Test
+    public void shouldDownloadObjectInParallelRanges() throws Exception {
+        // given
+        final byte[] content = randomContent(10 * PART_SIZE + 123);
+        s3Server.putObject(BUCKET, KEY, content);
+
+        // when
+        artifactDownloader.download(artifact, credentials, target);
+
+        // then
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(11, s3Server.getRangeRequests());
+    }
+
+    @Test
+    public void shouldAlignRangesWithUploadPartsForMultipartObjects() throws Exception {
+        // given
+        final byte[] content = randomContent(5 * 100 * 1024 + 17);
+        s3Server.putMultipartObject(BUCKET, KEY, content, 100 * 1024);
+
+        // when
+        artifactDownloader.download(artifact, credentials, target);
+
+        // then
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(6, s3Server.getRangeRequests());
+    }
+
+    @Test
+    public void shouldAlignRangesWithUploadPartsOfDifferentSizes() throws Exception {
+        // given
+        final int[] uploadPartSizes = {100 * 1024, 60 * 1024, 100 * 1024, 17};
+        final byte[] content = randomContent(260 * 1024 + 17);
+        s3Server.putMultipartObject(BUCKET, KEY, content, uploadPartSizes);
+
+        // when
+        artifactDownloader.download(artifact, credentials, target);
+
+        // then
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(4, s3Server.getRangeRequests());
+    }
+
+    @Test
+    public void shouldDetectCorruptedMultipartObjectWithUploadPartsOfDifferentSizes() throws Exception {
+        // given
+        s3Server.putMultipartObject(BUCKET, KEY, randomContent(3 * PART_SIZE), new int[] {PART_SIZE, 2 * PART_SIZE});
+        s3Server.corruptObject(BUCKET, KEY);
+
+        // when
+        try {
+            artifactDownloader.download(artifact, credentials, target);
+            fail("Expected checksum mismatch");
+        } catch (final ArtifactTransferException e) {
+            // then
+            assertFalse(Files.exists(target));
+        }
+    }
+
+    @Test
+    public void shouldRetryTruncatedParts() throws Exception {
+        // given
+        final byte[] content = randomContent(4 * PART_SIZE);
+        s3Server.putObject(BUCKET, KEY, content);
+        s3Server.truncateNextResponses(2);
+
+        // when
+        artifactDownloader.download(artifact, credentials, target);
+
+        // then
+        assertArrayEquals(content, Files.readAllBytes(target));
+    }
+
+    @Test
+    public void shouldDownloadEmptyObject() throws Exception {
+        // given
+        s3Server.putObject(BUCKET, KEY, new byte[0]);
+
+        // when
+        artifactDownloader.download(artifact, credentials, target);
+
+        // then
+        assertEquals(0, Files.size(target));
+    }
+
+    @Test
+    public void shouldFailAndDeleteFileWhenChecksumDoesNotMatch() throws Exception {
+        // given
+        s3Server.putObject(BUCKET, KEY, randomContent(3 * PART_SIZE));
+        s3Server.corruptObject(BUCKET, KEY);
+
+        // when
+        try {
+            artifactDownloader.download(artifact, credentials, target);
+            fail("Expected checksum mismatch");
+        } catch (final ArtifactTransferException e) {
+            // then
+            assertFalse(Files.exists(target));
+        }
+    }
+
+    @Test
+    public void shouldShutDownS3ClientAfterDownload() throws Exception {
+        // given
+        s3Server.putObject(BUCKET, KEY, randomContent(3 * PART_SIZE));
+        final AtomicInteger shutdowns = new AtomicInteger();
+        final AmazonS3 s3Client = countShutdowns(new DefaultS3ClientFactory(s3Server.endpoint()).getS3Client(credentials), shutdowns);
+        final ArtifactDownloader downloader = new ArtifactDownloader(jobCredentials -> s3Client, executorService, PART_SIZE, 4, 2);
+
+        // when
+        downloader.download(artifact, credentials, target);
+
+        // then
+        assertEquals(1, shutdowns.get());
+    }
+
+    @Test
+    public void shouldShutDownS3ClientWhenDownloadFails() throws Exception {
+        // given
+        s3Server.putObject(BUCKET, KEY, randomContent(3 * PART_SIZE));
+        s3Server.corruptObject(BUCKET, KEY);
+        final AtomicInteger shutdowns = new AtomicInteger();
+        final AmazonS3 s3Client = countShutdowns(new DefaultS3ClientFactory(s3Server.endpoint()).getS3Client(credentials), shutdowns);
+        final ArtifactDownloader downloader = new ArtifactDownloader(jobCredentials -> s3Client, executorService, PART_SIZE, 4, 2);
+
+        // when
+        try {
+            downloader.download(artifact, credentials, target);
+            fail("Expected checksum mismatch");
+        } catch (final ArtifactTransferException e) {
+            // then
+            assertEquals(1, shutdowns.get());
+        }
+    }
+
+    private static AmazonS3 countShutdowns(final AmazonS3 s3Client, final AtomicInteger shutdowns) {
+        final InvocationHandler handler = (proxy, method, arguments) -> {
+            if ("shutdown".equals(method.getName())) {
+                shutdowns.incrementAndGet();
+            }
+            try {
+                return method.invoke(s3Client, arguments);
+            } catch (final InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (AmazonS3) Proxy.newProxyInstance(AmazonS3.class.getClassLoader(), new Class<?>[] { AmazonS3.class }, handler);
+    }
+
+    private static byte[] randomContent(final int size) {
+        final byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.artifact;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.codepipeline.jobworker.model.AWSSessionCredentials;
+import com.amazonaws.codepipeline.jobworker.model.Artifact;
+import com.amazonaws.codepipeline.jobworker.model.EncryptionKey;
+import com.amazonaws.codepipeline.jobworker.model.EncryptionKeyType;
+import com.amazonaws.codepipeline.jobworker.model.JobData;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+
+public class ArtifactUploaderTest {
+
+    private static final String BUCKET = "my-bucket";
+    private static final String KEY = "my-object-key";
+    private static final String KMS_KEY_ID = "arn:aws:kms:us-east-1:123456789012:key/my-key";
+    private static final int PART_SIZE = ArtifactUploader.MIN_PART_SIZE;
+
+    private final AWSSessionCredentials credentials = new AWSSessionCredentials("access-key", "secret-key", "session-token");
+    private final Artifact artifact = new Artifact("MyArtifact", null, BUCKET, KEY);
+    private final JobData jobData = new JobData(null, null, Collections.singletonList(artifact), credentials, null, null);
+    private final JobData encryptedJobData = new JobData(null, null, Collections.singletonList(artifact), credentials, null,
+            new EncryptionKey(EncryptionKeyType.KMS, KMS_KEY_ID));
+
+    @Mock
+    private AmazonS3 s3Client;
+
+    @Mock
+    private S3ClientFactory s3ClientFactory;
+
+    @Captor
+    private ArgumentCaptor<PutObjectRequest> putObjectRequestCaptor;
+
+    @Captor
+    private ArgumentCaptor<InitiateMultipartUploadRequest> initiateMultipartUploadRequestCaptor;
+
+    private LocalS3Server s3Server;
+    private ExecutorService executorService;
+    private ArtifactUploader artifactUploader;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        when(s3ClientFactory.getS3Client(any())).thenReturn(s3Client);
+
+        s3Server = new LocalS3Server();
+        executorService = Executors.newFixedThreadPool(8);
+        artifactUploader = new ArtifactUploader(new DefaultS3ClientFactory(s3Server.endpoint()),
+                executorService, PART_SIZE, 2, 4);
+    }
+
+    @After
+    public void tearDown() {
+        s3Server.close();
+        executorService.shutdownNow();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowWhenPartSizeIsBelowMinimum() {
+        new ArtifactUploader(new DefaultS3ClientFactory(s3Server.endpoint()), executorService, 1024, 2, 4);
+    }
+
+    @Test
+    public void shouldUploadSmallArtifactWithSingleRequest() throws Exception {
+        // given
+        final byte[] content = randomContent(1024);
+
+        // when
+        try (OutputStream output = artifactUploader.newOutputStream(jobData, artifact)) {
+            output.write(content);
+        }
+
+        // then
+        assertArrayEquals(content, s3Server.getObject(BUCKET, KEY));
+        assertEquals(0, s3Server.getUploadedParts());
+    }
+
+    @Test
+    public void shouldUploadLargeArtifactInParts() throws Exception {
+        // given
+        final byte[] content = randomContent(2 * PART_SIZE + 4711);
+
+        // when
+        try (OutputStream output = artifactUploader.newOutputStream(jobData, artifact)) {
+            for (int offset = 0; offset < content.length; offset += 1000) {
+                output.write(content, offset, Math.min(1000, content.length - offset));
+            }
+        }
+
+        // then
+        assertArrayEquals(content, s3Server.getObject(BUCKET, KEY));
+        assertEquals(3, s3Server.getUploadedParts());
+        assertEquals(0, s3Server.getOpenUploads());
+    }
+
+    @Test
+    public void shouldBoundPartsInFlight() throws Exception {
+        // given
+        s3Server.delayPartUploads(200);
+        final byte[] content = randomContent(5 * PART_SIZE);
+
+        // when
+        try (OutputStream output = artifactUploader.newOutputStream(jobData, artifact)) {
+            output.write(content);
+        }
+
+        // then
+        assertArrayEquals(content, s3Server.getObject(BUCKET, KEY));
+        assertTrue(s3Server.getMaxConcurrentPartUploads() <= 2);
+    }
+
+    @Test
+    public void shouldShutDownS3ClientWhenStreamIsClosed() throws Exception {
+        // given
+        final ArtifactUploader uploader = new ArtifactUploader(s3ClientFactory, executorService, PART_SIZE, 2, 4);
+
+        // when
+        try (OutputStream output = uploader.newOutputStream(jobData, artifact)) {
+            output.write(randomContent(1024));
+        }
+
+        // then
+        verify(s3Client).shutdown();
+    }
+
+    @Test
+    public void shouldNotRequestEncryptionWithoutEncryptionKey() throws Exception {
+        // when
+        try (OutputStream output = artifactUploader.newOutputStream(artifact, credentials, null)) {
+            output.write(randomContent(10));
+        }
+
+        // then
+        assertNull(s3Server.getKmsKeyId(BUCKET, KEY));
+    }
+
+    @Test
+    public void shouldApplyKmsEncryptionKeyToSingleRequestUpload() throws Exception {
+        // given
+        when(s3Client.putObject(any(PutObjectRequest.class))).thenReturn(new PutObjectResult());
+        final ArtifactUploader uploader = new ArtifactUploader(s3ClientFactory, executorService, PART_SIZE, 2, 4);
+
+        // when
+        try (OutputStream output = uploader.newOutputStream(encryptedJobData, artifact)) {
+            output.write(randomContent(10));
+        }
+
+        // then
+        verify(s3Client).putObject(putObjectRequestCaptor.capture());
+        assertEquals(KMS_KEY_ID, putObjectRequestCaptor.getValue().getSSEAwsKeyManagementParams().getAwsKmsKeyId());
+    }
+
+    @Test
+    public void shouldApplyKmsEncryptionKeyToMultipartUpload() throws Exception {
+        // given
+        final InitiateMultipartUploadResult initiateResult = new InitiateMultipartUploadResult();
+        initiateResult.setUploadId("upload-id");
+        final UploadPartResult uploadPartResult = new UploadPartResult();
+        uploadPartResult.setPartNumber(1);
+        uploadPartResult.setETag("etag");
+        when(s3Client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initiateResult);
+        when(s3Client.uploadPart(any(UploadPartRequest.class))).thenReturn(uploadPartResult);
+        when(s3Client.completeMultipartUpload(any(CompleteMultipartUploadRequest.class))).thenReturn(new CompleteMultipartUploadResult());
+        final ArtifactUploader uploader = new ArtifactUploader(s3ClientFactory, executorService, PART_SIZE, 2, 4);
+
+        // when
+        try (OutputStream output = uploader.newOutputStream(encryptedJobData, artifact)) {
+            output.write(randomContent(PART_SIZE + 1));
+        }
+
+        // then
+        verify(s3Client).initiateMultipartUpload(initiateMultipartUploadRequestCaptor.capture());
+        assertEquals(KMS_KEY_ID, initiateMultipartUploadRequestCaptor.getValue().getSSEAwsKeyManagementParams().getAwsKmsKeyId());
+    }
+
+    @Test
+    public void shouldAbortUploadWhenPartFails() throws Exception {
+        // given
+        s3Server.failPartUploads();
+
+        // when
+        final OutputStream output = artifactUploader.newOutputStream(jobData, artifact);
+        try {
+            output.write(randomContent(2 * PART_SIZE));
+            output.close();
+            fail("Expected upload to fail");
+        } catch (final IOException e) {
+            // then
+            assertEquals(0, s3Server.getOpenUploads());
+            assertNull(s3Server.getObject(BUCKET, KEY));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void shouldReleaseBuffersOfQueuedPartsWhenUploadIsAborted() throws Exception {
+        // given
+        final InitiateMultipartUploadResult initiateResult = new InitiateMultipartUploadResult();
+        initiateResult.setUploadId("upload-id");
+        final UploadPartResult uploadPartResult = new UploadPartResult();
+        uploadPartResult.setETag("etag");
+        when(s3Client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initiateResult);
+        when(s3Client.uploadPart(any(UploadPartRequest.class)))
+                .thenThrow(new AmazonClientException("part failed"))
+                .thenReturn(uploadPartResult);
+        when(s3Client.completeMultipartUpload(any(CompleteMultipartUploadRequest.class))).thenReturn(new CompleteMultipartUploadResult());
+        final ManualExecutorService partExecutor = new ManualExecutorService();
+        final DirectBufferPool bufferPool = new DirectBufferPool(PART_SIZE, 2);
+        final ArtifactOutputStream aborted = new ArtifactOutputStream(s3Client, artifact, null, bufferPool, partExecutor, 4);
+        aborted.write(randomContent(2 * PART_SIZE));
+        partExecutor.runNext();
+
+        // when
+        try {
+            aborted.close();
+            fail("Expected upload to fail");
+        } catch (final IOException e) {
+            // the second part was still queued when the upload was aborted
+        }
+        final ArtifactOutputStream next = new ArtifactOutputStream(s3Client, artifact, null, bufferPool, partExecutor, 4);
+        next.write(randomContent(PART_SIZE + 10));
+        partExecutor.runAll();
+        next.close();
+
+        // then
+        verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+        verify(s3Client, times(3)).uploadPart(any(UploadPartRequest.class));
+        assertEquals(2, bufferPool.getAllocatedBuffers());
+    }
+
+    @Test
+    public void shouldNotWriteObjectWhenInitiatingMultipartUploadFails() throws Exception {
+        // given
+        when(s3Client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+                .thenThrow(new AmazonClientException("initiate failed"));
+        final ArtifactUploader uploader = new ArtifactUploader(s3ClientFactory, executorService, PART_SIZE, 2, 4);
+        final Path file = Files.createTempFile("artifact", ".zip");
+        try {
+            Files.write(file, randomContent(PART_SIZE + 1));
+
+            // when
+            uploader.upload(jobData, artifact, file);
+            fail("Expected upload to fail");
+        } catch (final ArtifactTransferException e) {
+            // then
+            assertTrue(e.getCause() instanceof AmazonClientException);
+            verify(s3Client, never()).putObject(any(PutObjectRequest.class));
+            verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void shouldAbortUploadWhenInterruptedWhileWaitingForPartUpload() throws Exception {
+        // given
+        final InitiateMultipartUploadResult initiateResult = new InitiateMultipartUploadResult();
+        initiateResult.setUploadId("upload-id");
+        when(s3Client.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class))).thenReturn(initiateResult);
+        final DirectBufferPool bufferPool = new DirectBufferPool(PART_SIZE, 2);
+        final ArtifactOutputStream output = new ArtifactOutputStream(s3Client, artifact, null, bufferPool,
+                new ManualExecutorService(), 1);
+        output.write(randomContent(PART_SIZE));
+
+        // when
+        Thread.currentThread().interrupt();
+        try {
+            output.write(randomContent(PART_SIZE));
+            fail("Expected write to be interrupted");
+        } catch (final InterruptedIOException e) {
+            assertTrue(Thread.interrupted());
+        }
+        try {
+            output.close();
+            fail("Expected upload to fail");
+        } catch (final IOException e) {
+            // then
+            verify(s3Client).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+            verify(s3Client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+        }
+        bufferPool.acquire();
+        bufferPool.acquire();
+        assertEquals(2, bufferPool.getAllocatedBuffers());
+    }
+
+    private static byte[] randomContent(final int size) {
+        final byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    /**
+     * Executor which queues tasks until the test runs them, then runs them on the calling thread.
+     */
+    private static final class ManualExecutorService extends AbstractExecutorService {
+        private final Queue<Runnable> queued = new ArrayDeque<>();
+        private boolean inline;
+
+        @Override
+        public void execute(final Runnable task) {
+            if (inline) {
+                task.run();
+            } else {
+                queued.add(task);
+            }
+        }
+
+        private void runNext() {
+            queued.remove().run();
+        }
+
+        private void runAll() {
+            inline = true;
+            while (!queued.isEmpty()) {
+                runNext();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(final long timeout, final TimeUnit unit) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,447 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.artifact;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.amazonaws.util.BinaryUtils;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Minimal S3 compatible stand-in which keeps objects in memory.
+ * Supports HEAD, ranged GET, PUT and multipart upload requests with path style addressing,
+ * which is all the artifact downloader and uploader need.
+ */
+public final class LocalS3Server implements AutoCloseable {
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+    private static final Pattern PART_NUMBER = Pattern.compile("partNumber=(\\d+)");
+    private static final Pattern UPLOAD_ID = Pattern.compile("uploadId=([^&]+)");
+    private static final Pattern ACCESS_KEY_ID = Pattern.compile("Credential=([^/]+)/");
+    private static final String SSE_HEADER = "x-amz-server-side-encryption";
+    private static final String SSE_KMS_KEY_HEADER = "x-amz-server-side-encryption-aws-kms-key-id";
+
+    private final HttpServer server;
+    private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+    private final AtomicInteger rangeRequests = new AtomicInteger();
+    private final AtomicInteger truncatedResponses = new AtomicInteger();
+    private final AtomicInteger uploadedParts = new AtomicInteger();
+    private final AtomicInteger maxConcurrentPartUploads = new AtomicInteger();
+    private final AtomicInteger concurrentPartUploads = new AtomicInteger();
+    private final AtomicInteger uploadCounter = new AtomicInteger();
+    private final Map<String, SortedMap<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private final Map<String, String> kmsKeyIds = new ConcurrentHashMap<>();
+    private final List<String> accessKeyIds = new CopyOnWriteArrayList<>();
+    private volatile long partUploadDelayMs;
+    private volatile boolean failPartUploads;
+
+    /**
+     * Starts the server on a random local port.
+     * @throws IOException if the server socket could not be opened
+     */
+    public LocalS3Server() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * @return endpoint configuration pointing to this server
+     */
+    public EndpointConfiguration endpoint() {
+        return new EndpointConfiguration("http://localhost:" + server.getAddress().getPort(), "us-east-1");
+    }
+
+    /**
+     * Stores an object which was uploaded in a single request.
+     * @param bucket bucket name
+     * @param key object key
+     * @param content object content
+     */
+    public void putObject(final String bucket, final String key, final byte[] content) {
+        objects.put(bucket + "/" + key, new StoredObject(content, BinaryUtils.toHex(md5(content)), new int[] {content.length}));
+    }
+
+    /**
+     * Stores an object which was uploaded as multipart upload with the given part size.
+     * @param bucket bucket name
+     * @param key object key
+     * @param content object content
+     * @param uploadPartSize size of the upload parts
+     */
+    public void putMultipartObject(final String bucket, final String key, final byte[] content, final int uploadPartSize) {
+        final int[] uploadPartSizes = new int[(content.length + uploadPartSize - 1) / uploadPartSize];
+        for (int i = 0; i < uploadPartSizes.length; i++) {
+            uploadPartSizes[i] = Math.min(uploadPartSize, content.length - i * uploadPartSize);
+        }
+        putMultipartObject(bucket, key, content, uploadPartSizes);
+    }
+
+    /**
+     * Stores an object which was uploaded as multipart upload with parts of different sizes.
+     * @param bucket bucket name
+     * @param key object key
+     * @param content object content
+     * @param uploadPartSizes sizes of the upload parts, must add up to the content length
+     */
+    public void putMultipartObject(final String bucket, final String key, final byte[] content, final int[] uploadPartSizes) {
+        final MessageDigest digests = newDigest();
+        int offset = 0;
+        for (final int uploadPartSize : uploadPartSizes) {
+            final MessageDigest part = newDigest();
+            part.update(content, offset, uploadPartSize);
+            digests.update(part.digest());
+            offset += uploadPartSize;
+        }
+        objects.put(bucket + "/" + key, new StoredObject(content,
+                BinaryUtils.toHex(digests.digest()) + "-" + uploadPartSizes.length, uploadPartSizes));
+    }
+
+    /**
+     * Flips a byte of a stored object without updating its ETag.
+     * @param bucket bucket name
+     * @param key object key
+     */
+    public void corruptObject(final String bucket, final String key) {
+        final byte[] content = objects.get(bucket + "/" + key).content;
+        content[content.length / 2] ^= 0xFF;
+    }
+
+    /**
+     * Lets the next range responses close the connection after half of the range was sent.
+     * @param count number of responses to truncate
+     */
+    public void truncateNextResponses(final int count) {
+        truncatedResponses.set(count);
+    }
+
+    /**
+     * Delays every part upload response, which makes parts overlap.
+     * @param delayMs delay in milliseconds
+     */
+    public void delayPartUploads(final long delayMs) {
+        this.partUploadDelayMs = delayMs;
+    }
+
+    /**
+     * Lets all following part uploads fail with a client error.
+     */
+    public void failPartUploads() {
+        this.failPartUploads = true;
+    }
+
+    /**
+     * @param bucket bucket name
+     * @param key object key
+     * @return content of the stored object, null if it does not exist
+     */
+    public byte[] getObject(final String bucket, final String key) {
+        final StoredObject object = objects.get(bucket + "/" + key);
+        return object == null ? null : object.content;
+    }
+
+    /**
+     * @param bucket bucket name
+     * @param key object key
+     * @return KMS key id the object was encrypted with, null if not encrypted with KMS
+     */
+    public String getKmsKeyId(final String bucket, final String key) {
+        return kmsKeyIds.get(bucket + "/" + key);
+    }
+
+    /**
+     * @return number of multipart uploads which were neither completed nor aborted
+     */
+    public int getOpenUploads() {
+        return uploads.size();
+    }
+
+    /**
+     * @return number of uploaded parts
+     */
+    public int getUploadedParts() {
+        return uploadedParts.get();
+    }
+
+    /**
+     * @return maximum number of part uploads which were in progress at the same time
+     */
+    public int getMaxConcurrentPartUploads() {
+        return maxConcurrentPartUploads.get();
+    }
+
+    /**
+     * @return number of ranged GET requests served
+     */
+    public int getRangeRequests() {
+        return rangeRequests.get();
+    }
+
+    /**
+     * @return access key ids which signed the requests served, in order
+     */
+    public List<String> getAccessKeyIds() {
+        return new ArrayList<>(accessKeyIds);
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            final String authorization = exchange.getRequestHeaders().getFirst("Authorization");
+            if (authorization != null) {
+                final Matcher credential = ACCESS_KEY_ID.matcher(authorization);
+                if (credential.find()) {
+                    accessKeyIds.add(credential.group(1));
+                }
+            }
+            final String path = exchange.getRequestURI().getPath().substring(1);
+            final String method = exchange.getRequestMethod();
+            if ("PUT".equals(method) || "POST".equals(method) || "DELETE".equals(method)) {
+                handleUpload(exchange, path, method);
+                return;
+            }
+            final StoredObject object = objects.get(path);
+            if (object == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            exchange.getResponseHeaders().set("ETag", "\"" + object.eTag + "\"");
+            exchange.getResponseHeaders().set("Last-Modified", "Thu, 01 Jan 2015 00:00:00 GMT");
+            exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                handleHead(exchange, object);
+            } else {
+                handleGet(exchange, object);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleHead(final HttpExchange exchange, final StoredObject object) throws IOException {
+        long length = object.content.length;
+        final String query = exchange.getRequestURI().getQuery();
+        if (query != null) {
+            final Matcher matcher = PART_NUMBER.matcher(query);
+            if (matcher.find()) {
+                length = object.uploadPartSizes[Integer.parseInt(matcher.group(1)) - 1];
+            }
+        }
+        exchange.getResponseHeaders().set("Content-Length", Long.toString(length));
+        // the JDK server does not reliably keep connections alive after a HEAD response with a content length
+        exchange.getResponseHeaders().set("Connection", "close");
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void handleGet(final HttpExchange exchange, final StoredObject object) throws IOException {
+        final String ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+        if (ifMatch != null && !ifMatch.replace("\"", "").equals(object.eTag)) {
+            exchange.sendResponseHeaders(412, -1);
+            return;
+        }
+
+        final Matcher matcher = RANGE.matcher(exchange.getRequestHeaders().getFirst("Range"));
+        if (!matcher.matches()) {
+            exchange.sendResponseHeaders(416, -1);
+            return;
+        }
+        rangeRequests.incrementAndGet();
+        final int start = Integer.parseInt(matcher.group(1));
+        final int end = Math.min(Integer.parseInt(matcher.group(2)), object.content.length - 1);
+        final int length = end - start + 1;
+
+        exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + object.content.length);
+        exchange.sendResponseHeaders(206, length);
+        final OutputStream body = exchange.getResponseBody();
+        if (truncatedResponses.getAndDecrement() > 0) {
+            body.write(object.content, start, length / 2);
+            body.flush();
+            throw new IOException("Simulated connection reset");
+        }
+        body.write(object.content, start, length);
+    }
+
+    private void handleUpload(final HttpExchange exchange, final String path, final String method) throws IOException {
+        final String query = exchange.getRequestURI().getQuery();
+        final byte[] body = readBody(exchange);
+        final Matcher uploadId = UPLOAD_ID.matcher(query == null ? "" : query);
+
+        if ("POST".equals(method) && query != null && query.startsWith("uploads")) {
+            final String id = "upload-" + uploadCounter.incrementAndGet();
+            uploads.put(id, new TreeMap<>());
+            rememberEncryption(exchange, path);
+            sendXml(exchange, "<InitiateMultipartUploadResult><Bucket>" + bucket(path) + "</Bucket><Key>" + key(path)
+                    + "</Key><UploadId>" + id + "</UploadId></InitiateMultipartUploadResult>");
+        } else if ("PUT".equals(method) && uploadId.find()) {
+            final Matcher partNumber = PART_NUMBER.matcher(query);
+            partNumber.find();
+            uploadPart(exchange, uploadId.group(1), Integer.parseInt(partNumber.group(1)), body);
+        } else if ("PUT".equals(method)) {
+            rememberEncryption(exchange, path);
+            objects.put(path, new StoredObject(body, BinaryUtils.toHex(md5(body)), new int[] {body.length}));
+            exchange.getResponseHeaders().set("ETag", "\"" + BinaryUtils.toHex(md5(body)) + "\"");
+            exchange.sendResponseHeaders(200, -1);
+        } else if ("POST".equals(method) && uploadId.find()) {
+            final SortedMap<Integer, byte[]> parts = uploads.remove(uploadId.group(1));
+            final ByteArrayOutputStream content = new ByteArrayOutputStream();
+            final MessageDigest digests = newDigest();
+            final int[] partSizes = new int[parts.size()];
+            int index = 0;
+            for (final byte[] part : parts.values()) {
+                content.write(part);
+                digests.update(md5(part));
+                partSizes[index++] = part.length;
+            }
+            final String eTag = BinaryUtils.toHex(digests.digest()) + "-" + parts.size();
+            objects.put(path, new StoredObject(content.toByteArray(), eTag, partSizes));
+            sendXml(exchange, "<CompleteMultipartUploadResult><Bucket>" + bucket(path) + "</Bucket><Key>" + key(path)
+                    + "</Key><ETag>&quot;" + eTag + "&quot;</ETag></CompleteMultipartUploadResult>");
+        } else if ("DELETE".equals(method) && uploadId.find()) {
+            uploads.remove(uploadId.group(1));
+            exchange.sendResponseHeaders(204, -1);
+        } else {
+            exchange.sendResponseHeaders(400, -1);
+        }
+    }
+
+    private void uploadPart(final HttpExchange exchange, final String uploadId, final int partNumber, final byte[] body) throws IOException {
+        if (failPartUploads) {
+            exchange.sendResponseHeaders(400, -1);
+            return;
+        }
+        final int concurrent = concurrentPartUploads.incrementAndGet();
+        maxConcurrentPartUploads.accumulateAndGet(concurrent, Math::max);
+        try {
+            Thread.sleep(partUploadDelayMs);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            concurrentPartUploads.decrementAndGet();
+        }
+        uploads.get(uploadId).put(partNumber, body);
+        uploadedParts.incrementAndGet();
+        exchange.getResponseHeaders().set("ETag", "\"" + BinaryUtils.toHex(md5(body)) + "\"");
+        exchange.sendResponseHeaders(200, -1);
+    }
+
+    private void rememberEncryption(final HttpExchange exchange, final String path) {
+        if ("aws:kms".equals(exchange.getRequestHeaders().getFirst(SSE_HEADER))) {
+            kmsKeyIds.put(path, exchange.getRequestHeaders().getFirst(SSE_KMS_KEY_HEADER));
+        }
+    }
+
+    private static void sendXml(final HttpExchange exchange, final String xml) throws IOException {
+        final byte[] body = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + xml).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/xml");
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static byte[] readBody(final HttpExchange exchange) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final InputStream input = exchange.getRequestBody();
+        final byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = input.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+        }
+        final String contentSha256 = exchange.getRequestHeaders().getFirst("x-amz-content-sha256");
+        if (contentSha256 != null && contentSha256.startsWith("STREAMING-")) {
+            return decodeAwsChunked(body.toByteArray());
+        }
+        return body.toByteArray();
+    }
+
+    /**
+     * Strips the chunk headers the SDK adds when it signs payloads sent over plain HTTP.
+     * Each chunk is encoded as "hex-size;chunk-signature=...\r\n" followed by the data and "\r\n".
+     */
+    private static byte[] decodeAwsChunked(final byte[] encoded) {
+        final ByteArrayOutputStream decoded = new ByteArrayOutputStream();
+        int position = 0;
+        while (position < encoded.length) {
+            int lineEnd = position;
+            while (encoded[lineEnd] != '\r') {
+                lineEnd++;
+            }
+            final String header = new String(encoded, position, lineEnd - position, StandardCharsets.US_ASCII);
+            final int size = Integer.parseInt(header.substring(0, header.indexOf(';')), 16);
+            if (size == 0) {
+                break;
+            }
+            decoded.write(encoded, lineEnd + 2, size);
+            position = lineEnd + 2 + size + 2;
+        }
+        return decoded.toByteArray();
+    }
+
+    private static String bucket(final String path) {
+        return path.substring(0, path.indexOf('/'));
+    }
+
+    private static String key(final String path) {
+        return path.substring(path.indexOf('/') + 1);
+    }
+
+    private static byte[] md5(final byte[] content) {
+        final MessageDigest digest = newDigest();
+        digest.update(content);
+        return digest.digest();
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class StoredObject {
+        private final byte[] content;
+        private final String eTag;
+        private final int[] uploadPartSizes;
+
+        private StoredObject(final byte[] content, final String eTag, final int[] uploadPartSizes) {
+            this.content = content;
+            this.eTag = eTag;
+            this.uploadPartSizes = uploadPartSizes;
+        }
+    }
+}
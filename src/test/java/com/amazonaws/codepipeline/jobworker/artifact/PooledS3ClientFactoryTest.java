@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.artifact;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.codepipeline.jobworker.model.AWSSessionCredentials;
+import com.amazonaws.codepipeline.jobworker.model.Artifact;
+import com.amazonaws.services.s3.AmazonS3;
+
+public class PooledS3ClientFactoryTest {
+
+    private static final String BUCKET = "my-bucket";
+    private static final String KEY = "my-object-key";
+
+    private final AWSSessionCredentials credentials = new AWSSessionCredentials("access-key", "secret-key", "session-token");
+    private final AWSSessionCredentials otherCredentials = new AWSSessionCredentials("other-access-key", "other-secret-key", "other-session-token");
+    private final Artifact artifact = new Artifact("MyArtifact", null, BUCKET, KEY);
+
+    private LocalS3Server s3Server;
+    private ExecutorService executorService;
+    private PooledS3ClientFactory s3ClientFactory;
+
+    @Before
+    public void setUp() throws Exception {
+        s3Server = new LocalS3Server();
+        executorService = Executors.newFixedThreadPool(4);
+        s3ClientFactory = new PooledS3ClientFactory(s3Server.endpoint(), PooledS3ClientFactory.DEFAULT_CREDENTIALS_TTL_MS, 2);
+    }
+
+    @After
+    public void tearDown() {
+        s3ClientFactory.close();
+        s3Server.close();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void shouldReuseClientForSameCredentials() {
+        // when
+        final AmazonS3 client = s3ClientFactory.getS3Client(credentials);
+
+        // then
+        assertSame(client, s3ClientFactory.getS3Client(new AWSSessionCredentials("access-key", "secret-key", "session-token")));
+        assertNotSame(client, s3ClientFactory.getS3Client(otherCredentials));
+    }
+
+    @Test
+    public void shouldSignRequestsWithJobCredentials() throws Exception {
+        // given
+        s3Server.putObject(BUCKET, KEY, new byte[] { 1, 2, 3 });
+        final ArtifactDownloader artifactDownloader = new ArtifactDownloader(s3ClientFactory, executorService);
+        final Path target = Files.createTempFile("artifact", null);
+
+        try {
+            // when
+            artifactDownloader.download(artifact, credentials, target);
+            artifactDownloader.download(artifact, otherCredentials, target);
+
+            // then
+            assertArrayEquals(new byte[] { 1, 2, 3 }, Files.readAllBytes(target));
+            assertEquals(Arrays.asList("access-key", "access-key", "other-access-key", "other-access-key"),
+                    s3Server.getAccessKeyIds());
+        } finally {
+            Files.deleteIfExists(target);
+        }
+    }
+
+    @Test
+    public void shouldNotShutDownSharedClient() throws Exception {
+        // given
+        s3Server.putObject(BUCKET, KEY, new byte[] { 1, 2, 3 });
+        final ArtifactDownloader artifactDownloader = new ArtifactDownloader(s3ClientFactory, executorService);
+        final Path target = Files.createTempFile("artifact", null);
+
+        try {
+            // when
+            s3ClientFactory.getS3Client(credentials).shutdown();
+            artifactDownloader.download(artifact, otherCredentials, target);
+
+            // then
+            assertArrayEquals(new byte[] { 1, 2, 3 }, Files.readAllBytes(target));
+        } finally {
+            Files.deleteIfExists(target);
+        }
+    }
+
+    @Test
+    public void shouldEvictClientsWhenLimitIsReached() {
+        // given
+        s3ClientFactory.getS3Client(credentials);
+        s3ClientFactory.getS3Client(otherCredentials);
+
+        // when
+        s3ClientFactory.getS3Client(new AWSSessionCredentials("third-access-key", "third-secret-key", "third-session-token"));
+
+        // then
+        assertEquals(2, s3ClientFactory.getCachedClients());
+    }
+
+    @Test
+    public void shouldReplaceExpiredClients() throws Exception {
+        // given
+        try (PooledS3ClientFactory factory = new PooledS3ClientFactory(s3Server.endpoint(), 10, 2)) {
+            final AmazonS3 client = factory.getS3Client(credentials);
+
+            // when
+            Thread.sleep(50);
+
+            // then
+            assertNotSame(client, factory.getS3Client(credentials));
+            assertEquals(1, factory.getCachedClients());
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConfigurationWatcherTest {
+
+    private static final String ACTION_TYPE = "actionType.category=Build\n"
+            + "actionType.owner=Custom\n"
+            + "actionType.provider=MyBuild\n"
+            + "actionType.version=1\n";
+
+    private Path directory;
+    private Path file;
+    private ConfigurationWatcher watcher;
+    private final BlockingQueue<JobWorkerProperties> reloads = new LinkedBlockingQueue<>();
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("jobworker");
+        file = directory.resolve("jobworker.properties");
+        write(file, ACTION_TYPE + "workerThreads=2\n");
+        watcher = new ConfigurationWatcher(file, JobWorkerProperties.load(file));
+        watcher.addListener((previous, reloaded) -> reloads.add(reloaded));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        watcher.close();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void shouldNotifyListenersWhenFileChanges() throws Exception {
+        // given
+        watcher.start();
+
+        // when
+        write(file, ACTION_TYPE + "workerThreads=6\napiCallsPerSecond=5\n");
+
+        // then
+        final JobWorkerProperties reloaded = reloads.poll(10, TimeUnit.SECONDS);
+        assertEquals(6, reloaded.getWorkerThreads());
+        assertEquals(5, reloaded.getApiCallsPerSecond(), 0.0);
+        assertEquals(reloaded, watcher.getProperties());
+    }
+
+    @Test
+    public void shouldNotifyListenersWhenFileIsReplaced() throws Exception {
+        // given
+        watcher.start();
+        final Path replacement = directory.resolve("jobworker.properties.tmp");
+        write(replacement, ACTION_TYPE + "pollingIntervalMs=1000\n");
+
+        // when
+        Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        // then
+        assertEquals(1000L, reloads.poll(10, TimeUnit.SECONDS).getPollingIntervalMs());
+    }
+
+    @Test
+    public void shouldKeepSettingsWhenFileIsInvalid() throws Exception {
+        // given
+        final JobWorkerProperties initial = watcher.getProperties();
+        write(file, ACTION_TYPE + "workerThreads=many\n");
+
+        // when
+        final boolean changed = watcher.reload();
+
+        // then
+        assertFalse(changed);
+        assertEquals(initial, watcher.getProperties());
+        assertTrue(reloads.isEmpty());
+    }
+
+    @Test
+    public void shouldIgnoreUnchangedSettings() throws Exception {
+        // given
+        write(file, "# comment\n" + ACTION_TYPE + "workerThreads=2\n");
+
+        // when
+        final boolean changed = watcher.reload();
+
+        // then
+        assertFalse(changed);
+        assertTrue(reloads.isEmpty());
+    }
+
+    private static void write(final Path path, final String content) throws IOException {
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.amazonaws.codepipeline.jobworker.CodePipelineJobPoller;
+import com.amazonaws.codepipeline.jobworker.JobService;
+import com.amazonaws.codepipeline.jobworker.metrics.MetricsRegistry;
+import com.amazonaws.codepipeline.jobworker.model.ActionTypeId;
+
+public class DefaultJobWorkerConfigurationTest {
+
+    private final MetricsRegistry registry = new MetricsRegistry();
+    private ThreadPoolExecutor executor;
+
+    @After
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldRecordUntaggedMetricsWithoutActionTypeId() {
+        // given
+        final DefaultJobWorkerConfiguration configuration = new TestConfiguration();
+
+        // when
+        final CodePipelineJobPoller jobPoller = (CodePipelineJobPoller) configuration.jobPoller();
+
+        // then
+        assertEquals(MetricsRegistry.UNTAGGED, jobPoller.getMetrics().getActionType());
+        assertEquals(registry.untagged(), jobPoller.getMetrics());
+    }
+
+    @Test
+    public void shouldTagMetricsWithActionTypeId() {
+        // given
+        final DefaultJobWorkerConfiguration configuration = new TestConfiguration() {
+            @Override
+            public ActionTypeId getActionTypeId() {
+                return new ActionTypeId("Deploy", "Custom", "MyCustomAction", "1");
+            }
+        };
+
+        // when
+        final CodePipelineJobPoller jobPoller = (CodePipelineJobPoller) configuration.jobPoller();
+
+        // then
+        assertEquals("Deploy/Custom/MyCustomAction/1", jobPoller.getMetrics().getActionType());
+    }
+
+    @Test
+    public void shouldCreateJobServiceOnDedicatedThread() {
+        // given
+        final AtomicReference<String> jobServiceThread = new AtomicReference<>();
+        final DefaultJobWorkerConfiguration configuration = new TestConfiguration() {
+            @Override
+            protected JobService jobService() {
+                jobServiceThread.set(Thread.currentThread().getName());
+                return super.jobService();
+            }
+        };
+
+        // when
+        configuration.jobPoller();
+
+        // then
+        assertEquals("job-service-init", jobServiceThread.get());
+    }
+
+    @Test
+    public void shouldRethrowOriginalExceptionOfJobService() {
+        // given
+        final IllegalArgumentException failure = new IllegalArgumentException("Unknown region");
+        final DefaultJobWorkerConfiguration configuration = new TestConfiguration() {
+            @Override
+            protected JobService jobService() {
+                throw failure;
+            }
+        };
+
+        // when
+        try {
+            configuration.jobPoller();
+            fail("Expected creating the job service to fail");
+        } catch (final IllegalArgumentException e) {
+            // then
+            assertSame(failure, e);
+        }
+    }
+
+    /**
+     * Configuration which, like the ones written before action type tags, only provides the job service.
+     */
+    private class TestConfiguration extends DefaultJobWorkerConfiguration {
+        @Override
+        public MetricsRegistry metricsRegistry() {
+            return registry;
+        }
+
+        @Override
+        protected JobService jobService() {
+            return mock(JobService.class);
+        }
+
+        @Override
+        protected ThreadPoolExecutor threadPoolExecutor() {
+            executor = super.threadPoolExecutor();
+            return executor;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class JobWorkerPropertiesTest {
+
+    private Properties fileProperties;
+    private Properties systemProperties;
+    private Map<String, String> environment;
+
+    @Before
+    public void setUp() {
+        fileProperties = new Properties();
+        fileProperties.setProperty("actionType.category", "Build");
+        fileProperties.setProperty("actionType.owner", "Custom");
+        fileProperties.setProperty("actionType.provider", "MyBuild");
+        fileProperties.setProperty("actionType.version", "1");
+        systemProperties = new Properties();
+        environment = new HashMap<>();
+    }
+
+    @Test
+    public void shouldApplyDefaults() {
+        // when
+        final JobWorkerProperties properties = JobWorkerProperties.parse(fileProperties, systemProperties, environment);
+
+        // then
+        assertEquals("MyBuild", properties.getActionTypeId().getProvider());
+        assertFalse(properties.isThirdParty());
+        assertNull(properties.getRegion());
+        assertEquals(30000L, properties.getPollingIntervalMs());
+        assertEquals(10, properties.getWorkerThreads());
+        assertEquals(10, properties.getPollBatchSize());
+        assertEquals(0, properties.getApiCallsPerSecond(), 0.0);
+    }
+
+    @Test
+    public void shouldOverrideFileWithEnvironmentAndSystemProperties() {
+        // given
+        fileProperties.setProperty("workerThreads", "4");
+        fileProperties.setProperty("pollingIntervalMs", "5000");
+        fileProperties.setProperty("aws.region", "us-west-2");
+        environment.put("WORKER_THREADS", "8");
+        environment.put("POLLING_INTERVAL_MS", "2000");
+        systemProperties.setProperty("POLLING_INTERVAL_MS", "1000");
+
+        // when
+        final JobWorkerProperties properties = JobWorkerProperties.parse(fileProperties, systemProperties, environment);
+
+        // then
+        assertEquals(8, properties.getWorkerThreads());
+        assertEquals(8, properties.getPollBatchSize());
+        assertEquals(1000L, properties.getPollingIntervalMs());
+        assertEquals("us-west-2", properties.getRegion());
+    }
+
+    @Test
+    public void shouldTieHttpConnectionsToWorkerThreads() {
+        // given
+        fileProperties.setProperty("workerThreads", "20");
+        fileProperties.setProperty("pollingIntervalMs", "45000");
+
+        // when
+        final HttpClientSettings settings = JobWorkerProperties.parse(fileProperties, systemProperties, environment)
+                .getHttpClientSettings();
+
+        // then
+        assertEquals(22, settings.getMaxConnections());
+        assertEquals(HttpClientSettings.DEFAULT_REQUEST_TIMEOUT_MS, settings.getRequestTimeoutMs());
+        assertEquals(90000L, settings.getConnectionMaxIdleMs());
+    }
+
+    @Test
+    public void shouldAddHttpConnectionForHedgedRequestOfEveryWorkerThread() {
+        // given
+        fileProperties.setProperty("workerThreads", "20");
+        fileProperties.setProperty("hedging.budgetPercent", "5");
+
+        // when
+        final HttpClientSettings settings = JobWorkerProperties.parse(fileProperties, systemProperties, environment)
+                .getHttpClientSettings();
+
+        // then
+        assertEquals(42, settings.getMaxConnections());
+    }
+
+    @Test
+    public void shouldTieHttpConnectionsToWorkerThreadsIfMaxConnectionsIsZero() {
+        // given
+        fileProperties.setProperty("workerThreads", "20");
+        fileProperties.setProperty("http.maxConnections", "0");
+
+        // when
+        final HttpClientSettings settings = JobWorkerProperties.parse(fileProperties, systemProperties, environment)
+                .getHttpClientSettings();
+
+        // then
+        assertEquals(22, settings.getMaxConnections());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNegativeMaxConnections() {
+        // given
+        fileProperties.setProperty("http.maxConnections", "-1");
+
+        // when
+        JobWorkerProperties.parse(fileProperties, systemProperties, environment);
+    }
+
+    @Test
+    public void shouldRequireRestartForHttpSettings() {
+        // given
+        final JobWorkerProperties before = JobWorkerProperties.parse(fileProperties, systemProperties, environment);
+        environment.put("HTTP_MAX_CONNECTIONS", "50");
+        environment.put("HTTP_CONNECTION_TTL_MS", "60000");
+
+        // when
+        final JobWorkerProperties after = JobWorkerProperties.parse(fileProperties, systemProperties, environment);
+
+        // then
+        assertEquals(50, after.getHttpClientSettings().getMaxConnections());
+        assertEquals(60000L, after.getHttpClientSettings().getConnectionTtlMs());
+        assertTrue(after.requiresRestart(before));
+    }
+
+    @Test
+    public void shouldReadHedgingSettings() {
+        // given
+        final JobWorkerProperties before = JobWorkerProperties.parse(fileProperties, systemProperties, environment);
+        fileProperties.setProperty("hedging.budgetPercent", "5");
+        systemProperties.setProperty("HEDGING_PERCENTILE", "99");
+
+        // when
+        final JobWorkerProperties after = JobWorkerProperties.parse(fileProperties, systemProperties, environment);
+
+        // then
+        assertNull(before.getHedgingSettings());
+        assertEquals(5, after.getHedgingSettings().getBudgetPercent(), 0);
+        assertEquals(99, after.getHedgingSettings().getPercentile(), 0);
+        assertTrue(after.requiresRestart(before));
+    }
+
+    @Test
+    public void shouldReadAdmissionSettings() {
+        // given
+        final JobWorkerProperties before = JobWorkerProperties.parse(fileProperties, systemProperties, environment);
+        fileProperties.setProperty("admission.enabled", "true");
+        fileProperties.setProperty("admission.directory", "/var/lib/jobworker");
+        environment.put("ADMISSION_JOB_MEMORY_MB", "512");
+
+        // when
+        final JobWorkerProperties after = JobWorkerProperties.parse(fileProperties, systemProperties, environment);
+
+        // then
+        assertNull(before.getAdmissionSettings());
+        assertEquals("/var/lib/jobworker", after.getAdmissionSettings().getDirectory().toString());
+        assertEquals(0.9, after.getAdmissionSettings().getMaxCpuLoad(), 0);
+        assertEquals(512L * 1024L * 1024L, after.getAdmissionSettings().getDefaultJobHint().getMemoryBytes());
+        assertTrue(after.requiresRestart(before));
+    }
+
+    @Test
+    public void shouldAcceptZeroJobResourceHints() {
+        // given
+        fileProperties.setProperty("admission.enabled", "true");
+        fileProperties.setProperty("admission.jobMemoryMb", "0");
+        fileProperties.setProperty("admission.jobDiskMb", "0");
+
+        // when
+        final JobWorkerProperties properties = JobWorkerProperties.parse(fileProperties, systemProperties, environment);
+
+        // then
+        assertEquals(0L, properties.getAdmissionSettings().getDefaultJobHint().getMemoryBytes());
+        assertEquals(0L, properties.getAdmissionSettings().getDefaultJobHint().getDiskBytes());
+    }
+
+    @Test
+    public void shouldReadAccountingSettings() {
+        // given
+        final JobWorkerProperties before = JobWorkerProperties.parse(fileProperties, systemProperties, environment);
+        fileProperties.setProperty("accounting.enabled", "true");
+        fileProperties.setProperty("accounting.configurationKey", "ProjectName");
+        environment.put("ACCOUNTING_EXECUTION_DETAILS_SUMMARY", "true");
+
+        // when
+        final JobWorkerProperties after = JobWorkerProperties.parse(fileProperties, systemProperties, environment);
+
+        // then
+        assertNull(before.getAccountingSettings());
+        assertEquals("ProjectName", after.getAccountingSettings().getConfigurationKey());
+        assertTrue(after.getAccountingSettings().isExecutionDetailsSummary());
+        assertTrue(after.requiresRestart(before));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowOnInvalidHedgingPercentile() {
+        // given
+        fileProperties.setProperty("hedging.budgetPercent", "5");
+        fileProperties.setProperty("hedging.percentile", "100");
+
+        // when
+        JobWorkerProperties.parse(fileProperties, systemProperties, environment);
+    }
+
+    @Test
+    public void shouldDeriveOverrideNamesFromKeys() {
+        assertEquals("ACTION_TYPE_CATEGORY", JobWorkerProperties.overrideName(JobWorkerProperties.ACTION_TYPE_CATEGORY));
+        assertEquals("AWS_REGION", JobWorkerProperties.overrideName(JobWorkerProperties.REGION));
+        assertEquals("API_CALLS_PER_SECOND", JobWorkerProperties.overrideName(JobWorkerProperties.API_CALLS_PER_SECOND));
+    }
+
+    @Test
+    public void shouldDetectSettingsWhichRequireRestart() {
+        // given
+        final JobWorkerProperties before = JobWorkerProperties.parse(fileProperties, systemProperties, environment);
+        fileProperties.setProperty("workerThreads", "4");
+        final JobWorkerProperties resized = JobWorkerProperties.parse(fileProperties, systemProperties, environment);
+        fileProperties.setProperty("actionType.version", "2");
+        final JobWorkerProperties upgraded = JobWorkerProperties.parse(fileProperties, systemProperties, environment);
+
+        // then
+        assertFalse(before.equals(resized));
+        assertFalse(resized.requiresRestart(before));
+        assertTrue(upgraded.requiresRestart(resized));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowOnMissingActionType() {
+        // given
+        fileProperties.remove("actionType.provider");
+
+        // when
+        JobWorkerProperties.parse(fileProperties, systemProperties, Collections.emptyMap());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowOnInvalidOwner() {
+        // given
+        fileProperties.setProperty("actionType.owner", "AWS");
+
+        // when
+        JobWorkerProperties.parse(fileProperties, systemProperties, environment);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowOnInvalidNumber() {
+        // given
+        fileProperties.setProperty("workerThreads", "0");
+
+        // when
+        JobWorkerProperties.parse(fileProperties, systemProperties, environment);
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.configuration;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.amazonaws.codepipeline.jobworker.model.RegionNotFoundException;
+import com.amazonaws.regions.Regions;
+
+public class RegionResolverTest {
+
+    private static final String AWS_REGION = "AWS_REGION";
+
+    @After
+    public void tearDown() {
+        System.clearProperty(AWS_REGION);
+    }
+
+    @Test
+    public void shouldResolveRegionFromSystemProperty() {
+        // given
+        System.setProperty(AWS_REGION, " eu-west-1 ");
+
+        // when
+        final String region = RegionResolver.resolve().getName();
+
+        // then
+        assertEquals(Regions.EU_WEST_1.getName(), region);
+    }
+
+    @Test(expected = RegionNotFoundException.class)
+    public void shouldThrowOnUnknownRegion() {
+        // given
+        System.setProperty(AWS_REGION, "moon-1");
+
+        // when
+        RegionResolver.resolve();
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.emulator;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Training run of the class data sharing archive of the appcds profile. Launches the job worker in a new JVM
+ * against the emulator, which answers the first poll without jobs, and lets the JVM archive the classes it
+ * loaded when the job worker stops after its first poll.
+ * <pre>
+ * java -cp target/test-classes:... com.amazonaws.codepipeline.jobworker.emulator.AppCdsTrainingRun \
+ *     target/jobworker.jsa target/jobworker-1.0.jar:$(cat target/classpath.txt) target/logs
+ * </pre>
+ * Arguments: archive file, class path of the job worker and log directory of the job worker.
+ */
+public final class AppCdsTrainingRun {
+
+    private static final String POLL_FOR_JOBS = "PollForJobs";
+    private static final long TIMEOUT_SECONDS = 120;
+
+    private AppCdsTrainingRun() {
+    }
+
+    public static void main(final String[] args) throws Exception {
+        if (args.length != 3) {
+            System.err.println("Usage: AppCdsTrainingRun <archive> <job worker class path> <log directory>");
+            System.exit(1);
+        }
+        try (LocalCodePipelineServer server = new LocalCodePipelineServer()) {
+            final List<String> command = new ArrayList<>();
+            command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+            command.addAll(Arrays.asList(
+                    "-XX:ArchiveClassesAtExit=" + args[0],
+                    "-DSTOP_AFTER_FIRST_POLL=true",
+                    "-DAWS_REGION=us-east-1",
+                    "-DCODEPIPELINE_ENDPOINT=" + server.getEndpoint(),
+                    "-Daws.accessKeyId=training",
+                    "-Daws.secretKey=training",
+                    "-DLOG_DIR=" + args[2],
+                    "-cp", args[1],
+                    "com.amazonaws.codepipeline.jobworker.JobWorkerDaemon"));
+            final Process process = new ProcessBuilder(command).inheritIO().start();
+            try {
+                if (!process.waitFor(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Job worker did not stop within " + TIMEOUT_SECONDS + " seconds");
+                }
+            } finally {
+                process.destroyForcibly();
+            }
+            if (process.exitValue() != 0) {
+                throw new IllegalStateException("Job worker stopped with exit code " + process.exitValue());
+            }
+            if (server.getRequestCount(POLL_FOR_JOBS) == 0) {
+                throw new IllegalStateException("Job worker stopped without polling the emulator");
+            }
+        }
+    }
+}
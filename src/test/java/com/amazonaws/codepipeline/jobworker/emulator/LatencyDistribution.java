@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.emulator;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Distribution of the response latency of the emulated CodePipeline API.
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+
+    /**
+     * @return latency of the next response in milliseconds
+     */
+    long nextLatencyMs();
+
+    /**
+     * @return distribution without latency
+     */
+    static LatencyDistribution none() {
+        return () -> 0L;
+    }
+
+    /**
+     * @param latencyMs latency of every response in milliseconds
+     * @return distribution with a fixed latency
+     */
+    static LatencyDistribution fixed(final long latencyMs) {
+        return () -> latencyMs;
+    }
+
+    /**
+     * @param minMs minimum latency in milliseconds
+     * @param maxMs maximum latency in milliseconds
+     * @return distribution with uniformly distributed latencies
+     */
+    static LatencyDistribution uniform(final long minMs, final long maxMs) {
+        return () -> ThreadLocalRandom.current().nextLong(minMs, maxMs + 1);
+    }
+
+    /**
+     * Log-normal distribution, the typical shape of service latencies with a long tail.
+     * @param medianMs median latency in milliseconds
+     * @param sigma standard deviation of the logarithm, e.g. 0.5 gives a p99 of about three times the median
+     * @return distribution with log-normally distributed latencies
+     */
+    static LatencyDistribution logNormal(final double medianMs, final double sigma) {
+        final double mu = Math.log(medianMs);
+        return () -> Math.round(Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+}
@@ -0,0 +1,484 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.emulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local stand-in for the CodePipeline job API which speaks the AWS JSON 1.1 protocol of the SDK client,
+ * so that load and soak tests exercise request marshalling, the HTTP connection pool and the retry
+ * behavior of the real client.
+ *
+ * Supports PollForJobs, AcknowledgeJob, PutJobSuccessResult, PutJobFailureResult and the third party
+ * variants including GetThirdPartyJobDetails. Jobs are injected explicitly or at a fixed rate; response
+ * latency, throttling and server errors can be configured while the server is running.
+ *
+ * Run standalone and point a job worker at it with the system property CODEPIPELINE_ENDPOINT:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.amazonaws.codepipeline.jobworker.emulator.LocalCodePipelineServer \
+ *     -DEMULATOR_PORT=8080 -DJOBS_PER_SECOND=20 -DLATENCY_MEDIAN_MS=40 -DTHROTTLE_RPS=50 -DERROR_RATE=0.01
+ * </pre>
+ */
+public final class LocalCodePipelineServer implements AutoCloseable {
+
+    private static final String TARGET_HEADER = "X-Amz-Target";
+    private static final String TARGET_PREFIX = "CodePipeline_20150709.";
+    private static final String CONTENT_TYPE = "application/x-amz-json-1.1";
+    private static final String ACCOUNT_ID = "123456789012";
+    private static final long INJECTION_TICK_MS = 100L;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ScheduledExecutorService injector;
+    private final Queue<EmulatedJob> queuedJobs = new ConcurrentLinkedQueue<>();
+    private final Map<String, EmulatedJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> requests = new ConcurrentHashMap<>();
+    private final AtomicLong throttledRequests = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+    private final AtomicLong succeededJobs = new AtomicLong();
+    private final AtomicLong failedJobs = new AtomicLong();
+
+    private volatile LatencyDistribution latency = LatencyDistribution.none();
+    private volatile double errorRate;
+    private volatile double jobsPerSecond;
+    private double pendingInjections;
+
+    private double throttleRequestsPerSecond;
+    private double throttleTokens;
+    private long throttleRefillNanos;
+
+    /**
+     * Starts the server on a random local port.
+     * @throws IOException if the server socket could not be opened
+     */
+    public LocalCodePipelineServer() throws IOException {
+        this(0);
+    }
+
+    /**
+     * Starts the server.
+     * @param port local port, 0 for a random port
+     * @throws IOException if the server socket could not be opened
+     */
+    public LocalCodePipelineServer(final int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/", this::handle);
+        server.start();
+        injector = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "codepipeline-emulator-injector");
+            thread.setDaemon(true);
+            return thread;
+        });
+        injector.scheduleAtFixedRate(this::injectAtRate, INJECTION_TICK_MS, INJECTION_TICK_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Runs the emulator until the process is stopped, prints the request and job counters every 10 seconds.
+     * @param args not used, the emulator is configured with system properties
+     * @throws Exception if the server could not be started
+     */
+    public static void main(final String[] args) throws Exception {
+        final LocalCodePipelineServer server = new LocalCodePipelineServer(Integer.getInteger("EMULATOR_PORT", 8080));
+        server.setJobsPerSecond(Double.parseDouble(System.getProperty("JOBS_PER_SECOND", "1")));
+        final String latencyMedianMs = System.getProperty("LATENCY_MEDIAN_MS");
+        if (latencyMedianMs != null) {
+            server.setLatency(LatencyDistribution.logNormal(Double.parseDouble(latencyMedianMs), 0.5));
+        }
+        final String throttleRps = System.getProperty("THROTTLE_RPS");
+        if (throttleRps != null) {
+            server.setThrottleRequestsPerSecond(Double.parseDouble(throttleRps));
+        }
+        server.setErrorRate(Double.parseDouble(System.getProperty("ERROR_RATE", "0")));
+        System.out.println("CodePipeline emulator listening on " + server.getEndpoint());
+        while (true) {
+            Thread.sleep(10000L);
+            System.out.println(server);
+        }
+    }
+
+    /**
+     * @return endpoint url of this server, e.g. for the system property CODEPIPELINE_ENDPOINT
+     */
+    public String getEndpoint() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    /**
+     * @param region signing region the client uses
+     * @return endpoint configuration pointing to this server
+     */
+    public EndpointConfiguration endpointConfiguration(final String region) {
+        return new EndpointConfiguration(getEndpoint(), region);
+    }
+
+    /**
+     * Queues new jobs.
+     * @param count number of jobs
+     */
+    public void injectJobs(final int count) {
+        for (int i = 0; i < count; i++) {
+            final EmulatedJob job = new EmulatedJob(UUID.randomUUID().toString());
+            jobs.put(job.id, job);
+            queuedJobs.add(job);
+        }
+    }
+
+    /**
+     * @param jobsPerSecond rate new jobs are queued at, 0 stops the injection
+     */
+    public void setJobsPerSecond(final double jobsPerSecond) {
+        this.jobsPerSecond = jobsPerSecond;
+    }
+
+    /**
+     * @param latency distribution of the latency added to every response
+     */
+    public void setLatency(final LatencyDistribution latency) {
+        this.latency = latency;
+    }
+
+    /**
+     * @param errorRate fraction of requests answered with an internal server error
+     */
+    public void setErrorRate(final double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    /**
+     * Throttles requests above the given rate with a ThrottlingException, bursts of up to one second are allowed.
+     * @param requestsPerSecond allowed requests per second over all operations, 0 disables throttling
+     */
+    public synchronized void setThrottleRequestsPerSecond(final double requestsPerSecond) {
+        this.throttleRequestsPerSecond = requestsPerSecond;
+        this.throttleTokens = requestsPerSecond;
+        this.throttleRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * @param operation operation name, e.g. PollForJobs
+     * @return number of requests of the operation, including throttled and failed requests
+     */
+    public long getRequestCount(final String operation) {
+        final AtomicLong count = requests.get(operation);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * @return number of requests rejected with a ThrottlingException
+     */
+    public long getThrottledRequests() {
+        return throttledRequests.get();
+    }
+
+    /**
+     * @return number of requests answered with an injected internal server error
+     */
+    public long getFailedRequests() {
+        return failedRequests.get();
+    }
+
+    /**
+     * @return number of jobs waiting to be polled
+     */
+    public int getQueuedJobs() {
+        return queuedJobs.size();
+    }
+
+    /**
+     * @return number of jobs reported as succeeded
+     */
+    public long getSucceededJobs() {
+        return succeededJobs.get();
+    }
+
+    /**
+     * @return number of jobs reported as failed
+     */
+    public long getFailedJobs() {
+        return failedJobs.get();
+    }
+
+    @Override
+    public void close() {
+        injector.shutdownNow();
+        server.stop(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("requests=%s throttled=%d errors=%d queued=%d succeeded=%d failed=%d",
+                requests, getThrottledRequests(), getFailedRequests(), getQueuedJobs(), getSucceededJobs(), getFailedJobs());
+    }
+
+    private synchronized void injectAtRate() {
+        pendingInjections += jobsPerSecond * INJECTION_TICK_MS / 1000.0;
+        final int count = (int) pendingInjections;
+        pendingInjections -= count;
+        injectJobs(count);
+    }
+
+    private synchronized boolean tryAcquireThrottleToken() {
+        if (throttleRequestsPerSecond <= 0) {
+            return true;
+        }
+        final long now = System.nanoTime();
+        throttleTokens = Math.min(throttleRequestsPerSecond,
+                throttleTokens + (now - throttleRefillNanos) * throttleRequestsPerSecond / TimeUnit.SECONDS.toNanos(1));
+        throttleRefillNanos = now;
+        if (throttleTokens < 1) {
+            return false;
+        }
+        throttleTokens--;
+        return true;
+    }
+
+    private void handle(final HttpExchange exchange) throws IOException {
+        try {
+            final String target = exchange.getRequestHeaders().getFirst(TARGET_HEADER);
+            if (target == null || !target.startsWith(TARGET_PREFIX)) {
+                sendError(exchange, 400, "UnknownOperationException", "Missing or unknown " + TARGET_HEADER);
+                return;
+            }
+            final String operation = target.substring(TARGET_PREFIX.length());
+            requests.computeIfAbsent(operation, key -> new AtomicLong()).incrementAndGet();
+            final JsonNode body = mapper.readTree(readBody(exchange.getRequestBody()));
+            final JsonNode request = body == null ? mapper.createObjectNode() : body;
+
+            final long latencyMs = latency.nextLatencyMs();
+            if (latencyMs > 0) {
+                Thread.sleep(latencyMs);
+            }
+            if (!tryAcquireThrottleToken()) {
+                throttledRequests.incrementAndGet();
+                sendError(exchange, 400, "ThrottlingException", "Rate exceeded");
+                return;
+            }
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                failedRequests.incrementAndGet();
+                sendError(exchange, 500, "InternalFailure", "Injected internal failure");
+                return;
+            }
+            dispatch(exchange, operation, request);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(exchange, 503, "ServiceUnavailableException", "Emulator is shutting down");
+        } catch (final RuntimeException e) {
+            sendError(exchange, 400, "ValidationException", String.valueOf(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void dispatch(final HttpExchange exchange, final String operation, final JsonNode request) throws IOException {
+        switch (operation) {
+            case "PollForJobs":
+                sendJson(exchange, pollForJobs(request, false));
+                break;
+            case "PollForThirdPartyJobs":
+                sendJson(exchange, pollForJobs(request, true));
+                break;
+            case "GetThirdPartyJobDetails":
+                final EmulatedJob details = job(request);
+                if (details == null) {
+                    sendError(exchange, 400, "JobNotFoundException", "Job not found");
+                } else {
+                    final ObjectNode response = mapper.createObjectNode();
+                    final ObjectNode jobDetails = response.putObject("jobDetails");
+                    jobDetails.put("id", details.id);
+                    jobDetails.set("data", jobData(details));
+                    jobDetails.put("nonce", details.nonce);
+                    sendJson(exchange, response);
+                }
+                break;
+            case "AcknowledgeJob":
+            case "AcknowledgeThirdPartyJob":
+                acknowledgeJob(exchange, request);
+                break;
+            case "PutJobSuccessResult":
+            case "PutThirdPartyJobSuccessResult":
+                putJobResult(exchange, request, true);
+                break;
+            case "PutJobFailureResult":
+            case "PutThirdPartyJobFailureResult":
+                putJobResult(exchange, request, false);
+                break;
+            default:
+                sendError(exchange, 400, "UnknownOperationException", "Unsupported operation " + operation);
+        }
+    }
+
+    private ObjectNode pollForJobs(final JsonNode request, final boolean thirdParty) {
+        final int maxBatchSize = request.path("maxBatchSize").asInt(1);
+        final ObjectNode response = mapper.createObjectNode();
+        final ArrayNode polledJobs = response.putArray("jobs");
+        for (int i = 0; i < maxBatchSize; i++) {
+            final EmulatedJob job = queuedJobs.poll();
+            if (job == null) {
+                break;
+            }
+            synchronized (job) {
+                job.status = "Dispatched";
+                job.nonce = UUID.randomUUID().toString();
+            }
+            final ObjectNode polledJob = polledJobs.addObject();
+            if (thirdParty) {
+                polledJob.put("clientId", UUID.randomUUID().toString());
+                polledJob.put("jobId", job.id);
+            } else {
+                polledJob.put("id", job.id);
+                polledJob.set("data", jobData(job));
+                polledJob.put("nonce", job.nonce);
+                polledJob.put("accountId", ACCOUNT_ID);
+            }
+        }
+        return response;
+    }
+
+    private void acknowledgeJob(final HttpExchange exchange, final JsonNode request) throws IOException {
+        final EmulatedJob job = job(request);
+        if (job == null) {
+            sendError(exchange, 400, "JobNotFoundException", "Job not found");
+            return;
+        }
+        synchronized (job) {
+            if (!job.nonce.equals(request.path("nonce").asText())) {
+                sendError(exchange, 400, "InvalidNonceException", "Nonce does not match the dispatched job");
+                return;
+            }
+            if ("Dispatched".equals(job.status)) {
+                job.status = "InProgress";
+            }
+            final ObjectNode response = mapper.createObjectNode();
+            response.put("status", job.status);
+            sendJson(exchange, response);
+        }
+    }
+
+    private void putJobResult(final HttpExchange exchange, final JsonNode request, final boolean success) throws IOException {
+        final EmulatedJob job = job(request);
+        if (job == null) {
+            sendError(exchange, 400, "JobNotFoundException", "Job not found");
+            return;
+        }
+        synchronized (job) {
+            if (!"InProgress".equals(job.status)) {
+                sendError(exchange, 400, "InvalidJobStateException", "Job is " + job.status);
+                return;
+            }
+            job.status = success ? "Succeeded" : "Failed";
+        }
+        (success ? succeededJobs : failedJobs).incrementAndGet();
+        sendJson(exchange, mapper.createObjectNode());
+    }
+
+    private EmulatedJob job(final JsonNode request) {
+        return jobs.get(request.path("jobId").asText());
+    }
+
+    private ObjectNode jobData(final EmulatedJob job) {
+        final ObjectNode data = mapper.createObjectNode();
+        final ObjectNode actionTypeId = data.putObject("actionTypeId");
+        actionTypeId.put("category", "Deploy");
+        actionTypeId.put("owner", "Custom");
+        actionTypeId.put("provider", "LoadTest");
+        actionTypeId.put("version", "1");
+        data.putObject("actionConfiguration").putObject("configuration").put("JobId", job.id);
+        final ObjectNode pipelineContext = data.putObject("pipelineContext");
+        pipelineContext.put("pipelineName", "LoadTestPipeline");
+        pipelineContext.putObject("stage").put("name", "Deploy");
+        pipelineContext.putObject("action").put("name", "LoadTest");
+        artifact(data.putArray("inputArtifacts"), "Input", job);
+        artifact(data.putArray("outputArtifacts"), "Output", job);
+        final ObjectNode credentials = data.putObject("artifactCredentials");
+        credentials.put("accessKeyId", "AKIDEXAMPLE");
+        credentials.put("secretAccessKey", "secret");
+        credentials.put("sessionToken", "token");
+        return data;
+    }
+
+    private static void artifact(final ArrayNode artifacts, final String name, final EmulatedJob job) {
+        final ObjectNode artifact = artifacts.addObject();
+        artifact.put("name", name);
+        artifact.put("revision", "revision-1");
+        final ObjectNode location = artifact.putObject("location");
+        location.put("type", "S3");
+        final ObjectNode s3Location = location.putObject("s3Location");
+        s3Location.put("bucketName", "codepipeline-emulator");
+        s3Location.put("objectKey", "LoadTestPipeline/" + name + "/" + job.id);
+    }
+
+    private void sendJson(final HttpExchange exchange, final JsonNode body) throws IOException {
+        send(exchange, 200, mapper.writeValueAsBytes(body));
+    }
+
+    private void sendError(final HttpExchange exchange, final int statusCode, final String type, final String message)
+            throws IOException {
+        final ObjectNode body = mapper.createObjectNode();
+        body.put("__type", type);
+        body.put("message", message);
+        send(exchange, statusCode, mapper.writeValueAsBytes(body));
+    }
+
+    private static void send(final HttpExchange exchange, final int statusCode, final byte[] body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", CONTENT_TYPE);
+        exchange.getResponseHeaders().add("x-amzn-RequestId", UUID.randomUUID().toString());
+        exchange.sendResponseHeaders(statusCode, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] readBody(final InputStream in) throws IOException {
+        final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            body.write(buffer, 0, read);
+        }
+        return body.toByteArray();
+    }
+
+    private static final class EmulatedJob {
+        private final String id;
+        private String status = "Queued";
+        private String nonce = "";
+
+        private EmulatedJob(final String id) {
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.emulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class LocalCodePipelineServerTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private LocalCodePipelineServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new LocalCodePipelineServer();
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void shouldPollAcknowledgeAndSucceedInjectedJobs() throws IOException {
+        // given
+        server.injectJobs(3);
+
+        // when
+        final JsonNode polled = call("PollForJobs", "{\"maxBatchSize\":2}", 200);
+        final JsonNode job = polled.get("jobs").get(0);
+        final JsonNode acknowledged = call("AcknowledgeJob",
+                String.format("{\"jobId\":\"%s\",\"nonce\":\"%s\"}", job.get("id").asText(), job.get("nonce").asText()), 200);
+        call("PutJobSuccessResult", String.format("{\"jobId\":\"%s\"}", job.get("id").asText()), 200);
+
+        // then
+        assertEquals(2, polled.get("jobs").size());
+        assertEquals("S3", job.at("/data/inputArtifacts/0/location/type").asText());
+        assertEquals("InProgress", acknowledged.get("status").asText());
+        assertEquals(1, server.getQueuedJobs());
+        assertEquals(1, server.getSucceededJobs());
+        assertEquals(1, server.getRequestCount("PollForJobs"));
+    }
+
+    @Test
+    public void shouldServeThirdPartyJobDetails() throws IOException {
+        // given
+        server.injectJobs(1);
+
+        // when
+        final JsonNode polled = call("PollForThirdPartyJobs", "{\"maxBatchSize\":5}", 200);
+        final String jobId = polled.at("/jobs/0/jobId").asText();
+        final JsonNode details = call("GetThirdPartyJobDetails",
+                String.format("{\"jobId\":\"%s\",\"clientToken\":\"token\"}", jobId), 200);
+
+        // then
+        assertEquals(1, polled.get("jobs").size());
+        assertEquals(jobId, details.at("/jobDetails/id").asText());
+        assertEquals("Deploy", details.at("/jobDetails/data/actionTypeId/category").asText());
+    }
+
+    @Test
+    public void shouldRejectAcknowledgeWithWrongNonce() throws IOException {
+        // given
+        server.injectJobs(1);
+        final String jobId = call("PollForJobs", "{\"maxBatchSize\":1}", 200).at("/jobs/0/id").asText();
+
+        // when
+        final JsonNode error = call("AcknowledgeJob", String.format("{\"jobId\":\"%s\",\"nonce\":\"wrong\"}", jobId), 400);
+
+        // then
+        assertEquals("InvalidNonceException", error.get("__type").asText());
+    }
+
+    @Test
+    public void shouldThrottleRequestsAboveRate() throws IOException {
+        // given
+        server.setThrottleRequestsPerSecond(1);
+
+        // when
+        call("PollForJobs", "{\"maxBatchSize\":1}", 200);
+        final JsonNode error = call("PollForJobs", "{\"maxBatchSize\":1}", 400);
+
+        // then
+        assertEquals("ThrottlingException", error.get("__type").asText());
+        assertEquals(1, server.getThrottledRequests());
+    }
+
+    @Test
+    public void shouldInjectServerErrorsAndLatency() throws IOException {
+        // given
+        server.setErrorRate(1.0);
+        server.setLatency(LatencyDistribution.fixed(50));
+
+        // when
+        final long start = System.nanoTime();
+        final JsonNode error = call("PollForJobs", "{\"maxBatchSize\":1}", 500);
+
+        // then
+        assertEquals("InternalFailure", error.get("__type").asText());
+        assertTrue(System.nanoTime() - start >= 50_000_000L);
+        assertEquals(1, server.getFailedRequests());
+    }
+
+    @Test
+    public void shouldInjectJobsAtRate() throws InterruptedException {
+        // when
+        server.setJobsPerSecond(100);
+        Thread.sleep(500);
+        server.setJobsPerSecond(0);
+
+        // then
+        assertTrue(server.getQueuedJobs() >= 20);
+    }
+
+    private JsonNode call(final String operation, final String body, final int expectedStatus) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(server.getEndpoint()).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/x-amz-json-1.1");
+        connection.setRequestProperty("X-Amz-Target", "CodePipeline_20150709." + operation);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(expectedStatus, connection.getResponseCode());
+        try (InputStream in = expectedStatus == 200 ? connection.getInputStream() : connection.getErrorStream()) {
+            final ByteArrayOutputStream response = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                response.write(buffer, 0, read);
+            }
+            return mapper.readTree(response.toByteArray());
+        }
+    }
+}
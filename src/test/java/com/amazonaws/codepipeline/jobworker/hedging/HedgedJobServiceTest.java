@@ -0,0 +1,190 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.hedging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.amazonaws.codepipeline.jobworker.JobService;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Api;
+import com.amazonaws.codepipeline.jobworker.model.JobStatus;
+
+public class HedgedJobServiceTest {
+
+    private static final int MIN_SAMPLES = 5;
+
+    private final JobService jobService = mock(JobService.class);
+    private final JobWorkerMetrics metrics = new JobWorkerMetrics("Build_Custom_MyCustomAction_1");
+    private final AtomicInteger calls = new AtomicInteger();
+    private final CountDownLatch releaseFirst = new CountDownLatch(1);
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        releaseFirst.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldNotHedgeBeforeLatencyIsKnown() {
+        // given
+        final HedgedJobService hedgedJobService = hedgedJobService(100);
+        answerSlowFirstRequest(JobStatus.InProgress, false);
+        releaseFirstLater();
+
+        // when
+        final JobStatus status = hedgedJobService.acknowledgeJob("job-1", "client", "nonce");
+
+        // then
+        assertEquals(JobStatus.InProgress, status);
+        assertEquals(1, calls.get());
+        assertEquals(0, metrics.getApiHedges(Api.AcknowledgeJob));
+    }
+
+    @Test
+    public void shouldUseAnswerOfHedgedRequestWhenFirstRequestIsSlow() throws Exception {
+        // given
+        final HedgedJobService hedgedJobService = hedgedJobService(100);
+        warmUp(hedgedJobService);
+        answerSlowFirstRequest(JobStatus.InProgress, false);
+
+        // when
+        final JobStatus status = hedgedJobService.acknowledgeJob("job-1", "client", "nonce");
+
+        // then
+        assertEquals(JobStatus.InProgress, status);
+        assertEquals(2, calls.get());
+        assertEquals(1, metrics.getApiHedges(Api.AcknowledgeJob));
+        assertEquals(1, metrics.getApiHedgeWins(Api.AcknowledgeJob));
+    }
+
+    @Test
+    public void shouldNotHedgeWhenBudgetIsSpent() throws Exception {
+        // given
+        final HedgedJobService hedgedJobService = hedgedJobService(10);
+        warmUp(hedgedJobService);
+        answerSlowFirstRequest(JobStatus.InProgress, false);
+        releaseFirstLater();
+
+        // when
+        final JobStatus status = hedgedJobService.acknowledgeJob("job-1", "client", "nonce");
+
+        // then
+        assertEquals(JobStatus.InProgress, status);
+        assertEquals(1, calls.get());
+        assertEquals(0, metrics.getApiHedges(Api.AcknowledgeJob));
+    }
+
+    @Test
+    public void shouldWaitForFirstRequestWhenHedgedRequestFails() throws Exception {
+        // given
+        final HedgedJobService hedgedJobService = hedgedJobService(100);
+        warmUp(hedgedJobService);
+        answerSlowFirstRequest(JobStatus.InProgress, true);
+
+        // when
+        final JobStatus status = hedgedJobService.acknowledgeJob("job-1", "client", "nonce");
+
+        // then
+        assertEquals(JobStatus.InProgress, status);
+        assertEquals(1, metrics.getApiHedges(Api.AcknowledgeJob));
+        assertEquals(0, metrics.getApiHedgeWins(Api.AcknowledgeJob));
+    }
+
+    @Test
+    public void shouldNotHedgePollForJobs() {
+        // given
+        final HedgedJobService hedgedJobService = hedgedJobService(100);
+        when(jobService.pollForJobs(anyInt())).thenReturn(Collections.emptyList());
+
+        // when
+        hedgedJobService.pollForJobs(10);
+
+        // then
+        verify(jobService, times(1)).pollForJobs(10);
+        assertEquals(0, metrics.getApiHedges(Api.PollForJobs));
+    }
+
+    private HedgedJobService hedgedJobService(final double budgetPercent) {
+        return new HedgedJobService(jobService,
+                new HedgingSettings(budgetPercent, 95, MIN_SAMPLES, 1, 10),
+                metrics,
+                executor);
+    }
+
+    private void warmUp(final HedgedJobService hedgedJobService) throws InterruptedException {
+        // slow enough answers that the first request has started before a hedge is sent
+        when(jobService.acknowledgeJob(anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            Thread.sleep(5);
+            return JobStatus.InProgress;
+        });
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            hedgedJobService.acknowledgeJob("warm-up", "client", "nonce");
+        }
+        // lets the one millisecond window pass
+        Thread.sleep(5);
+        assertTrue(hedgedJobService.getDelayNanos(Api.AcknowledgeJob) > 0);
+    }
+
+    /**
+     * The first request waits until it is released, later requests answer at once or fail and release the first.
+     */
+    private void answerSlowFirstRequest(final JobStatus status, final boolean laterRequestsFail) {
+        when(jobService.acknowledgeJob(anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == 1) {
+                releaseFirst.await(10, TimeUnit.SECONDS);
+                return status;
+            }
+            if (laterRequestsFail) {
+                releaseFirst.countDown();
+                throw new IllegalStateException("job is not in progress");
+            }
+            return status;
+        });
+    }
+
+    private void releaseFirstLater() {
+        executor.execute(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            releaseFirst.countDown();
+        });
+    }
+}
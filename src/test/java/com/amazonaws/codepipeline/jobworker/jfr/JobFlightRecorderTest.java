@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class JobFlightRecorderTest {
+    private static final String ACTION_TYPE = "Deploy/Custom/MyCustomAction/1";
+    private static final String EVENT_PREFIX = "com.amazonaws.codepipeline.jobworker.";
+
+    private Recording recording;
+    private Path recordingFile;
+
+    @Before
+    public void setUp() throws IOException {
+        recording = new Recording();
+        recording.enable(EVENT_PREFIX + "PollForJobs");
+        recording.enable(EVENT_PREFIX + "AcknowledgeJob");
+        recording.enable(EVENT_PREFIX + "ProcessJob");
+        recording.enable(EVENT_PREFIX + "ReportJobResult");
+        recordingFile = Files.createTempFile("jobworker", ".jfr");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        recording.close();
+        Files.deleteIfExists(recordingFile);
+    }
+
+    @Test
+    public void shouldRecordPollEventWithBatchSizeAndJobCount() throws IOException {
+        // given
+        final JobEventRecorder recorder = JobFlightRecorder.forActionType(ACTION_TYPE);
+        recording.start();
+
+        // when
+        recorder.beginPoll(10).setJobCount(3).commit("Succeeded");
+        recording.stop();
+
+        // then
+        final List<RecordedEvent> events = readEvents();
+        assertEquals(1, events.size());
+        final RecordedEvent event = events.get(0);
+        assertEquals(EVENT_PREFIX + "PollForJobs", event.getEventType().getName());
+        assertEquals(ACTION_TYPE, event.getString("actionType"));
+        assertEquals(10, event.getInt("batchSize"));
+        assertEquals(3, event.getInt("jobCount"));
+        assertEquals("Succeeded", event.getString("status"));
+    }
+
+    @Test
+    public void shouldRecordJobPhaseEventsWithJobIdAndStatus() throws IOException {
+        // given
+        final JobEventRecorder recorder = JobFlightRecorder.forActionType(ACTION_TYPE);
+        recording.start();
+
+        // when
+        recorder.beginAcknowledge("job-1").commit("InProgress");
+        recorder.beginProcess("job-1").commit("Failure");
+        recorder.beginReport("job-1").commit("Failed");
+        recording.stop();
+
+        // then
+        final List<RecordedEvent> events = readEvents();
+        assertEquals(3, events.size());
+        for (final RecordedEvent event : events) {
+            assertEquals("job-1", event.getString("jobId"));
+            assertEquals(ACTION_TYPE, event.getString("actionType"));
+            assertTrue(event.getDuration().toNanos() >= 0);
+        }
+    }
+
+    @Test
+    public void shouldNotRecordEventsWithoutRunningRecording() throws IOException {
+        // given
+        final JobEventRecorder recorder = JobFlightRecorder.forActionType(ACTION_TYPE);
+
+        // when
+        final JobEvent event = recorder.beginProcess("job-1");
+
+        // then
+        assertEquals(JobEvent.NOOP, event);
+    }
+
+    @Test
+    public void shouldDumpRunningRecording() throws IOException {
+        // given
+        final JobEventRecorder recorder = JobFlightRecorder.forActionType(ACTION_TYPE);
+        recording.start();
+        recorder.beginReport("job-2").commit("Succeeded");
+
+        // when
+        final Path dumped = JobFlightRecorder.dump(recordingFile);
+
+        // then
+        assertEquals(recordingFile, dumped);
+        assertEquals(1, readEvents().size());
+    }
+
+    private List<RecordedEvent> readEvents() throws IOException {
+        if (recording.getState() != jdk.jfr.RecordingState.RUNNING) {
+            recording.dump(recordingFile);
+        }
+        return RecordingFile.readAllEvents(recordingFile);
+    }
+}
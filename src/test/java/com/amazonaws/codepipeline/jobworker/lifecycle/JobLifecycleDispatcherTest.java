@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.lifecycle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+
+public class JobLifecycleDispatcherTest {
+
+    @Test
+    public void shouldNotBeEnabledWithoutListeners() {
+        // when
+        final JobLifecycleDispatcher dispatcher = JobLifecycleDispatcher.noop();
+        dispatcher.onPolled(workItem("job-1"));
+
+        // then
+        assertFalse(dispatcher.isEnabled());
+        assertEquals(0, dispatcher.getDroppedEvents());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowWhenBufferSizeIsNotPowerOfTwo() {
+        new JobLifecycleDispatcher(Collections.singletonList(new JobLifecycleListener() { }), 100);
+    }
+
+    @Test
+    public void shouldDeliverEventsInOrderToEveryListener() {
+        // given
+        final PolledJobs first = new PolledJobs();
+        final PolledJobs second = new PolledJobs();
+        final JobLifecycleDispatcher dispatcher = new JobLifecycleDispatcher(Arrays.asList(first, second), 4);
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            dispatcher.onPolled(workItem("job-" + i));
+        }
+        dispatcher.close();
+
+        // then
+        assertTrue(dispatcher.isEnabled());
+        assertEquals(100 - dispatcher.getDroppedEvents(), first.jobIds.size());
+        assertEquals(first.jobIds, second.jobIds);
+        for (int i = 1; i < first.jobIds.size(); i++) {
+            assertTrue(index(first.jobIds.get(i - 1)) < index(first.jobIds.get(i)));
+        }
+    }
+
+    @Test
+    public void shouldDropEventsWhenSlowestListenerIsBufferSizeBehind() throws InterruptedException {
+        // given
+        final CountDownLatch release = new CountDownLatch(1);
+        final PolledJobs fast = new PolledJobs();
+        final JobLifecycleListener blocked = new JobLifecycleListener() {
+            @Override
+            public void onPolled(final WorkItem workItem) {
+                try {
+                    release.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        final JobLifecycleDispatcher dispatcher = new JobLifecycleDispatcher(Arrays.asList(fast, blocked), 2);
+
+        // when
+        dispatcher.onPolled(workItem("job-1"));
+        dispatcher.onPolled(workItem("job-2"));
+        dispatcher.onPolled(workItem("job-3"));
+        release.countDown();
+        dispatcher.close();
+
+        // then
+        assertEquals(1, dispatcher.getDroppedEvents());
+        assertEquals(Arrays.asList("job-1", "job-2"), fast.jobIds);
+    }
+
+    @Test
+    public void shouldKeepDeliveringWhenListenerThrows() {
+        // given
+        final PolledJobs polledJobs = new PolledJobs();
+        final JobLifecycleListener failing = new JobLifecycleListener() {
+            @Override
+            public void onPolled(final WorkItem workItem) {
+                polledJobs.onPolled(workItem);
+                throw new IllegalStateException("Test Exception");
+            }
+        };
+        final JobLifecycleDispatcher dispatcher = new JobLifecycleDispatcher(Collections.singletonList(failing));
+
+        // when
+        dispatcher.onPolled(workItem("job-1"));
+        dispatcher.onFailed(workItem("job-1"), new RuntimeException("Test Exception"));
+        dispatcher.onPolled(workItem("job-2"));
+        dispatcher.close();
+
+        // then
+        assertEquals(Arrays.asList("job-1", "job-2"), polledJobs.jobIds);
+    }
+
+    @Test
+    public void shouldDropEventsAfterClose() {
+        // given
+        final PolledJobs polledJobs = new PolledJobs();
+        final JobLifecycleDispatcher dispatcher = new JobLifecycleDispatcher(Collections.singletonList(polledJobs));
+        dispatcher.close();
+
+        // when
+        dispatcher.onPolled(workItem("job-1"));
+
+        // then
+        assertEquals(1, dispatcher.getDroppedEvents());
+        assertTrue(polledJobs.jobIds.isEmpty());
+    }
+
+    private static WorkItem workItem(final String jobId) {
+        return new WorkItem(jobId, "nonce", null, "client");
+    }
+
+    private static int index(final String jobId) {
+        return Integer.parseInt(jobId.substring("job-".length()));
+    }
+
+    private static class PolledJobs implements JobLifecycleListener {
+        private final List<String> jobIds = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void onPolled(final WorkItem workItem) {
+            jobIds.add(workItem.getJobId());
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.management;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.amazonaws.codepipeline.jobworker.CodePipelineJobPoller;
+import com.amazonaws.codepipeline.jobworker.JobProcessor;
+import com.amazonaws.codepipeline.jobworker.JobService;
+import com.amazonaws.codepipeline.jobworker.JobWorkerDaemon;
+
+public class JobWorkerManagementTest {
+
+    private static final int WORKER_THREADS = 2;
+
+    @Mock
+    private JobService jobService;
+
+    @Mock
+    private JobProcessor jobProcessor;
+
+    @Mock
+    private JobWorkerDaemon daemon;
+
+    private ThreadPoolExecutor executorService;
+    private CodePipelineJobPoller jobPoller;
+    private JobWorkerManagement management;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        executorService = (ThreadPoolExecutor) Executors.newFixedThreadPool(WORKER_THREADS);
+        jobPoller = new CodePipelineJobPoller(jobService, jobProcessor, executorService, WORKER_THREADS);
+        management = new JobWorkerManagement(daemon, jobPoller);
+    }
+
+    @After
+    public void tearDown() {
+        JobWorkerManagement.unregister();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void shouldGrowWorkerPool() {
+        // when
+        management.resizeWorkerPool(5);
+
+        // then
+        assertEquals(5, executorService.getCorePoolSize());
+        assertEquals(5, executorService.getMaximumPoolSize());
+        assertEquals(5, jobPoller.getPollBatchSize());
+    }
+
+    @Test
+    public void shouldShrinkWorkerPool() {
+        // when
+        management.resizeWorkerPool(1);
+
+        // then
+        assertEquals(1, management.getCorePoolSize());
+        assertEquals(1, management.getMaximumPoolSize());
+        assertEquals(1, management.getPollBatchSize());
+    }
+
+    @Test
+    public void shouldResizeWorkerPoolWithCorePoolSize() {
+        // when
+        management.setCorePoolSize(4);
+
+        // then
+        assertEquals(4, management.getCorePoolSize());
+        assertEquals(4, management.getMaximumPoolSize());
+        assertEquals(4, jobPoller.getPollBatchSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAllowEmptyCorePoolSize() {
+        management.setCorePoolSize(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAllowEmptyWorkerPool() {
+        management.resizeWorkerPool(0);
+    }
+
+    @Test
+    public void shouldChangePollingIntervalOfDaemon() {
+        // given
+        when(daemon.getPollingIntervalInMs()).thenReturn(30000L);
+
+        // when
+        management.setPollingIntervalInMs(5000L);
+
+        // then
+        verify(daemon).setPollingIntervalInMs(5000L);
+        assertEquals(30000L, management.getPollingIntervalInMs());
+    }
+
+    @Test
+    public void shouldExposeWorkerPoolAttributesThroughJmx() throws Exception {
+        // when
+        management.register();
+
+        // then
+        assertEquals(WORKER_THREADS, ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(JobWorkerManagement.objectName(), "CorePoolSize"));
+        assertEquals(0, ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(JobWorkerManagement.objectName(), "QueueSize"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldThrowWhenEnablingAutoTuningWithoutTarget() {
+        // when
+        management.setAutoTuningEnabled(true);
+    }
+}
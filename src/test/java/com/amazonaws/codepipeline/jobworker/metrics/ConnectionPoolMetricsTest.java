@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.socket.LayeredConnectionSocketFactory;
+import org.junit.Test;
+
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.util.AWSRequestMetrics;
+import com.amazonaws.util.AWSRequestMetricsFullSupport;
+
+public class ConnectionPoolMetricsTest {
+
+    @Test
+    public void shouldSamplePoolCountersOfRequests() {
+        // given
+        final ConnectionPoolMetrics metrics = new ConnectionPoolMetrics();
+        final Request<?> request = new DefaultRequest<>("CodePipeline");
+        final AWSRequestMetrics requestMetrics = new AWSRequestMetricsFullSupport();
+        requestMetrics.setCounter(AWSRequestMetrics.Field.HttpClientPoolLeasedCount, 3);
+        requestMetrics.setCounter(AWSRequestMetrics.Field.HttpClientPoolAvailableCount, 2);
+        requestMetrics.setCounter(AWSRequestMetrics.Field.HttpClientPoolPendingCount, 1);
+        request.setAWSRequestMetrics(requestMetrics);
+
+        // when
+        metrics.collectMetrics(request, null);
+        metrics.collectMetrics(new DefaultRequest<>("CodePipeline"), null);
+
+        // then
+        assertEquals(2, metrics.getRequests());
+        assertEquals(3, metrics.getLeasedConnections());
+        assertEquals(2, metrics.getAvailableConnections());
+        assertEquals(1, metrics.getPendingRequests());
+    }
+
+    @Test
+    public void shouldRecordNewConnections() throws IOException {
+        // given
+        final ConnectionPoolMetrics metrics = new ConnectionPoolMetrics();
+        final LayeredConnectionSocketFactory delegate = mock(LayeredConnectionSocketFactory.class);
+        final Socket socket = new Socket();
+        when(delegate.connectSocket(anyInt(), any(Socket.class), any(HttpHost.class), any(InetSocketAddress.class),
+                any(), any())).thenAnswer(invocation -> {
+                    Thread.sleep(5);
+                    return socket;
+                });
+        final InstrumentedSslSocketFactory socketFactory = new InstrumentedSslSocketFactory(delegate, metrics);
+
+        // when
+        final Socket connected = socketFactory.connectSocket(1000, socket, new HttpHost("localhost", 443),
+                new InetSocketAddress(443), null, null);
+
+        // then
+        assertSame(socket, connected);
+        assertEquals(1, metrics.getConnectionsOpened());
+        assertEquals(1, metrics.getConnectLatency().getCount());
+        assertTrue(metrics.getConnectLatency().getMax() >= TimeUnit.MILLISECONDS.toNanos(5));
+    }
+}
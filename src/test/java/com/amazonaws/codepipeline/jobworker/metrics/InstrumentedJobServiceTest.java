@@ -0,0 +1,110 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.amazonaws.AmazonServiceException;
+
+import com.amazonaws.codepipeline.jobworker.JobService;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Api;
+import com.amazonaws.codepipeline.jobworker.model.JobStatus;
+
+public class InstrumentedJobServiceTest {
+
+    private static final String JOB_ID = "job-id";
+    private static final String CLIENT_ID = "client-id";
+    private static final String NONCE = "nonce";
+
+    @Mock
+    private JobService jobService;
+
+    private JobWorkerMetrics metrics;
+    private InstrumentedJobService instrumentedJobService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        metrics = new JobWorkerMetrics("test");
+        instrumentedJobService = new InstrumentedJobService(jobService, metrics);
+    }
+
+    @Test
+    public void shouldRecordLatencyOfApiCalls() {
+        // given
+        when(jobService.pollForJobs(5)).thenReturn(Collections.emptyList());
+        when(jobService.acknowledgeJob(JOB_ID, CLIENT_ID, NONCE)).thenReturn(JobStatus.InProgress);
+
+        // when
+        instrumentedJobService.pollForJobs(5);
+        assertEquals(JobStatus.InProgress, instrumentedJobService.acknowledgeJob(JOB_ID, CLIENT_ID, NONCE));
+        instrumentedJobService.putJobFailure(JOB_ID, CLIENT_ID, null);
+
+        // then
+        verify(jobService).putJobFailure(JOB_ID, CLIENT_ID, null);
+        assertEquals(1, metrics.getApiLatency(Api.PollForJobs).getCount());
+        assertEquals(1, metrics.getApiLatency(Api.AcknowledgeJob).getCount());
+        assertEquals(1, metrics.getApiLatency(Api.PutJobFailureResult).getCount());
+        assertEquals(0, metrics.getApiLatency(Api.PutJobSuccessResult).getCount());
+        assertEquals(0, metrics.getApiErrors(Api.PollForJobs));
+    }
+
+    @Test
+    public void shouldCountFailedApiCalls() {
+        // given
+        final RuntimeException exception = new RuntimeException("throttled");
+        when(jobService.pollForJobs(5)).thenThrow(exception);
+
+        // when
+        try {
+            instrumentedJobService.pollForJobs(5);
+            fail("Expected exception");
+        } catch (final RuntimeException e) {
+            // then
+            assertEquals(exception, e);
+        }
+        assertEquals(1, metrics.getApiErrors(Api.PollForJobs));
+        assertEquals(1, metrics.getApiLatency(Api.PollForJobs).getCount());
+        assertEquals(0, metrics.getApiThrottles(Api.PollForJobs));
+    }
+
+    @Test
+    public void shouldCountThrottledApiCalls() {
+        // given
+        final AmazonServiceException exception = new AmazonServiceException("Rate exceeded");
+        exception.setErrorCode("ThrottlingException");
+        when(jobService.acknowledgeJob(JOB_ID, CLIENT_ID, NONCE)).thenThrow(exception);
+
+        // when
+        try {
+            instrumentedJobService.acknowledgeJob(JOB_ID, CLIENT_ID, NONCE);
+            fail("Expected exception");
+        } catch (final AmazonServiceException e) {
+            // then
+            assertEquals(exception, e);
+        }
+        assertEquals(1, metrics.getApiErrors(Api.AcknowledgeJob));
+        assertEquals(1, metrics.getApiThrottles(Api.AcknowledgeJob));
+        assertEquals(0, metrics.getApiThrottles(Api.PollForJobs));
+    }
+}
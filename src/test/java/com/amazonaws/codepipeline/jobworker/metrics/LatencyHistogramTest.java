@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void shouldRecordSmallValuesExactly() {
+        // given
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        // when
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+
+        // then
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10, snapshot.getCount());
+        assertEquals(55, snapshot.getSum());
+        assertEquals(10, snapshot.getMax());
+        assertEquals(5, snapshot.getValueAtPercentile(50));
+        assertEquals(10, snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void shouldReportPercentilesWithinRelativeError() {
+        // given
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        // when
+        for (long millis = 1; millis <= 1000; millis++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(millis));
+        }
+
+        // then
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertWithinRelativeError(TimeUnit.MILLISECONDS.toNanos(500), snapshot.getValueAtPercentile(50));
+        assertWithinRelativeError(TimeUnit.MILLISECONDS.toNanos(990), snapshot.getValueAtPercentile(99));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), snapshot.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void shouldMapBucketsToUpperBounds() {
+        for (final long value : new long[] { 0, 31, 32, 63, 64, 1000, 123456789, Long.MAX_VALUE }) {
+            final int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index < LatencyHistogram.BUCKET_COUNT);
+            assertTrue(LatencyHistogram.bucketUpperBound(index) >= value);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.bucketUpperBound(index - 1) < value);
+            }
+        }
+    }
+
+    @Test
+    public void shouldComputePercentilesOfWindowBetweenSnapshots() {
+        // given
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 100; i++) {
+            histogram.record(TimeUnit.SECONDS.toNanos(10));
+        }
+        final LatencyHistogram.Snapshot earlier = histogram.snapshot();
+        for (int i = 0; i < 10; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+
+        // when
+        final LatencyHistogram.Snapshot window = histogram.snapshot().since(earlier);
+
+        // then
+        assertEquals(10, window.getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1000), window.getSum());
+        assertWithinRelativeError(TimeUnit.MILLISECONDS.toNanos(100), window.getValueAtPercentile(95));
+        assertWithinRelativeError(TimeUnit.MILLISECONDS.toNanos(100), window.getMax());
+    }
+
+    @Test
+    public void shouldCountValuesAtOrBelow() {
+        // given
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(10);
+        histogram.record(20);
+        histogram.record(1000000);
+
+        // when
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        // then
+        assertEquals(0, snapshot.getCountAtOrBelow(5));
+        assertEquals(2, snapshot.getCountAtOrBelow(20));
+        assertEquals(3, snapshot.getCountAtOrBelow(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void shouldRecordConcurrently() throws Exception {
+        // given
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+        try {
+            // when
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                futures.add(executorService.submit(() -> {
+                    for (int i = 0; i < 10000; i++) {
+                        histogram.record(i);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+
+            // then
+            assertEquals(40000, histogram.getCount());
+            assertEquals(40000, histogram.snapshot().getCountAtOrBelow(Long.MAX_VALUE));
+            assertEquals(9999, histogram.getMax());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    private static void assertWithinRelativeError(final long expected, final long actual) {
+        assertTrue(String.format("Expected %d but was %d", expected, actual),
+                Math.abs(actual - expected) <= expected / 32);
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.amazonaws.codepipeline.jobworker.CodePipelineJobPoller;
+import com.amazonaws.codepipeline.jobworker.JobProcessor;
+import com.amazonaws.codepipeline.jobworker.JobService;
+import com.amazonaws.codepipeline.jobworker.accounting.AccountingSettings;
+import com.amazonaws.codepipeline.jobworker.accounting.JobAccounting;
+import com.amazonaws.codepipeline.jobworker.accounting.JobResourceUsage;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Api;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Count;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Phase;
+import com.amazonaws.codepipeline.jobworker.model.ActionTypeId;
+import com.amazonaws.codepipeline.jobworker.model.JobData;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+
+public class MetricsHttpServerTest {
+
+    private static final long POLL_INTERVAL_MS = 30000L;
+    private static final String ACTION_TYPE = "action_type=\"Build/Custom/MyAction/1\"";
+
+    @Mock
+    private JobService jobService;
+
+    @Mock
+    private JobProcessor jobProcessor;
+
+    private final AtomicLong clock = new AtomicLong(1000000L);
+    private ThreadPoolExecutor executorService;
+    private MetricsRegistry registry;
+    private PollHeartbeat heartbeat;
+    private MetricsHttpServer server;
+
+    @Before
+    public void setUp() throws IOException {
+        MockitoAnnotations.initMocks(this);
+        executorService = (ThreadPoolExecutor) Executors.newFixedThreadPool(3);
+        registry = new MetricsRegistry();
+        heartbeat = new PollHeartbeat(POLL_INTERVAL_MS, clock::get);
+        final CodePipelineJobPoller jobPoller = new CodePipelineJobPoller(jobService, jobProcessor, executorService, 3);
+        server = new MetricsHttpServer(0, registry, heartbeat, jobPoller);
+    }
+
+    @After
+    public void tearDown() {
+        server.close();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void shouldServeMetricsInPrometheusTextFormat() throws IOException {
+        // given
+        final JobWorkerMetrics metrics = registry.forActionType(new ActionTypeId("Build", "Custom", "MyAction", "1"));
+        metrics.add(Count.JobsPolled, 7);
+        metrics.getLatency(Phase.Process).record(TimeUnit.MILLISECONDS.toNanos(20));
+        metrics.getLatency(Phase.Process).record(TimeUnit.SECONDS.toNanos(2));
+        metrics.incrementApiErrors(Api.AcknowledgeJob);
+
+        // when
+        final String body = get(MetricsHttpServer.METRICS_PATH, 200);
+
+        // then
+        assertContains(body, "# TYPE codepipeline_jobworker_jobs_polled_total counter\n");
+        assertContains(body, "codepipeline_jobworker_jobs_polled_total{" + ACTION_TYPE + "} 7\n");
+        assertContains(body, "# TYPE codepipeline_jobworker_phase_duration_seconds histogram\n");
+        assertContains(body, "codepipeline_jobworker_phase_duration_seconds_bucket{" + ACTION_TYPE + ",phase=\"Process\",le=\"0.01\"} 0\n");
+        assertContains(body, "codepipeline_jobworker_phase_duration_seconds_bucket{" + ACTION_TYPE + ",phase=\"Process\",le=\"0.025\"} 1\n");
+        assertContains(body, "codepipeline_jobworker_phase_duration_seconds_bucket{" + ACTION_TYPE + ",phase=\"Process\",le=\"2.5\"} 2\n");
+        assertContains(body, "codepipeline_jobworker_phase_duration_seconds_bucket{" + ACTION_TYPE + ",phase=\"Process\",le=\"+Inf\"} 2\n");
+        assertContains(body, "codepipeline_jobworker_phase_duration_seconds_sum{" + ACTION_TYPE + ",phase=\"Process\"} 2.02\n");
+        assertContains(body, "codepipeline_jobworker_phase_duration_seconds_count{" + ACTION_TYPE + ",phase=\"Process\"} 2\n");
+        assertContains(body, "codepipeline_jobworker_api_errors_total{" + ACTION_TYPE + ",api=\"AcknowledgeJob\"} 1\n");
+        assertContains(body, "codepipeline_jobworker_executor_max_pool_size 3\n");
+        assertContains(body, "codepipeline_jobworker_poll_batch_size 3\n");
+        assertContains(body, "codepipeline_jobworker_polling_interval_seconds 30.0\n");
+    }
+
+    @Test
+    public void shouldServeConnectionPoolMetrics() throws IOException {
+        // given
+        registry.getConnectionPoolMetrics().recordConnect(TimeUnit.MILLISECONDS.toNanos(40));
+
+        // when
+        final String body = get(MetricsHttpServer.METRICS_PATH, 200);
+
+        // then
+        assertContains(body, "codepipeline_jobworker_http_connections_opened_total 1\n");
+        assertContains(body, "codepipeline_jobworker_http_pool_pending_requests 0\n");
+        assertContains(body, "codepipeline_jobworker_http_connect_seconds_bucket{le=\"0.025\"} 0\n");
+        assertContains(body, "codepipeline_jobworker_http_connect_seconds_bucket{le=\"0.05\"} 1\n");
+        assertContains(body, "codepipeline_jobworker_http_connect_seconds_sum 0.04\n");
+    }
+
+    @Test
+    public void shouldServeJobAccountingMetrics() throws IOException {
+        // given
+        final JobWorkerMetrics metrics = registry.forActionType(new ActionTypeId("Build", "Custom", "MyAction", "1"));
+        final JobAccounting jobAccounting = new JobAccounting(new AccountingSettings("ProjectName", 10, false));
+        final CodePipelineJobPoller jobPoller = CodePipelineJobPoller.builder(jobService, jobProcessor, executorService, 3)
+                .metrics(metrics)
+                .jobAccounting(jobAccounting)
+                .build();
+        final JobData jobData = new JobData(Collections.singletonMap("ProjectName", "website"), null, null, null, null, null);
+        jobAccounting.record(new WorkItem("job", "nonce", jobData, "client"),
+                new JobResourceUsage(TimeUnit.MILLISECONDS.toNanos(1500), 4096, TimeUnit.SECONDS.toNanos(3)));
+
+        // when
+        final String body;
+        try (MetricsHttpServer accountingServer = new MetricsHttpServer(0, registry, heartbeat, jobPoller)) {
+            body = accountingServer.scrape();
+        }
+
+        // then
+        assertContains(body, "# TYPE codepipeline_jobworker_job_cpu_seconds_total counter\n");
+        assertContains(body, "codepipeline_jobworker_accounted_jobs_total{" + ACTION_TYPE + "} 1\n");
+        assertContains(body, "codepipeline_jobworker_job_cpu_seconds_total{" + ACTION_TYPE + "} 1.5\n");
+        assertContains(body, "codepipeline_jobworker_job_allocated_bytes_by_configuration_total{" + ACTION_TYPE
+                + ",configuration=\"website\"} 4096\n");
+        assertContains(body, "codepipeline_jobworker_job_wall_seconds_by_configuration_total{" + ACTION_TYPE
+                + ",configuration=\"website\"} 3.0\n");
+    }
+
+    @Test
+    public void shouldEncodeSameResponseOnRepeatedScrapes() {
+        // given
+        registry.forActionType(new ActionTypeId("Build", "Custom", "MyAction", "1")).increment(Count.JobsSucceeded);
+
+        // when
+        final String first = server.scrape();
+        final String second = server.scrape();
+
+        // then
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void shouldBeAliveButNotReadyBeforeFirstPoll() throws IOException {
+        get(MetricsHttpServer.LIVENESS_PATH, 200);
+        get(MetricsHttpServer.READINESS_PATH, 503);
+    }
+
+    @Test
+    public void shouldBeReadyAfterSuccessfulPoll() throws IOException {
+        // when
+        heartbeat.beat(true);
+
+        // then
+        get(MetricsHttpServer.LIVENESS_PATH, 200);
+        get(MetricsHttpServer.READINESS_PATH, 200);
+    }
+
+    @Test
+    public void shouldNotBeReadyAfterFailedPoll() throws IOException {
+        // when
+        heartbeat.beat(false);
+
+        // then
+        get(MetricsHttpServer.LIVENESS_PATH, 200);
+        get(MetricsHttpServer.READINESS_PATH, 503);
+    }
+
+    @Test
+    public void shouldNotBeAliveWhenPollLoopStopsBeating() throws IOException {
+        // given
+        heartbeat.beat(true);
+
+        // when
+        clock.addAndGet(PollHeartbeat.MISSED_POLLS_TOLERATED * POLL_INTERVAL_MS + 1);
+
+        // then
+        get(MetricsHttpServer.LIVENESS_PATH, 503);
+        get(MetricsHttpServer.READINESS_PATH, 503);
+    }
+
+    private String get(final String path, final int expectedStatus) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection)
+                new URL("http://localhost:" + server.getPort() + path).openConnection();
+        try {
+            assertEquals(expectedStatus, connection.getResponseCode());
+            final InputStream input = expectedStatus < 400 ? connection.getInputStream() : connection.getErrorStream();
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+            input.close();
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static void assertContains(final String body, final String expected) {
+        assertTrue(String.format("Expected '%s' in:%n%s", expected.trim(), body), body.contains(expected));
+    }
+}
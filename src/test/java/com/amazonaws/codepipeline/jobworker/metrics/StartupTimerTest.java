@@ -0,0 +1,55 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class StartupTimerTest {
+
+    @Test
+    public void shouldReportOnlyRecordedPhases() {
+        // given
+        final StartupTimer timer = new StartupTimer();
+
+        // when
+        timer.recordSince(StartupTimer.Phase.WorkerPool, System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5));
+
+        // then
+        assertEquals(-1, timer.getDuration(StartupTimer.Phase.Configuration));
+        assertTrue(timer.getDuration(StartupTimer.Phase.WorkerPool) >= TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(timer.summary().matches("WorkerPool \\d+ ms"));
+    }
+
+    @Test
+    public void shouldRecordFirstPollOnce() {
+        // given
+        final StartupTimer timer = new StartupTimer();
+
+        // when
+        final boolean first = timer.recordFirstPoll();
+        final long firstPoll = timer.getDuration(StartupTimer.Phase.FirstPoll);
+        final boolean second = timer.recordFirstPoll();
+
+        // then
+        assertTrue(first);
+        assertFalse(second);
+        assertTrue(firstPoll > 0);
+        assertEquals(firstPoll, timer.getDuration(StartupTimer.Phase.FirstPoll));
+    }
+}
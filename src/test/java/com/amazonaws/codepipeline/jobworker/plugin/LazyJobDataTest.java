@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.plugin;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.amazonaws.codepipeline.jobworker.model.Artifact;
+import com.amazonaws.codepipeline.jobworker.model.EncryptionKeyType;
+import com.amazonaws.codepipeline.jobworker.model.JobData;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import com.amazonaws.services.codepipeline.model.EncryptionKey;
+import com.amazonaws.services.codepipeline.model.Job;
+
+public class LazyJobDataTest {
+
+    @Test
+    public void shouldConvertJobData() {
+        // given
+        final com.amazonaws.services.codepipeline.model.JobData jobData = generateJobData();
+
+        // when
+        final WorkItem workItem = JobConverter.convert(generateJob(jobData));
+
+        // then
+        JobAssertion.assertJobDataEquals(jobData, workItem.getJobData());
+        assertEquals(EncryptionKeyType.KMS, workItem.getJobData().getEncryptionKey().getType());
+        assertEquals("my-key", workItem.getJobData().getEncryptionKey().getId());
+    }
+
+    @Test
+    public void shouldReuseConvertedFields() {
+        // when
+        final JobData jobData = JobConverter.convert(generateJob(generateJobData())).getJobData();
+
+        // then
+        assertSame(jobData.getActionConfiguration(), jobData.getActionConfiguration());
+        assertSame(jobData.getInputArtifacts(), jobData.getInputArtifacts());
+        assertSame(jobData.getInputArtifacts().get(1), jobData.getInputArtifacts().get(1));
+        assertSame(jobData.getArtifactCredentials(), jobData.getArtifactCredentials());
+        assertSame(jobData.getEncryptionKey(), jobData.getEncryptionKey());
+    }
+
+    @Test
+    public void shouldReturnEmptyFieldsForMissingJobData() {
+        // when
+        final JobData jobData = JobConverter.convert(generateJob(new com.amazonaws.services.codepipeline.model.JobData())).getJobData();
+
+        // then
+        assertTrue(jobData.getActionConfiguration().isEmpty());
+        assertTrue(jobData.getInputArtifacts().isEmpty());
+        assertTrue(jobData.getOutputArtifacts().isEmpty());
+        assertNull(jobData.getArtifactCredentials());
+        assertNull(jobData.getEncryptionKey());
+        assertNull(jobData.getContinuationToken());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotAllowToModifyArtifacts() {
+        // given
+        final JobData jobData = JobConverter.convert(generateJob(generateJobData())).getJobData();
+
+        // when
+        jobData.getInputArtifacts().set(0, new Artifact("MyArtifact", null, null, null));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotAllowToModifyActionConfiguration() {
+        // given
+        final JobData jobData = JobConverter.convert(generateJob(generateJobData())).getJobData();
+
+        // when
+        jobData.getActionConfiguration().put("my-key", "other-value");
+    }
+
+    private static Job generateJob(final com.amazonaws.services.codepipeline.model.JobData jobData) {
+        final Job job = new Job();
+        job.setId(UUID.randomUUID().toString());
+        job.setNonce("1");
+        job.setAccountId("123456789012");
+        job.setData(jobData);
+        return job;
+    }
+
+    private static com.amazonaws.services.codepipeline.model.JobData generateJobData() {
+        final EncryptionKey encryptionKey = new EncryptionKey();
+        encryptionKey.setType("KMS");
+        encryptionKey.setId("my-key");
+
+        final com.amazonaws.services.codepipeline.model.JobData jobData = new com.amazonaws.services.codepipeline.model.JobData();
+        jobData.setActionConfiguration(JobDataGenerator.generateActionConfiguration());
+        jobData.setInputArtifacts(Arrays.asList(JobDataGenerator.generateArtifact(), JobDataGenerator.generateArtifact()));
+        jobData.setOutputArtifacts(Arrays.asList(JobDataGenerator.generateArtifact()));
+        jobData.setArtifactCredentials(JobDataGenerator.generateAWSSessionCredentials());
+        jobData.setContinuationToken(UUID.randomUUID().toString());
+        jobData.setEncryptionKey(encryptionKey);
+        return jobData;
+    }
+}
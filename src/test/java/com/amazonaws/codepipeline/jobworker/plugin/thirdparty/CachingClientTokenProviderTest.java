@@ -0,0 +1,234 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.plugin.thirdparty;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+public class CachingClientTokenProviderTest {
+
+    private static final String CLIENT_ID = "client-id";
+    private static final long TTL_MS = 1000;
+    private static final long REFRESH_AHEAD_MS = 200;
+
+    @Mock
+    private ClientTokenProvider clientTokenProvider;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final List<Runnable> refreshes = new ArrayList<>();
+    private CachingClientTokenProvider cachingClientTokenProvider;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(clientTokenProvider.lookupClientSecret(CLIENT_ID)).thenReturn("token-1", "token-2");
+        cachingClientTokenProvider = new CachingClientTokenProvider(clientTokenProvider, refreshes::add,
+                TTL_MS, REFRESH_AHEAD_MS, 2, clock::get);
+    }
+
+    @Test
+    public void shouldCacheClientToken() {
+        // when
+        cachingClientTokenProvider.lookupClientSecret(CLIENT_ID);
+        final String clientToken = cachingClientTokenProvider.lookupClientSecret(CLIENT_ID);
+
+        // then
+        assertEquals("token-1", clientToken);
+        verify(clientTokenProvider, times(1)).lookupClientSecret(CLIENT_ID);
+        assertTrue(refreshes.isEmpty());
+    }
+
+    @Test
+    public void shouldLookUpClientTokenAfterExpiry() {
+        // given
+        cachingClientTokenProvider.lookupClientSecret(CLIENT_ID);
+        clock.addAndGet(TTL_MS);
+
+        // when
+        final String clientToken = cachingClientTokenProvider.lookupClientSecret(CLIENT_ID);
+
+        // then
+        assertEquals("token-2", clientToken);
+        verify(clientTokenProvider, times(2)).lookupClientSecret(CLIENT_ID);
+    }
+
+    @Test
+    public void shouldRefreshClientTokenInBackgroundBeforeExpiry() {
+        // given
+        cachingClientTokenProvider.lookupClientSecret(CLIENT_ID);
+        clock.addAndGet(TTL_MS - REFRESH_AHEAD_MS);
+
+        // when
+        final String cachedToken = cachingClientTokenProvider.lookupClientSecret(CLIENT_ID);
+        cachingClientTokenProvider.lookupClientSecret(CLIENT_ID);
+
+        // then
+        assertEquals("token-1", cachedToken);
+        assertEquals(1, refreshes.size());
+
+        // when
+        refreshes.get(0).run();
+
+        // then
+        assertEquals("token-2", cachingClientTokenProvider.lookupClientSecret(CLIENT_ID));
+        verify(clientTokenProvider, times(2)).lookupClientSecret(CLIENT_ID);
+    }
+
+    @Test
+    public void shouldCoalesceConcurrentLookUps() throws Exception {
+        // given
+        final CountDownLatch lookUpStarted = new CountDownLatch(1);
+        final CountDownLatch lookUpReleased = new CountDownLatch(1);
+        final AtomicInteger lookUps = new AtomicInteger();
+        final CachingClientTokenProvider provider = new CachingClientTokenProvider(clientId -> {
+            lookUps.incrementAndGet();
+            lookUpStarted.countDown();
+            try {
+                lookUpReleased.await(5, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "token";
+        }, refreshes::add, TTL_MS, REFRESH_AHEAD_MS, 2, clock::get);
+        final ExecutorService executorService = Executors.newFixedThreadPool(4);
+
+        try {
+            // when
+            final List<Future<String>> clientTokens = new ArrayList<>();
+            clientTokens.add(executorService.submit(() -> provider.lookupClientSecret(CLIENT_ID)));
+            lookUpStarted.await(5, TimeUnit.SECONDS);
+            for (int i = 0; i < 3; i++) {
+                clientTokens.add(executorService.submit(() -> provider.lookupClientSecret(CLIENT_ID)));
+            }
+            Thread.sleep(50);
+            lookUpReleased.countDown();
+
+            // then
+            for (final Future<String> clientToken : clientTokens) {
+                assertEquals("token", clientToken.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, lookUps.get());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldNotCacheFailedLookUps() {
+        // given
+        when(clientTokenProvider.lookupClientSecret(CLIENT_ID))
+                .thenThrow(new IllegalStateException("secret store unavailable"))
+                .thenReturn("token-1");
+
+        // when
+        try {
+            cachingClientTokenProvider.lookupClientSecret(CLIENT_ID);
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+
+        // then
+        assertEquals("token-1", cachingClientTokenProvider.lookupClientSecret(CLIENT_ID));
+    }
+
+    @Test
+    public void shouldReleaseWaitingLookUpsWhenLookUpFailsWithError() throws Exception {
+        // given
+        final CountDownLatch lookUpStarted = new CountDownLatch(1);
+        final CountDownLatch lookUpReleased = new CountDownLatch(1);
+        final AtomicInteger lookUps = new AtomicInteger();
+        final CachingClientTokenProvider provider = new CachingClientTokenProvider(clientId -> {
+            if (lookUps.incrementAndGet() > 1) {
+                return "token";
+            }
+            lookUpStarted.countDown();
+            try {
+                lookUpReleased.await(5, TimeUnit.SECONDS);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new AssertionError("secret store misconfigured");
+        }, refreshes::add, TTL_MS, REFRESH_AHEAD_MS, 2, clock::get);
+        final ExecutorService executorService = Executors.newFixedThreadPool(2);
+
+        try {
+            final Future<String> failing = executorService.submit(() -> provider.lookupClientSecret(CLIENT_ID));
+            lookUpStarted.await(5, TimeUnit.SECONDS);
+            final Future<String> waiting = executorService.submit(() -> provider.lookupClientSecret(CLIENT_ID));
+            Thread.sleep(50);
+
+            // when
+            lookUpReleased.countDown();
+
+            // then
+            assertFailsWithError(failing);
+            try {
+                assertEquals("token", waiting.get(5, TimeUnit.SECONDS));
+            } catch (final ExecutionException e) {
+                // the waiting look up was coalesced with the failed one
+                assertTrue(e.getCause() instanceof AssertionError);
+            }
+            assertEquals("token", provider.lookupClientSecret(CLIENT_ID));
+            assertEquals(1, provider.size());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldEvictClientTokensClosestToExpiry() {
+        // given
+        when(clientTokenProvider.lookupClientSecret("other-client-id")).thenReturn("other-token");
+        when(clientTokenProvider.lookupClientSecret("third-client-id")).thenReturn("third-token");
+        cachingClientTokenProvider.lookupClientSecret(CLIENT_ID);
+        clock.addAndGet(10);
+        cachingClientTokenProvider.lookupClientSecret("other-client-id");
+        clock.addAndGet(10);
+
+        // when
+        cachingClientTokenProvider.lookupClientSecret("third-client-id");
+
+        // then
+        assertEquals(2, cachingClientTokenProvider.size());
+        assertEquals("token-2", cachingClientTokenProvider.lookupClientSecret(CLIENT_ID));
+    }
+
+    private static void assertFailsWithError(final Future<String> clientToken) throws Exception {
+        try {
+            clientToken.get(5, TimeUnit.SECONDS);
+            fail("expected the look up to fail");
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof AssertionError);
+        }
+    }
+}
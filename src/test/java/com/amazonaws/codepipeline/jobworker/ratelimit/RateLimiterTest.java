@@ -0,0 +1,69 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.ratelimit;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class RateLimiterTest {
+
+    @Test
+    public void shouldNotWaitWithoutLimit() {
+        // given
+        final RateLimiter rateLimiter = new RateLimiter(0);
+
+        // when
+        final long elapsedMs = timeAcquires(rateLimiter, 10000);
+
+        // then
+        assertTrue(elapsedMs < 1000);
+    }
+
+    @Test
+    public void shouldSpaceOutCallsToRate() {
+        // given
+        final RateLimiter rateLimiter = new RateLimiter(20);
+
+        // when
+        final long elapsedMs = timeAcquires(rateLimiter, 11);
+
+        // then
+        assertTrue("Took " + elapsedMs + " ms", elapsedMs >= 450);
+        assertTrue("Took " + elapsedMs + " ms", elapsedMs < 2000);
+    }
+
+    @Test
+    public void shouldApplyChangedRate() {
+        // given
+        final RateLimiter rateLimiter = new RateLimiter(1);
+        rateLimiter.acquire();
+
+        // when
+        rateLimiter.setPermitsPerSecond(0);
+        final long elapsedMs = timeAcquires(rateLimiter, 100);
+
+        // then
+        assertTrue(elapsedMs < 500);
+    }
+
+    private static long timeAcquires(final RateLimiter rateLimiter, final int calls) {
+        final long start = System.nanoTime();
+        for (int i = 0; i < calls; i++) {
+            rateLimiter.acquire();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
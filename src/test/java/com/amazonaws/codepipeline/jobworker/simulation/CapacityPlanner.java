@@ -0,0 +1,402 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.simulation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+
+import com.amazonaws.codepipeline.jobworker.CodePipelineJobPoller;
+import com.amazonaws.codepipeline.jobworker.JobService;
+import com.amazonaws.codepipeline.jobworker.metrics.LatencyHistogram;
+import com.amazonaws.codepipeline.jobworker.model.CurrentRevision;
+import com.amazonaws.codepipeline.jobworker.model.ExecutionDetails;
+import com.amazonaws.codepipeline.jobworker.model.FailureDetails;
+import com.amazonaws.codepipeline.jobworker.model.JobStatus;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import com.amazonaws.codepipeline.jobworker.model.WorkResult;
+
+/**
+ * Predicts how a job worker with a given poll interval, poll batch size and number of worker threads copes with
+ * a workload. Runs the real CodePipelineJobPoller against a SimulatedJobService and a SimulatedWorkerPool under
+ * a virtual clock, with Poisson job arrivals and log-normal job durations, and reports pickup latency,
+ * worker utilization, API calls per job and the risk of being throttled.
+ *
+ * Run the default grid for a workload:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.amazonaws.codepipeline.jobworker.simulation.CapacityPlanner \
+ *     -DJOBS_PER_MINUTE=30 -DJOB_DURATION_MEDIAN_MS=20000 -DJOB_DURATION_SIGMA=0.8 -DAPI_CALLS_PER_SECOND_LIMIT=10
+ * </pre>
+ */
+public class CapacityPlanner {
+
+    private static final String POLLER_LOGGER = "com.amazonaws.codepipeline.jobworker.CodePipelineJobPoller";
+    private static final long DISPATCH_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(1);
+    private static final long JOB_TIMEOUT_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final Workload workload;
+    private final double apiCallsPerSecondLimit;
+    private final long seed;
+
+    /**
+     * Initializes the planner.
+     * @param workload job arrivals and durations
+     * @param apiCallsPerSecondLimit assumed CodePipeline API request rate limit of one job worker
+     * @param seed seed of the random arrivals and durations, every setting sees the same workload
+     */
+    public CapacityPlanner(final Workload workload, final double apiCallsPerSecondLimit, final long seed) {
+        this.workload = workload;
+        this.apiCallsPerSecondLimit = apiCallsPerSecondLimit;
+        this.seed = seed;
+    }
+
+    /**
+     * Prints the predictions for a grid of poll intervals, batch sizes and worker counts.
+     * @param args not used, the workload is configured with system properties
+     */
+    public static void main(final String[] args) {
+        // Jobs waiting for a worker longer than the dispatch timeout fail to acknowledge, they are counted as redeliveries.
+        Configurator.setLevel(POLLER_LOGGER, Level.OFF);
+        final Workload workload = new Workload(
+                Double.parseDouble(System.getProperty("JOBS_PER_MINUTE", "30")) / 60.0,
+                Double.parseDouble(System.getProperty("JOB_DURATION_MEDIAN_MS", "20000")),
+                Double.parseDouble(System.getProperty("JOB_DURATION_SIGMA", "0.8")),
+                TimeUnit.HOURS.toMillis(Long.getLong("SIMULATED_HOURS", 24L)));
+        final CapacityPlanner planner = new CapacityPlanner(workload,
+                Double.parseDouble(System.getProperty("API_CALLS_PER_SECOND_LIMIT", "10")), 42L);
+        System.out.println(Prediction.HEADER);
+        for (final Prediction prediction : planner.simulateGrid(
+                new long[] {1000L, 5000L, 10000L, 30000L},
+                new int[] {1, 5, 10, 20},
+                new int[] {5, 10, 20, 50})) {
+            System.out.println(prediction);
+        }
+    }
+
+    /**
+     * Simulates every combination of the given settings.
+     * @param pollingIntervalsMs poll intervals in milliseconds
+     * @param pollBatchSizes poll batch sizes
+     * @param workerThreads worker thread counts
+     * @return one prediction per combination
+     */
+    public List<Prediction> simulateGrid(final long[] pollingIntervalsMs, final int[] pollBatchSizes, final int[] workerThreads) {
+        final List<Prediction> predictions = new ArrayList<>();
+        for (final long pollingIntervalMs : pollingIntervalsMs) {
+            for (final int pollBatchSize : pollBatchSizes) {
+                for (final int workers : workerThreads) {
+                    predictions.add(simulate(pollingIntervalMs, pollBatchSize, workers));
+                }
+            }
+        }
+        return predictions;
+    }
+
+    /**
+     * Simulates one setting over the duration of the workload.
+     * @param pollingIntervalMs poll interval in milliseconds
+     * @param pollBatchSize poll batch size
+     * @param workers number of worker threads
+     * @return predicted behavior of the job worker
+     */
+    public Prediction simulate(final long pollingIntervalMs, final int pollBatchSize, final int workers) {
+        // Separate generators keep the arrivals identical for every setting.
+        final Random arrivals = new Random(seed);
+        final Random durations = new Random(seed + 1);
+        final VirtualClock clock = new VirtualClock();
+        final SimulatedJobService jobService = new SimulatedJobService(clock, DISPATCH_TIMEOUT_MS, JOB_TIMEOUT_MS);
+        final RateRecordingJobService recordingJobService = new RateRecordingJobService(jobService, clock);
+        final SimulatedWorkerPool workerPool = new SimulatedWorkerPool(clock, workers,
+                () -> Math.round(workload.durationMedianMs * Math.exp(workload.durationSigma * durations.nextGaussian())));
+        final CodePipelineJobPoller jobPoller = new CodePipelineJobPoller(recordingJobService,
+                workItem -> WorkResult.success(workItem.getJobId(),
+                        new ExecutionDetails("Simulated", workItem.getJobId(), 100),
+                        new CurrentRevision("revision", "change")),
+                workerPool,
+                pollBatchSize);
+
+        scheduleArrival(clock, jobService, arrivals);
+        schedulePoll(clock, jobPoller, pollingIntervalMs, 0);
+        clock.advanceTo(workload.durationMs);
+
+        final LatencyHistogram.Snapshot pickup = jobService.getPickupLatency().snapshot();
+        final long finishedJobs = jobService.getJobCount(JobStatus.Succeeded) + jobService.getJobCount(JobStatus.Failed);
+        return new Prediction(pollingIntervalMs, pollBatchSize, workers,
+                jobService.getSubmittedJobs(),
+                TimeUnit.NANOSECONDS.toMillis(pickup.getValueAtPercentile(50)),
+                TimeUnit.NANOSECONDS.toMillis(pickup.getValueAtPercentile(99)),
+                Math.min(1.0, (double) workerPool.getBusyTimeMs() / ((double) workers * workload.durationMs)),
+                finishedJobs == 0 ? 0.0 : (double) recordingJobService.calls / finishedJobs,
+                recordingJobService.getPeakCallsPerSecond(),
+                recordingJobService.getFractionOfSecondsAbove(apiCallsPerSecondLimit),
+                jobService.getRedeliveries(),
+                jobService.getJobCount(JobStatus.Queued));
+    }
+
+    private void scheduleArrival(final VirtualClock clock, final SimulatedJobService jobService, final Random random) {
+        // Exponential inter-arrival times make a Poisson arrival process.
+        final long delayMs = Math.round(-Math.log(1.0 - random.nextDouble()) / workload.arrivalsPerSecond * 1000.0);
+        if (clock.nowMs() + delayMs < workload.durationMs) {
+            clock.schedule(delayMs, () -> {
+                jobService.submitJob();
+                scheduleArrival(clock, jobService, random);
+            });
+        }
+    }
+
+    private void schedulePoll(final VirtualClock clock,
+                              final CodePipelineJobPoller jobPoller,
+                              final long pollingIntervalMs,
+                              final long delayMs) {
+        // Like the daemon, the first poll runs at the start and the following polls one interval apart.
+        if (clock.nowMs() + delayMs < workload.durationMs) {
+            clock.schedule(delayMs, () -> {
+                jobPoller.execute();
+                schedulePoll(clock, jobPoller, pollingIntervalMs, pollingIntervalMs);
+            });
+        }
+    }
+
+    /**
+     * Job arrivals and durations of a simulation.
+     */
+    public static final class Workload {
+        private final double arrivalsPerSecond;
+        private final double durationMedianMs;
+        private final double durationSigma;
+        private final long durationMs;
+
+        /**
+         * @param arrivalsPerSecond average number of new jobs per second
+         * @param durationMedianMs median job duration in milliseconds
+         * @param durationSigma standard deviation of the logarithm of the job duration, 0 for constant durations
+         * @param durationMs simulated time in milliseconds
+         */
+        public Workload(final double arrivalsPerSecond,
+                        final double durationMedianMs,
+                        final double durationSigma,
+                        final long durationMs) {
+            if (arrivalsPerSecond <= 0 || durationMedianMs < 0 || durationSigma < 0 || durationMs <= 0) {
+                throw new IllegalArgumentException("Arrival rate and simulated time must be positive, durations not negative");
+            }
+            this.arrivalsPerSecond = arrivalsPerSecond;
+            this.durationMedianMs = durationMedianMs;
+            this.durationSigma = durationSigma;
+            this.durationMs = durationMs;
+        }
+    }
+
+    /**
+     * Predicted behavior of a job worker setting.
+     */
+    public static final class Prediction {
+        static final String HEADER = String.format("%10s %6s %8s %8s %12s %12s %8s %10s %10s %10s %10s %8s",
+                "intervalMs", "batch", "workers", "jobs", "p50PickupMs", "p99PickupMs", "util", "calls/job",
+                "peakCps", "throttle", "redeliver", "backlog");
+
+        private final long pollingIntervalMs;
+        private final int pollBatchSize;
+        private final int workers;
+        private final long jobs;
+        private final long p50PickupLatencyMs;
+        private final long p99PickupLatencyMs;
+        private final double utilization;
+        private final double apiCallsPerJob;
+        private final long peakApiCallsPerSecond;
+        private final double throttleRisk;
+        private final long redeliveries;
+        private final long backlog;
+
+        Prediction(final long pollingIntervalMs,
+                   final int pollBatchSize,
+                   final int workers,
+                   final long jobs,
+                   final long p50PickupLatencyMs,
+                   final long p99PickupLatencyMs,
+                   final double utilization,
+                   final double apiCallsPerJob,
+                   final long peakApiCallsPerSecond,
+                   final double throttleRisk,
+                   final long redeliveries,
+                   final long backlog) {
+            this.pollingIntervalMs = pollingIntervalMs;
+            this.pollBatchSize = pollBatchSize;
+            this.workers = workers;
+            this.jobs = jobs;
+            this.p50PickupLatencyMs = p50PickupLatencyMs;
+            this.p99PickupLatencyMs = p99PickupLatencyMs;
+            this.utilization = utilization;
+            this.apiCallsPerJob = apiCallsPerJob;
+            this.peakApiCallsPerSecond = peakApiCallsPerSecond;
+            this.throttleRisk = throttleRisk;
+            this.redeliveries = redeliveries;
+            this.backlog = backlog;
+        }
+
+        public long getPollingIntervalMs() {
+            return pollingIntervalMs;
+        }
+
+        public int getPollBatchSize() {
+            return pollBatchSize;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        /**
+         * @return number of jobs which arrived during the simulation
+         */
+        public long getJobs() {
+            return jobs;
+        }
+
+        /**
+         * @return median time from queueing to the first dispatch of a job
+         */
+        public long getP50PickupLatencyMs() {
+            return p50PickupLatencyMs;
+        }
+
+        /**
+         * @return 99th percentile of the time from queueing to the first dispatch of a job
+         */
+        public long getP99PickupLatencyMs() {
+            return p99PickupLatencyMs;
+        }
+
+        /**
+         * @return fraction of the worker time spent on jobs
+         */
+        public double getUtilization() {
+            return utilization;
+        }
+
+        /**
+         * @return poll, acknowledge and result requests per finished job
+         */
+        public double getApiCallsPerJob() {
+            return apiCallsPerJob;
+        }
+
+        /**
+         * @return highest number of API requests within one second of simulated time
+         */
+        public long getPeakApiCallsPerSecond() {
+            return peakApiCallsPerSecond;
+        }
+
+        /**
+         * @return fraction of the seconds with API requests above the assumed rate limit
+         */
+        public double getThrottleRisk() {
+            return throttleRisk;
+        }
+
+        /**
+         * @return number of jobs dispatched again because they waited for a worker longer than the dispatch timeout
+         */
+        public long getRedeliveries() {
+            return redeliveries;
+        }
+
+        /**
+         * @return jobs still queued at the end of the simulation, grows without bound if the workers cannot keep up
+         */
+        public long getBacklog() {
+            return backlog;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%10d %6d %8d %8d %12d %12d %8.2f %10.2f %10d %10.4f %10d %8d",
+                    pollingIntervalMs, pollBatchSize, workers, jobs, p50PickupLatencyMs, p99PickupLatencyMs,
+                    utilization, apiCallsPerJob, peakApiCallsPerSecond, throttleRisk, redeliveries, backlog);
+        }
+    }
+
+    /**
+     * Counts the API requests per second of simulated time.
+     */
+    private static final class RateRecordingJobService implements JobService {
+        private final JobService delegate;
+        private final VirtualClock clock;
+        private final Map<Long, Long> callsPerSecond = new HashMap<>();
+        private long calls;
+
+        private RateRecordingJobService(final JobService delegate, final VirtualClock clock) {
+            this.delegate = delegate;
+            this.clock = clock;
+        }
+
+        @Override
+        public List<WorkItem> pollForJobs(final int maxBatchSize) {
+            record();
+            return delegate.pollForJobs(maxBatchSize);
+        }
+
+        @Override
+        public JobStatus acknowledgeJob(final String jobId, final String clientId, final String nonce) {
+            record();
+            return delegate.acknowledgeJob(jobId, clientId, nonce);
+        }
+
+        @Override
+        public void putJobSuccess(final String jobId,
+                                  final String clientId,
+                                  final ExecutionDetails executionDetails,
+                                  final CurrentRevision currentRevision,
+                                  final String continuationToken) {
+            record();
+            delegate.putJobSuccess(jobId, clientId, executionDetails, currentRevision, continuationToken);
+        }
+
+        @Override
+        public void putJobFailure(final String jobId, final String clientId, final FailureDetails failureDetails) {
+            record();
+            delegate.putJobFailure(jobId, clientId, failureDetails);
+        }
+
+        private long getPeakCallsPerSecond() {
+            long peak = 0;
+            for (final long count : callsPerSecond.values()) {
+                peak = Math.max(peak, count);
+            }
+            return peak;
+        }
+
+        private double getFractionOfSecondsAbove(final double limit) {
+            final long seconds = Math.max(1L, TimeUnit.MILLISECONDS.toSeconds(clock.nowMs()));
+            long above = 0;
+            for (final long count : callsPerSecond.values()) {
+                if (count > limit) {
+                    above++;
+                }
+            }
+            return (double) above / seconds;
+        }
+
+        private void record() {
+            calls++;
+            callsPerSecond.merge(TimeUnit.MILLISECONDS.toSeconds(clock.nowMs()), 1L, Long::sum);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class CapacityPlannerTest {
+    private static final String POLLER_LOGGER = "com.amazonaws.codepipeline.jobworker.CodePipelineJobPoller";
+    private static final long ONE_HOUR_MS = TimeUnit.HOURS.toMillis(1);
+
+    @BeforeClass
+    public static void silencePollerLogs() {
+        Configurator.setLevel(POLLER_LOGGER, Level.WARN);
+    }
+
+    @AfterClass
+    public static void restorePollerLogs() {
+        Configurator.setLevel(POLLER_LOGGER, Level.INFO);
+    }
+
+    @Test
+    public void shouldPickUpJobsWithinOnePollIntervalWhenWorkersAreIdle() {
+        // given
+        final CapacityPlanner planner = new CapacityPlanner(new CapacityPlanner.Workload(1.0 / 60, 10000, 0, ONE_HOUR_MS), 10, 1L);
+
+        // when
+        final CapacityPlanner.Prediction prediction = planner.simulate(1000, 10, 10);
+
+        // then
+        assertTrue(prediction.getJobs() > 30);
+        assertTrue(prediction.getP99PickupLatencyMs() <= 1000);
+        assertEquals(0, prediction.getBacklog());
+        assertEquals(10.0 / 60 / 10, prediction.getUtilization(), 0.01);
+        assertTrue(prediction.getApiCallsPerJob() > 2);
+        assertEquals(0.0, prediction.getThrottleRisk(), 0.0);
+    }
+
+    @Test
+    public void shouldBuildBacklogWhenWorkersCannotKeepUp() {
+        // given
+        final CapacityPlanner planner = new CapacityPlanner(new CapacityPlanner.Workload(1.0, 10000, 0.5, ONE_HOUR_MS), 10, 1L);
+
+        // when
+        final CapacityPlanner.Prediction prediction = planner.simulate(1000, 2, 2);
+
+        // then
+        assertTrue(prediction.getUtilization() > 0.95);
+        assertTrue(prediction.getBacklog() > 1000);
+    }
+
+    @Test
+    public void shouldPredictLongerPickupForLongerPollInterval() {
+        // given
+        final CapacityPlanner planner = new CapacityPlanner(new CapacityPlanner.Workload(0.1, 5000, 0.5, ONE_HOUR_MS), 10, 1L);
+
+        // when
+        final List<CapacityPlanner.Prediction> predictions = planner.simulateGrid(new long[] {1000, 30000}, new int[] {10}, new int[] {10});
+
+        // then
+        assertEquals(2, predictions.size());
+        assertEquals(predictions.get(0).getJobs(), predictions.get(1).getJobs());
+        assertTrue(predictions.get(1).getP50PickupLatencyMs() > 10 * predictions.get(0).getP50PickupLatencyMs());
+        assertTrue(predictions.get(0).getApiCallsPerJob() > predictions.get(1).getApiCallsPerJob());
+    }
+
+    @Test
+    public void shouldReportThrottleRiskForBurstsAboveRateLimit() {
+        // given
+        final CapacityPlanner planner = new CapacityPlanner(new CapacityPlanner.Workload(2.0, 100, 0, ONE_HOUR_MS), 5, 1L);
+
+        // when
+        final CapacityPlanner.Prediction prediction = planner.simulate(10000, 50, 50);
+
+        // then
+        assertTrue(prediction.getPeakApiCallsPerSecond() > 5);
+        assertTrue(prediction.getThrottleRisk() > 0);
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.simulation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.codepipeline.jobworker.JobService;
+import com.amazonaws.codepipeline.jobworker.metrics.LatencyHistogram;
+import com.amazonaws.codepipeline.jobworker.model.CurrentRevision;
+import com.amazonaws.codepipeline.jobworker.model.ExecutionDetails;
+import com.amazonaws.codepipeline.jobworker.model.FailureDetails;
+import com.amazonaws.codepipeline.jobworker.model.JobData;
+import com.amazonaws.codepipeline.jobworker.model.JobStatus;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import com.amazonaws.services.codepipeline.model.InvalidJobStateException;
+import com.amazonaws.services.codepipeline.model.InvalidNonceException;
+import com.amazonaws.services.codepipeline.model.JobNotFoundException;
+
+/**
+ * In-memory job service which models how CodePipeline moves jobs through their states under a virtual clock:
+ * <pre>
+ * Created -&gt; Queued -&gt; Dispatched -&gt; InProgress -&gt; Succeeded / Failed
+ *                ^            |              |
+ *                +------------+              +-&gt; TimedOut
+ *           not acknowledged in time      no result in time
+ * </pre>
+ * Every dispatch hands out a new nonce, acknowledging with the nonce of an earlier dispatch fails with an
+ * InvalidNonceException. A success result with a continuation token queues a follow-up job carrying the token.
+ *
+ * Finished jobs are only kept as counters, so millions of jobs can be pushed through the job poller.
+ */
+public class SimulatedJobService implements JobService {
+
+    private static final String CLIENT_ID = "simulation";
+    private static final JobData JOB_DATA = new JobData(null, null, null, null, null, null);
+
+    private final VirtualClock clock;
+    private final long dispatchTimeoutMs;
+    private final long jobTimeoutMs;
+    private final Queue<SimulatedJob> queue = new ArrayDeque<>();
+    private final Map<String, SimulatedJob> jobs = new HashMap<>();
+    private final Map<JobStatus, Long> statusCounts = new EnumMap<>(JobStatus.class);
+    private final LatencyHistogram pickupLatency = new LatencyHistogram();
+    private final LatencyHistogram completionLatency = new LatencyHistogram();
+    private long jobCounter;
+    private long submittedJobs;
+    private long redeliveries;
+    private long continuationJobs;
+
+    /**
+     * Initializes the job service.
+     * @param clock virtual clock the timeouts are scheduled on
+     * @param dispatchTimeoutMs time after which a dispatched job that is not acknowledged is queued again
+     * @param jobTimeoutMs time after which an acknowledged job without result times out
+     */
+    public SimulatedJobService(final VirtualClock clock, final long dispatchTimeoutMs, final long jobTimeoutMs) {
+        this.clock = clock;
+        this.dispatchTimeoutMs = dispatchTimeoutMs;
+        this.jobTimeoutMs = jobTimeoutMs;
+        for (final JobStatus status : JobStatus.values()) {
+            statusCounts.put(status, 0L);
+        }
+    }
+
+    /**
+     * Creates a job and queues it for polling.
+     * @return job id
+     */
+    public String submitJob() {
+        return submitJob(null);
+    }
+
+    /**
+     * Creates a job and queues it for polling.
+     * @param continuationToken continuation token of the previous job, null for a new job
+     * @return job id
+     */
+    public synchronized String submitJob(final String continuationToken) {
+        final SimulatedJob job = new SimulatedJob("job-" + (++jobCounter), continuationToken, clock.nowMs());
+        jobs.put(job.id, job);
+        submittedJobs++;
+        transition(job, JobStatus.Created);
+        enqueue(job);
+        return job.id;
+    }
+
+    @Override
+    public synchronized List<WorkItem> pollForJobs(final int maxBatchSize) {
+        if (queue.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final List<WorkItem> workItems = new ArrayList<>(Math.min(maxBatchSize, queue.size()));
+        while (workItems.size() < maxBatchSize && !queue.isEmpty()) {
+            final SimulatedJob job = queue.poll();
+            final int dispatch = ++job.dispatches;
+            job.nonce = job.id + "-" + dispatch;
+            transition(job, JobStatus.Dispatched);
+            if (dispatch == 1) {
+                pickupLatency.record(TimeUnit.MILLISECONDS.toNanos(clock.nowMs() - job.queuedAtMs));
+            }
+            clock.schedule(dispatchTimeoutMs, () -> dispatchTimedOut(job, dispatch));
+            final JobData jobData = job.continuationToken == null
+                    ? JOB_DATA
+                    : new JobData(null, null, null, null, job.continuationToken, null);
+            workItems.add(new WorkItem(job.id, job.nonce, jobData, CLIENT_ID));
+        }
+        return workItems;
+    }
+
+    @Override
+    public synchronized JobStatus acknowledgeJob(final String jobId, final String clientId, final String nonce) {
+        final SimulatedJob job = find(jobId);
+        if (!job.nonce.equals(nonce)) {
+            throw new InvalidNonceException(String.format("Nonce %s is not the nonce of the latest dispatch of job %s", nonce, jobId));
+        }
+        if (job.status == JobStatus.Dispatched) {
+            transition(job, JobStatus.InProgress);
+            final int dispatch = job.dispatches;
+            clock.schedule(jobTimeoutMs, () -> jobTimedOut(job, dispatch));
+        }
+        return job.status;
+    }
+
+    @Override
+    public synchronized void putJobSuccess(final String jobId,
+                                           final String clientId,
+                                           final ExecutionDetails executionDetails,
+                                           final CurrentRevision currentRevision,
+                                           final String continuationToken) {
+        finish(find(jobId), JobStatus.Succeeded);
+        if (continuationToken != null) {
+            continuationJobs++;
+            submitJob(continuationToken);
+        }
+    }
+
+    @Override
+    public synchronized void putJobFailure(final String jobId, final String clientId, final FailureDetails failureDetails) {
+        finish(find(jobId), JobStatus.Failed);
+    }
+
+    /**
+     * @param jobId job id
+     * @return status of the job, null if the job is unknown or finished
+     */
+    public synchronized JobStatus getJobStatus(final String jobId) {
+        final SimulatedJob job = jobs.get(jobId);
+        return job == null ? null : job.status;
+    }
+
+    /**
+     * @param status job status
+     * @return number of jobs currently in the status, for Succeeded, Failed and TimedOut the number of jobs which ended in it
+     */
+    public synchronized long getJobCount(final JobStatus status) {
+        return statusCounts.get(status);
+    }
+
+    /**
+     * @return number of submitted jobs including follow-up jobs
+     */
+    public synchronized long getSubmittedJobs() {
+        return submittedJobs;
+    }
+
+    /**
+     * @return number of times a dispatched job was queued again because it was not acknowledged in time
+     */
+    public synchronized long getRedeliveries() {
+        return redeliveries;
+    }
+
+    /**
+     * @return number of follow-up jobs queued for continuation tokens
+     */
+    public synchronized long getContinuationJobs() {
+        return continuationJobs;
+    }
+
+    /**
+     * @return fraction of the finished jobs which timed out instead of reporting a result
+     */
+    public synchronized double getLostJobRate() {
+        final long timedOut = statusCounts.get(JobStatus.TimedOut);
+        final long finished = timedOut + statusCounts.get(JobStatus.Succeeded) + statusCounts.get(JobStatus.Failed);
+        return finished == 0 ? 0.0 : (double) timedOut / finished;
+    }
+
+    /**
+     * @return simulated time from queueing to the first dispatch of each job, in nanoseconds
+     */
+    public LatencyHistogram getPickupLatency() {
+        return pickupLatency;
+    }
+
+    /**
+     * @return simulated time from queueing to the reported result of each job, in nanoseconds
+     */
+    public LatencyHistogram getCompletionLatency() {
+        return completionLatency;
+    }
+
+    private void enqueue(final SimulatedJob job) {
+        transition(job, JobStatus.Queued);
+        queue.add(job);
+    }
+
+    private synchronized void dispatchTimedOut(final SimulatedJob job, final int dispatch) {
+        if (job.status == JobStatus.Dispatched && job.dispatches == dispatch) {
+            redeliveries++;
+            enqueue(job);
+        }
+    }
+
+    private synchronized void jobTimedOut(final SimulatedJob job, final int dispatch) {
+        if (job.status == JobStatus.InProgress && job.dispatches == dispatch) {
+            transition(job, JobStatus.TimedOut);
+        }
+    }
+
+    private void finish(final SimulatedJob job, final JobStatus status) {
+        if (job.status != JobStatus.InProgress) {
+            throw new InvalidJobStateException(String.format("Job %s is %s, not InProgress", job.id, job.status));
+        }
+        transition(job, status);
+        jobs.remove(job.id);
+        completionLatency.record(TimeUnit.MILLISECONDS.toNanos(clock.nowMs() - job.queuedAtMs));
+    }
+
+    private SimulatedJob find(final String jobId) {
+        final SimulatedJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new JobNotFoundException(String.format("Job %s not found", jobId));
+        }
+        return job;
+    }
+
+    private void transition(final SimulatedJob job, final JobStatus status) {
+        if (job.status != null && !isTerminal(job.status)) {
+            statusCounts.merge(job.status, -1L, Long::sum);
+        }
+        job.status = status;
+        statusCounts.merge(status, 1L, Long::sum);
+    }
+
+    private static boolean isTerminal(final JobStatus status) {
+        return status == JobStatus.Succeeded || status == JobStatus.Failed || status == JobStatus.TimedOut;
+    }
+
+    private static final class SimulatedJob {
+        private final String id;
+        private final String continuationToken;
+        private final long queuedAtMs;
+        private JobStatus status;
+        private String nonce = "";
+        private int dispatches;
+
+        private SimulatedJob(final String id, final String continuationToken, final long queuedAtMs) {
+            this.id = id;
+            this.continuationToken = continuationToken;
+            this.queuedAtMs = queuedAtMs;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.simulation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.amazonaws.codepipeline.jobworker.CodePipelineJobPoller;
+import com.amazonaws.codepipeline.jobworker.model.CurrentRevision;
+import com.amazonaws.codepipeline.jobworker.model.ExecutionDetails;
+import com.amazonaws.codepipeline.jobworker.model.JobStatus;
+import com.amazonaws.codepipeline.jobworker.model.WorkItem;
+import com.amazonaws.codepipeline.jobworker.model.WorkResult;
+import com.amazonaws.services.codepipeline.model.InvalidJobStateException;
+import com.amazonaws.services.codepipeline.model.InvalidNonceException;
+
+public class SimulatedJobServiceTest {
+    private static final long DISPATCH_TIMEOUT_MS = 60_000L;
+    private static final long JOB_TIMEOUT_MS = 3_600_000L;
+    private static final String POLLER_LOGGER = "com.amazonaws.codepipeline.jobworker.CodePipelineJobPoller";
+
+    private VirtualClock clock;
+    private SimulatedJobService jobService;
+
+    @BeforeClass
+    public static void silencePollerLogs() {
+        Configurator.setLevel(POLLER_LOGGER, Level.WARN);
+    }
+
+    @AfterClass
+    public static void restorePollerLogs() {
+        Configurator.setLevel(POLLER_LOGGER, Level.INFO);
+    }
+
+    @Before
+    public void setUp() {
+        clock = new VirtualClock();
+        jobService = new SimulatedJobService(clock, DISPATCH_TIMEOUT_MS, JOB_TIMEOUT_MS);
+    }
+
+    @Test
+    public void shouldPushJobsThroughJobPoller() {
+        // given
+        final int jobCount = 200_000;
+        for (int i = 0; i < jobCount; i++) {
+            jobService.submitJob();
+        }
+        final CodePipelineJobPoller jobPoller = new CodePipelineJobPoller(jobService,
+                workItem -> WorkResult.success(workItem.getJobId(), new ExecutionDetails("done", "1", 100), new CurrentRevision("r", "c")),
+                new CallerRunsExecutor(),
+                100);
+
+        // when
+        while (jobService.getJobCount(JobStatus.Queued) > 0) {
+            jobPoller.execute();
+            clock.advance(1000);
+        }
+
+        // then
+        assertEquals(jobCount, jobService.getJobCount(JobStatus.Succeeded));
+        assertEquals(0.0, jobService.getLostJobRate(), 0.0);
+        assertEquals(jobCount, jobService.getPickupLatency().getCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1999_000L), jobService.getPickupLatency().getMax(), 0.05 * 1999e6);
+    }
+
+    @Test
+    public void shouldRedeliverJobWhichIsNotAcknowledgedInTime() {
+        // given
+        final String jobId = jobService.submitJob();
+        final WorkItem firstDispatch = jobService.pollForJobs(1).get(0);
+
+        // when
+        clock.advance(DISPATCH_TIMEOUT_MS);
+        final WorkItem secondDispatch = jobService.pollForJobs(1).get(0);
+
+        // then
+        assertEquals(1, jobService.getRedeliveries());
+        assertEquals(jobId, secondDispatch.getJobId());
+        assertEquals(JobStatus.InProgress,
+                jobService.acknowledgeJob(jobId, secondDispatch.getClientId(), secondDispatch.getJobNonce()));
+        try {
+            jobService.acknowledgeJob(jobId, firstDispatch.getClientId(), firstDispatch.getJobNonce());
+            throw new AssertionError("Expected InvalidNonceException");
+        } catch (final InvalidNonceException e) {
+            // expected, the nonce changed with the redelivery
+        }
+    }
+
+    @Test(expected = InvalidJobStateException.class)
+    public void shouldTimeOutJobWithoutResult() {
+        // given
+        final WorkItem workItem = pollSubmittedJob();
+        jobService.acknowledgeJob(workItem.getJobId(), workItem.getClientId(), workItem.getJobNonce());
+
+        // when
+        clock.advance(JOB_TIMEOUT_MS);
+
+        // then
+        assertEquals(JobStatus.TimedOut, jobService.getJobStatus(workItem.getJobId()));
+        assertEquals(1.0, jobService.getLostJobRate(), 0.0);
+        jobService.putJobSuccess(workItem.getJobId(), workItem.getClientId(), null, null, null);
+    }
+
+    @Test
+    public void shouldQueueFollowUpJobForContinuationToken() {
+        // given
+        final WorkItem workItem = pollSubmittedJob();
+        jobService.acknowledgeJob(workItem.getJobId(), workItem.getClientId(), workItem.getJobNonce());
+
+        // when
+        jobService.putJobSuccess(workItem.getJobId(), workItem.getClientId(), null, null, "token");
+        final List<WorkItem> followUp = jobService.pollForJobs(10);
+
+        // then
+        assertNull(jobService.getJobStatus(workItem.getJobId()));
+        assertEquals(1, jobService.getContinuationJobs());
+        assertEquals(1, followUp.size());
+        assertEquals("token", followUp.get(0).getJobData().getContinuationToken());
+    }
+
+    @Test
+    public void shouldRunEventsInTimeOrder() {
+        // given
+        final StringBuilder order = new StringBuilder();
+        clock.schedule(20, () -> order.append('c'));
+        clock.schedule(10, () -> {
+            order.append('a');
+            clock.schedule(5, () -> order.append('b'));
+        });
+        clock.schedule(30, () -> order.append('d'));
+
+        // when
+        clock.advanceTo(20);
+
+        // then
+        assertEquals("abc", order.toString());
+        assertEquals(20, clock.nowMs());
+        assertEquals(1, clock.getPendingEvents());
+    }
+
+    private WorkItem pollSubmittedJob() {
+        jobService.submitJob();
+        return jobService.pollForJobs(1).get(0);
+    }
+
+    /**
+     * Executor which runs the jobs on the polling thread, so the simulation stays single threaded.
+     */
+    static final class CallerRunsExecutor extends ThreadPoolExecutor {
+        CallerRunsExecutor() {
+            super(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        }
+
+        @Override
+        public void execute(final Runnable command) {
+            command.run();
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.simulation;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Worker thread pool under a virtual clock for the job poller. A job runs on the polling thread as soon as
+ * a worker is free, then keeps that worker busy for a sampled duration of simulated time.
+ * Jobs submitted while all workers are busy wait in a queue, like in a fixed thread pool.
+ *
+ * The poller reports the result of a job when it runs, so the simulated job service sees results at the start
+ * of the busy time. Worker occupancy, which drives the poll batch sizes, follows the job durations.
+ */
+public class SimulatedWorkerPool extends ThreadPoolExecutor {
+
+    private final VirtualClock clock;
+    private final int workers;
+    private final LongSupplier jobDurationMs;
+    private final Queue<Runnable> waiting = new ArrayDeque<>();
+    private int busyWorkers;
+    private long busyTimeMs;
+
+    /**
+     * Initializes the worker pool.
+     * @param clock virtual clock the job durations elapse on
+     * @param workers number of worker threads
+     * @param jobDurationMs supplies the simulated duration of each job in milliseconds
+     */
+    public SimulatedWorkerPool(final VirtualClock clock, final int workers, final LongSupplier jobDurationMs) {
+        super(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        this.clock = clock;
+        this.workers = workers;
+        this.jobDurationMs = jobDurationMs;
+    }
+
+    @Override
+    public void execute(final Runnable command) {
+        if (busyWorkers < workers) {
+            start(command);
+        } else {
+            waiting.add(command);
+        }
+    }
+
+    @Override
+    public int getActiveCount() {
+        return busyWorkers;
+    }
+
+    @Override
+    public int getPoolSize() {
+        return workers;
+    }
+
+    /**
+     * @return number of jobs waiting for a worker
+     */
+    public int getWaitingJobs() {
+        return waiting.size();
+    }
+
+    /**
+     * @return simulated time all workers spent on jobs, in milliseconds
+     */
+    public long getBusyTimeMs() {
+        return busyTimeMs;
+    }
+
+    private void start(final Runnable command) {
+        busyWorkers++;
+        final long durationMs = Math.max(0L, jobDurationMs.getAsLong());
+        busyTimeMs += durationMs;
+        command.run();
+        clock.schedule(durationMs, this::finish);
+    }
+
+    private void finish() {
+        busyWorkers--;
+        final Runnable next = waiting.poll();
+        if (next != null) {
+            start(next);
+        }
+    }
+}
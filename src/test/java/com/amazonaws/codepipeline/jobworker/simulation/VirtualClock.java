@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.simulation;
+
+import java.util.PriorityQueue;
+
+/**
+ * Simulated time with a queue of scheduled events. Time only moves when the simulation advances it,
+ * so hours of job traffic run in as long as it takes to execute the scheduled events.
+ *
+ * Events scheduled for the same time run in the order they were scheduled.
+ */
+public final class VirtualClock {
+
+    private final PriorityQueue<ScheduledEvent> events = new PriorityQueue<>();
+    private long nowMs;
+    private long sequence;
+
+    /**
+     * @return current simulated time in milliseconds
+     */
+    public synchronized long nowMs() {
+        return nowMs;
+    }
+
+    /**
+     * Schedules an event relative to the current time.
+     * @param delayMs delay in milliseconds, must not be negative
+     * @param action event action, runs on the thread advancing the clock
+     */
+    public void schedule(final long delayMs, final Runnable action) {
+        if (delayMs < 0) {
+            throw new IllegalArgumentException("Delay must not be negative");
+        }
+        synchronized (this) {
+            events.add(new ScheduledEvent(nowMs + delayMs, sequence++, action));
+        }
+    }
+
+    /**
+     * Runs all events scheduled up to the given time, including the events they schedule, and moves the clock there.
+     * @param timeMs simulated time in milliseconds
+     */
+    public void advanceTo(final long timeMs) {
+        while (true) {
+            final ScheduledEvent event;
+            synchronized (this) {
+                final ScheduledEvent next = events.peek();
+                if (next == null || next.timeMs > timeMs) {
+                    nowMs = Math.max(nowMs, timeMs);
+                    return;
+                }
+                event = events.poll();
+                nowMs = event.timeMs;
+            }
+            event.action.run();
+        }
+    }
+
+    /**
+     * Runs all events scheduled within the given duration and moves the clock by it.
+     * @param durationMs duration in milliseconds
+     */
+    public void advance(final long durationMs) {
+        advanceTo(nowMs() + durationMs);
+    }
+
+    /**
+     * Moves the clock to the next scheduled event and runs all events of that time.
+     * @return false if no event is scheduled
+     */
+    public boolean runNextEvents() {
+        final long timeMs;
+        synchronized (this) {
+            final ScheduledEvent next = events.peek();
+            if (next == null) {
+                return false;
+            }
+            timeMs = next.timeMs;
+        }
+        advanceTo(timeMs);
+        return true;
+    }
+
+    /**
+     * @return number of scheduled events which have not run yet
+     */
+    public synchronized int getPendingEvents() {
+        return events.size();
+    }
+
+    private static final class ScheduledEvent implements Comparable<ScheduledEvent> {
+        private final long timeMs;
+        private final long sequence;
+        private final Runnable action;
+
+        private ScheduledEvent(final long timeMs, final long sequence, final Runnable action) {
+            this.timeMs = timeMs;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo(final ScheduledEvent other) {
+            final int byTime = Long.compare(timeMs, other.timeMs);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.tracing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class JsonLinesSpanExporterTest {
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("spans", ".jsonl");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void shouldWriteSpansInOtlpJsonEncoding() throws IOException {
+        // given
+        final JsonLinesSpanExporter exporter = new JsonLinesSpanExporter(file, "my-worker");
+        final Tracer tracer = new Tracer(exporter);
+        final Span job = tracer.startSpan("Job").setAttribute("jobworker.job_id", "job \"1\"");
+        job.startChild("ProcessJob").setAttribute("jobworker.batch_size", 5).setError("failed\nbadly").end();
+        job.end();
+
+        // when
+        tracer.close();
+
+        // then
+        final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(1, lines.size());
+        final String line = lines.get(0);
+        assertTrue(line, line.startsWith("{\"resourceSpans\":[{\"resource\":{\"attributes\":["
+                + "{\"key\":\"service.name\",\"value\":{\"stringValue\":\"my-worker\"}}]},"
+                + "\"scopeSpans\":[{\"scope\":{\"name\":\"com.amazonaws.codepipeline.jobworker\"},\"spans\":["));
+        assertTrue(line, line.endsWith("]}]}]}"));
+        assertTrue(line, line.contains("\"traceId\":\"" + job.getTraceId() + "\",\"spanId\":\"" + job.getSpanId() + "\""));
+        assertTrue(line, line.contains("\"parentSpanId\":\"" + job.getSpanId() + "\",\"name\":\"ProcessJob\""));
+        assertTrue(line, line.contains("\"startTimeUnixNano\":\"" + job.getStartEpochNanos() + "\""));
+        assertTrue(line, line.contains("{\"key\":\"jobworker.job_id\",\"value\":{\"stringValue\":\"job \\\"1\\\"\"}}"));
+        assertTrue(line, line.contains("{\"key\":\"jobworker.batch_size\",\"value\":{\"intValue\":\"5\"}}"));
+        assertTrue(line, line.contains("\"status\":{\"code\":2,\"message\":\"failed\\nbadly\"}"));
+    }
+
+    @Test
+    public void shouldSplitSpansIntoBatches() throws IOException {
+        // given
+        final JsonLinesSpanExporter exporter = new JsonLinesSpanExporter(file, "my-worker", 100, 2, 60000L);
+        final Tracer tracer = new Tracer(exporter);
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            tracer.startSpan("span-" + i).end();
+        }
+        tracer.close();
+
+        // then
+        final List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        final StringBuilder all = new StringBuilder();
+        for (final String line : lines) {
+            all.append(line);
+        }
+        for (int i = 0; i < 5; i++) {
+            assertTrue(all.toString().contains("\"name\":\"span-" + i + "\""));
+        }
+        assertTrue(lines.size() >= 3);
+        assertEquals(0, exporter.getDroppedSpans());
+    }
+
+    @Test
+    public void shouldDropSpansAfterClose() throws IOException {
+        // given
+        final JsonLinesSpanExporter exporter = new JsonLinesSpanExporter(file, "my-worker");
+        final Tracer tracer = new Tracer(exporter);
+        tracer.close();
+
+        // when
+        tracer.startSpan("late").end();
+
+        // then
+        assertEquals(1, exporter.getDroppedSpans());
+        assertTrue(Files.readAllLines(file, StandardCharsets.UTF_8).isEmpty());
+    }
+}
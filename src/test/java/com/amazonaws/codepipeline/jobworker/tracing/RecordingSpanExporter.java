@@ -0,0 +1,52 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.tracing;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Span exporter which keeps the exported spans in memory.
+ */
+public class RecordingSpanExporter implements SpanExporter {
+
+    private final List<Span> spans = new CopyOnWriteArrayList<>();
+    private volatile boolean closed;
+
+    @Override
+    public void export(final Span span) {
+        spans.add(span);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    public List<Span> getSpans() {
+        return spans;
+    }
+
+    public Span getSpan(final String name) {
+        for (final Span span : spans) {
+            if (span.getName().equals(name)) {
+                return span;
+            }
+        }
+        throw new AssertionError("No span " + name + " in " + spans.size() + " exported spans");
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+}
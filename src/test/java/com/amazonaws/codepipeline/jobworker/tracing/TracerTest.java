@@ -0,0 +1,116 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.tracing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TracerTest {
+
+    private RecordingSpanExporter exporter;
+    private Tracer tracer;
+
+    @Before
+    public void setUp() {
+        exporter = new RecordingSpanExporter();
+        tracer = new Tracer(exporter);
+    }
+
+    @Test
+    public void shouldBuildSpanTree() {
+        // given
+        final Span root = tracer.startSpan("root");
+
+        // when
+        final Span child = root.startChild("child");
+        child.end();
+        root.end();
+
+        // then
+        assertEquals(2, exporter.getSpans().size());
+        assertEquals(32, root.getTraceId().length());
+        assertEquals(16, root.getSpanId().length());
+        assertNull(root.getParentSpanId());
+        assertEquals(root.getTraceId(), child.getTraceId());
+        assertEquals(root.getSpanId(), child.getParentSpanId());
+        assertNotEquals(root.getSpanId(), child.getSpanId());
+        assertTrue(root.getEndEpochNanos() >= child.getEndEpochNanos());
+        assertTrue(child.getStartEpochNanos() >= root.getStartEpochNanos());
+    }
+
+    @Test
+    public void shouldExportSpanOnlyOnce() {
+        // given
+        final Span span = tracer.startSpan("span");
+
+        // when
+        span.end();
+        span.end();
+
+        // then
+        assertEquals(1, exporter.getSpans().size());
+    }
+
+    @Test
+    public void shouldPropagateCurrentSpan() {
+        // given
+        final Span span = tracer.startSpan("process");
+
+        // when
+        try (Scope scope = span.makeCurrent()) {
+            Span.current().startChild("step").end();
+            assertSame(span, Span.current());
+        }
+
+        // then
+        assertFalse(Span.current().isRecording());
+        assertEquals(span.getSpanId(), exporter.getSpan("step").getParentSpanId());
+    }
+
+    @Test
+    public void shouldRecordErrorsAndAttributes() {
+        // when
+        tracer.startSpan("span")
+                .setAttribute("jobworker.job_id", "job-1")
+                .setAttribute("jobworker.batch_size", 10)
+                .setError(new IllegalStateException("broken"))
+                .end();
+
+        // then
+        final Span span = exporter.getSpan("span");
+        assertEquals(Span.Status.Error, span.getStatus());
+        assertEquals("java.lang.IllegalStateException: broken", span.getStatusMessage());
+        assertEquals("job-1", span.getAttributes().get("jobworker.job_id"));
+        assertEquals(10L, span.getAttributes().get("jobworker.batch_size"));
+    }
+
+    @Test
+    public void shouldNotRecordSpansOfNoopTracer() {
+        // when
+        final Span span = Tracer.noop().startSpan("span");
+        span.startChild("child").setAttribute("key", "value").end();
+        span.end();
+
+        // then
+        assertFalse(Tracer.noop().isEnabled());
+        assertFalse(span.isRecording());
+        assertTrue(span.getAttributes().isEmpty());
+    }
+}
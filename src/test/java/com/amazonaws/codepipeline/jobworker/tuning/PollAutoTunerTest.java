@@ -0,0 +1,188 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"). You may not use this file except in
+ * compliance with the License. A copy of the License is located at
+ *
+ * http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the specific language
+ * governing permissions and limitations under the License.
+ */
+package com.amazonaws.codepipeline.jobworker.tuning;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import com.amazonaws.codepipeline.jobworker.CodePipelineJobPoller;
+import com.amazonaws.codepipeline.jobworker.JobProcessor;
+import com.amazonaws.codepipeline.jobworker.JobService;
+import com.amazonaws.codepipeline.jobworker.JobWorkerDaemon;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Api;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Count;
+import com.amazonaws.codepipeline.jobworker.metrics.JobWorkerMetrics.Phase;
+
+public class PollAutoTunerTest {
+
+    private static final int WORKER_THREADS = 4;
+    private static final long TARGET_PICKUP_LATENCY_MS = 2000;
+
+    @Mock
+    private JobService jobService;
+
+    @Mock
+    private JobProcessor jobProcessor;
+
+    @Mock
+    private JobWorkerDaemon daemon;
+
+    private ThreadPoolExecutor executorService;
+    private JobWorkerMetrics metrics;
+    private CodePipelineJobPoller jobPoller;
+    private PollAutoTuner tuner;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        executorService = (ThreadPoolExecutor) Executors.newFixedThreadPool(WORKER_THREADS);
+        metrics = new JobWorkerMetrics("test");
+        jobPoller = CodePipelineJobPoller.builder(jobService, jobProcessor, executorService, WORKER_THREADS)
+                .metrics(metrics)
+                .build();
+        tuner = new PollAutoTuner(daemon, jobPoller, new PollTuningSettings(TARGET_PICKUP_LATENCY_MS, 100, 60000, 60000));
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void shouldShortenPollingIntervalWhenPickupLatencyExceedsTarget() {
+        // given
+        when(daemon.getPollingIntervalInMs()).thenReturn(30000L);
+        recordPolls(10, 0, 50);
+        recordQueueWait(100);
+
+        // when
+        final TuningDecision decision = tuner.tune();
+
+        // then
+        assertEquals(30000 * 95 / 100 + 150, decision.getEstimatedPickupP95Ms());
+        assertEquals(1947, decision.getNewPollingIntervalMs());
+        assertEquals("pickup latency above target", decision.getReason());
+        verify(daemon).setPollingIntervalInMs(1947);
+    }
+
+    @Test
+    public void shouldLengthenPollingIntervalOnEmptyPolls() {
+        // given
+        when(daemon.getPollingIntervalInMs()).thenReturn(1000L);
+        recordPolls(10, 10, 50);
+
+        // when
+        final TuningDecision decision = tuner.tune();
+
+        // then
+        assertEquals(1.0, decision.getEmptyPollRatio(), 0.0);
+        verify(daemon).setPollingIntervalInMs(1250);
+    }
+
+    @Test
+    public void shouldBackOffWhenThrottledAndRecoverSlowly() {
+        // given
+        when(daemon.getPollingIntervalInMs()).thenReturn(2000L);
+        recordPolls(10, 0, 50);
+        metrics.incrementApiThrottles(Api.PollForJobs);
+
+        // when
+        final TuningDecision backOff = tuner.tune();
+        when(daemon.getPollingIntervalInMs()).thenReturn(4000L);
+        recordPolls(10, 0, 50);
+        final TuningDecision recovery = tuner.tune();
+
+        // then
+        assertEquals(1, backOff.getThrottles());
+        verify(daemon).setPollingIntervalInMs(4000);
+        assertEquals(3600, recovery.getNewPollingIntervalMs());
+        verify(daemon).setPollingIntervalInMs(3600);
+    }
+
+    @Test
+    public void shouldLowerBatchSizeWhenJobsWaitForWorkerThreads() {
+        // given
+        when(daemon.getPollingIntervalInMs()).thenReturn(400L);
+        recordPolls(10, 0, 10);
+        recordQueueWait(1500);
+
+        // when
+        final TuningDecision decision = tuner.tune();
+
+        // then
+        assertEquals(1500, decision.getQueueWaitP95Ms());
+        assertEquals(3, decision.getNewPollBatchSize());
+        assertEquals(3, jobPoller.getPollBatchSize());
+    }
+
+    @Test
+    public void shouldRaiseBatchSizeUpToMaximumPoolSize() {
+        // given
+        jobPoller.setPollBatchSize(1);
+        when(daemon.getPollingIntervalInMs()).thenReturn(1000L);
+        recordPolls(10, 0, 10);
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            recordPolls(10, 0, 10);
+            tuner.tune();
+        }
+
+        // then
+        assertEquals(WORKER_THREADS, jobPoller.getPollBatchSize());
+    }
+
+    @Test
+    public void shouldNotTuneWithoutPollsOrWhenDisabled() {
+        // given
+        when(daemon.getPollingIntervalInMs()).thenReturn(30000L);
+
+        // when
+        final TuningDecision idle = tuner.tune();
+        tuner.setEnabled(false);
+        recordPolls(10, 0, 50);
+        final TuningDecision disabled = tuner.tune();
+
+        // then
+        assertNull(idle);
+        assertNull(disabled);
+        assertNull(tuner.getLastDecision());
+        verify(daemon, never()).setPollingIntervalInMs(anyLong());
+    }
+
+    private void recordPolls(final int polls, final int emptyPolls, final long latencyMs) {
+        for (int i = 0; i < polls; i++) {
+            metrics.getLatency(Phase.Poll).record(TimeUnit.MILLISECONDS.toNanos(latencyMs));
+        }
+        metrics.add(Count.EmptyPolls, emptyPolls);
+    }
+
+    private void recordQueueWait(final long latencyMs) {
+        metrics.getLatency(Phase.QueueWait).record(TimeUnit.MILLISECONDS.toNanos(latencyMs));
+    }
+}